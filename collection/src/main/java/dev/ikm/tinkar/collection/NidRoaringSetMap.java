@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Concurrent map from a key nid (such as a pattern nid) to a set of element nids (such as the semantics of that
+ * pattern). Each set is a {@link RoaringBitmap} of offsets from {@link PrimitiveDataService#FIRST_NID}, so small
+ * and sparse sets stay compact, and unsigned bitmap order is ascending nid order.
+ * <p>
+ * Bitmaps are guarded by their own monitor. Iteration copies elements out in small batches and invokes the
+ * procedure outside the lock, so a procedure may safely add to the set it is iterating.
+ */
+public class NidRoaringSetMap {
+    private static final int ITERATION_BATCH_SIZE = 256;
+
+    private final ConcurrentHashMap<Integer, RoaringBitmap> keyToElementsMap = ConcurrentHashMap.newMap();
+
+    private static int toOffset(int nid) {
+        return nid - PrimitiveDataService.FIRST_NID;
+    }
+
+    private static int toNid(int offset) {
+        return offset + PrimitiveDataService.FIRST_NID;
+    }
+
+    /**
+     * @return true if the element was not already in the set for the key.
+     */
+    public boolean add(int keyNid, int elementNid) {
+        RoaringBitmap elements = keyToElementsMap.getIfAbsentPut(keyNid, RoaringBitmap::new);
+        synchronized (elements) {
+            return elements.checkedAdd(toOffset(elementNid));
+        }
+    }
+
+    /**
+     * @return true if the element was in the set for the key.
+     */
+    public boolean remove(int keyNid, int elementNid) {
+        RoaringBitmap elements = keyToElementsMap.get(keyNid);
+        if (elements == null) {
+            return false;
+        }
+        synchronized (elements) {
+            return elements.checkedRemove(toOffset(elementNid));
+        }
+    }
+
+    public boolean contains(int keyNid, int elementNid) {
+        RoaringBitmap elements = keyToElementsMap.get(keyNid);
+        if (elements == null) {
+            return false;
+        }
+        synchronized (elements) {
+            return elements.contains(toOffset(elementNid));
+        }
+    }
+
+    public boolean containsKey(int keyNid) {
+        return keyToElementsMap.containsKey(keyNid);
+    }
+
+    public int size(int keyNid) {
+        RoaringBitmap elements = keyToElementsMap.get(keyNid);
+        if (elements == null) {
+            return 0;
+        }
+        synchronized (elements) {
+            return elements.getCardinality();
+        }
+    }
+
+    public int keyCount() {
+        return keyToElementsMap.size();
+    }
+
+    public void forEachKey(IntProcedure procedure) {
+        keyToElementsMap.forEachKey(procedure::value);
+    }
+
+    /**
+     * @return the elements for the key in ascending nid order, or an empty array if the key has no elements.
+     */
+    public int[] toArray(int keyNid) {
+        RoaringBitmap elements = keyToElementsMap.get(keyNid);
+        if (elements == null) {
+            return new int[0];
+        }
+        int[] nids;
+        synchronized (elements) {
+            nids = elements.toArray();
+        }
+        for (int i = 0; i < nids.length; i++) {
+            nids[i] = toNid(nids[i]);
+        }
+        return nids;
+    }
+
+    /**
+     * Visits the elements for the key in ascending nid order.
+     */
+    public void forEach(int keyNid, IntProcedure procedure) {
+        RoaringBitmap elements = keyToElementsMap.get(keyNid);
+        if (elements == null) {
+            return;
+        }
+        int[] batch = new int[ITERATION_BATCH_SIZE];
+        long nextOffset = 0;
+        while (nextOffset >= 0) {
+            int batchSize = 0;
+            synchronized (elements) {
+                while (batchSize < ITERATION_BATCH_SIZE && nextOffset >= 0) {
+                    long offset = elements.nextValue((int) nextOffset);
+                    if (offset < 0) {
+                        nextOffset = -1;
+                    } else {
+                        batch[batchSize++] = (int) offset;
+                        nextOffset = offset == 0xFFFFFFFFL ? -1 : offset + 1;
+                    }
+                }
+            }
+            for (int i = 0; i < batchSize; i++) {
+                procedure.value(toNid(batch[i]));
+            }
+        }
+    }
+
+    public void clear() {
+        keyToElementsMap.clear();
+    }
+
+    /**
+     * Format: key count, then for each key the key nid followed by its serialized bitmap.
+     */
+    public void write(DataOutput out) throws IOException {
+        Integer[] keys = keyToElementsMap.keySet().toArray(new Integer[0]);
+        out.writeInt(keys.length);
+        for (Integer key : keys) {
+            RoaringBitmap elements = keyToElementsMap.get(key);
+            out.writeInt(key);
+            synchronized (elements) {
+                elements.runOptimize();
+                elements.serialize(out);
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of this map with the sets written by {@link #write(DataOutput)}.
+     */
+    public void read(DataInput in) throws IOException {
+        clear();
+        int keyCount = in.readInt();
+        for (int i = 0; i < keyCount; i++) {
+            int keyNid = in.readInt();
+            RoaringBitmap elements = new RoaringBitmap();
+            elements.deserialize(in);
+            keyToElementsMap.put(keyNid, elements);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+/**
+ * Point in time view of the resident spines of a {@link SpinedIntObjectMap}.
+ *
+ * @param residentSpines     spines currently in memory.
+ * @param residentBytes      estimated heap size of the resident spines.
+ * @param residentByteBudget budget above which clean spines are evicted, or zero or less if eviction is disabled.
+ * @param evictions          spines evicted since the map was opened.
+ * @param spineLoads         spines read from the backing store, including reloads of evicted spines.
+ * @param spineLoadNanos     total time spent reading spines from the backing store.
+ */
+public record SpineCacheMetrics(int residentSpines, long residentBytes, long residentByteBudget,
+                                long evictions, long spineLoads, long spineLoadNanos) {
+
+    public double averageSpineLoadMillis() {
+        if (spineLoads == 0) {
+            return 0;
+        }
+        return spineLoadNanos / 1_000_000.0 / spineLoads;
+    }
+
+    @Override
+    public String toString() {
+        return "SpineCacheMetrics{residentSpines=" + residentSpines +
+                ", residentBytes=" + residentBytes +
+                ", residentByteBudget=" + residentByteBudget +
+                ", evictions=" + evictions +
+                ", spineLoads=" + spineLoads +
+                ", averageSpineLoadMillis=" + String.format("%.3f", averageSpineLoadMillis()) + "}";
+    }
+}
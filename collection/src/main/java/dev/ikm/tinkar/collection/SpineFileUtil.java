@@ -15,13 +15,25 @@
  */
 package dev.ikm.tinkar.collection;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 
 public class SpineFileUtil {
     public static final String SPINE_COUNT_PREFIX = "spineCount-";
     public static final String SPINE_PREFIX = "spine-";
+    /**
+     * Prefix of files being written, chosen so they never match {@link #SPINE_PREFIX}.
+     */
+    public static final String TEMP_PREFIX = "tmp-";
+
+    @FunctionalInterface
+    public interface SpineFileWriter {
+        void write(DataOutputStream dos) throws IOException;
+    }
 
     public static int readSpineCount(File directory) {
         if (directory.exists()) {
@@ -33,23 +45,65 @@ public static int readSpineCount(File directory) {
                 case 0:
                     //throw new IllegalStateException("spineCount == 0 for: " + directory.getName());
                     return 0;
-                case 1:
-                    String countStr = spineCountFiles[0].getName().substring(SPINE_COUNT_PREFIX.length());
-                    return Integer.parseInt(countStr);
                 default:
-                    throw new IllegalStateException("spineCount- > 1 for: " + directory.getName());
+                    // More than one count file only if a crash interrupted writeSpineCount; the count only grows.
+                    int spineCount = 0;
+                    for (File spineCountFile : spineCountFiles) {
+                        String countStr = spineCountFile.getName().substring(SPINE_COUNT_PREFIX.length());
+                        spineCount = Math.max(spineCount, Integer.parseInt(countStr));
+                    }
+                    return spineCount;
             }
         }
         return 0;
     }
     public static void writeSpineCount(File directory, int count) throws IOException {
-        File[] spineCountFiles = directory.listFiles((pathname) -> pathname.getName().startsWith(SPINE_COUNT_PREFIX));
-        for (File countFile: spineCountFiles) {
-            countFile.delete();
-        }
         String newCountFileName = SPINE_COUNT_PREFIX + count;
         File newCountFile = new File(directory, newCountFileName);
+        // Create the new count before removing the old, so a crash never leaves the directory without a count.
         newCountFile.createNewFile();
+        File[] spineCountFiles = directory.listFiles((pathname) -> pathname.getName().startsWith(SPINE_COUNT_PREFIX));
+        for (File countFile: spineCountFiles) {
+            if (!countFile.getName().equals(newCountFileName)) {
+                countFile.delete();
+            }
+        }
+        syncDirectory(directory);
+    }
+
+    /**
+     * Writes to a temporary file in the same directory, forces it to disk, then atomically renames it over the
+     * target, so a crash leaves either the previous or the new contents of the file, never a torn file.
+     */
+    public static void writeAtomically(File file, SpineFileWriter writer) throws IOException {
+        File tempFile = new File(file.getParentFile(), TEMP_PREFIX + file.getName());
+        try (FileOutputStream fos = new FileOutputStream(tempFile);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos))) {
+            writer.write(dos);
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.getParentFile());
+    }
+
+    /**
+     * Forces the directory's entries to disk, so files created, renamed or deleted in it survive a crash. Platforms
+     * that cannot open a directory for reading, such as Windows, persist entries with the file and are skipped.
+     */
+    public static void syncDirectory(File directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some file systems refuse to force a directory; the entries are then written with the file data.
+        }
     }
 
 
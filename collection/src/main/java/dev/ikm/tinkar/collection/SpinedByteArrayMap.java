@@ -58,6 +58,28 @@ protected AtomicReferenceArray<byte[]> readSpine(int spineIndex) {
         return new AtomicReferenceArray<>(spineSize);
     }
 
+    @Override
+    protected long spineWeight(AtomicReferenceArray<byte[]> spine) {
+        long weight = super.spineWeight(spine);
+        for (int i = 0; i < spine.length(); i++) {
+            byte[] value = spine.get(i);
+            if (value != null) {
+                weight += 16 + value.length; // 16 bytes = array object header.
+            }
+        }
+        return weight;
+    }
+
+    @Override
+    protected boolean readsElementsWithoutSpine() {
+        return this.byteArrayStore.supportsElementReads();
+    }
+
+    @Override
+    protected byte[] readElement(int spineIndex, int indexInSpine) {
+        return this.byteArrayStore.getElement(spineIndex, indexInSpine);
+    }
+
     public boolean write() {
 
         try {
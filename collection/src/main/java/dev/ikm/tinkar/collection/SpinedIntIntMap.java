@@ -109,11 +109,13 @@ public boolean write(File directory) {
                     wroteAny.set(true);
                     File spineFile = new File(directory, spineKey);
                     diskSemaphore.acquireUninterruptibly();
-                    try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
-                        dos.writeInt(spine.length());
-                        for (int i = 0; i < spine.length(); i++) {
-                            dos.writeInt(spine.get(i));
-                        }
+                    try {
+                        SpineFileUtil.writeAtomically(spineFile, dos -> {
+                            dos.writeInt(spine.length());
+                            for (int i = 0; i < spine.length(); i++) {
+                                dos.writeInt(spine.get(i));
+                            }
+                        });
                     } catch (IOException ex) {
                         LOG.error(ex.getLocalizedMessage(), ex);
                         throw new RuntimeException(ex);
@@ -32,14 +32,23 @@
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 /**
  * @param <E> the generic type for the spined list.
- * 
+ * <p>
+ * Spines of a persistent map are read lazily. When a resident byte budget is set with
+ * {@link #setResidentByteBudget(long)}, clean spines are evicted with a CLOCK (second chance) policy once the
+ * estimated size of the resident spines exceeds the budget, and are read again on next access. Changed spines
+ * are kept until {@link #forEachChangedSpine(ObjIntConsumer)} has written them, and spines with a write or a
+ * checkpoint in progress are pinned.
  */
 public class SpinedIntObjectMap<E> implements IntObjectMap<E> {
 
@@ -50,19 +59,31 @@
     protected final int maxSpineCount;
     protected final int spineSize;
     private final Semaphore newSpineSemaphore = new Semaphore(1);
-    // TODO: consider growth strategies instead of just a large array expected to be big enough to hold all the spines...
-    private final AtomicReferenceArray<AtomicReferenceArray<E>> spines;
+    private static final int SPINES_PER_PAGE_SHIFT = 6;
+    private static final int SPINES_PER_PAGE = 1 << SPINES_PER_PAGE_SHIFT;
+    private static final int INDEX_IN_PAGE_MASK = SPINES_PER_PAGE - 1;
+    // Spines and their per-spine state are held in pages of 64 spines that are allocated on first use, so capacity
+    // grows with the spines in use and an empty map costs only the page directory.
+    private final AtomicReferenceArray<SpinePage<E>> spinePages;
     private final AtomicInteger spineCount = new AtomicInteger();
-    private final boolean[] changedSpineIndexes;
     private final boolean ephemoral;
     private Function<E, String> elementStringConverter;
 
+    // Resident spine accounting and CLOCK eviction state. Spines are installed and evicted only while holding
+    // newSpineSemaphore, which also guards clockHand.
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final AtomicInteger residentSpineCount = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder spineLoads = new LongAdder();
+    private final LongAdder spineLoadNanos = new LongAdder();
+    private volatile long residentByteBudget = 0;
+    private int clockHand = 0;
+
     public SpinedIntObjectMap() {
         this.ephemoral = true;
         this.maxSpineCount = DEFAULT_MAX_SPINE_COUNT;
         this.spineSize = DEFAULT_SPINE_SIZE;
-        this.spines = new AtomicReferenceArray(this.maxSpineCount);
-        this.changedSpineIndexes = new boolean[this.maxSpineCount * this.spineSize];
+        this.spinePages = new AtomicReferenceArray<>((this.maxSpineCount + INDEX_IN_PAGE_MASK) >>> SPINES_PER_PAGE_SHIFT);
         this.spineCount.set(0);
     }
 
@@ -70,11 +91,82 @@ public SpinedIntObjectMap(int spineCount) {
         this.ephemoral = false;
         this.maxSpineCount = DEFAULT_MAX_SPINE_COUNT;
         this.spineSize = DEFAULT_SPINE_SIZE;
-        this.spines = new AtomicReferenceArray(this.maxSpineCount);
-        this.changedSpineIndexes = new boolean[this.maxSpineCount * this.spineSize];
+        this.spinePages = new AtomicReferenceArray<>((this.maxSpineCount + INDEX_IN_PAGE_MASK) >>> SPINES_PER_PAGE_SHIFT);
         this.spineCount.set(spineCount);
     }
 
+    /**
+     * A page of spines with one bit per spine for the changed and CLOCK reference flags, and a count per spine of
+     * the writers and checkpoints that hold it.
+     */
+    private static final class SpinePage<E> {
+        final AtomicReferenceArray<AtomicReferenceArray<E>> spines = new AtomicReferenceArray<>(SPINES_PER_PAGE);
+        final AtomicLongArray residentSpineBytes = new AtomicLongArray(SPINES_PER_PAGE);
+        final AtomicIntegerArray pins = new AtomicIntegerArray(SPINES_PER_PAGE);
+        final AtomicLong changedSpines = new AtomicLong();
+        final AtomicLong referencedSpines = new AtomicLong();
+    }
+
+    private SpinePage<E> page(int spineIndex) {
+        return this.spinePages.get(spineIndex >>> SPINES_PER_PAGE_SHIFT);
+    }
+
+    private SpinePage<E> pageFor(int spineIndex) {
+        int pageIndex = spineIndex >>> SPINES_PER_PAGE_SHIFT;
+        SpinePage<E> page = this.spinePages.get(pageIndex);
+        if (page == null) {
+            this.spinePages.compareAndSet(pageIndex, null, new SpinePage<>());
+            page = this.spinePages.get(pageIndex);
+        }
+        return page;
+    }
+
+    private AtomicReferenceArray<E> residentSpine(int spineIndex) {
+        SpinePage<E> page = page(spineIndex);
+        if (page == null) {
+            return null;
+        }
+        return page.spines.get(spineIndex & INDEX_IN_PAGE_MASK);
+    }
+
+    // Page bit operations shift by the spine index, which uses only its low six bits: the index within the page.
+    private static boolean testBit(AtomicLong bits, int spineIndex) {
+        return (bits.get() & (1L << spineIndex)) != 0;
+    }
+
+    private static void setBit(AtomicLong bits, int spineIndex) {
+        long mask = 1L << spineIndex;
+        if ((bits.get() & mask) == 0) {
+            bits.getAndAccumulate(mask, (word, bit) -> word | bit);
+        }
+    }
+
+    /**
+     * @return true if the bit was set.
+     */
+    private static boolean clearBit(AtomicLong bits, int spineIndex) {
+        long mask = 1L << spineIndex;
+        return (bits.getAndAccumulate(~mask, (word, keep) -> word & keep) & mask) != 0;
+    }
+
+    /**
+     * Pins the spine for a write, so it is not evicted while the writer holds it. Each call must be followed by
+     * {@link #endWrite(int)}.
+     */
+    private void beginWrite(int spineIndex) {
+        pageFor(spineIndex).pins.incrementAndGet(spineIndex & INDEX_IN_PAGE_MASK);
+    }
+
+    /**
+     * Marks the spine changed after the write, so a checkpoint that cleared the bit while the write was in
+     * progress writes the spine again, then unpins it.
+     */
+    private void endWrite(int spineIndex) {
+        SpinePage<E> page = page(spineIndex);
+        setBit(page.changedSpines, spineIndex);
+        page.pins.decrementAndGet(spineIndex & INDEX_IN_PAGE_MASK);
+    }
+
     public void close() {
         // nothing to do...
     }
@@ -93,18 +185,20 @@ public void forEachSpine(ObjIntConsumer<AtomicReferenceArray<E>> consumer) {
     private AtomicReferenceArray<E> getSpine(int spineIndex) {
         int startSpineCount = spineCount.get();
         if (spineIndex < startSpineCount) {
-            AtomicReferenceArray<E> spine = this.spines.get(spineIndex);
+            AtomicReferenceArray<E> spine = residentSpine(spineIndex);
             if (spine == null) {
                 try {
                     newSpineSemaphore.acquireUninterruptibly();
-                    spine = this.spines.get(spineIndex);
+                    spine = residentSpine(spineIndex);
                     if (spine == null) {
-                        spine = readSpine(spineIndex);
-                        this.spines.compareAndSet(spineIndex, null, spine);
+                        spine = loadSpine(spineIndex);
+                        evictToBudget(spineIndex);
                     }
                 } finally {
                     newSpineSemaphore.release();
                 }
+            } else if (residentByteBudget > 0) {
+                setBit(page(spineIndex).referencedSpines, spineIndex);
             }
             if (spine == null) {
                 AlertStreams.dispatchToRoot(new IllegalStateException("(1) getSpine is returning null for index:" +
@@ -114,27 +208,25 @@ private AtomicReferenceArray<E> getSpine(int spineIndex) {
         }
         try {
             newSpineSemaphore.acquireUninterruptibly();
+            AtomicReferenceArray<E> spine = residentSpine(spineIndex);
             if (spineIndex < spineCount.get()) {
-                AtomicReferenceArray<E> spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
-                    if (eAtomicReferenceArray == null) {
-                        eAtomicReferenceArray = readSpine(spineIndex);
-                        spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
-                    }
-                    return eAtomicReferenceArray;
-                });
+                if (spine == null) {
+                    spine = loadSpine(spineIndex);
+                    spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
+                    evictToBudget(spineIndex);
+                }
                 if (spine == null) {
                     AlertStreams.dispatchToRoot(new IllegalStateException("(2) getSpine is returning null for index:" +
                             spineIndex + "..."));
                 }
                 return spine;
             }
-            AtomicReferenceArray<E> spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
-                if (eAtomicReferenceArray == null) {
-                    eAtomicReferenceArray = newSpine(spineIndex);
-                    spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
-                }
-                return eAtomicReferenceArray;
-            });
+            if (spine == null) {
+                spine = newSpine(spineIndex);
+                spineResident(spineIndex, spine);
+                spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
+                evictToBudget(spineIndex);
+            }
             if (spine == null) {
                 AlertStreams.dispatchToRoot(new IllegalStateException("(3) getSpine is returning null for index:" +
                         spineIndex + "..."));
@@ -145,6 +237,111 @@ private AtomicReferenceArray<E> getSpine(int spineIndex) {
         }
     }
 
+    private AtomicReferenceArray<E> loadSpine(int spineIndex) {
+        long start = System.nanoTime();
+        AtomicReferenceArray<E> spine = readSpine(spineIndex);
+        spineLoadNanos.add(System.nanoTime() - start);
+        spineLoads.increment();
+        spineResident(spineIndex, spine);
+        return spine;
+    }
+
+    /**
+     * Installs a spine and records its weight. Caller must hold newSpineSemaphore.
+     */
+    private void spineResident(int spineIndex, AtomicReferenceArray<E> spine) {
+        SpinePage<E> page = pageFor(spineIndex);
+        long weight = spineWeight(spine);
+        residentBytes.addAndGet(weight - page.residentSpineBytes.getAndSet(spineIndex & INDEX_IN_PAGE_MASK, weight));
+        residentSpineCount.incrementAndGet();
+        setBit(page.referencedSpines, spineIndex);
+        page.spines.set(spineIndex & INDEX_IN_PAGE_MASK, spine);
+    }
+
+    private void updateSpineWeight(int spineIndex, AtomicReferenceArray<E> spine) {
+        long weight = spineWeight(spine);
+        residentBytes.addAndGet(weight - pageFor(spineIndex).residentSpineBytes.getAndSet(spineIndex & INDEX_IN_PAGE_MASK, weight));
+    }
+
+    /**
+     * Estimated heap size of a spine, used to enforce the resident byte budget. Subclasses with variable size
+     * elements should override to include the element sizes.
+     */
+    protected long spineWeight(AtomicReferenceArray<E> spine) {
+        return 16L + 8L * spine.length();
+    }
+
+    /**
+     * Sets the estimated number of bytes of resident spines above which clean spines are evicted. A budget of
+     * zero or less, the default, disables eviction. Ephemeral maps have no backing store and never evict.
+     */
+    public void setResidentByteBudget(long residentByteBudget) {
+        this.residentByteBudget = residentByteBudget;
+        if (residentByteBudget > 0) {
+            try {
+                newSpineSemaphore.acquireUninterruptibly();
+                evictToBudget(-1);
+            } finally {
+                newSpineSemaphore.release();
+            }
+        }
+    }
+
+    public long getResidentByteBudget() {
+        return residentByteBudget;
+    }
+
+    public SpineCacheMetrics spineCacheMetrics() {
+        return new SpineCacheMetrics(residentSpineCount.get(), residentBytes.get(), residentByteBudget,
+                evictions.sum(), spineLoads.sum(), spineLoadNanos.sum());
+    }
+
+    /**
+     * Sweeps the clock until the resident spines fit the budget or every spine has had a second chance.
+     * Changed and pinned spines are skipped, and an eviction that races with a writer pinning the spine is undone.
+     * Caller must hold newSpineSemaphore.
+     *
+     * @param loadingSpineIndex a spine just loaded by the caller, which is never evicted.
+     */
+    private void evictToBudget(int loadingSpineIndex) {
+        long budget = this.residentByteBudget;
+        int spineCountNow = spineCount.get();
+        if (budget <= 0 || ephemoral || spineCountNow == 0) {
+            return;
+        }
+        for (int steps = 2 * spineCountNow; steps > 0 && residentBytes.get() > budget; steps--) {
+            if (clockHand >= spineCountNow) {
+                clockHand = 0;
+            }
+            int spineIndex = clockHand++;
+            SpinePage<E> page = page(spineIndex);
+            if (page == null) {
+                // Skip to the next page.
+                clockHand = (spineIndex | INDEX_IN_PAGE_MASK) + 1;
+                continue;
+            }
+            int indexInPage = spineIndex & INDEX_IN_PAGE_MASK;
+            AtomicReferenceArray<E> spine = page.spines.get(indexInPage);
+            if (spine == null || spineIndex == loadingSpineIndex || testBit(page.changedSpines, spineIndex) ||
+                    page.pins.get(indexInPage) > 0) {
+                continue;
+            }
+            if (clearBit(page.referencedSpines, spineIndex)) {
+                continue;
+            }
+            if (page.spines.compareAndSet(indexInPage, spine, null)) {
+                if (testBit(page.changedSpines, spineIndex) || page.pins.get(indexInPage) > 0) {
+                    // A writer pinned the spine or marked it changed, and may hold a reference to it.
+                    page.spines.set(indexInPage, spine);
+                } else {
+                    residentBytes.addAndGet(-page.residentSpineBytes.getAndSet(indexInPage, 0));
+                    residentSpineCount.decrementAndGet();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
     protected AtomicReferenceArray<E> readSpine(int spineIndex) {
         if (ephemoral) {
             return newSpine(spineIndex);
@@ -162,14 +359,49 @@ public AtomicReferenceArray<E> makeNewSpine(int spineKey) {
         return spine;
     }
 
+    /**
+     * Passes each changed spine to the consumer to be written. The changed bit is cleared before the spine is
+     * written, so a write made while the consumer runs marks the spine changed again for the next call; if the
+     * consumer fails, the bit is set again. The spine is pinned while it is written.
+     *
+     * @return true if any spine was changed.
+     */
     public boolean forEachChangedSpine(ObjIntConsumer<AtomicReferenceArray<E>> consumer) {
         boolean foundChange = false;
         int spineCountNow = spineCount.get();
         for (int spineIndex = 0; spineIndex < spineCountNow; spineIndex++) {
-            if (changedSpineIndexes[spineIndex]) {
+            SpinePage<E> page = page(spineIndex);
+            if (page == null || !testBit(page.changedSpines, spineIndex)) {
+                continue;
+            }
+            int indexInPage = spineIndex & INDEX_IN_PAGE_MASK;
+            page.pins.incrementAndGet(indexInPage);
+            try {
+                if (!clearBit(page.changedSpines, spineIndex)) {
+                    continue;
+                }
                 foundChange = true;
-                consumer.accept(getSpine(spineIndex), spineIndex);
-                changedSpineIndexes[spineIndex] = false;
+                boolean written = false;
+                try {
+                    AtomicReferenceArray<E> spine = getSpine(spineIndex);
+                    consumer.accept(spine, spineIndex);
+                    written = true;
+                    updateSpineWeight(spineIndex, spine);
+                } finally {
+                    if (!written) {
+                        setBit(page.changedSpines, spineIndex);
+                    }
+                }
+            } finally {
+                page.pins.decrementAndGet(indexInPage);
+            }
+        }
+        if (foundChange && residentByteBudget > 0) {
+            try {
+                newSpineSemaphore.acquireUninterruptibly();
+                evictToBudget(-1);
+            } finally {
+                newSpineSemaphore.release();
             }
         }
         return foundChange;
@@ -213,8 +445,12 @@ private int forEachOnSpine(ObjIntConsumer<E> consumer, int spineIndex) {
 
     public final boolean compareAndSet(int index, E expectedValue, E newValue) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).compareAndSet(toIndexInSpine(index), expectedValue, newValue);
+        beginWrite(spineIndex);
+        try {
+            return getSpine(spineIndex).compareAndSet(toIndexInSpine(index), expectedValue, newValue);
+        } finally {
+            endWrite(spineIndex);
+        }
     }
 
     /**
@@ -223,8 +459,12 @@ public final boolean compareAndSet(int index, E expectedValue, E newValue) {
     @Override
     public final boolean put(int index, E element) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element) == null;
+        beginWrite(spineIndex);
+        try {
+            return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element) == null;
+        } finally {
+            endWrite(spineIndex);
+        }
 
     }
 
@@ -234,8 +474,12 @@ public final boolean put(int index, E element) {
     @Override
     public final E getAndSet(int index, E element) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element);
+        beginWrite(spineIndex);
+        try {
+            return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element);
+        } finally {
+            endWrite(spineIndex);
+        }
     }
     private final int toSpineIndex(int index) {
         if (index == 0) {
@@ -261,7 +505,23 @@ private final int toIndexInSpine(int index) {
      */
     @Override
     public final E get(int index) {
-        return getSpine(toSpineIndex(index)).get(toIndexInSpine(index));
+        int spineIndex = toSpineIndex(index);
+        if (residentSpine(spineIndex) == null && spineIndex < spineCount.get() && readsElementsWithoutSpine()) {
+            return readElement(spineIndex, toIndexInSpine(index));
+        }
+        return getSpine(spineIndex).get(toIndexInSpine(index));
+    }
+
+    /**
+     * @return true if {@link #readElement(int, int)} can read an element of a spine that is not in memory,
+     * so reads do not have to materialize the whole spine.
+     */
+    protected boolean readsElementsWithoutSpine() {
+        return false;
+    }
+
+    protected E readElement(int spineIndex, int indexInSpine) {
+        throw new UnsupportedOperationException();
     }
 
     /**
@@ -304,9 +564,17 @@ public final int size() {
      */
     @Override
     public void clear() {
-        for (int i = 0; i < spines.length(); i++) {
-            spines.set(i, null);
+        for (int pageIndex = 0; pageIndex < spinePages.length(); pageIndex++) {
+            SpinePage<E> page = spinePages.get(pageIndex);
+            if (page != null) {
+                for (int indexInPage = 0; indexInPage < SPINES_PER_PAGE; indexInPage++) {
+                    page.spines.set(indexInPage, null);
+                    page.residentSpineBytes.set(indexInPage, 0);
+                }
+            }
         }
+        residentBytes.set(0);
+        residentSpineCount.set(0);
     }
 
     public final void forEach(ObjIntConsumer<E> consumer) {
@@ -322,9 +590,12 @@ public final void forEach(ObjIntConsumer<E> consumer) {
     @Override
     public final E accumulateAndGet(int index, E x, BinaryOperator<E> accumulatorFunction) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(toSpineIndex(index))
-                .accumulateAndGet(toIndexInSpine(index), x, accumulatorFunction);
+        beginWrite(spineIndex);
+        try {
+            return getSpine(spineIndex).accumulateAndGet(toIndexInSpine(index), x, accumulatorFunction);
+        } finally {
+            endWrite(spineIndex);
+        }
 
     }
 
@@ -431,7 +702,7 @@ protected Supplier<? extends Spliterator<E>> get() {
     }
 
     public boolean containsSpine(int spineIndex) {
-        return this.spines.get(spineIndex) != null;
+        return residentSpine(spineIndex) != null;
     }
 
     /**
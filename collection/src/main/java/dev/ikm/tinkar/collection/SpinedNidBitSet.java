@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free concurrent set of nids, stored as one bit per nid offset from {@link PrimitiveDataService#FIRST_NID}.
+ * <p>
+ * Bits are held in spines of {@link AtomicLongArray} words that are allocated on first use, so memory is
+ * proportional to the range of nids actually present rather than to the number of boxed elements. Iteration is
+ * in ascending nid order and does not allocate.
+ */
+public class SpinedNidBitSet {
+    private static final int BITS_PER_SPINE_SHIFT = 20;
+    private static final int WORDS_PER_SPINE = (1 << BITS_PER_SPINE_SHIFT) >>> 6;
+    private static final int MAX_SPINE_COUNT = (int) ((1L << 32) >>> BITS_PER_SPINE_SHIFT);
+
+    private final AtomicReferenceArray<AtomicLongArray> spines = new AtomicReferenceArray<>(MAX_SPINE_COUNT);
+    private final AtomicInteger cardinality = new AtomicInteger();
+
+    private static long toIndex(int nid) {
+        return Integer.toUnsignedLong(nid - PrimitiveDataService.FIRST_NID);
+    }
+
+    private static int toNid(long index) {
+        return (int) index + PrimitiveDataService.FIRST_NID;
+    }
+
+    private static int toSpineIndex(long index) {
+        return (int) (index >>> BITS_PER_SPINE_SHIFT);
+    }
+
+    private static int toWordIndex(long index) {
+        return (int) (index >>> 6) & (WORDS_PER_SPINE - 1);
+    }
+
+    private AtomicLongArray getOrCreateSpine(int spineIndex) {
+        AtomicLongArray spine = spines.get(spineIndex);
+        if (spine == null) {
+            spines.compareAndSet(spineIndex, null, new AtomicLongArray(WORDS_PER_SPINE));
+            spine = spines.get(spineIndex);
+        }
+        return spine;
+    }
+
+    /**
+     * @return true if the nid was not already in the set.
+     */
+    public boolean add(int nid) {
+        long index = toIndex(nid);
+        AtomicLongArray spine = getOrCreateSpine(toSpineIndex(index));
+        int wordIndex = toWordIndex(index);
+        long bit = 1L << index;
+        while (true) {
+            long word = spine.get(wordIndex);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (spine.compareAndSet(wordIndex, word, word | bit)) {
+                cardinality.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the nid was in the set.
+     */
+    public boolean remove(int nid) {
+        long index = toIndex(nid);
+        AtomicLongArray spine = spines.get(toSpineIndex(index));
+        if (spine == null) {
+            return false;
+        }
+        int wordIndex = toWordIndex(index);
+        long bit = 1L << index;
+        while (true) {
+            long word = spine.get(wordIndex);
+            if ((word & bit) == 0) {
+                return false;
+            }
+            if (spine.compareAndSet(wordIndex, word, word & ~bit)) {
+                cardinality.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public boolean contains(int nid) {
+        long index = toIndex(nid);
+        AtomicLongArray spine = spines.get(toSpineIndex(index));
+        if (spine == null) {
+            return false;
+        }
+        return (spine.get(toWordIndex(index)) & (1L << index)) != 0;
+    }
+
+    public int size() {
+        return cardinality.get();
+    }
+
+    public boolean isEmpty() {
+        return cardinality.get() == 0;
+    }
+
+    /**
+     * Removes all nids. Not atomic with respect to concurrent additions.
+     */
+    public void clear() {
+        for (int spineIndex = 0; spineIndex < MAX_SPINE_COUNT; spineIndex++) {
+            spines.set(spineIndex, null);
+        }
+        cardinality.set(0);
+    }
+
+    /**
+     * Visits each nid in ascending nid order. Nids added or removed concurrently may or may not be visited.
+     */
+    public void forEach(IntProcedure procedure) {
+        for (int spineIndex = 0; spineIndex < MAX_SPINE_COUNT; spineIndex++) {
+            AtomicLongArray spine = spines.get(spineIndex);
+            if (spine != null) {
+                long spineStart = (long) spineIndex << BITS_PER_SPINE_SHIFT;
+                for (int wordIndex = 0; wordIndex < WORDS_PER_SPINE; wordIndex++) {
+                    long word = spine.get(wordIndex);
+                    long wordStart = spineStart + ((long) wordIndex << 6);
+                    while (word != 0) {
+                        procedure.value(toNid(wordStart + Long.numberOfTrailingZeros(word)));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the nids in ascending nid order.
+     */
+    public int[] toArray() {
+        int[] nids = new int[size()];
+        int[] count = new int[1];
+        forEach(nid -> {
+            if (count[0] == nids.length) {
+                return;
+            }
+            nids[count[0]++] = nid;
+        });
+        if (count[0] < nids.length) {
+            return Arrays.copyOf(nids, count[0]);
+        }
+        return nids;
+    }
+
+    /**
+     * Writes the non-empty spines. Format: spine count, then for each spine its index followed by its words.
+     */
+    public void write(DataOutput out) throws IOException {
+        int spineCount = 0;
+        for (int spineIndex = 0; spineIndex < MAX_SPINE_COUNT; spineIndex++) {
+            if (spines.get(spineIndex) != null) {
+                spineCount++;
+            }
+        }
+        out.writeInt(spineCount);
+        for (int spineIndex = 0; spineIndex < MAX_SPINE_COUNT && spineCount > 0; spineIndex++) {
+            AtomicLongArray spine = spines.get(spineIndex);
+            if (spine != null) {
+                out.writeInt(spineIndex);
+                for (int wordIndex = 0; wordIndex < WORDS_PER_SPINE; wordIndex++) {
+                    out.writeLong(spine.get(wordIndex));
+                }
+                spineCount--;
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of this set with the spines written by {@link #write(DataOutput)}.
+     */
+    public void read(DataInput in) throws IOException {
+        clear();
+        int spineCount = in.readInt();
+        int newCardinality = 0;
+        for (int i = 0; i < spineCount; i++) {
+            int spineIndex = in.readInt();
+            AtomicLongArray spine = new AtomicLongArray(WORDS_PER_SPINE);
+            for (int wordIndex = 0; wordIndex < WORDS_PER_SPINE; wordIndex++) {
+                long word = in.readLong();
+                spine.set(wordIndex, word);
+                newCardinality += Long.bitCount(word);
+            }
+            spines.set(spineIndex, spine);
+        }
+        cardinality.set(newCardinality);
+    }
+}
@@ -29,4 +29,21 @@ public interface ByteArrayStore {
         int getSpineCount();
 
         void writeSpineCount(int spineCount);
+
+        /**
+         * @return true if this store can read a single element with {@link #getElement(int, int)} without
+         * materializing the spine that holds it.
+         */
+        default boolean supportsElementReads() {
+                return false;
+        }
+
+        /**
+         * Reads one element of a stored spine without materializing the spine.
+         *
+         * @return the element, or null if the spine or element is not present.
+         */
+        default byte[] getElement(int spineIndex, int indexInSpine) {
+                throw new UnsupportedOperationException();
+        }
 }
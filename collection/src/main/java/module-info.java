@@ -24,6 +24,7 @@
     requires transitive dev.ikm.tinkar.common;
     requires dev.ikm.jpms.eclipse.collections.api;
     requires dev.ikm.jpms.eclipse.collections;
+    requires dev.ikm.jpms.roaringbitmap;
     requires org.slf4j;
     requires transitive static dev.ikm.jpms.auto.service;
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.collection.store.ByteArrayStore;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class SpinedByteArrayMapEvictionTest {
+    // Spans more than one page of spines.
+    private static final int SPINE_COUNT = 70;
+
+    @Test
+    public void cleanSpinesAreEvictedAndReloaded() {
+        InMemoryStore store = new InMemoryStore();
+        SpinedByteArrayMap map = new SpinedByteArrayMap(store);
+        for (int spineIndex = 0; spineIndex < SPINE_COUNT; spineIndex++) {
+            map.put(nid(spineIndex), new byte[]{(byte) spineIndex});
+        }
+        // Changed spines are pinned, whatever the budget.
+        map.setResidentByteBudget(1);
+        Assertions.assertEquals(SPINE_COUNT, map.spineCacheMetrics().residentSpines());
+
+        map.write();
+        SpineCacheMetrics afterWrite = map.spineCacheMetrics();
+        Assertions.assertTrue(afterWrite.residentSpines() < SPINE_COUNT);
+        Assertions.assertTrue(afterWrite.evictions() > 0);
+
+        for (int spineIndex = 0; spineIndex < SPINE_COUNT; spineIndex++) {
+            Assertions.assertArrayEquals(new byte[]{(byte) spineIndex}, map.get(nid(spineIndex)));
+        }
+        Assertions.assertTrue(map.spineCacheMetrics().spineLoads() > 0);
+        Assertions.assertTrue(map.spineCacheMetrics().residentSpines() <= 1);
+    }
+
+    @Test
+    public void noBudgetKeepsSpinesResident() {
+        SpinedByteArrayMap map = new SpinedByteArrayMap(new InMemoryStore());
+        for (int spineIndex = 0; spineIndex < SPINE_COUNT; spineIndex++) {
+            map.put(nid(spineIndex), new byte[]{(byte) spineIndex});
+        }
+        map.write();
+        Assertions.assertEquals(SPINE_COUNT, map.spineCacheMetrics().residentSpines());
+        Assertions.assertEquals(0, map.spineCacheMetrics().evictions());
+    }
+
+    private static int nid(int spineIndex) {
+        return PrimitiveDataService.FIRST_NID + spineIndex * SpinedIntObjectMap.DEFAULT_SPINE_SIZE;
+    }
+
+    private static class InMemoryStore implements ByteArrayStore {
+        private final ConcurrentHashMap<Integer, AtomicReferenceArray<byte[]>> spines = new ConcurrentHashMap<>();
+        private int spineCount;
+
+        @Override
+        public Optional<AtomicReferenceArray<byte[]>> get(int spineIndex) {
+            AtomicReferenceArray<byte[]> spine = spines.get(spineIndex);
+            if (spine == null) {
+                return Optional.empty();
+            }
+            AtomicReferenceArray<byte[]> copy = new AtomicReferenceArray<>(spine.length());
+            for (int i = 0; i < spine.length(); i++) {
+                copy.set(i, spine.get(i));
+            }
+            return Optional.of(copy);
+        }
+
+        @Override
+        public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+            spines.put(spineIndex, spine);
+        }
+
+        @Override
+        public int sizeOnDisk() {
+            return 0;
+        }
+
+        @Override
+        public int getSpineCount() {
+            return spineCount;
+        }
+
+        @Override
+        public void writeSpineCount(int spineCount) {
+            this.spineCount = spineCount;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class SpinedIntObjectMapCheckpointTest {
+    private static final int NID = PrimitiveDataService.FIRST_NID;
+
+    @Test
+    public void writeDuringCheckpointIsWrittenByTheNext() {
+        SpinedIntObjectMap<String> map = new SpinedIntObjectMap<>();
+        map.put(NID, "before");
+        Assertions.assertTrue(map.forEachChangedSpine((spine, spineIndex) -> map.put(NID + 1, "during")));
+
+        ConcurrentHashMap<Integer, String> written = new ConcurrentHashMap<>();
+        Assertions.assertTrue(map.forEachChangedSpine((spine, spineIndex) -> written.put(spineIndex, spine.get(1))));
+        Assertions.assertEquals("during", written.values().iterator().next());
+        Assertions.assertFalse(map.forEachChangedSpine((spine, spineIndex) -> Assertions.fail("Spine not changed")));
+    }
+
+    @Test
+    public void failedWriteLeavesSpineChanged() {
+        SpinedIntObjectMap<String> map = new SpinedIntObjectMap<>();
+        map.put(NID, "value");
+        Assertions.assertThrows(IllegalStateException.class, () -> map.forEachChangedSpine((spine, spineIndex) -> {
+            throw new IllegalStateException("Write failed");
+        }));
+        Assertions.assertTrue(map.forEachChangedSpine((spine, spineIndex) -> {
+        }));
+        Assertions.assertFalse(map.forEachChangedSpine((spine, spineIndex) -> {
+        }));
+    }
+
+    @Test
+    public void concurrentWritesAreNeverLostByCheckpoints() throws InterruptedException {
+        int writes = 200_000;
+        SpinedIntObjectMap<Integer> map = new SpinedIntObjectMap<>();
+        ConcurrentHashMap<Integer, AtomicReferenceArray<Integer>> store = new ConcurrentHashMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < writes; i++) {
+                map.put(NID + i, i);
+            }
+            writing.set(false);
+        });
+        while (writing.get()) {
+            map.forEachChangedSpine((spine, spineIndex) -> store.put(spineIndex, copy(spine)));
+        }
+        writer.join();
+        map.forEachChangedSpine((spine, spineIndex) -> store.put(spineIndex, copy(spine)));
+
+        int spineSize = SpinedIntObjectMap.DEFAULT_SPINE_SIZE;
+        for (int i = 0; i < writes; i++) {
+            int index = Integer.MAX_VALUE + NID + i;
+            AtomicReferenceArray<Integer> spine = store.get(index / spineSize);
+            Assertions.assertNotNull(spine);
+            Assertions.assertEquals(i, spine.get(index % spineSize));
+        }
+    }
+
+    private static AtomicReferenceArray<Integer> copy(AtomicReferenceArray<Integer> spine) {
+        AtomicReferenceArray<Integer> copy = new AtomicReferenceArray<>(spine.length());
+        for (int i = 0; i < spine.length(); i++) {
+            copy.set(i, spine.get(i));
+        }
+        return copy;
+    }
+}
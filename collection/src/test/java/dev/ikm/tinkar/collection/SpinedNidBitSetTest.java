@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.stream.IntStream;
+
+public class SpinedNidBitSetTest {
+
+    @Test
+    public void addRemoveAndIterateInNidOrder() {
+        SpinedNidBitSet set = new SpinedNidBitSet();
+        int[] nids = {PrimitiveDataService.FIRST_NID, -5, 0, 17, PrimitiveDataService.FIRST_NID + 3_000_000};
+        for (int i = nids.length - 1; i >= 0; i--) {
+            Assertions.assertTrue(set.add(nids[i]));
+        }
+        Assertions.assertFalse(set.add(-5));
+        Assertions.assertEquals(nids.length, set.size());
+        MutableIntList visited = IntLists.mutable.empty();
+        set.forEach(visited::add);
+        Assertions.assertArrayEquals(new int[]{PrimitiveDataService.FIRST_NID,
+                PrimitiveDataService.FIRST_NID + 3_000_000, -5, 0, 17}, visited.toArray());
+        Assertions.assertTrue(set.remove(0));
+        Assertions.assertFalse(set.contains(0));
+        Assertions.assertEquals(nids.length - 1, set.size());
+    }
+
+    @Test
+    public void concurrentAdds() {
+        SpinedNidBitSet set = new SpinedNidBitSet();
+        IntStream.range(0, 200_000).parallel().forEach(i -> set.add(PrimitiveDataService.FIRST_NID + i));
+        Assertions.assertEquals(200_000, set.size());
+    }
+
+    @Test
+    public void writeThenRead() throws IOException {
+        SpinedNidBitSet set = new SpinedNidBitSet();
+        NidRoaringSetMap setMap = new NidRoaringSetMap();
+        for (int i = 0; i < 1000; i += 7) {
+            set.add(PrimitiveDataService.FIRST_NID + i);
+            setMap.add(-10, PrimitiveDataService.FIRST_NID + i);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            set.write(dos);
+            setMap.write(dos);
+        }
+        SpinedNidBitSet readSet = new SpinedNidBitSet();
+        NidRoaringSetMap readSetMap = new NidRoaringSetMap();
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            readSet.read(dis);
+            readSetMap.read(dis);
+        }
+        Assertions.assertArrayEquals(set.toArray(), readSet.toArray());
+        Assertions.assertArrayEquals(set.toArray(), readSetMap.toArray(-10));
+        MutableIntList visited = IntLists.mutable.empty();
+        readSetMap.forEach(-10, visited::add);
+        Assertions.assertArrayEquals(set.toArray(), visited.toArray());
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.set.MutableSet;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
+
+/**
+ * Merges the stored bytes of two copies of an entity by working on offsets into the source arrays. Arrays
+ * (the chronology, then each version) are located by a boundary scan, sorted and deduplicated with the vectorized
+ * {@link Arrays#compare(byte[], int, int, byte[], int, int)}, and copied once into an exactly sized result with
+ * {@link System#arraycopy}.
+ * <p>
+ * The result is identical to the original set based merge: versions from the new bytes win over versions from the
+ * old bytes with the same stamp, versions on canceled stamps are removed, and differing chronology arrays are
+ * combined into one with the union of their UUIDs.
+ */
+public final class EntityBytesMerger {
+    /**
+     * Canceled stamp test against the active {@link PrimitiveData} provider.
+     */
+    public static final IntPredicate PRIMITIVE_DATA_CANCELED_STAMPS =
+            stampNid -> PrimitiveData.get().isCanceledStampNid(stampNid);
+
+    // Offset of the entity format byte: array count int, then chronology array size int.
+    private static final int FORMAT_OFFSET = 8;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private EntityBytesMerger() {
+    }
+
+    /**
+     * Merge bytes from concurrently created entities. Method is idempotent.
+     *
+     * @param oldBytes          existing bytes, may be null
+     * @param newBytes          bytes to merge, may be null
+     * @param canceledStampNids tests whether a stamp nid is canceled, so its versions can be removed
+     * @return the merged bytes
+     */
+    public static byte[] merge(byte[] oldBytes, byte[] newBytes, IntPredicate canceledStampNids) {
+        if (oldBytes == null) {
+            return newBytes;
+        }
+        if (newBytes == null) {
+            return oldBytes;
+        }
+        if (Arrays.equals(oldBytes, newBytes)) {
+            return oldBytes;
+        }
+        byte entityFormat = newBytes[FORMAT_OFFSET];
+        // Each array is a long of (address << 32 | length), where addresses in the old bytes follow the new bytes.
+        long[] arrays = new long[readInt(newBytes, 0) + readInt(oldBytes, 0)];
+        int[] stampsInSet = new int[arrays.length];
+        int[] counts = new int[2]; // array count, stamp count
+        scan(newBytes, 0, entityFormat, arrays, stampsInSet, counts);
+        scan(oldBytes, newBytes.length, entityFormat, arrays, stampsInSet, counts);
+        int arrayCount = counts[0];
+
+        sort(arrays, arrayCount > INSERTION_SORT_THRESHOLD ? new long[arrayCount] : null, 0, arrayCount, oldBytes, newBytes);
+        arrayCount = removeAdjacentDuplicates(arrays, arrayCount, oldBytes, newBytes);
+
+        byte[] mergedChronology = null;
+        if (arrayCount > 2) {
+            int chronologyCount = 0;
+            int retained = 0;
+            for (int i = 0; i < arrayCount; i++) {
+                long array = arrays[i];
+                byte[] source = source(array, oldBytes, newBytes);
+                int offset = offset(array, newBytes);
+                byte token = source[offset];
+                switch (token) {
+                    case 1, 2, 3, STAMP_DATA_TYPE -> chronologyCount++;
+                    case 4, 5, 6, 25 -> {
+                        if (canceledStampNids.test(readInt(source, offset + 1))) {
+                            // Garbage collection for canceled versions...
+                            continue;
+                        }
+                    }
+                    default -> {
+                        // Leave all versions. Need to retain canceled version if component is a stamp.
+                    }
+                }
+                arrays[retained++] = array;
+            }
+            arrayCount = retained;
+            if (chronologyCount > 1) {
+                mergedChronology = mergeChronologies(arrays, arrayCount, oldBytes, newBytes);
+                arrayCount = removeChronologies(arrays, arrayCount, oldBytes, newBytes);
+            }
+        }
+        return write(arrays, arrayCount, mergedChronology, entityFormat, oldBytes, newBytes);
+    }
+
+    /**
+     * @return the number of versions in the bytes of an entity.
+     */
+    public static int versionCount(byte[] bytes) {
+        return readInt(bytes, 0) - 1;
+    }
+
+    /**
+     * @return the stamp nid of each version in the bytes of an entity other than a stamp, in the order the versions
+     * are stored, which is the order they are decoded in.
+     */
+    public static int[] versionStampNids(byte[] bytes) {
+        int[] stampNids = new int[versionCount(bytes)];
+        // Skip the array count and the chronology array; each version array starts with its token, then its stamp.
+        int position = 8 + readInt(bytes, 4);
+        for (int i = 0; i < stampNids.length; i++) {
+            stampNids[i] = readInt(bytes, position + 5);
+            position += 4 + readInt(bytes, position);
+        }
+        return stampNids;
+    }
+
+    /**
+     * Tests whether the bytes of two entities have the same chronology array, so they differ at most in their
+     * versions. A merge that combined differing chronologies does not have the chronology of either source.
+     */
+    public static boolean sameChronology(byte[] bytes1, byte[] bytes2) {
+        int size1 = readInt(bytes1, 4);
+        int size2 = readInt(bytes2, 4);
+        // The chronology array ends with the version count, which is excluded.
+        return size1 == size2 && Arrays.equals(bytes1, 8, 4 + size1, bytes2, 8, 4 + size2);
+    }
+
+    /**
+     * Adds the arrays of one entity. The chronology array excludes the format byte and version count, which are
+     * written again after merging.
+     *
+     * @param stampsInSet the stamps already added. If two versions with the same stamp are being merged, the newer
+     *                    version must be the merged version, as it represents a newer edit. Newer bytes are scanned
+     *                    first.
+     */
+    private static void scan(byte[] bytes, int addressBase, byte entityFormat, long[] arrays, int[] stampsInSet,
+                             int[] counts) {
+        boolean stampDataType = bytes[9] == STAMP_DATA_TYPE;
+        int arrayCount = readInt(bytes, 0);
+        int position = 4;
+        for (int i = 0; i < arrayCount; i++) {
+            int arraySize = readInt(bytes, position);
+            position += 4;
+            if (i == 0) {
+                byte localEntityFormat = bytes[position];
+                if (localEntityFormat != entityFormat) {
+                    throw new IllegalStateException("All entities should be the same format. Found: " + entityFormat + " != " + localEntityFormat);
+                }
+                int chronologySize = arraySize - 5;
+                addArray(arrays, counts, addressBase + position + 1, chronologySize);
+                int versionCount = readInt(bytes, position + 1 + chronologySize);
+                if (versionCount != arrayCount - 1) {
+                    throw new IllegalStateException("Malformed data. versionCount: " +
+                            versionCount + " arrayCount: " + arrayCount);
+                }
+            } else if (stampDataType) {
+                addArray(arrays, counts, addressBase + position, arraySize);
+            } else {
+                int stampNid = readInt(bytes, position + 1);
+                if (!contains(stampsInSet, counts[1], stampNid)) {
+                    addArray(arrays, counts, addressBase + position, arraySize);
+                    stampsInSet[counts[1]++] = stampNid;
+                }
+            }
+            position += arraySize;
+        }
+    }
+
+    private static void addArray(long[] arrays, int[] counts, int address, int length) {
+        arrays[counts[0]++] = ((long) address << 32) | length;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] source(long array, byte[] oldBytes, byte[] newBytes) {
+        return (int) (array >>> 32) < newBytes.length ? newBytes : oldBytes;
+    }
+
+    private static int offset(long array, byte[] newBytes) {
+        int address = (int) (array >>> 32);
+        return address < newBytes.length ? address : address - newBytes.length;
+    }
+
+    private static int length(long array) {
+        return (int) array;
+    }
+
+    /**
+     * Same order as the original comparator: signed bytes compared lexicographically, then shorter first.
+     */
+    private static int compare(long array1, long array2, byte[] oldBytes, byte[] newBytes) {
+        int offset1 = offset(array1, newBytes);
+        int offset2 = offset(array2, newBytes);
+        return Arrays.compare(source(array1, oldBytes, newBytes), offset1, offset1 + length(array1),
+                source(array2, oldBytes, newBytes), offset2, offset2 + length(array2));
+    }
+
+    private static void sort(long[] arrays, long[] scratch, int from, int to, byte[] oldBytes, byte[] newBytes) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                long array = arrays[i];
+                int j = i - 1;
+                while (j >= from && compare(arrays[j], array, oldBytes, newBytes) > 0) {
+                    arrays[j + 1] = arrays[j];
+                    j--;
+                }
+                arrays[j + 1] = array;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(arrays, scratch, from, middle, oldBytes, newBytes);
+        sort(arrays, scratch, middle, to, oldBytes, newBytes);
+        if (compare(arrays[middle - 1], arrays[middle], oldBytes, newBytes) <= 0) {
+            return;
+        }
+        System.arraycopy(arrays, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(scratch[left], scratch[right], oldBytes, newBytes) <= 0)) {
+                arrays[i] = scratch[left++];
+            } else {
+                arrays[i] = scratch[right++];
+            }
+        }
+    }
+
+    private static int removeAdjacentDuplicates(long[] arrays, int arrayCount, byte[] oldBytes, byte[] newBytes) {
+        if (arrayCount == 0) {
+            return 0;
+        }
+        int retained = 1;
+        for (int i = 1; i < arrayCount; i++) {
+            if (compare(arrays[retained - 1], arrays[i], oldBytes, newBytes) != 0) {
+                arrays[retained++] = arrays[i];
+            }
+        }
+        return retained;
+    }
+
+    private static boolean isChronology(long array, byte[] oldBytes, byte[] newBytes) {
+        return switch (source(array, oldBytes, newBytes)[offset(array, newBytes)]) {
+            case 1, 2, 3, STAMP_DATA_TYPE -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Combines chronology arrays that differ, such as when UUIDs were added, into one with the union of their
+     * UUIDs. Rare, so it favors matching the original UUID order over avoiding allocation.
+     */
+    private static byte[] mergeChronologies(long[] arrays, int arrayCount, byte[] oldBytes, byte[] newBytes) {
+        MutableSet<UUID> uuids = Sets.mutable.empty();
+        long firstChronology = -1;
+        for (int i = 0; i < arrayCount; i++) {
+            long array = arrays[i];
+            if (isChronology(array, oldBytes, newBytes)) {
+                if (firstChronology == -1) {
+                    firstChronology = array;
+                }
+                byte[] source = source(array, oldBytes, newBytes);
+                // Skip the entity type token and nid.
+                int position = offset(array, newBytes) + 5;
+                long[] uuidLongs = new long[2 + source[position + 16]];
+                uuidLongs[0] = readLong(source, position);
+                uuidLongs[1] = readLong(source, position + 8);
+                position += 17;
+                for (int j = 2; j < uuidLongs.length; j++) {
+                    uuidLongs[j] = readLong(source, position);
+                    position += 8;
+                }
+                uuids.addAll(UuidUtil.toList(uuidLongs).castToList());
+            }
+        }
+        ImmutableList<UUID> uuidList = uuids.toImmutableList();
+        byte[] source = source(firstChronology, oldBytes, newBytes);
+        int offset = offset(firstChronology, newBytes);
+        int additionalUuidLongCount = source[offset + 5 + 16];
+        int restOffset = offset + 5 + 16 + 1 + 8 * additionalUuidLongCount;
+        int restLength = offset + length(firstChronology) - restOffset;
+
+        byte[] chronology = new byte[5 + 16 * uuidList.size() + 1 + restLength];
+        // Entity type token and nid.
+        System.arraycopy(source, offset, chronology, 0, 5);
+        int position = 5;
+        position = writeLong(chronology, position, uuidList.get(0).getMostSignificantBits());
+        position = writeLong(chronology, position, uuidList.get(0).getLeastSignificantBits());
+        chronology[position++] = (byte) (uuidList.size() * 2 - 2);
+        for (int uuidIndex = 1; uuidIndex < uuidList.size(); uuidIndex++) {
+            position = writeLong(chronology, position, uuidList.get(uuidIndex).getMostSignificantBits());
+            position = writeLong(chronology, position, uuidList.get(uuidIndex).getLeastSignificantBits());
+        }
+        System.arraycopy(source, restOffset, chronology, position, restLength);
+        return chronology;
+    }
+
+    private static int removeChronologies(long[] arrays, int arrayCount, byte[] oldBytes, byte[] newBytes) {
+        int retained = 0;
+        for (int i = 0; i < arrayCount; i++) {
+            if (!isChronology(arrays[i], oldBytes, newBytes)) {
+                arrays[retained++] = arrays[i];
+            }
+        }
+        return retained;
+    }
+
+    private static byte[] write(long[] arrays, int arrayCount, byte[] mergedChronology, byte entityFormat,
+                                byte[] oldBytes, byte[] newBytes) {
+        int totalArrays = arrayCount + (mergedChronology == null ? 0 : 1);
+        // Array count, then each array with its size; the first array also has the format byte and version count.
+        int size = 4 + 4 * totalArrays + 1 + 4;
+        if (mergedChronology != null) {
+            size += mergedChronology.length;
+        }
+        for (int i = 0; i < arrayCount; i++) {
+            size += length(arrays[i]);
+        }
+        byte[] merged = new byte[size];
+        int position = writeInt(merged, 0, totalArrays);
+        boolean first = true;
+        if (mergedChronology != null) {
+            position = writeFirst(merged, position, mergedChronology, 0, mergedChronology.length, entityFormat, totalArrays);
+            first = false;
+        }
+        for (int i = 0; i < arrayCount; i++) {
+            long array = arrays[i];
+            byte[] source = source(array, oldBytes, newBytes);
+            int offset = offset(array, newBytes);
+            int length = length(array);
+            if (first) {
+                position = writeFirst(merged, position, source, offset, length, entityFormat, totalArrays);
+                first = false;
+            } else {
+                position = writeInt(merged, position, length);
+                System.arraycopy(source, offset, merged, position, length);
+                position += length;
+            }
+        }
+        return merged;
+    }
+
+    private static int writeFirst(byte[] merged, int position, byte[] source, int offset, int length,
+                                  byte entityFormat, int totalArrays) {
+        // Add 4 to have room for the number of versions.
+        // Add 1 for the entity format token
+        position = writeInt(merged, position, length + 5);
+        merged[position++] = entityFormat;
+        System.arraycopy(source, offset, merged, position, length);
+        position += length;
+        // write the number of versions...
+        return writeInt(merged, position, totalArrays - 1);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) |
+                ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) |
+                (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
+    private static int writeLong(byte[] bytes, int offset, long value) {
+        offset = writeInt(bytes, offset, (int) (value >>> 32));
+        return writeInt(bytes, offset, (int) value);
+    }
+}
@@ -48,6 +48,7 @@ public class PrimitiveData {
     private static PublicIdService publicIdServiceSingleton;
     private static PrimitiveData singleton;
     private static CopyOnWriteArrayList<SaveState> statesToSave = new CopyOnWriteArrayList<>();
+    private static CopyOnWriteArrayList<Runnable> stopActions = new CopyOnWriteArrayList<>();
 
     static {
         try {
@@ -76,6 +77,13 @@ public static void stop() {
         TinkExecutor.threadPool().submit(progressTask);
         try {
             save();
+            for (Runnable stopAction : stopActions) {
+                try {
+                    stopAction.run();
+                } catch (Exception e) {
+                    AlertStreams.getRoot().dispatch(AlertObject.makeError(e));
+                }
+            }
             if (controllerSingleton != null) {
                 controllerSingleton.stop();
             }
@@ -103,6 +111,14 @@ public static CopyOnWriteArrayList<SaveState> getStatesToSave() {
         return statesToSave;
     }
 
+    /**
+     * @return actions run by {@link #stop()} after saving and before the data service stops, such as ending work
+     * that still reads from the data service.
+     */
+    public static CopyOnWriteArrayList<Runnable> getStopActions() {
+        return stopActions;
+    }
+
     public static void reload() {
         controllerSingleton.reload();
     }
@@ -16,30 +16,19 @@
 package dev.ikm.tinkar.common.service;
 
 import com.google.auto.service.AutoService;
+import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
 import org.eclipse.collections.api.factory.Lists;
-import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
-import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.api.list.primitive.ByteList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
-import org.eclipse.collections.api.list.primitive.MutableLongList;
-import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
-import org.eclipse.collections.impl.factory.primitive.ByteLists;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
-import org.eclipse.collections.impl.factory.primitive.LongLists;
 import org.eclipse.collections.impl.factory.primitive.LongSets;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
@@ -131,199 +120,10 @@ static int nidForUuids(ConcurrentMap<UUID, Integer> uuidNidMap, NidGenerator nid
      * @param oldBytes
      * @param newBytes
      * @return
+     * @see EntityBytesMerger
      */
     static byte[] merge(byte[] oldBytes, byte[] newBytes) {
-        if (oldBytes == null) {
-            return newBytes;
-        }
-        if (newBytes == null) {
-            return oldBytes;
-        }
-        if (Arrays.equals(oldBytes, newBytes)) {
-            return oldBytes;
-        }
-        try {
-            MutableSet<ByteList> byteArraySet = Sets.mutable.empty();
-            MutableIntList stampList = IntLists.mutable.withInitialCapacity(16);
-            byte entityFormat = newBytes[8];
-            addToSet(newBytes, byteArraySet, stampList, entityFormat);
-            addToSet(oldBytes, byteArraySet, stampList, entityFormat);
-            MutableList<ByteList> byteArrayList = byteArraySet.toList();
-
-            byteArrayList.sort((o1, o2) -> {
-                int minSize = Math.min(o1.size(), o2.size());
-                for (int i = 0; i < minSize; i++) {
-                    if (o1.get(i) != o2.get(i)) {
-                        return Integer.compare(o1.get(i), o2.get(i));
-                    }
-                }
-                return Integer.compare(o1.size(), o2.size());
-            });
-            // Remove canceled versions here
-            if (byteArrayList.size() > 2) {
-                MutableList<ByteList> chronologyByteLists = Lists.mutable.empty();
-                MutableIntList indexesToRemove = IntLists.mutable.empty();
-                for (int i = 0; i < byteArrayList.size(); i++) {
-                    ByteList versionBytes = byteArrayList.get(i);
-                    byte versionToken = versionBytes.get(0);
-                    switch (versionToken) {
-                        /*
-                            CONCEPT_CHRONOLOGY((byte) 1, ConceptChronology.class),
-                            PATTERN_CHRONOLOGY((byte) 2, PatternChronology.class),
-                            SEMANTIC_CHRONOLOGY((byte) 3, SemanticChronology.class),
-                            STAMP(STAMP_DATA_TYPE, Stamp.class)
-                        */
-                        case 1, 2, 3, STAMP_DATA_TYPE-> chronologyByteLists.add(versionBytes);
-
-                        /*
-                            CONCEPT_VERSION((byte) 4, ConceptVersion.class),
-                            PATTERN_VERSION((byte) 5, PatternVersion.class),
-                            SEMANTIC_VERSION((byte) 6, SemanticVersion.class),
-                            STAMP_VERSION((byte) 25, Stamp.class)
-                         */
-                        case 4, 5, 6, 25 -> {
-                            int stampNid = ((versionBytes.get(1) & 0xFF) << 24) |
-                                    ((versionBytes.get(2) & 0xFF) << 16) |
-                                    ((versionBytes.get(3) & 0xFF) << 8) |
-                                    ((versionBytes.get(4) & 0xFF) << 0);
-                            if (PrimitiveData.get().isCanceledStampNid(stampNid)) {
-                                // Garbage collection for canceled versions...
-                                indexesToRemove.add(i);
-                            }
-                        }
-                        default -> {
-                            // Leave all versions. Need to retain canceled version if component is a stamp.
-                        }
-                    }
-                }
-                indexesToRemove.reverseThis().forEach(index -> byteArrayList.remove(index));
-
-                // UUIDs were added...
-                if (chronologyByteLists.size() > 1) {
-                    // need to merge into one record for the chronology...
-                    MutableSet<UUID> uuids = Sets.mutable.empty();
-                    for (ByteList chronologyByteList : chronologyByteLists) {
-                        MutableLongList longList = LongLists.mutable.empty();
-                        ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteList.toArray());
-                        chronologyBytes.readByte(); // EntityType token
-                        chronologyBytes.readInt(); // Entity nid
-                        longList.add(chronologyBytes.readLong()); // Entity most significant bits
-                        longList.add(chronologyBytes.readLong()); // Entity least significant bits
-                        int additionalUuidLongs = chronologyBytes.readByte(); // Additional UUID longs...
-                        for (int i = 0; i < additionalUuidLongs; i++) {
-                            longList.add(chronologyBytes.readLong());
-                        }
-                        uuids.addAll(UuidUtil.toList(longList.toArray()).castToList());
-                    }
-                    ImmutableList<UUID> uuidList = uuids.toImmutableList();
-                    ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteLists.get(0).toArray());
-                    ByteBuf writeBuf = ByteBufPool.allocate(16 * uuidList.size() + chronologyBytes.array().length);
-                    writeBuf.writeByte(chronologyBytes.readByte()); // EntityType token
-                    writeBuf.writeInt(chronologyBytes.readInt()); // Entity nid
-                    chronologyBytes.readLong(); // Discard msb
-                    chronologyBytes.readLong(); // Discard lsb
-                    int discardAdditionalUuidLongs = chronologyBytes.readByte();
-                    for (int i = 0; i < discardAdditionalUuidLongs; i++) {
-                        chronologyBytes.readLong();
-                    }
-
-                    // write the new UUIDs.
-                    writeBuf.writeLong(uuidList.get(0).getMostSignificantBits());
-                    writeBuf.writeLong(uuidList.get(0).getLeastSignificantBits());
-                    int additionalUuidLongs = uuidList.size() * 2 - 2;
-                    writeBuf.writeByte((byte) additionalUuidLongs);
-                    for (int uuidIndex = 1; uuidIndex < uuidList.size(); uuidIndex++) {
-                        writeBuf.writeLong(uuidList.get(uuidIndex).getMostSignificantBits());
-                        writeBuf.writeLong(uuidList.get(uuidIndex).getLeastSignificantBits());
-                    }
-                    while (chronologyBytes.canRead()) {
-                        writeBuf.writeByte(chronologyBytes.readByte());
-                    }
-                    byteArrayList.removeAll(chronologyByteLists);
-                    byteArrayList.add(0, ByteLists.immutable.of(writeBuf.asArray()));
-                }
-            }
-
-            ByteBuf byteBuf = ByteBufPool.allocate(oldBytes.length + newBytes.length);
-            byteBuf.writeInt(byteArrayList.size());
-            boolean first = true;
-            for (ByteList byteArray : byteArrayList) {
-                if (first) {
-                    // Add 4 to have room for the number of versions.
-                    // Add 1 for the entity format token
-                    byteBuf.writeInt(byteArray.size() + 5);
-                    byteBuf.writeByte(entityFormat);
-                    byteArray.forEach(b -> {
-                        byteBuf.put(b);
-                    });
-                    // write the number of versions...
-                    byteBuf.writeInt(byteArrayList.size() - 1);
-                    first = false;
-                } else {
-                    byteBuf.writeInt(byteArray.size());
-                    byteArray.forEach(b -> {
-                        byteBuf.put(b);
-                    });
-                }
-            }
-            return byteBuf.asArray();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    /**
-     * @param bytes
-     * @param byteArraySet
-     * @param stampsInSet  represents the stamps already added to the set. If two versions with the same stamp are being merged,
-     *                     the newer version must be the merged version, as it represents a newer edit. There is an assumption that
-     *                     the edits of a single version under a single stamp value are sequential, not concurrent.
-     * @throws IOException
-     */
-    private static void addToSet(byte[] bytes, MutableSet<ByteList> byteArraySet, MutableIntList stampsInSet,
-                                 byte entityFormat) throws IOException {
-        ByteBuf readBuf = ByteBuf.wrapForReading(bytes);
-        boolean stampDataType = bytes[9] == STAMP_DATA_TYPE;
-        int arrayCount = readBuf.readInt();
-        for (int i = 0; i < arrayCount; i++) {
-            int arraySize = readBuf.readInt();
-            if (i == 0) {
-                byte localEntityFormat = readBuf.readByte();
-                if (localEntityFormat != entityFormat) {
-                    throw new IllegalStateException("All entities should be the same format. Found: " + entityFormat + " != " + localEntityFormat);
-                }
-                // The first array is the chronicle, and has a field for the number of versions...
-                // Add one for the entityFormat token.
-                byte[] newArray = new byte[arraySize - 5];
-                readBuf.read(newArray);
-                byteArraySet.add(ByteLists.immutable.of(newArray));
-                int versionCount = readBuf.readInt();
-                if (versionCount != arrayCount - 1) {
-                    throw new IllegalStateException("Malformed data. versionCount: " +
-                            versionCount + " arrayCount: " + arrayCount);
-                }
-                // Version count is not included as the version count may change as a result of merge.
-                // It must be added back in after sorting unique versions.
-            } else {
-                byte[] newArray = new byte[arraySize];
-                readBuf.read(newArray);
-                if (stampDataType) {
-                    byteArraySet.add(ByteLists.immutable.of(newArray));
-                } else {
-                    int stampNid = ((newArray[1] & 0xFF) << 24) |
-                            ((newArray[2] & 0xFF) << 16) |
-                            ((newArray[3] & 0xFF) << 8) |
-                            ((newArray[4] & 0xFF) << 0);
-                    if (stampsInSet.contains(stampNid)) {
-                        // Don't add, a newer version already exists (assuming addToSet is called in order of newest to oldest bytearray)
-                        // There should be no concurrent editing on versions with the same stamp.
-                    } else {
-                        byteArraySet.add(ByteLists.immutable.of(newArray));
-                        stampsInSet.add(stampNid);
-                    }
-                }
-            }
-        }
+        return EntityBytesMerger.merge(oldBytes, newBytes, EntityBytesMerger.PRIMITIVE_DATA_CANCELED_STAMPS);
     }
 
     default boolean isCanceledStampNid(int stampNid) {
@@ -418,6 +218,66 @@ default byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
 
     PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception;
 
+    /**
+     * Search restricted to semantics whose referenced component and pattern are in the given sets. Providers with an
+     * index apply the restriction before ranking. This default filters the results of {@link #search(String, int)}
+     * instead, see {@link #postFilteredSearch(Search, String, int, IntIdSet, IntIdSet)}. Either way, up to
+     * maxResultSize matching results are returned.
+     *
+     * @param query the query string
+     * @param maxResultSize the maximum number of results, counted after the restriction is applied
+     * @param referencedComponentNids allowed referenced component nids, or null for no restriction
+     * @param patternNids allowed pattern nids, or null for no restriction
+     * @return the matching search results
+     * @throws Exception if the query cannot be parsed or the index cannot be read
+     */
+    default PrimitiveDataSearchResult[] search(String query, int maxResultSize,
+                                               IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        return postFilteredSearch(this::search, query, maxResultSize, referencedComponentNids, patternNids);
+    }
+
+    @FunctionalInterface
+    interface Search {
+        PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception;
+    }
+
+    /**
+     * Restricts an unrestricted search to results whose referenced component and pattern are in the given sets.
+     * The search over-fetches, and is repeated with four times the result size until maxResultSize results pass the
+     * restriction or the search returns fewer results than asked for.
+     *
+     * @param search the unrestricted search
+     * @param query the query string
+     * @param maxResultSize the maximum number of results, counted after the restriction is applied
+     * @param referencedComponentNids allowed referenced component nids, or null for no restriction
+     * @param patternNids allowed pattern nids, or null for no restriction
+     * @return up to maxResultSize matching results, in the order of the unrestricted search
+     * @throws Exception if the search throws
+     */
+    static PrimitiveDataSearchResult[] postFilteredSearch(Search search, String query, int maxResultSize,
+                                                          IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        if (referencedComponentNids == null && patternNids == null) {
+            return search.search(query, maxResultSize);
+        }
+        if (maxResultSize <= 0 || (referencedComponentNids != null && referencedComponentNids.isEmpty()) ||
+                (patternNids != null && patternNids.isEmpty())) {
+            return new PrimitiveDataSearchResult[0];
+        }
+        int fetchSize = (int) Math.min(Integer.MAX_VALUE, 4L * maxResultSize);
+        while (true) {
+            PrimitiveDataSearchResult[] results = search.search(query, fetchSize);
+            PrimitiveDataSearchResult[] matches = Arrays.stream(results)
+                    .filter(result -> (referencedComponentNids == null || referencedComponentNids.contains(result.rcNid())) &&
+                            (patternNids == null || patternNids.contains(result.patternNid())))
+                    .limit(maxResultSize)
+                    .toArray(PrimitiveDataSearchResult[]::new);
+            if (matches.length == maxResultSize || results.length < fetchSize || fetchSize == Integer.MAX_VALUE) {
+                return matches;
+            }
+            fetchSize = (int) Math.min(Integer.MAX_VALUE, 4L * fetchSize);
+        }
+    }
+
     /**
      * @param patternNid
      * @return
@@ -454,6 +314,31 @@ default int[] semanticNidsForComponentOfPattern(int componentNid, int patternNid
 
     void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure);
 
+    /**
+     * Passes each stamp that has had a time within the inclusive range to the procedure, without reading stamps
+     * outside the range. A stamp whose time has since changed may be included, so callers should check the
+     * current time of each stamp.
+     *
+     * @param fromEpochMillis start of the range
+     * @param toEpochMillis end of the range
+     * @param procedure receives the stamp nids
+     * @throws UnsupportedOperationException if the provider does not index stamps by time
+     */
+    default void forEachStampNidInTimeRange(long fromEpochMillis, long toEpochMillis, IntProcedure procedure) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Passes the nid of each component with a version on the stamp to the procedure.
+     *
+     * @param stampNid the stamp
+     * @param procedure receives the component nids
+     * @throws UnsupportedOperationException if the provider does not index components by stamp
+     */
+    default void forEachComponentNidOfStamp(int stampNid, IntProcedure procedure) {
+        throw new UnsupportedOperationException();
+    }
+
     default void addCanceledStampNid(int stampNid) {
         canceledStampNids.add(stampNid);
     }
@@ -463,10 +348,40 @@ default void addCanceledStampNid(int stampNid) {
      */
     String name();
 
+    /**
+     * Operations of the remote data service protocol. A request is a binary message of the operation token, an
+     * int request id, and the operation's arguments. The server answers each request with messages that start with
+     * a {@link RemoteResponses} token and the request id, so many requests may be in flight on one connection and
+     * be answered out of order. Operations named FOR_EACH stream their results as PARTIAL responses before a final
+     * empty RESULT. The server sends at most {@link #STREAM_WINDOW} PARTIAL responses of a stream ahead of the ones
+     * the client has consumed; the client returns a STREAM_CREDIT message, which has no response, under the
+     * stream's request id for each one it consumes.
+     */
     enum RemoteOperations {
         NID_FOR_UUIDS(1),
         GET_BYTES(2),
-        MERGE(3);
+        MERGE(3),
+        GET_BYTES_MANY(4),
+        NID_FOR_UUIDS_MANY(5),
+        SEMANTIC_NIDS_FOR_COMPONENT(6),
+        SEMANTIC_NIDS_FOR_COMPONENT_OF_PATTERN(7),
+        FOR_EACH_SEMANTIC_NID_OF_PATTERN(8),
+        FOR_EACH_CONCEPT_NID(9),
+        FOR_EACH_SEMANTIC_NID(10),
+        FOR_EACH_PATTERN_NID(11),
+        FOR_EACH_STAMP_NID(12),
+        FOR_EACH_ENTITY(13),
+        HAS_UUID(14),
+        HAS_PUBLIC_ID(15),
+        SEARCH(16),
+        WRITE_SEQUENCE(17),
+        SUBSCRIBE_INVALIDATIONS(18),
+        STREAM_CREDIT(19);
+
+        /**
+         * PARTIAL responses of one stream a client is prepared to hold before consuming them.
+         */
+        public static final int STREAM_WINDOW = 8;
 
         public final byte token;
 
@@ -475,16 +390,56 @@ enum RemoteOperations {
         }
 
         public static RemoteOperations fromToken(byte token) {
-            switch (token) {
-                case 1:
-                    return NID_FOR_UUIDS;
-                case 2:
-                    return GET_BYTES;
-                case 3:
-                    return MERGE;
-                default:
-                    throw new UnsupportedOperationException("Can't handle token: " + token);
-            }
+            return switch (token) {
+                case 1 -> NID_FOR_UUIDS;
+                case 2 -> GET_BYTES;
+                case 3 -> MERGE;
+                case 4 -> GET_BYTES_MANY;
+                case 5 -> NID_FOR_UUIDS_MANY;
+                case 6 -> SEMANTIC_NIDS_FOR_COMPONENT;
+                case 7 -> SEMANTIC_NIDS_FOR_COMPONENT_OF_PATTERN;
+                case 8 -> FOR_EACH_SEMANTIC_NID_OF_PATTERN;
+                case 9 -> FOR_EACH_CONCEPT_NID;
+                case 10 -> FOR_EACH_SEMANTIC_NID;
+                case 11 -> FOR_EACH_PATTERN_NID;
+                case 12 -> FOR_EACH_STAMP_NID;
+                case 13 -> FOR_EACH_ENTITY;
+                case 14 -> HAS_UUID;
+                case 15 -> HAS_PUBLIC_ID;
+                case 16 -> SEARCH;
+                case 17 -> WRITE_SEQUENCE;
+                case 18 -> SUBSCRIBE_INVALIDATIONS;
+                case 19 -> STREAM_CREDIT;
+                default -> throw new UnsupportedOperationException("Can't handle token: " + token);
+            };
+        }
+    }
+
+    /**
+     * Kinds of response to a {@link RemoteOperations} request. RESULT and ERROR end the request; ERROR carries a
+     * length prefixed UTF-8 message. INVALIDATE is pushed by the server under the id of a
+     * {@link RemoteOperations#SUBSCRIBE_INVALIDATIONS} request for as long as the connection is open.
+     */
+    enum RemoteResponses {
+        RESULT(0),
+        PARTIAL(1),
+        ERROR(2),
+        INVALIDATE(3);
+
+        public final byte token;
+
+        RemoteResponses(int token) {
+            this.token = (byte) token;
+        }
+
+        public static RemoteResponses fromToken(byte token) {
+            return switch (token) {
+                case 0 -> RESULT;
+                case 1 -> PARTIAL;
+                case 2 -> ERROR;
+                case 3 -> INVALIDATE;
+                default -> throw new UnsupportedOperationException("Can't handle token: " + token);
+            };
         }
     }
 
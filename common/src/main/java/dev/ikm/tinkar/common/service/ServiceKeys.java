@@ -27,5 +27,99 @@ public enum ServiceKeys {
     /**
      * Unique to each cache period. It is reset each time CachingService.reset() is called.
      */
-    CACHE_PERIOD_UUID
+    CACHE_PERIOD_UUID,
+    /**
+     * Long byte budget for resident entity spines of a spined array data store. Clean spines beyond the budget
+     * are evicted and read again on demand. Zero or absent leaves all spines resident once read.
+     */
+    SPINE_CACHE_BYTE_BUDGET,
+    /**
+     * String name of the write-ahead log sync policy of a spined array data store: NONE, INTERVAL (the default),
+     * or COMMIT.
+     */
+    WRITE_AHEAD_LOG_SYNC,
+    /**
+     * java.time.Duration between background checkpoints of a spined array data store. Absent disables background
+     * checkpoints; the store is still checkpointed on save and close.
+     */
+    CHECKPOINT_INTERVAL,
+    /**
+     * java.time.Duration of the longest time indexed changes may take to become visible to search when no one is
+     * waiting for them. Defaults to one second.
+     */
+    SEARCH_MAX_STALENESS,
+    /**
+     * java.time.Duration of the shortest time between background rebuilds of the type-ahead suggester. Terms
+     * indexed in between are suggested from an in-memory delta. Defaults to thirty seconds.
+     */
+    TYPE_AHEAD_REBUILD_INTERVAL,
+    /**
+     * Integer number of threads that build and add search index documents. Defaults to two.
+     */
+    INDEXING_THREADS,
+    /**
+     * Integer number of semantics that may wait to be indexed before writers block. Defaults to 10,000.
+     */
+    INDEXING_QUEUE_CAPACITY,
+    /**
+     * Long byte budget, by serialized size, of the entity service's cache of concepts. Defaults to 16 MB.
+     */
+    CONCEPT_CACHE_BYTE_BUDGET,
+    /**
+     * Long byte budget, by serialized size, of the entity service's cache of semantics. Defaults to 64 MB.
+     */
+    SEMANTIC_CACHE_BYTE_BUDGET,
+    /**
+     * Long byte budget, by serialized size, of the entity service's cache of patterns. Defaults to 4 MB.
+     */
+    PATTERN_CACHE_BYTE_BUDGET,
+    /**
+     * Long byte budget, by serialized size, of the entity service's cache of stamps. Defaults to 16 MB. Ignored
+     * when STAMP_TABLE is true.
+     */
+    STAMP_CACHE_BYTE_BUDGET,
+    /**
+     * Long byte budget of the entity service's cache of component descriptions, at two bytes per character.
+     * Defaults to 4 MB.
+     */
+    STRING_CACHE_BYTE_BUDGET,
+    /**
+     * Boolean that, when true, keeps every stamp the entity service reads in an on-heap table that is never
+     * evicted, rather than in a budgeted cache. Defaults to false.
+     */
+    STAMP_TABLE,
+    /**
+     * Long byte budget of a remote data service client's cache of entity bytes and semantic index results.
+     * Defaults to 64 MB; zero disables the cache.
+     */
+    REMOTE_NEAR_CACHE_BYTE_BUDGET,
+    /**
+     * Integer number of recent changes a remote data service server keeps, so a reconnecting client can catch up
+     * rather than clear its cache. Defaults to 65,536.
+     */
+    REMOTE_INVALIDATION_LOG_CAPACITY,
+    /**
+     * Integer number of changes that may wait to be written to the change set log before writers block. Defaults
+     * to 10,000.
+     */
+    CHANGE_SET_QUEUE_CAPACITY,
+    /**
+     * Long size in bytes at which a change set log segment is sealed and a new one started. Defaults to 16 MB.
+     */
+    CHANGE_SET_SEGMENT_BYTES,
+    /**
+     * Long age in milliseconds at which a change set log segment is sealed and a new one started. Defaults to
+     * 15 minutes.
+     */
+    CHANGE_SET_SEGMENT_MILLIS,
+    /**
+     * String name of when the change set log forces written changes to disk: COMMIT, before writers of a batch
+     * return; INTERVAL, at most CHANGE_SET_FSYNC_INTERVAL_MILLIS after a change is written; or NONE, only when
+     * a segment is sealed. Defaults to INTERVAL.
+     */
+    CHANGE_SET_FSYNC_POLICY,
+    /**
+     * Long milliseconds between forces of the change set log under the INTERVAL fsync policy. Defaults to 200.
+     */
+    CHANGE_SET_FSYNC_INTERVAL_MILLIS
 }
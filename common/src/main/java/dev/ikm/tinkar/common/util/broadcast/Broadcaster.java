@@ -22,4 +22,11 @@
     void addSubscriberWithWeakReference(Subscriber<T> subscriber);
     void removeSubscriber(Subscriber<T> subscriber);
 
+    /**
+     * Blocks until every item dispatched before this call has been delivered. Broadcasters that deliver on the
+     * dispatching thread have nothing to wait for.
+     */
+    default void flush() {
+    }
+
 }
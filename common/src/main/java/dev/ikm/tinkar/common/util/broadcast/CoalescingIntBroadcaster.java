@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Broadcaster of int items that returns to the dispatching thread at once, and delivers to subscribers on its own
+ * thread. Items dispatched while a batch is being delivered are collected into the next batch, and an item
+ * dispatched more than once before its batch is delivered is delivered once. A batch is delivered as soon as the
+ * previous one is done, so delivery lags dispatch by at most one batch; dispatchers block when a batch reaches
+ * its capacity.
+ * <p>
+ * {@link IntSetSubscriber}s receive each batch in one call; other subscribers receive one call per item.
+ * {@link #flush()} waits until every item dispatched before it has been delivered, so a dispatcher that needs its
+ * subscribers current before it continues flushes after dispatching.
+ * <p>
+ * The delivery thread starts with the first dispatch, and {@link #shutdown()} stops it once the pending items are
+ * delivered; a later dispatch starts it again.
+ */
+public class CoalescingIntBroadcaster implements Broadcaster<Integer> {
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingIntBroadcaster.class);
+
+    final CopyOnWriteArrayList<WeakReference<Subscriber<Integer>>> subscriberWeakReferenceList = new CopyOnWriteArrayList<>();
+    private final String name;
+    private final int batchCapacity;
+    private Thread deliveryThread;
+    private boolean stopping = false;
+    private MutableIntSet pending = IntSets.mutable.empty();
+    private long dispatchedSequence = 0;
+    private long deliveredSequence = 0;
+
+    public CoalescingIntBroadcaster(String name, int batchCapacity) {
+        this.name = name;
+        this.batchCapacity = batchCapacity;
+    }
+
+    @Override
+    public void dispatch(Integer item) {
+        dispatch(item.intValue());
+    }
+
+    public synchronized void dispatch(int item) {
+        while (pending.size() >= batchCapacity && Thread.currentThread() != deliveryThread) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        pending.add(item);
+        dispatchedSequence++;
+        if (deliveryThread == null) {
+            stopping = false;
+            deliveryThread = new Thread(this::deliver, name);
+            deliveryThread.setDaemon(true);
+            deliveryThread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Blocks until every item dispatched before this call has been delivered to the subscribers. Returns at once
+     * when called by a subscriber during delivery.
+     */
+    @Override
+    public synchronized void flush() {
+        if (Thread.currentThread() == deliveryThread) {
+            return;
+        }
+        long target = dispatchedSequence;
+        while (deliveredSequence < target) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted while flushing " + name);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delivers the pending items, then stops the delivery thread and waits for it to end. Returns at once when
+     * called by a subscriber during delivery, after asking the thread to stop once the pending items are delivered.
+     */
+    public void shutdown() {
+        Thread stoppingThread;
+        synchronized (this) {
+            stoppingThread = deliveryThread;
+            if (stoppingThread == null) {
+                return;
+            }
+            stopping = true;
+            notifyAll();
+        }
+        if (Thread.currentThread() == stoppingThread) {
+            return;
+        }
+        try {
+            stoppingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while stopping " + name);
+        }
+    }
+
+    /**
+     * @return true while the delivery thread is running.
+     */
+    public synchronized boolean isDelivering() {
+        return deliveryThread != null;
+    }
+
+    private void deliver() {
+        while (true) {
+            MutableIntSet batch;
+            long batchSequence;
+            synchronized (this) {
+                while (pending.isEmpty() && !stopping) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        LOG.warn(name + " interrupted; continuing delivery.");
+                    }
+                }
+                if (pending.isEmpty()) {
+                    // Stopping with nothing left to deliver; the next dispatch starts a new thread.
+                    deliveryThread = null;
+                    notifyAll();
+                    return;
+                }
+                batch = pending;
+                batchSequence = dispatchedSequence;
+                pending = IntSets.mutable.empty();
+                // Release dispatchers waiting for capacity.
+                notifyAll();
+            }
+            deliver(batch);
+            synchronized (this) {
+                deliveredSequence = batchSequence;
+                notifyAll();
+            }
+        }
+    }
+
+    private void deliver(MutableIntSet batch) {
+        for (WeakReference<Subscriber<Integer>> subscriberWeakReference : subscriberWeakReferenceList) {
+            try {
+                Subscriber<Integer> subscriber = subscriberWeakReference.get();
+                if (subscriber == null) {
+                    subscriberWeakReferenceList.remove(subscriberWeakReference);
+                } else if (subscriber instanceof IntSetSubscriber intSetSubscriber) {
+                    intSetSubscriber.onNextAll(batch);
+                } else {
+                    batch.forEach(subscriber::onNext);
+                }
+            } catch (Throwable t) {
+                LOG.error(t.getMessage(), t);
+                subscriberWeakReferenceList.remove(subscriberWeakReference);
+            }
+        }
+    }
+
+    @Override
+    public void addSubscriberWithWeakReference(Subscriber<Integer> subscriber) {
+        LOG.debug(subscriber + " subscribing to " + this);
+        for (WeakReference<Subscriber<Integer>> subscriberWeakReference : subscriberWeakReferenceList) {
+            if (subscriberWeakReference.get() == subscriber) {
+                throw new IllegalStateException("Trying to add duplicate listener: " + subscriber);
+            }
+        }
+        subscriberWeakReferenceList.add(new WeakReference<>(subscriber));
+    }
+
+    @Override
+    public void removeSubscriber(Subscriber<Integer> subscriber) {
+        LOG.debug("Removing " + subscriber + " from " + this);
+        for (WeakReference<Subscriber<Integer>> subscriberWeakReference : subscriberWeakReferenceList) {
+            if (subscriberWeakReference.get() == subscriber) {
+                subscriberWeakReferenceList.remove(subscriberWeakReference);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.eclipse.collections.api.set.primitive.IntSet;
+
+/**
+ * Subscriber that can take the items of a {@link CoalescingIntBroadcaster} batch in one call, rather than one
+ * {@link #onNext(Object)} call per item.
+ */
+public interface IntSetSubscriber extends Subscriber<Integer> {
+    /**
+     * @param items distinct items dispatched since the previous batch.
+     */
+    void onNextAll(IntSet items);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Compares {@link EntityBytesMerger} with the set based merge it replaced, merging one new version into
+ * entities with realistic version counts. Run {@link #main(String[])} from the test classpath; the gc profiler
+ * reports allocation per merge as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBytesMergerBenchmark {
+    static final byte SEMANTIC_CHRONOLOGY = 3;
+    static final byte SEMANTIC_VERSION = 6;
+    static final IntPredicate NONE_CANCELED = stampNid -> false;
+
+    @Param({"1", "4", "32"})
+    int versionCount;
+
+    byte[] oldBytes;
+    byte[] newBytes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(versionCount);
+        long[] uuidLongs = {random.nextLong(), random.nextLong()};
+        int[] oldStamps = new int[versionCount];
+        for (int i = 0; i < versionCount; i++) {
+            oldStamps[i] = Integer.MIN_VALUE + 100 + i;
+        }
+        oldBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuidLongs, oldStamps, 48, random);
+        newBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuidLongs,
+                new int[]{Integer.MIN_VALUE + 100 + versionCount}, 48, random);
+    }
+
+    @Benchmark
+    public byte[] offsetMerge() {
+        return EntityBytesMerger.merge(oldBytes, newBytes, NONE_CANCELED);
+    }
+
+    @Benchmark
+    public byte[] legacySetMerge() {
+        return LegacyEntityBytesMerge.merge(oldBytes, newBytes, NONE_CANCELED);
+    }
+
+    /**
+     * Builds entity bytes in the stored layout: array count, then the chronology array (format byte, type token,
+     * nid, UUID longs, and version count) and one array per stamp (version token, stamp nid, random payload).
+     */
+    static byte[] entityBytes(byte chronologyToken, byte versionToken, long[] uuidLongs, int[] stampNids,
+                              int payloadSize, Random random) {
+        int chronologySize = 1 + 1 + 4 + 8 * uuidLongs.length + 1 + 4;
+        int versionSize = 1 + 4 + payloadSize;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + chronologySize + stampNids.length * (4 + versionSize));
+        buffer.putInt(stampNids.length + 1);
+        buffer.putInt(chronologySize);
+        buffer.put((byte) 1); // entity format version
+        buffer.put(chronologyToken);
+        buffer.putInt(Integer.MIN_VALUE + 10);
+        buffer.putLong(uuidLongs[0]);
+        buffer.putLong(uuidLongs[1]);
+        buffer.put((byte) (uuidLongs.length - 2));
+        for (int i = 2; i < uuidLongs.length; i++) {
+            buffer.putLong(uuidLongs[i]);
+        }
+        buffer.putInt(stampNids.length);
+        byte[] payload = new byte[payloadSize];
+        for (int stampNid : stampNids) {
+            buffer.putInt(versionSize);
+            buffer.put(versionToken);
+            buffer.putInt(stampNid);
+            random.nextBytes(payload);
+            buffer.put(payload);
+        }
+        return buffer.array();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EntityBytesMergerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
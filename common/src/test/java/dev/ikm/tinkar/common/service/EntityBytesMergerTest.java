@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static dev.ikm.tinkar.common.service.EntityBytesMergerBenchmark.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityBytesMergerTest {
+
+    private static int[] stamps(Random random, int count) {
+        int[] stamps = new int[count];
+        for (int i = 0; i < count; i++) {
+            stamps[i] = Integer.MIN_VALUE + 100 + random.nextInt(40);
+        }
+        return stamps;
+    }
+
+    private static void assertSameMerge(byte[] oldBytes, byte[] newBytes, IntPredicate canceled) {
+        assertArrayEquals(LegacyEntityBytesMerge.merge(oldBytes, newBytes, canceled),
+                EntityBytesMerger.merge(oldBytes, newBytes, canceled));
+    }
+
+    @Test
+    public void matchesLegacyMerge() {
+        Random random = new Random(7);
+        IntPredicate canceled = stampNid -> stampNid % 7 == 0;
+        for (int i = 0; i < 500; i++) {
+            long[] oldUuid = {random.nextLong(), random.nextLong()};
+            // Sometimes the new bytes add a UUID, so chronologies must be combined.
+            long[] newUuid = random.nextInt(4) == 0 ?
+                    new long[]{oldUuid[0], oldUuid[1], random.nextLong(), random.nextLong()} : oldUuid;
+            byte chronologyToken = random.nextBoolean() ? SEMANTIC_CHRONOLOGY : PrimitiveDataService.STAMP_DATA_TYPE;
+            byte versionToken = chronologyToken == SEMANTIC_CHRONOLOGY ? SEMANTIC_VERSION : (byte) 25;
+            int payloadSize = random.nextInt(3) * 4;
+            byte[] oldBytes = entityBytes(chronologyToken, versionToken, oldUuid,
+                    stamps(random, 1 + random.nextInt(20)), payloadSize, new Random(i));
+            byte[] newBytes = entityBytes(chronologyToken, versionToken, newUuid,
+                    stamps(random, 1 + random.nextInt(3)), payloadSize, new Random(i + 1));
+            assertSameMerge(oldBytes, newBytes, canceled);
+            assertSameMerge(oldBytes, newBytes, NONE_CANCELED);
+            assertSameMerge(newBytes, oldBytes, NONE_CANCELED);
+        }
+    }
+
+    @Test
+    public void mergeIsIdempotent() {
+        Random random = new Random(11);
+        long[] uuid = {random.nextLong(), random.nextLong()};
+        byte[] oldBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuid,
+                new int[]{Integer.MIN_VALUE + 100, Integer.MIN_VALUE + 101}, 8, random);
+        byte[] newBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuid,
+                new int[]{Integer.MIN_VALUE + 102}, 8, random);
+        byte[] merged = EntityBytesMerger.merge(oldBytes, newBytes, NONE_CANCELED);
+        assertEquals(4, merged[3]);
+        assertArrayEquals(merged, EntityBytesMerger.merge(merged, newBytes, NONE_CANCELED));
+        assertSame(oldBytes, EntityBytesMerger.merge(oldBytes, null, NONE_CANCELED));
+    }
+
+    @Test
+    public void versionStampNidsInStoredOrder() {
+        Random random = new Random(13);
+        long[] uuid = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        int[] oldStamps = {Integer.MIN_VALUE + 103, Integer.MIN_VALUE + 101};
+        int[] newStamps = {Integer.MIN_VALUE + 102, Integer.MIN_VALUE + 100};
+        byte[] oldBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuid, oldStamps, 4, random);
+        byte[] newBytes = entityBytes(SEMANTIC_CHRONOLOGY, SEMANTIC_VERSION, uuid, newStamps, 0, random);
+        assertArrayEquals(oldStamps, EntityBytesMerger.versionStampNids(oldBytes));
+        assertArrayEquals(newStamps, EntityBytesMerger.versionStampNids(newBytes));
+        // Merged versions are sorted by their bytes, which start with the token and then the stamp.
+        assertArrayEquals(new int[]{Integer.MIN_VALUE + 100, Integer.MIN_VALUE + 101, Integer.MIN_VALUE + 102,
+                        Integer.MIN_VALUE + 103},
+                EntityBytesMerger.versionStampNids(EntityBytesMerger.merge(oldBytes, newBytes, NONE_CANCELED)));
+    }
+}
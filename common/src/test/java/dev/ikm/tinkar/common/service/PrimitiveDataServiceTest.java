@@ -15,13 +15,19 @@
  */
 package dev.ikm.tinkar.common.service;
 
+import dev.ikm.tinkar.common.id.IntIds;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 public class PrimitiveDataServiceTest {
@@ -52,4 +58,51 @@ public void testStampDataTypeFail() {
         assertNotEquals(STAMP_DATA_TYPE, actual_stamp_data_type);
     }
 
+    @Test
+    public void postFilteredSearchOverFetchesUntilEnoughResultsMatch() throws Exception {
+        // Every tenth of 1000 results references component 1.
+        PrimitiveDataSearchResult[] all = searchResults(1000, 10);
+        List<Integer> fetchSizes = new ArrayList<>();
+        PrimitiveDataSearchResult[] results = PrimitiveDataService.postFilteredSearch((query, maxResultSize) -> {
+            fetchSizes.add(maxResultSize);
+            return Arrays.copyOf(all, Math.min(all.length, maxResultSize));
+        }, "query", 5, IntIds.set.of(1), null);
+
+        assertArrayEquals(new int[]{0, 10, 20, 30, 40}, Arrays.stream(results).mapToInt(PrimitiveDataSearchResult::nid).toArray());
+        assertEquals(List.of(20, 80), fetchSizes);
+    }
+
+    @Test
+    public void postFilteredSearchStopsWhenSearchIsExhausted() throws Exception {
+        PrimitiveDataSearchResult[] all = searchResults(30, 10);
+        List<Integer> fetchSizes = new ArrayList<>();
+        PrimitiveDataSearchResult[] results = PrimitiveDataService.postFilteredSearch((query, maxResultSize) -> {
+            fetchSizes.add(maxResultSize);
+            return Arrays.copyOf(all, Math.min(all.length, maxResultSize));
+        }, "query", 10, IntIds.set.of(1), IntIds.set.of(7));
+
+        assertArrayEquals(new int[]{0, 10, 20}, Arrays.stream(results).mapToInt(PrimitiveDataSearchResult::nid).toArray());
+        assertEquals(List.of(40), fetchSizes);
+    }
+
+    @Test
+    public void postFilteredSearchWithEmptyRestrictionDoesNotSearch() throws Exception {
+        PrimitiveDataSearchResult[] results = PrimitiveDataService.postFilteredSearch((query, maxResultSize) -> {
+            throw new AssertionError("searched");
+        }, "query", 10, IntIds.set.empty(), null);
+
+        assertEquals(0, results.length);
+    }
+
+    /**
+     * @return results with nids 0 to count - 1, pattern nid 7, and referenced component nid 1 for every
+     * matchEvery'th result and 2 for the others
+     */
+    private static PrimitiveDataSearchResult[] searchResults(int count, int matchEvery) {
+        PrimitiveDataSearchResult[] results = new PrimitiveDataSearchResult[count];
+        for (int i = 0; i < count; i++) {
+            results[i] = new PrimitiveDataSearchResult(i, i % matchEvery == 0 ? 1 : 2, 7, 0, count - i, "text");
+        }
+        return results;
+    }
 }
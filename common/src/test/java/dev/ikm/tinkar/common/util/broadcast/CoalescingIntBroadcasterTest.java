@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.eclipse.collections.api.set.primitive.IntSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoalescingIntBroadcasterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    public void flushWaitsForEverythingDispatchedBefore() {
+        CoalescingIntBroadcaster broadcaster = new CoalescingIntBroadcaster("test broadcaster", 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int i = 0; i < 1_000; i++) {
+                broadcaster.dispatch(i);
+                // The writer reads its own writes once it has flushed.
+                broadcaster.flush();
+                assertTrue(subscriber.contains(i), "Item " + i + " not delivered by flush");
+            }
+        });
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void itemsDispatchedDuringDeliveryAreCoalesced() throws InterruptedException {
+        CoalescingIntBroadcaster broadcaster = new CoalescingIntBroadcaster("test broadcaster", 1_000);
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger deliveries = new AtomicInteger();
+        IntSetSubscriber subscriber = new IntSetSubscriber() {
+            @Override
+            public void onNextAll(IntSet items) {
+                batches.incrementAndGet();
+                deliveries.addAndGet(items.size());
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(-1);
+        assertTrue(delivering.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            broadcaster.dispatch(i % 10);
+        }
+        release.countDown();
+        assertTimeoutPreemptively(TIMEOUT, broadcaster::flush);
+        assertEquals(2, batches.get());
+        assertEquals(11, deliveries.get());
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void flushFromSubscriberReturns() {
+        CoalescingIntBroadcaster broadcaster = new CoalescingIntBroadcaster("test broadcaster", 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Integer item) {
+                broadcaster.flush();
+                super.onNext(item);
+            }
+        };
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            broadcaster.dispatch(1);
+            broadcaster.flush();
+        });
+        assertTrue(subscriber.contains(1));
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void shutdownDeliversPendingItemsAndStopsDelivery() {
+        CoalescingIntBroadcaster broadcaster = new CoalescingIntBroadcaster("test broadcaster", 1_000);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        assertFalse(broadcaster.isDelivering());
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int i = 0; i < 500; i++) {
+                broadcaster.dispatch(i);
+            }
+            broadcaster.shutdown();
+        });
+        assertFalse(broadcaster.isDelivering());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(subscriber.contains(i), "Item " + i + " not delivered before shutdown");
+        }
+
+        // A dispatch after shutdown starts delivery again.
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            broadcaster.dispatch(500);
+            broadcaster.flush();
+        });
+        assertTrue(subscriber.contains(500));
+        assertTrue(broadcaster.isDelivering());
+        broadcaster.shutdown();
+        assertFalse(broadcaster.isDelivering());
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+        private final MutableIntSet delivered = IntSets.mutable.empty().asSynchronized();
+
+        @Override
+        public void onNext(Integer item) {
+            delivered.add(item);
+        }
+
+        boolean contains(int item) {
+            return delivered.contains(item);
+        }
+    }
+}
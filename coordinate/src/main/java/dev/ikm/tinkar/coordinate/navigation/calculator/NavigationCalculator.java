@@ -70,6 +70,24 @@ default IntIdSet kindOf(ConceptFacade concept) {
 
     IntIdSet kindOf(int conceptNid);
 
+    /**
+     * @param descendentNid the possible descendent
+     * @param ancestorNid   the possible ancestor
+     * @return true if ancestorNid is an ancestor of descendentNid under this navigation
+     */
+    default boolean isDescendentOf(int descendentNid, int ancestorNid) {
+        return ancestorsOf(descendentNid).contains(ancestorNid);
+    }
+
+    /**
+     * @param conceptNid the concept to test
+     * @param kindNid    the concept that defines the kind
+     * @return true if conceptNid is kindNid or one of its descendents
+     */
+    default boolean isKindOf(int conceptNid, int kindNid) {
+        return conceptNid == kindNid || isDescendentOf(conceptNid, kindNid);
+    }
+
     default ImmutableList<Edge> parentEdges(ConceptFacade concept) {
         return childEdges(concept.nid());
     }
@@ -49,7 +49,6 @@
 /**
  * TODO: Filter vertex concepts by status values.
  * TODO: Sort based on patterns in addition to natural order
- *  TODO: add cache of descendents, ancestors, and similar.
  */
 public class NavigationCalculatorWithCache implements NavigationCalculator {
     /**
@@ -63,6 +62,7 @@ public class NavigationCalculatorWithCache implements NavigationCalculator {
     private final StampCalculatorWithCache vertexStampCalculator;
     private final LanguageCalculatorWithCache languageCalculator;
     private final NavigationCoordinateRecord navigationCoordinate;
+    private final NavigationClosureIndex closureIndex;
 
     public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
                                          ImmutableList<LanguageCoordinateRecord> languageCoordinateList,
@@ -71,6 +71,8 @@ public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
         this.languageCalculator = LanguageCalculatorWithCache.getCalculator(stampFilter, languageCoordinateList);
         this.navigationCoordinate = navigationCoordinate;
         this.vertexStampCalculator = StampCalculatorWithCache.getCalculator(stampFilter.withAllowedStates(navigationCoordinate.vertexStates()));
+        // Subscribes after the stamp calculators, so their latest caches are invalidated before the index reads them.
+        this.closureIndex = new NavigationClosureIndex(this);
     }
 
     /**
@@ -96,24 +98,6 @@ public LanguageCalculator languageCalculator() {
         return languageCalculator;
     }
 
-    private void addDescendents(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            childrenOf(conceptNid).forEach(childNid -> {
-                addDescendents(childNid, nidSet);
-                nidSet.add(childNid);
-            });
-        }
-    }
-
-    private void addAncestors(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            parentsOf(conceptNid).forEach(parentNid -> {
-                addAncestors(parentNid, nidSet);
-                nidSet.add(parentNid);
-            });
-        }
-    }
-
     @Override
     public StampCalculatorWithCache vertexStampCalculator() {
         return this.vertexStampCalculator;
@@ -141,23 +125,22 @@ public IntIdList unsortedParentsOf(int conceptNid) {
 
     @Override
     public IntIdSet descendentsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addDescendents(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        return closureIndex.descendentsOf(conceptNid);
     }
 
     @Override
     public IntIdSet ancestorsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addAncestors(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        return closureIndex.ancestorsOf(conceptNid);
     }
 
     @Override
     public IntIdSet kindOf(int conceptNid) {
-        MutableIntSet kindOfSet = IntSets.mutable.of(conceptNid);
-        kindOfSet.addAll(descendentsOf(conceptNid).toArray());
-        return IntIds.set.of(kindOfSet.toArray());
+        return closureIndex.kindOf(conceptNid);
+    }
+
+    @Override
+    public boolean isDescendentOf(int descendentNid, int ancestorNid) {
+        return closureIndex.isDescendentOf(descendentNid, ancestorNid);
     }
 
     @Override
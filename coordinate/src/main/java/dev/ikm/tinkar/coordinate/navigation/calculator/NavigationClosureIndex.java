@@ -0,0 +1,411 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntIntMaps;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Transitive closure of the navigation graph of one {@link NavigationCalculatorWithCache}.
+ * <p>
+ * On first use, the parents and children of every concept referenced by a navigation pattern are computed in
+ * parallel with the calculator's stamp and vertex state filtering. Descendant and ancestor sets are then built
+ * bottom up from that adjacency and memoized per concept, so after the first traversal descendentsOf, ancestorsOf,
+ * kindOf, and subsumption tests are a map lookup and a set probe. Memoized sets are returned as read only views, since
+ * callers share them.
+ * <p>
+ * The index subscribes to entity changes. A change to a navigation semantic, or to a concept whose vertex state
+ * may filter it from its neighbors, recomputes the adjacency of the affected concepts and drops only the memoized
+ * closures that contain them. A change to a navigation pattern discards the index, which is rebuilt on next use.
+ */
+final class NavigationClosureIndex implements Subscriber<Integer> {
+    private static final Logger LOG = LoggerFactory.getLogger(NavigationClosureIndex.class);
+    private static final int[] NO_NIDS = new int[0];
+    // Depth reported by a traversal that skipped no concept on the current path.
+    private static final int COMPLETE = Integer.MAX_VALUE;
+
+    private final NavigationCalculatorWithCache calculator;
+    private final IntFunction<int[]> parentsOf;
+    private final IntFunction<int[]> childrenOf;
+    private final Supplier<int[]> conceptNids;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<Integer, int[]> parentMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, int[]> childMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, IntIdSet> descendentMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, IntIdSet> ancestorMap = new ConcurrentHashMap<>();
+    // A concept and its descendents, kept while its descendent set is memoized.
+    private final ConcurrentHashMap<Integer, IntIdSet> kindOfMap = new ConcurrentHashMap<>();
+    private volatile boolean built = false;
+
+    NavigationClosureIndex(NavigationCalculatorWithCache calculator) {
+        this(calculator,
+                conceptNid -> calculator.unsortedParentsOf(conceptNid).toArray(),
+                conceptNid -> calculator.unsortedChildrenOf(conceptNid).toArray(),
+                () -> navigationConceptNids(calculator));
+        Entity.provider().addSubscriberWithWeakReference(this);
+    }
+
+    /**
+     * An index over the given adjacency that is not subscribed to entity changes; {@link #invalidate(int[])}
+     * applies changes to it.
+     *
+     * @param parentsOf   the filtered parents of a concept
+     * @param childrenOf  the filtered children of a concept
+     * @param conceptNids the concepts with navigation semantics
+     */
+    NavigationClosureIndex(IntFunction<int[]> parentsOf, IntFunction<int[]> childrenOf, Supplier<int[]> conceptNids) {
+        this(null, parentsOf, childrenOf, conceptNids);
+    }
+
+    private NavigationClosureIndex(NavigationCalculatorWithCache calculator, IntFunction<int[]> parentsOf,
+                                   IntFunction<int[]> childrenOf, Supplier<int[]> conceptNids) {
+        this.calculator = calculator;
+        this.parentsOf = parentsOf;
+        this.childrenOf = childrenOf;
+        this.conceptNids = conceptNids;
+    }
+
+    private static int[] navigationConceptNids(NavigationCalculatorWithCache calculator) {
+        MutableIntSet conceptNids = IntSets.mutable.empty().asSynchronized();
+        calculator.navigationCoordinate().navigationPatternNids().forEach(patternNid ->
+                PrimitiveData.get().forEachSemanticNidOfPattern(patternNid, semanticNid -> {
+                    if (Entity.getFast(semanticNid) instanceof SemanticEntity semanticEntity) {
+                        conceptNids.add(semanticEntity.referencedComponentNid());
+                    }
+                }));
+        return conceptNids.toArray();
+    }
+
+    IntIdSet descendentsOf(int conceptNid) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return closure(conceptNid, childMap, descendentMap);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    IntIdSet ancestorsOf(int conceptNid) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return closure(conceptNid, parentMap, ancestorMap);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    IntIdSet kindOf(int conceptNid) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            IntIdSet kindOf = kindOfMap.get(conceptNid);
+            if (kindOf != null) {
+                return kindOf;
+            }
+            IntIdSet descendents = closure(conceptNid, childMap, descendentMap);
+            RoaringBitmap bitmap = new RoaringBitmap();
+            bitmap.add(conceptNid);
+            addAll(bitmap, descendents);
+            kindOf = new ClosureSet(bitmap);
+            if (descendentMap.get(conceptNid) == descendents) {
+                kindOfMap.put(conceptNid, kindOf);
+            }
+            return kindOf;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isDescendentOf(int descendentNid, int ancestorNid) {
+        return ancestorsOf(descendentNid).contains(ancestorNid);
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            int[] navigationConceptNids = conceptNids.get();
+            Arrays.stream(navigationConceptNids).parallel().forEach(this::updateAdjacency);
+            built = true;
+            LOG.info("Built navigation adjacency for " + navigationConceptNids.length + " concepts in " +
+                    (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void updateAdjacency(int conceptNid) {
+        putOrRemove(parentMap, conceptNid, parentsOf.apply(conceptNid));
+        putOrRemove(childMap, conceptNid, childrenOf.apply(conceptNid));
+    }
+
+    private static void putOrRemove(ConcurrentHashMap<Integer, int[]> adjacencyMap, int conceptNid, int[] nids) {
+        if (nids.length == 0) {
+            adjacencyMap.remove(conceptNid);
+        } else {
+            adjacencyMap.put(conceptNid, nids);
+        }
+    }
+
+    /**
+     * Computes the closure of a concept over one direction of the adjacency, reusing and recording memoized
+     * closures of the concepts it reaches.
+     */
+    private IntIdSet closure(int conceptNid, ConcurrentHashMap<Integer, int[]> adjacencyMap,
+                             ConcurrentHashMap<Integer, IntIdSet> closureMap) {
+        IntIdSet closure = closureMap.get(conceptNid);
+        if (closure != null) {
+            return closure;
+        }
+        return closure(conceptNid, adjacencyMap, closureMap, IntIntMaps.mutable.empty(), new int[]{COMPLETE});
+    }
+
+    /**
+     * A concept already on the current path is added but not followed, so a malformed cycle terminates as it did
+     * with the recursive traversal. The closure of a concept whose traversal skipped a concept above it on the
+     * path lacks what is reachable only through that concept, so it is returned to the caller, which does have
+     * it, but not memoized.
+     *
+     * @param depthOnPath the depth of each concept on the current path
+     * @param skippedDepth set to the least depth of a concept on the path that this traversal skipped, or left
+     *                     unchanged if it skipped none
+     */
+    private IntIdSet closure(int conceptNid, ConcurrentHashMap<Integer, int[]> adjacencyMap,
+                             ConcurrentHashMap<Integer, IntIdSet> closureMap, MutableIntIntMap depthOnPath,
+                             int[] skippedDepth) {
+        IntIdSet closure = closureMap.get(conceptNid);
+        if (closure != null) {
+            return closure;
+        }
+        int[] adjacentNids = adjacencyMap.getOrDefault(conceptNid, NO_NIDS);
+        if (adjacentNids.length == 0) {
+            closure = IntIds.set.empty();
+            closureMap.put(conceptNid, closure);
+            return closure;
+        }
+        int depth = depthOnPath.size();
+        int[] skippedBelow = new int[]{COMPLETE};
+        RoaringBitmap bitmap = new RoaringBitmap();
+        depthOnPath.put(conceptNid, depth);
+        for (int adjacentNid : adjacentNids) {
+            bitmap.add(adjacentNid);
+            if (depthOnPath.containsKey(adjacentNid)) {
+                skippedBelow[0] = Math.min(skippedBelow[0], depthOnPath.get(adjacentNid));
+            } else {
+                addAll(bitmap, closure(adjacentNid, adjacencyMap, closureMap, depthOnPath, skippedBelow));
+            }
+        }
+        depthOnPath.remove(conceptNid);
+        closure = new ClosureSet(bitmap);
+        if (skippedBelow[0] >= depth) {
+            // Only this concept was skipped, and what it reaches is in this closure.
+            closureMap.put(conceptNid, closure);
+        } else {
+            skippedDepth[0] = Math.min(skippedDepth[0], skippedBelow[0]);
+        }
+        return closure;
+    }
+
+    private static void addAll(RoaringBitmap bitmap, IntIdSet intIdSet) {
+        if (intIdSet instanceof ClosureSet closureSet) {
+            bitmap.or(closureSet.bitmap);
+        } else if (intIdSet instanceof RoaringBitmap roaringBitmap) {
+            bitmap.or(roaringBitmap);
+        } else {
+            intIdSet.forEach(bitmap::add);
+        }
+    }
+
+    /**
+     * Read only view of a memoized closure, which every caller of the index shares.
+     */
+    private static final class ClosureSet implements IntIdSet {
+        private final RoaringBitmap bitmap;
+
+        private ClosureSet(RoaringBitmap bitmap) {
+            bitmap.runOptimize();
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        public int size() {
+            return bitmap.getCardinality();
+        }
+
+        @Override
+        public IntStream intStream() {
+            return bitmap.stream();
+        }
+
+        @Override
+        public boolean contains(int value) {
+            return bitmap.contains(value);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return bitmap.isEmpty();
+        }
+
+        @Override
+        public int[] toArray() {
+            return bitmap.toArray();
+        }
+
+        @Override
+        public void forEach(IntConsumer consumer) {
+            bitmap.forEach((int nid) -> consumer.accept(nid));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof IntIdSet intIdSet && intIdSet.size() == size()) {
+                int[] elements = intIdSet.toArray();
+                Arrays.sort(elements);
+                return Arrays.equals(toArray(), elements);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return bitmap.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "IntIdSet" + Arrays.toString(bitmap.stream().limit(TO_STRING_LIMIT).toArray());
+        }
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (!built) {
+            return;
+        }
+        try {
+            Entity entity = Entity.provider().getEntityFast(nid);
+            if (entity instanceof SemanticEntity semanticEntity) {
+                if (calculator.navigationCoordinate().navigationPatternNids().contains(semanticEntity.patternNid())) {
+                    invalidate(new int[]{semanticEntity.referencedComponentNid()});
+                }
+            } else if (entity instanceof ConceptEntity && (parentMap.containsKey(nid) || childMap.containsKey(nid))) {
+                // The concept's vertex state may add or remove it from the filtered lists of its neighbors.
+                MutableIntSet affected = IntSets.mutable.of(nid);
+                affected.addAll(calculator.unsortedUnversionedParentsOf(nid).toArray());
+                affected.addAll(calculator.unsortedUnversionedChildrenOf(nid).toArray());
+                invalidate(affected.toArray());
+            } else if (entity instanceof PatternEntity &&
+                    calculator.navigationCoordinate().navigationPatternNids().contains(nid)) {
+                reset();
+            }
+        } catch (RuntimeException e) {
+            // Throwing would unsubscribe the index, leaving it stale; rebuild on next use instead.
+            LOG.error("Resetting navigation closure index after change to " + PrimitiveData.text(nid), e);
+            reset();
+        }
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+            parentMap.clear();
+            childMap.clear();
+            descendentMap.clear();
+            ancestorMap.clear();
+            kindOfMap.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recomputes the adjacency of the given concepts and drops the memoized closures that contained them before
+     * or after the change: descendant sets of their ancestors and ancestor sets of their descendents.
+     */
+    void invalidate(int[] conceptNids) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap staleDescendentSets = new RoaringBitmap();
+            RoaringBitmap staleAncestorSets = new RoaringBitmap();
+            for (int conceptNid : conceptNids) {
+                collectAffected(conceptNid, staleDescendentSets, staleAncestorSets);
+            }
+            for (int conceptNid : conceptNids) {
+                updateAdjacency(conceptNid);
+            }
+            removeAll(descendentMap, staleDescendentSets);
+            removeAll(kindOfMap, staleDescendentSets);
+            removeAll(ancestorMap, staleAncestorSets);
+            // Closures reached only through the new edges were valid before the change,
+            // and are found now that the stale closures are gone.
+            for (int conceptNid : conceptNids) {
+                RoaringBitmap newlyStaleDescendentSets = new RoaringBitmap();
+                RoaringBitmap newlyStaleAncestorSets = new RoaringBitmap();
+                collectAffected(conceptNid, newlyStaleDescendentSets, newlyStaleAncestorSets);
+                removeAll(descendentMap, newlyStaleDescendentSets);
+                removeAll(kindOfMap, newlyStaleDescendentSets);
+                removeAll(ancestorMap, newlyStaleAncestorSets);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void collectAffected(int conceptNid, RoaringBitmap staleDescendentSets, RoaringBitmap staleAncestorSets) {
+        staleDescendentSets.add(conceptNid);
+        addAll(staleDescendentSets, closure(conceptNid, parentMap, ancestorMap));
+        staleAncestorSets.add(conceptNid);
+        addAll(staleAncestorSets, closure(conceptNid, childMap, descendentMap));
+    }
+
+    private static void removeAll(ConcurrentHashMap<Integer, IntIdSet> closureMap, RoaringBitmap conceptNids) {
+        conceptNids.forEach((int conceptNid) -> closureMap.remove(conceptNid));
+    }
+}
@@ -18,14 +18,15 @@
 import com.github.benmanes.caffeine.cache.Cache;
 import dev.ikm.tinkar.common.alert.AlertObject;
 import dev.ikm.tinkar.common.alert.AlertStreams;
-import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.common.util.broadcast.IntSetSubscriber;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.PatternEntity;
+import org.eclipse.collections.api.set.primitive.IntSet;
 
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Flow;
 
-public class CacheInvalidationIfPatternSubscriber implements Subscriber<Integer> {
+public class CacheInvalidationIfPatternSubscriber implements IntSetSubscriber {
     CopyOnWriteArrayList<Cache<? extends Object, ? extends Object>> cachesToManage = new CopyOnWriteArrayList<>();
 
 
@@ -47,4 +48,14 @@ public void onNext(Integer nid) {
         }
     }
 
+    @Override
+    public void onNextAll(IntSet nids) {
+        // One pattern in the batch invalidates everything, so stop looking once found.
+        if (nids.anySatisfy(nid -> Entity.provider().getEntityFast(nid) instanceof PatternEntity)) {
+            for (Cache<?, ?> cache : cachesToManage) {
+                cache.invalidateAll();
+            }
+        }
+    }
+
 }
@@ -336,7 +336,26 @@ default <T extends Object> Latest<Field<T>> getFieldForSemanticWithMeaning(int c
      * @throws Exception
      */
     default ImmutableList<LatestVersionSearchResult> search(String query, int maxResultSize) throws Exception {
-        PrimitiveDataSearchResult[] primitiveResults = PrimitiveData.get().search(query, maxResultSize);
+        return latestVersionSearchResults(PrimitiveData.get().search(query, maxResultSize));
+    }
+
+    /**
+     * Performs a lucene based search like {@link #search(String, int)}, restricted inside the index to semantics whose
+     * referenced component and pattern are in the given sets, so maxResultSize applies to the restricted results.
+     *
+     * @param query Search string
+     * @param maxResultSize Search results size limit
+     * @param referencedComponentNids allowed referenced component nids, or null for no restriction
+     * @param patternNids allowed pattern nids, or null for no restriction
+     * @return Immutable list of LatestVersionSearchResult records
+     * @throws Exception
+     */
+    default ImmutableList<LatestVersionSearchResult> search(String query, int maxResultSize,
+                                                            IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        return latestVersionSearchResults(PrimitiveData.get().search(query, maxResultSize, referencedComponentNids, patternNids));
+    }
+
+    private ImmutableList<LatestVersionSearchResult> latestVersionSearchResults(PrimitiveDataSearchResult[] primitiveResults) {
         final MutableIntObjectMap<LatestVersionSearchResult> semanticNidSearchResultMap = IntObjectMaps.mutable.ofInitialCapacity(primitiveResults.length);
         final AtomicInteger duplicates = new AtomicInteger();
         for (PrimitiveDataSearchResult primitiveResult : primitiveResults) {
@@ -382,8 +401,8 @@ default ImmutableList<LatestVersionSearchResult> searchDescendants(PublicId ance
     }
 
     /**
-     * Performs a lucene based search using the {@link #search(String, int)} method but applies an additional constraint
-     * which restricts the search results to only those concepts that qualify as descendants of the passed in ancestor.
+     * Performs a lucene based search using the {@link #search(String, int, IntIdSet, IntIdSet)} method, restricting the
+     * search results to only those concepts that qualify as descendants of the passed in ancestor.
      *
      * @param navigationCalculator Navigation calculator used to compute the latest descendants of filter
      * @param ancestor Concept that is ancestor to all returned search results
@@ -393,19 +412,8 @@ default ImmutableList<LatestVersionSearchResult> searchDescendants(PublicId ance
      * @throws Exception
      */
     default ImmutableList<LatestVersionSearchResult> searchDescendants(NavigationCalculator navigationCalculator, PublicId ancestor, String query, int maxResultSize) throws Exception {
-        ImmutableList<LatestVersionSearchResult> latestVersionSearchResults = search(query, maxResultSize);
-        MutableList<LatestVersionSearchResult> latestVersionSearchResultMutableList = Lists.mutable.empty();
-
         IntIdSet descendantNids = navigationCalculator.descendentsOf(EntityService.get().nidForPublicId(ancestor));
-
-        latestVersionSearchResults.forEach(latestVersionSearchResult -> {
-            int chronologyNid = latestVersionSearchResult.latestVersion().get().chronology().referencedComponent().nid();
-            if (descendantNids.contains(chronologyNid)) {
-                latestVersionSearchResultMutableList.add(latestVersionSearchResult);
-            }
-        });
-
-        return latestVersionSearchResultMutableList.toImmutable();
+        return search(query, maxResultSize, descendantNids, null);
     }
 
     default boolean latestIsActive(Entity entity) {
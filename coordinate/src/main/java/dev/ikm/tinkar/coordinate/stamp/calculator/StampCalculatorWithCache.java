@@ -59,10 +59,7 @@
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
 import org.eclipse.collections.api.set.ImmutableSet;
-import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
-import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
-import org.eclipse.collections.impl.factory.primitive.IntSets;
 import dev.ikm.tinkar.collection.ConcurrentReferenceHashMap;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
@@ -98,6 +95,18 @@ public class StampCalculatorWithCache implements StampCalculator {
      */
     private static final Logger LOG = LoggerFactory.getLogger(StampCalculatorWithCache.class);
 
+    /**
+     * Bits of the info word kept for each stamp in the {@link StampPositionTable}. The segment sequence of an
+     * on route stamp is stored above {@link #SEGMENT_SHIFT}; together with the stamp time it is the position key
+     * used to order stamps without looking them up again.
+     */
+    private static final long RESOLVED = 1;
+    private static final long ON_ROUTE = 1 << 1;
+    private static final long ALLOWED_STATE = 1 << 2;
+    private static final long ACTIVE = 1 << 3;
+    private static final long UNCOMMITTED = 1 << 4;
+    private static final int SEGMENT_SHIFT = 8;
+
     private static final ConcurrentReferenceHashMap<StampCoordinateRecord, StampCalculatorWithCache> SINGLETONS =
             new ConcurrentReferenceHashMap<>(ConcurrentReferenceHashMap.ReferenceType.WEAK,
                     ConcurrentReferenceHashMap.ReferenceType.WEAK);
@@ -107,14 +116,22 @@ public class StampCalculatorWithCache implements StampCalculator {
     private final StampCoordinateRecord filter;
     private final StateSet allowedStates;
     private final ConcurrentHashMap<Integer, ImmutableSet<StampBranchRecord>> branchMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampOnRoute = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampIsAllowedState = new ConcurrentHashMap<>();
+    /**
+     * Route, allowed state, and position key of each stamp this calculator has resolved, indexed by stamp.
+     */
+    private final StampPositionTable stampTable = new StampPositionTable(StampIndex.get());
     /**
      * Mapping from pathNid to each segment for that pathNid. There is one entry
      * for each path reachable antecedent to the destination position of the
      * computer.
      */
     private final ConcurrentHashMap<Integer, Segment> pathNidSegmentMap = new ConcurrentHashMap<>();
+    /**
+     * Number of segment sequences assigned while building {@link #pathNidSegmentMap}, and a segmentCount x segmentCount matrix where
+     * entry [a * segmentCount + b] is true if segment b is in the preceding segments of segment a.
+     */
+    private final int segmentCount;
+    private final boolean[] segmentPrecedes;
     private final Cache<Integer, Latest<PatternEntityVersion>> patternVersionCache = Caffeine.newBuilder().maximumSize(512).build();
     private final Cache<Long, OptionalInt> indexForMeaningCache = Caffeine.newBuilder().maximumSize(1024).build();
     private final Cache<Long, OptionalInt> indexForPurposeCache = Caffeine.newBuilder().maximumSize(1024).build();
@@ -135,6 +152,20 @@ private StampCalculatorWithCache(StampCoordinateRecord filter) {
         //For the internal callback to populate the cache
         this.filter = filter;
         setupPathNidSegmentMap(filter.stampPosition().toStampPositionImmutable());
+        int segmentCount = 0;
+        for (Segment segment : pathNidSegmentMap.values()) {
+            segmentCount = Math.max(segmentCount, segment.segmentSequence + 1);
+            if (!segment.precedingSegments.isEmpty()) {
+                segmentCount = Math.max(segmentCount, segment.precedingSegments.last() + 1);
+            }
+        }
+        this.segmentCount = segmentCount;
+        this.segmentPrecedes = new boolean[segmentCount * segmentCount];
+        for (Segment segment : pathNidSegmentMap.values()) {
+            for (int precedingSequence : segment.precedingSegments) {
+                segmentPrecedes[segment.segmentSequence * segmentCount + precedingSequence] = true;
+            }
+        }
         this.allowedStates = filter.allowedStates();
         this.cacheInvalidationSubscriber.addCaches(patternVersionCache, latestCache);
         Entity.provider().addSubscriberWithWeakReference(this.cacheInvalidationSubscriber);
@@ -263,49 +294,48 @@ public <V extends EntityVersion> List<DiTreeVersion<V>> getVersionGraphList(Enti
      * @return the latest version
      */
     public <V extends EntityVersion> Latest<V> latest(Entity<V> chronicle) {
-        final HashSet<EntityVersion> latestVersionSet = new HashSet<>();
         if (chronicle == null) {
             return Latest.empty();
         }
 
-        chronicle.versions()
-                .stream()
-                .filter((newVersionToTest) -> (newVersionToTest.stamp().time() > Long.MIN_VALUE))
-                .filter((newVersionToTest) -> (onRoute(newVersionToTest.stamp())))
-                .forEach(
-                        (newVersionToTest) -> {
-                            if (latestVersionSet.isEmpty()) {
-                                if (allowedStates.contains(newVersionToTest.state())) {
-                                    latestVersionSet.add((V) newVersionToTest);
-                                }
-                            } else {
-                                handlePart(latestVersionSet, newVersionToTest);
-                            }
-                        });
+        final ImmutableList<V> versions = chronicle.versions();
+        final LatestCandidates latestVersions = new LatestCandidates(versions.size());
+        for (int versionIndex = 0; versionIndex < versions.size(); versionIndex++) {
+            final int stampNid = versions.get(versionIndex).stampNid();
+            final long info = stampInfo(stampNid);
+            if ((info & ON_ROUTE) == 0) {
+                continue;
+            }
+            final long time = stampTime(stampNid, info);
+            if (time == Long.MIN_VALUE) {
+                continue;
+            }
+            if (latestVersions.size == 0) {
+                if ((info & ALLOWED_STATE) != 0) {
+                    latestVersions.add(versionIndex, info, time);
+                }
+            } else {
+                handlePart(versions, latestVersions, versionIndex, info, time);
+            }
+        }
 
         if (this.filter.allowedStates().isActiveOnly()) {
-            final HashSet<EntityVersion> inactiveVersions = new HashSet<>();
-
-            latestVersionSet.stream()
-                    .forEach((version) -> {
-                        if (State.fromConceptNid(version.stamp().stateNid()) != State.ACTIVE) {
-                            inactiveVersions.add(version);
-                        }
-                    });
-            latestVersionSet.removeAll(inactiveVersions);
+            latestVersions.retainIfInfo(ACTIVE);
         }
 
-        final List<EntityVersion> latestVersionList = new ArrayList<>(latestVersionSet);
-
-        if (latestVersionList.isEmpty()) {
+        if (latestVersions.size == 0) {
             return new Latest<>();
         }
 
-        if (latestVersionList.size() == 1) {
-            return (Latest<V>) new Latest<>(latestVersionList.get(0));
+        if (latestVersions.size == 1) {
+            return new Latest<>(versions.get(latestVersions.keys[0]));
         }
 
-        return (Latest<V>) new Latest<>(latestVersionList.get(0), latestVersionList.subList(1, latestVersionList.size()));
+        final List<V> contradictions = new ArrayList<>(latestVersions.size - 1);
+        for (int i = 1; i < latestVersions.size; i++) {
+            contradictions.add(versions.get(latestVersions.keys[i]));
+        }
+        return new Latest<>(versions.get(latestVersions.keys[0]), contradictions);
     }
 
     @Override
@@ -482,11 +512,7 @@ public <T> Latest<Field<T>> getFieldForSemantic(int componentNid, int criterionN
      * @return true, if successful
      */
     public boolean onRoute(int stampNid) {
-        if (stampOnRoute.containsKey(stampNid)) {
-            return stampOnRoute.get(stampNid);
-        }
-        StampEntity stamp = Entity.getStamp(stampNid);
-        return onRoute(stamp);
+        return (stampInfo(stampNid) & ON_ROUTE) != 0;
     }
 
     /**
@@ -498,6 +524,11 @@ public boolean onRoute(int stampNid) {
      */
     public RelativePosition fastRelativePosition(int stampNid1,
                                                  int stampNid2) {
+        final long info1 = stampInfo(stampNid1);
+        final long info2 = stampInfo(stampNid2);
+        if ((info1 & info2 & ON_ROUTE) != 0) {
+            return relativePosition(info1, stampTime(stampNid1, info1), info2, stampTime(stampNid2, info2));
+        }
         StampEntity stamp1 = Entity.getStamp(stampNid1);
         StampEntity stamp2 = Entity.getStamp(stampNid2);
 
@@ -505,58 +536,144 @@ public RelativePosition fastRelativePosition(int stampNid1,
     }
 
     public boolean onRoute(StampEntity stamp) {
-        if (stampOnRoute.containsKey(stamp.nid())) {
-            return stampOnRoute.get(stamp.nid());
+        long info = stampTable.info(stamp.nid());
+        if (info == 0) {
+            info = resolveStamp(stamp);
+        }
+        return (info & ON_ROUTE) != 0;
+    }
+
+    /**
+     * Gets the info word for a stamp from the stamp table, resolving and storing it on first use.
+     *
+     * @param stampNid the stamp nid
+     * @return the info word
+     */
+    private long stampInfo(int stampNid) {
+        final long info = stampTable.info(stampNid);
+        if (info != 0) {
+            return info;
         }
+        return resolveStamp(Entity.getStamp(stampNid));
+    }
+
+    /**
+     * Gets the time of a stamp whose info word was returned by {@link #stampInfo(int)}.
+     *
+     * @param stampNid the stamp nid
+     * @param info     the info word for the stamp
+     * @return the stamp time
+     */
+    private long stampTime(int stampNid, long info) {
+        if ((info & UNCOMMITTED) != 0) {
+            return Long.MAX_VALUE;
+        }
+        return stampTable.time(stampNid);
+    }
+
+    /**
+     * Computes the info word for a stamp, and stores it in the stamp table if the stamp is committed. Uncommitted
+     * stamps will change time when committed, so they are resolved again on each use.
+     *
+     * @param stamp the stamp
+     * @return the info word
+     */
+    private long resolveStamp(StampEntity stamp) {
+        long info = RESOLVED;
         final Segment seg = this.pathNidSegmentMap.get(stamp.pathNid());
-        boolean returnValue = false;
-        if (seg != null) {
-            returnValue = seg.containsPosition(
-                    stamp.pathNid(),
-                    stamp.moduleNid(),
-                    stamp.time());
+        if (seg != null && seg.containsPosition(stamp.pathNid(), stamp.moduleNid(), stamp.time())) {
+            info |= ON_ROUTE | ((long) seg.segmentSequence << SEGMENT_SHIFT);
+        }
+        final State state = State.fromConceptNid(stamp.stateNid());
+        if (this.allowedStates.contains(state)) {
+            info |= ALLOWED_STATE;
         }
-        stampOnRoute.put(stamp.pathNid(), returnValue);
-        return returnValue;
+        if (state == State.ACTIVE) {
+            info |= ACTIVE;
+        }
+        if (stamp.time() == Long.MAX_VALUE) {
+            info |= UNCOMMITTED;
+        } else {
+            stampTable.put(stamp.nid(), stamp.time(), info);
+        }
+        return info;
+    }
+
+    /**
+     * Relative position of two on route stamps, computed from their segment sequences and times.
+     *
+     * @param info1 the info word of the first stamp
+     * @param time1 the time of the first stamp
+     * @param info2 the info word of the second stamp
+     * @param time2 the time of the second stamp
+     * @return the relative position
+     */
+    private RelativePosition relativePosition(long info1, long time1, long info2, long time2) {
+        final int segment1 = (int) (info1 >>> SEGMENT_SHIFT);
+        final int segment2 = (int) (info2 >>> SEGMENT_SHIFT);
+        if (segment1 == segment2) {
+            if (time1 < time2) {
+                return RelativePosition.BEFORE;
+            }
+            if (time1 > time2) {
+                return RelativePosition.AFTER;
+            }
+            return RelativePosition.EQUAL;
+        }
+        if (segmentPrecedes[segment1 * segmentCount + segment2]) {
+            return RelativePosition.BEFORE;
+        }
+        if (segmentPrecedes[segment2 * segmentCount + segment1]) {
+            return RelativePosition.AFTER;
+        }
+        return RelativePosition.CONTRADICTION;
     }
 
     /**
      * Handle part.
      *
-     * @param partsForPosition the parts for position
-     * @param part             the part
+     * @param versions       the versions of the chronicle
+     * @param latestVersions the indexes of the latest versions found so far
+     * @param part           the index of the version to handle
+     * @param partInfo       the info word of the version's stamp
+     * @param partTime       the time of the version's stamp
      */
-    private void handlePart(HashSet<EntityVersion> partsForPosition, EntityVersion part) {
-        // create a list of values so we don't have any
-        // concurrent modification issues with removing/adding
-        // items to the partsForPosition.
-        final List<EntityVersion> partsToCompare = new ArrayList<>(partsForPosition);
-
-        for (final EntityVersion prevPartToTest : partsToCompare) {
-            switch (fastRelativePosition(part, prevPartToTest)) {
+    private void handlePart(ImmutableList<? extends EntityVersion> versions, LatestCandidates latestVersions,
+                            int part, long partInfo, long partTime) {
+        // compare against the versions present on entry, compacting in place
+        // so the part is only added once, after all comparisons.
+        final int compareCount = latestVersions.size;
+        int retained = 0;
+        boolean addPart = false;
+
+        for (int i = 0; i < compareCount; i++) {
+            boolean retain = true;
+            switch (relativePosition(partInfo, partTime, latestVersions.infos[i], latestVersions.times[i])) {
                 case AFTER:
-                    partsForPosition.remove(prevPartToTest);
-                    partsForPosition.add(part);
+                    retain = false;
+                    addPart = true;
                     break;
 
                 case BEFORE:
                     break;
 
                 case CONTRADICTION:
-                    partsForPosition.add(part);
+                    addPart = true;
                     break;
 
                 case EQUAL:
+                    final EntityVersion partVersion = versions.get(part);
+                    final EntityVersion prevPartToTest = versions.get(latestVersions.keys[i]);
 
-                    if (prevPartToTest.equals(part)) {
+                    if (prevPartToTest.equals(partVersion)) {
                         // part already added from another position.
                         // No need to add again.
                         break;
                     }
 
-                    if (prevPartToTest.uncommitted() && part.uncommitted()) {
+                    if (prevPartToTest.uncommitted() && partVersion.uncommitted()) {
                         // Uncommitted parts should be treated as CONTRADICTION.
-                        partsForPosition.add(part);
+                        addPart = true;
                         break;
                     }
                     // Can only have one part per time/path
@@ -566,8 +683,8 @@ private void handlePart(HashSet<EntityVersion> partsForPosition, EntityVersion p
                     this.errorCount++;
 
                     if (this.errorCount < 5) {
-                        LOG.warn("EQUAL indicates that data is malformed. Stamp: " + part.stamp() +
-                                " Part:\n" + part + " \n  Part to test: \n" + prevPartToTest + "\n");
+                        LOG.warn("EQUAL indicates that data is malformed. Stamp: " + partVersion.stamp() +
+                                " Part:\n" + partVersion + " \n  Part to test: \n" + prevPartToTest + "\n");
                     }
 
                     break;
@@ -578,6 +695,13 @@ private void handlePart(HashSet<EntityVersion> partsForPosition, EntityVersion p
                     // above.
                     throw new RuntimeException(RelativePosition.UNREACHABLE + " should never happen.");
             }
+            if (retain) {
+                latestVersions.move(i, retained++);
+            }
+        }
+        latestVersions.size = retained;
+        if (addPart) {
+            latestVersions.add(part, partInfo, partTime);
         }
     }
 
@@ -590,9 +714,7 @@ private void handlePart(HashSet<EntityVersion> partsForPosition, EntityVersion p
      */
     public RelativePosition fastRelativePosition(EntityVersion v1,
                                                  EntityVersion v2) {
-        StampEntity v1Stamp = v1.stamp();
-        StampEntity v2Stamp = v2.stamp();
-        return getRelativePosition(v1Stamp, v2Stamp);
+        return fastRelativePosition(v1.stampNid(), v2.stampNid());
     }
 
     public RelativePosition getRelativePosition(StampEntity stamp1, StampEntity stamp2) {
@@ -874,8 +996,7 @@ private void setupPathNidSegmentMap(StampPositionRecord destination) {
      */
     public boolean isLatestActive(int[] stampNids) {
         for (int stampNid : getLatestStampNidsAsSet(stampNids)) {
-            StampEntity stamp = Entity.getStamp(stampNid);
-            if (State.fromConceptNid(stamp.stateNid()) == State.ACTIVE) {
+            if ((stampInfo(stampNid) & ACTIVE) != 0) {
                 return true;
             }
         }
@@ -894,7 +1015,7 @@ public boolean isLatestActive(int[] stampNids) {
      */
     public int[] getLatestStampNidsAsSet(int[] stampNids) {
 
-        MutableIntSet stampsForPosition = IntSets.mutable.empty();
+        LatestCandidates stampsForPosition = new LatestCandidates(stampNids.length);
         for (int stampToCompare : stampNids) {
             handleStamp(stampsForPosition, stampToCompare, true);
         }
@@ -908,7 +1029,7 @@ public int[] getLatestStampNidsAsSet(int[] stampNids) {
      * @param stampsForPosition the stamps for position
      * @param stampNid          the stamp sequence
      */
-    private void handleStamp(MutableIntSet stampsForPosition, int stampNid, boolean allowUncommitted) {
+    private void handleStamp(LatestCandidates stampsForPosition, int stampNid, boolean allowUncommitted) {
 
         if (!allowUncommitted) {
             throw new UnsupportedOperationException();
@@ -919,39 +1040,43 @@ private void handleStamp(MutableIntSet stampsForPosition, int stampNid, boolean
 //            }
         }
 
-        if (!onRoute(stampNid)) {
+        final long info = stampInfo(stampNid);
+        if ((info & ON_ROUTE) == 0) {
             return;
         }
+        final long time = stampTime(stampNid, info);
 
-        if (stampsForPosition.isEmpty()) {
-            stampsForPosition.add(stampNid);
+        if (stampsForPosition.size == 0) {
+            stampsForPosition.add(stampNid, info, time);
             return;
         }
 
-        // create a list of values so we don't have any
-        // concurrent modification issues with removing/adding
-        // items to the stampsForPosition.
-        final ImmutableIntSet stampsToCompare = IntSets.immutable.ofAll(stampsForPosition);
+        // compare against the stamps present on entry, compacting in place
+        // so the stamp is only added once, after all comparisons.
+        final int compareCount = stampsForPosition.size;
+        int retained = 0;
+        boolean addStamp = false;
 
-        stampsToCompare.forEach(prevStamp -> {
-            switch (fastRelativePosition(stampNid, prevStamp)) {
+        for (int i = 0; i < compareCount; i++) {
+            boolean retain = true;
+            switch (relativePosition(info, time, stampsForPosition.infos[i], stampsForPosition.times[i])) {
                 case AFTER:
-                    stampsForPosition.remove(prevStamp);
-                    stampsForPosition.add(stampNid);
+                    retain = false;
+                    addStamp = true;
                     break;
 
                 case BEFORE:
                     break;
 
                 case CONTRADICTION:
-                    stampsForPosition.add(stampNid);
+                    addStamp = true;
                     break;
 
                 case EQUAL:
 
                     // Can only have one stampNid per time/path
                     // combination.
-                    if (prevStamp == stampNid) {
+                    if (stampsForPosition.keys[i] == stampNid) {
                         // stampNid already added from another position.
                         // No need to add again.
                         break;
@@ -959,43 +1084,27 @@ private void handleStamp(MutableIntSet stampsForPosition, int stampNid, boolean
 
                     // Duplicate values encountered.  Likely two stamps at the same time on different modules.
                     //TODO this should be using the module preference order to determine which one to put at the top...
-                    stampsForPosition.add(stampNid);
+                    addStamp = true;
                     break;
 
                 case UNREACHABLE:
 
                     // nothing to do...
                     break;
-
-                default:
-                    throw new UnsupportedOperationException(
-                            "n Can't handle: " + fastRelativePosition(
-                                    stampNid,
-                                    prevStamp));
             }
-        });
-
-    }
-
-    private int[] getResults(MutableIntSet stampsForPosition) {
-        MutableIntSet resultList = IntSets.mutable.of();
-
-        stampsForPosition.forEach(stampNid -> {
-            if (isAllowedState(stampNid)) {
-                resultList.add(stampNid);
+            if (retain) {
+                stampsForPosition.move(i, retained++);
             }
-        });
-        return resultList.toArray();
+        }
+        stampsForPosition.size = retained;
+        if (addStamp) {
+            stampsForPosition.add(stampNid, info, time);
+        }
     }
 
-    private boolean isAllowedState(int stampNid) {
-        if (stampIsAllowedState.containsKey(stampNid)) {
-            return stampIsAllowedState.get(stampNid);
-        }
-        StampEntity stamp = Entity.getStamp(stampNid);
-        boolean allowed = this.allowedStates.contains(State.fromConceptNid(stamp.stateNid()));
-        stampIsAllowedState.put(stampNid, allowed);
-        return allowed;
+    private int[] getResults(LatestCandidates stampsForPosition) {
+        stampsForPosition.retainIfInfo(ALLOWED_STATE);
+        return Arrays.copyOf(stampsForPosition.keys, stampsForPosition.size);
     }
 
     /**
@@ -1005,7 +1114,7 @@ private boolean isAllowedState(int stampNid) {
      * @return the latest stamp sequences as a sorted set in an array
      */
     public int[] getLatestCommittedStampNidsAsSet(int[] stampNids) {
-        MutableIntSet stampsForPosition = IntSets.mutable.empty();
+        LatestCandidates stampsForPosition = new LatestCandidates(stampNids.length);
         for (int stampToCompare : stampNids) {
             handleStamp(stampsForPosition, stampToCompare, false);
         }
@@ -1029,6 +1138,53 @@ public static class CacheProvider implements CachingService {
         @Override
         public void reset() {
             SINGLETONS.clear();
+            StampIndex.reset();
+        }
+    }
+
+    /**
+     * The latest versions or stamps found so far while scanning a chronicle or stamp array, held in parallel
+     * primitive arrays with the info word and time of each stamp. Keys are version indexes when computing the
+     * latest version of a chronicle, and stamp nids when computing the latest stamps.
+     */
+    private static final class LatestCandidates {
+        final int[] keys;
+        final long[] infos;
+        final long[] times;
+        int size;
+
+        private LatestCandidates(int capacity) {
+            this.keys = new int[capacity];
+            this.infos = new long[capacity];
+            this.times = new long[capacity];
+        }
+
+        private void add(int key, long info, long time) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    return;
+                }
+            }
+            keys[size] = key;
+            infos[size] = info;
+            times[size] = time;
+            size++;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            infos[to] = infos[from];
+            times[to] = times[from];
+        }
+
+        private void retainIfInfo(long infoBit) {
+            int retained = 0;
+            for (int i = 0; i < size; i++) {
+                if ((infos[i] & infoBit) != 0) {
+                    move(i, retained++);
+                }
+            }
+            size = retained;
         }
     }
 
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dense index of the stamp nids seen by stamp calculators, shared by all of them, so each calculator's
+ * {@link StampPositionTable} holds only stamps. Nids are allocated sequentially from {@link Integer#MIN_VALUE} for
+ * every kind of entity, so the index is a spine of small pages keyed by nid, allocated for the nid ranges that
+ * hold a stamp, with one int per nid rather than a calculator's two longs.
+ * <p>
+ * A slot holds the stamp's dense index plus one, so zero means the stamp has no index yet. Indexes are assigned
+ * once and never change; {@link #reset()} starts a new index for calculators created afterwards, while existing
+ * calculators keep the index their table was created with.
+ */
+final class StampIndex {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static volatile StampIndex current = new StampIndex();
+
+    private volatile AtomicIntegerArray[] pages = new AtomicIntegerArray[64];
+    private int nextIndex = 0;
+
+    static StampIndex get() {
+        return current;
+    }
+
+    static void reset() {
+        current = new StampIndex();
+    }
+
+    private static long nidIndex(int stampNid) {
+        return (long) stampNid - Integer.MIN_VALUE;
+    }
+
+    private AtomicIntegerArray page(long nidIndex) {
+        int pageIndex = (int) (nidIndex >>> PAGE_BITS);
+        AtomicIntegerArray[] pages = this.pages;
+        return pageIndex < pages.length ? pages[pageIndex] : null;
+    }
+
+    /**
+     * @param stampNid the stamp nid
+     * @return the dense index of the stamp, or -1 if it has none
+     */
+    int indexOf(int stampNid) {
+        long nidIndex = nidIndex(stampNid);
+        AtomicIntegerArray page = page(nidIndex);
+        if (page == null) {
+            return -1;
+        }
+        return page.get((int) nidIndex & PAGE_MASK) - 1;
+    }
+
+    /**
+     * @param stampNid the stamp nid
+     * @return the dense index of the stamp, assigned on first use
+     */
+    int indexFor(int stampNid) {
+        int index = indexOf(stampNid);
+        if (index >= 0) {
+            return index;
+        }
+        return assign(stampNid);
+    }
+
+    private synchronized int assign(int stampNid) {
+        long nidIndex = nidIndex(stampNid);
+        int pageIndex = (int) (nidIndex >>> PAGE_BITS);
+        AtomicIntegerArray[] pages = this.pages;
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+        }
+        AtomicIntegerArray page = pages[pageIndex];
+        if (page == null) {
+            page = new AtomicIntegerArray(PAGE_SIZE);
+            pages[pageIndex] = page;
+        }
+        this.pages = pages;
+        int slot = (int) nidIndex & PAGE_MASK;
+        int value = page.get(slot);
+        if (value == 0) {
+            value = ++nextIndex;
+            page.set(slot, value);
+        }
+        return value - 1;
+    }
+}
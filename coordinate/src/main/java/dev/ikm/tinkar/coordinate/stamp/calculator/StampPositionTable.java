@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dense table that holds, for one stamp calculator, the packed route information and the time of each committed
+ * stamp the calculator has seen. Stamps are keyed by their {@link StampIndex}, which is dense over stamps and
+ * shared by every calculator, so the table is a spine of fixed size pages holding only stamps, and a lookup is
+ * array reads with no hashing or boxing.
+ * <p>
+ * Each stamp takes two adjacent slots in its page: the time, then the info word. An info word of zero means the
+ * stamp has not been resolved. Writers store the time before the info word, so a reader that sees a non-zero info
+ * word also sees the time. Only committed stamps are stored, since their time, path, module, and state no longer
+ * change.
+ */
+final class StampPositionTable {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final StampIndex stampIndex;
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[16];
+
+    StampPositionTable(StampIndex stampIndex) {
+        this.stampIndex = stampIndex;
+    }
+
+    private AtomicLongArray page(int index) {
+        int pageIndex = index >>> PAGE_BITS;
+        AtomicLongArray[] pages = this.pages;
+        return pageIndex < pages.length ? pages[pageIndex] : null;
+    }
+
+    /**
+     * @param stampNid the stamp nid
+     * @return the info word stored for the stamp, or zero if the stamp has not been stored
+     */
+    long info(int stampNid) {
+        int index = stampIndex.indexOf(stampNid);
+        if (index < 0) {
+            return 0;
+        }
+        AtomicLongArray page = page(index);
+        if (page == null) {
+            return 0;
+        }
+        return page.get(((index & PAGE_MASK) << 1) + 1);
+    }
+
+    /**
+     * @param stampNid the stamp nid, which must have a non-zero {@link #info(int)}
+     * @return the time stored for the stamp
+     */
+    long time(int stampNid) {
+        int index = stampIndex.indexOf(stampNid);
+        return page(index).get((index & PAGE_MASK) << 1);
+    }
+
+    void put(int stampNid, long time, long info) {
+        int index = stampIndex.indexFor(stampNid);
+        AtomicLongArray page = page(index);
+        if (page == null) {
+            page = addPage(index >>> PAGE_BITS);
+        }
+        int slot = (index & PAGE_MASK) << 1;
+        page.set(slot, time);
+        page.set(slot + 1, info);
+    }
+
+    private synchronized AtomicLongArray addPage(int pageIndex) {
+        AtomicLongArray[] pages = this.pages;
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+        }
+        AtomicLongArray page = pages[pageIndex];
+        if (page == null) {
+            page = new AtomicLongArray(PAGE_SIZE << 1);
+            pages[pageIndex] = page;
+        }
+        this.pages = pages;
+        return page;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.id.IntIdSet;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the closures of {@link NavigationClosureIndex} with a breadth first traversal of the same adjacency,
+ * before and after edges are added and removed.
+ */
+public class NavigationClosureIndexTest {
+
+    private static final int CONCEPT_COUNT = 200;
+
+    private final MutableIntObjectMap<MutableIntSet> parents = IntObjectMaps.mutable.empty();
+    private final MutableIntObjectMap<MutableIntSet> children = IntObjectMaps.mutable.empty();
+    private final NavigationClosureIndex index = new NavigationClosureIndex(
+            conceptNid -> adjacent(parents, conceptNid),
+            conceptNid -> adjacent(children, conceptNid),
+            () -> {
+                MutableIntSet conceptNids = IntSets.mutable.empty();
+                conceptNids.addAll(parents.keySet());
+                conceptNids.addAll(children.keySet());
+                return conceptNids.toArray();
+            });
+
+    @Test
+    public void closuresMatchTraversal() {
+        Random random = new Random(7);
+        for (int childNid = 2; childNid <= CONCEPT_COUNT; childNid++) {
+            addEdge(random.nextInt(childNid - 1) + 1, childNid);
+            if (random.nextInt(3) == 0) {
+                addEdge(random.nextInt(childNid - 1) + 1, childNid);
+            }
+        }
+        assertClosuresMatch();
+    }
+
+    @Test
+    public void closuresMatchTraversalAfterEdgeChanges() {
+        Random random = new Random(11);
+        for (int childNid = 2; childNid <= CONCEPT_COUNT; childNid++) {
+            addEdge(random.nextInt(childNid - 1) + 1, childNid);
+        }
+        assertClosuresMatch();
+        for (int change = 0; change < 100; change++) {
+            int childNid = random.nextInt(CONCEPT_COUNT - 1) + 2;
+            int parentNid = random.nextInt(childNid - 1) + 1;
+            if (change % 2 == 0) {
+                addEdge(parentNid, childNid);
+            } else {
+                int[] childParents = adjacent(parents, childNid);
+                if (childParents.length > 0) {
+                    parentNid = childParents[random.nextInt(childParents.length)];
+                    removeEdge(parentNid, childNid);
+                }
+            }
+            index.invalidate(new int[]{parentNid, childNid});
+            // Query in a different order each time, so memoized closures are reused across changes.
+            int startNid = random.nextInt(CONCEPT_COUNT) + 1;
+            index.descendentsOf(startNid);
+            index.ancestorsOf(startNid);
+            assertClosuresMatch();
+        }
+    }
+
+    @Test
+    public void closuresThroughCycleMatchTraversal() {
+        // 1 -> 2 -> 3 -> 4 -> 2, with 5 below 3 and 6 below 4: a malformed cycle entered from outside.
+        addEdge(1, 2);
+        addEdge(2, 3);
+        addEdge(3, 4);
+        addEdge(4, 2);
+        addEdge(3, 5);
+        addEdge(4, 6);
+        // Start inside the cycle first, so closures truncated at the path's first concept are not memoized.
+        for (int startNid : new int[]{3, 4, 2, 1, 5, 6}) {
+            assertClosureMatches(startNid);
+        }
+        assertClosuresMatch();
+
+        removeEdge(4, 2);
+        index.invalidate(new int[]{4, 2});
+        assertClosuresMatch();
+
+        addEdge(6, 3);
+        index.invalidate(new int[]{6, 3});
+        assertClosuresMatch();
+    }
+
+    @Test
+    public void returnedClosuresDoNotExposeTheCache() {
+        for (int childNid = 2; childNid <= CONCEPT_COUNT; childNid++) {
+            addEdge(childNid / 2, childNid);
+        }
+        IntIdSet descendents = index.descendentsOf(1);
+        int[] expected = descendents.toArray();
+        Arrays.fill(descendents.toArray(), 0);
+        assertArrayEquals(expected, index.descendentsOf(1).toArray());
+        assertEquals(CONCEPT_COUNT - 1, index.descendentsOf(1).size());
+    }
+
+    @Test
+    public void kindOfIsMemoizedUntilInvalidated() {
+        for (int childNid = 2; childNid <= CONCEPT_COUNT; childNid++) {
+            addEdge(childNid / 2, childNid);
+        }
+        IntIdSet kindOf = index.kindOf(1);
+        assertEquals(CONCEPT_COUNT, kindOf.size());
+        assertSame(kindOf, index.kindOf(1));
+
+        addEdge(CONCEPT_COUNT, CONCEPT_COUNT + 1);
+        index.invalidate(new int[]{CONCEPT_COUNT, CONCEPT_COUNT + 1});
+        assertEquals(CONCEPT_COUNT + 1, index.kindOf(1).size());
+        assertTrue(index.kindOf(1).contains(CONCEPT_COUNT + 1));
+    }
+
+    private void addEdge(int parentNid, int childNid) {
+        parents.getIfAbsentPut(childNid, IntSets.mutable::empty).add(parentNid);
+        children.getIfAbsentPut(parentNid, IntSets.mutable::empty).add(childNid);
+    }
+
+    private void removeEdge(int parentNid, int childNid) {
+        parents.get(childNid).remove(parentNid);
+        children.get(parentNid).remove(childNid);
+    }
+
+    private static int[] adjacent(MutableIntObjectMap<MutableIntSet> adjacency, int conceptNid) {
+        MutableIntSet adjacent = adjacency.get(conceptNid);
+        return adjacent == null ? new int[0] : adjacent.toArray();
+    }
+
+    private void assertClosuresMatch() {
+        for (int conceptNid = 1; conceptNid <= CONCEPT_COUNT; conceptNid++) {
+            assertClosureMatches(conceptNid);
+        }
+    }
+
+    private void assertClosureMatches(int conceptNid) {
+        assertArrayEquals(traverse(children, conceptNid), sorted(index.descendentsOf(conceptNid)),
+                "descendents of " + conceptNid);
+        assertArrayEquals(traverse(parents, conceptNid), sorted(index.ancestorsOf(conceptNid)),
+                "ancestors of " + conceptNid);
+        MutableIntSet kindOf = IntSets.mutable.of(traverse(children, conceptNid));
+        kindOf.add(conceptNid);
+        assertArrayEquals(kindOf.toSortedArray(), sorted(index.kindOf(conceptNid)), "kind of " + conceptNid);
+    }
+
+    private static int[] sorted(IntIdSet intIdSet) {
+        int[] elements = intIdSet.toArray();
+        Arrays.sort(elements);
+        return elements;
+    }
+
+    private static int[] traverse(MutableIntObjectMap<MutableIntSet> adjacency, int conceptNid) {
+        MutableIntSet reached = IntSets.mutable.empty();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(conceptNid);
+        while (!queue.isEmpty()) {
+            for (int adjacentNid : adjacent(adjacency, queue.remove())) {
+                if (reached.add(adjacentNid)) {
+                    queue.add(adjacentNid);
+                }
+            }
+        }
+        return reached.toSortedArray();
+    }
+}
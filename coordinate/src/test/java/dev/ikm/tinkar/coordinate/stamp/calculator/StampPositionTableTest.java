@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StampPositionTableTest {
+
+    @Test
+    public void stampsAreIndexedDenselyAcrossSparseNids() {
+        StampIndex stampIndex = new StampIndex();
+        // Stamps spread through the nid space, as they are among the other entities.
+        int[] stampNids = new int[2_000];
+        Random random = new Random(3);
+        int nid = Integer.MIN_VALUE;
+        for (int i = 0; i < stampNids.length; i++) {
+            nid += 1 + random.nextInt(5_000);
+            stampNids[i] = nid;
+        }
+        for (int i = 0; i < stampNids.length; i++) {
+            assertEquals(-1, stampIndex.indexOf(stampNids[i]));
+            assertEquals(i, stampIndex.indexFor(stampNids[i]));
+        }
+        for (int i = 0; i < stampNids.length; i++) {
+            assertEquals(i, stampIndex.indexOf(stampNids[i]));
+            assertEquals(i, stampIndex.indexFor(stampNids[i]));
+        }
+        assertEquals(-1, stampIndex.indexOf(nid + 1));
+        assertEquals(-1, stampIndex.indexOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void tablesSharingAnIndexKeepTheirOwnEntries() {
+        StampIndex stampIndex = new StampIndex();
+        StampPositionTable table1 = new StampPositionTable(stampIndex);
+        StampPositionTable table2 = new StampPositionTable(stampIndex);
+        int stampNid1 = Integer.MIN_VALUE + 10;
+        int stampNid2 = Integer.MIN_VALUE + 1_000_000;
+        table1.put(stampNid1, 100, 3);
+        table2.put(stampNid2, 200, 5);
+        table2.put(stampNid1, 100, 7);
+
+        assertEquals(3, table1.info(stampNid1));
+        assertEquals(100, table1.time(stampNid1));
+        assertEquals(0, table1.info(stampNid2));
+        assertEquals(7, table2.info(stampNid1));
+        assertEquals(5, table2.info(stampNid2));
+        assertEquals(200, table2.time(stampNid2));
+        assertEquals(0, table1.info(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void concurrentPutsAgreeOnIndexes() throws InterruptedException {
+        StampIndex stampIndex = new StampIndex();
+        StampPositionTable[] tables = new StampPositionTable[4];
+        Thread[] threads = new Thread[tables.length];
+        for (int t = 0; t < tables.length; t++) {
+            StampPositionTable table = new StampPositionTable(stampIndex);
+            tables[t] = table;
+            int info = t + 1;
+            threads[t] = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    table.put(Integer.MIN_VALUE + i * 7, i, info);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < tables.length; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(t + 1, tables[t].info(Integer.MIN_VALUE + i * 7));
+                assertEquals(i, tables[t].time(Integer.MIN_VALUE + i * 7));
+            }
+        }
+    }
+}
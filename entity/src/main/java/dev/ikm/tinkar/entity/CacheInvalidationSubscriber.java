@@ -16,14 +16,17 @@
 package dev.ikm.tinkar.entity;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.common.util.broadcast.IntSetSubscriber;
+import org.eclipse.collections.api.set.primitive.IntSet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Remove objects from a cache based on
  */
-public class CacheInvalidationSubscriber implements Subscriber<Integer> {
+public class CacheInvalidationSubscriber implements IntSetSubscriber {
     CopyOnWriteArrayList<Cache<Integer, ? extends Object>> cachesToManage = new CopyOnWriteArrayList<>();
 
 
@@ -42,4 +45,13 @@ public void onNext(Integer nid) {
             cache.invalidate(nid);
         }
     }
+
+    @Override
+    public void onNextAll(IntSet nids) {
+        List<Integer> keys = new ArrayList<>(nids.size());
+        nids.forEach(keys::add);
+        for (Cache<Integer, ?> cache : cachesToManage) {
+            cache.invalidateAll(keys);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.component.FieldDataType;
+import io.activej.bytebuf.ByteBuf;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * Semantic field values that remain in their encoded form, within the entity bytes they were read from, until
+ * a field is accessed. Versions that are only examined for their stamp, such as versions a stamp calculator
+ * discards, never decode their strings, decimals or trees.
+ * <p>
+ * The encoded bytes are retained after decoding, so an unchanged version can be written again by copying them.
+ */
+final class EncodedFieldList extends RecordListBuilder<Object> {
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final int fieldCount;
+    private final byte formatVersion;
+
+    /**
+     * @param data entity bytes, which must not be modified after this list is created
+     * @param offset offset of the first field token
+     * @param length encoded length of all fields
+     * @param fieldCount number of fields
+     * @param formatVersion entity format version of the data
+     */
+    EncodedFieldList(byte[] data, int offset, int length, int fieldCount, byte formatVersion) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.fieldCount = fieldCount;
+        this.formatVersion = formatVersion;
+        // Nothing may be added; the fields are in the encoded bytes.
+        this.mutableList = null;
+    }
+
+    /**
+     * Decodes the fields the first time any other list operation needs them; every later operation delegates to
+     * the decoded list.
+     */
+    @Override
+    synchronized ImmutableList<Object> unbuiltList() {
+        if (immutableList == null) {
+            ByteBuf readBuf = ByteBuf.wrap(data, offset, offset + length);
+            MutableList<Object> fields = Lists.mutable.withInitialCapacity(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                FieldDataType dataType = FieldDataType.fromToken(readBuf.readByte());
+                fields.add(EntityRecordFactory.readFieldData(readBuf, dataType, formatVersion));
+            }
+            immutableList = fields.toImmutable();
+        }
+        return immutableList;
+    }
+
+    @Override
+    public ImmutableList<Object> build() {
+        unbuiltList();
+        return this;
+    }
+
+    boolean isDecoded() {
+        return immutableList != null;
+    }
+
+    int encodedLength() {
+        return length;
+    }
+
+    void writeEncoded(ByteBuf writeBuf) {
+        writeBuf.write(data, offset, length);
+    }
+
+    @Override
+    public int size() {
+        return fieldCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return fieldCount == 0;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+/**
+ * Point in time view of one cache of an {@link EntityService}.
+ *
+ * @param name            what the cache holds, such as concepts or stamps.
+ * @param entries         entries currently cached.
+ * @param weightedBytes   serialized size of the cached entries.
+ * @param byteBudget      size above which entries are evicted, or zero if the cache is never evicted.
+ * @param hits            lookups answered from the cache since it was created.
+ * @param misses          lookups that read the data store since the cache was created.
+ * @param evictions       entries evicted to stay within the budget since the cache was created.
+ */
+public record EntityCacheMetrics(String name, long entries, long weightedBytes, long byteBudget,
+                                 long hits, long misses, long evictions) {
+
+    public double hitRate() {
+        long lookups = hits + misses;
+        if (lookups == 0) {
+            return 0;
+        }
+        return (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCacheMetrics{name=" + name +
+                ", entries=" + entries +
+                ", weightedBytes=" + weightedBytes +
+                ", byteBudget=" + byteBudget +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", hitRate=" + String.format("%.3f", hitRate()) + "}";
+    }
+}
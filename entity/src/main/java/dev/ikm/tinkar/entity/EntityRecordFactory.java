@@ -27,7 +27,7 @@
 import dev.ikm.tinkar.entity.graph.DiTreeEntity;
 import dev.ikm.tinkar.terms.*;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
@@ -51,139 +51,229 @@
 public class EntityRecordFactory {
     private static final Logger LOG = LoggerFactory.getLogger(EntityRecordFactory.class);
     public static final byte ENTITY_FORMAT_VERSION = 1;
-    public static final int DEFAULT_ENTITY_SIZE = 32767;
-    public static final int DEFAULT_VERSION_SIZE = 16384;
-    public static int MAX_ENTITY_SIZE = DEFAULT_ENTITY_SIZE;
-    public static int MAX_VERSION_SIZE = DEFAULT_VERSION_SIZE;
+    private static final int INT_BYTES = 4;
 
+    /**
+     * Encodes the entity as an array count, then each array (chronology first, then one per version) preceded by
+     * its size. The exact size of every array is computed before anything is written, so the entity is encoded
+     * once into a single array with no intermediate buffers or copies.
+     */
     public static byte[] getBytes(Entity<? extends EntityVersion> entity) {
-        // TODO: write directly to a single ByteBuf, rather that the approach below.
-        boolean complete = false;
-        while (!complete) {
-            try {
-                ByteBuf byteBuf = ByteBufPool.allocate(MAX_ENTITY_SIZE);
-                // one byte for version...
-                //byte[0]
-                byteBuf.writeByte(ENTITY_FORMAT_VERSION);
-                //byte[1]
-                byteBuf.writeByte(entity.entityDataType().token); //ensure that the chronicle byte array sorts first.
-                //byte[2-5]
-                byteBuf.writeInt(entity.nid());
-                //byte[6-13]
-                byteBuf.writeLong(entity.mostSignificantBits());
-                //byte[14-21]
-                byteBuf.writeLong(entity.leastSignificantBits());
-
-                long[] additionalUuidLongs = entity.additionalUuidLongs();
-                if (additionalUuidLongs == null) {
-                    //byte[22]
-                    byteBuf.writeByte((byte) 0);
-                } else {
-                    //byte[22]
-                    byteBuf.writeByte((byte) additionalUuidLongs.length);
+        ImmutableList<? extends EntityVersion> versions = entity.versions();
+        int chronologySize = chronologySize(entity);
+        int[] versionSizes = new int[versions.size()];
+        int totalSize = INT_BYTES + INT_BYTES + chronologySize;
+        for (int i = 0; i < versionSizes.length; i++) {
+            versionSizes[i] = versionSize(versions.get(i));
+            totalSize += INT_BYTES + versionSizes[i];
+        }
+        byte[] bytes = new byte[totalSize];
+        ByteBuf byteBuf = ByteBuf.wrapForWriting(bytes);
+        byteBuf.writeInt(versionSizes.length + 1);
+        byteBuf.writeInt(chronologySize);
+        writeChronology(byteBuf, entity);
+        checkEncodedSize(byteBuf, INT_BYTES + INT_BYTES + chronologySize, entity);
+        for (int i = 0; i < versionSizes.length; i++) {
+            byteBuf.writeInt(versionSizes[i]);
+            int expectedTail = byteBuf.tail() + versionSizes[i];
+            writeVersion(byteBuf, versions.get(i));
+            checkEncodedSize(byteBuf, expectedTail, versions.get(i));
+        }
+        return bytes;
+    }
+
+    public static byte[] getBytes(EntityVersion entityVersion) {
+        int versionSize = versionSize(entityVersion);
+        byte[] bytes = new byte[versionSize];
+        ByteBuf byteBuf = ByteBuf.wrapForWriting(bytes);
+        writeVersion(byteBuf, entityVersion);
+        checkEncodedSize(byteBuf, versionSize, entityVersion);
+        return bytes;
+    }
+
+    private static void checkEncodedSize(ByteBuf byteBuf, int expectedTail, Object source) {
+        if (byteBuf.tail() != expectedTail) {
+            throw new IllegalStateException("Encoded " + byteBuf.tail() + " bytes, but computed " + expectedTail +
+                    " for: " + source);
+        }
+    }
+
+    /**
+     * @return the number of bytes {@link #writeChronology(ByteBuf, Entity)} writes for this entity.
+     */
+    public static int chronologySize(Entity<? extends EntityVersion> entity) {
+        // format version, type token, nid, msb, lsb, additional uuid long count, version count
+        int size = 1 + 1 + 4 + 8 + 8 + 1 + 4;
+        long[] additionalUuidLongs = entity.additionalUuidLongs();
+        if (additionalUuidLongs != null) {
+            size += 8 * additionalUuidLongs.length;
+        }
+        return switch (entity) {
+            // referenced component nid and pattern nid
+            case SemanticEntity semanticEntity -> size + 8;
+            case ConceptRecord conceptEntity -> size;
+            case PatternEntity patternEntity -> size;
+            case StampEntity stampEntity -> size;
+            default -> throw new IllegalStateException("Unexpected value: " + entity);
+        };
+    }
+
+    public static void writeChronology(ByteBuf byteBuf, Entity<? extends EntityVersion> entity) {
+        // one byte for version...
+        //byte[0]
+        byteBuf.writeByte(ENTITY_FORMAT_VERSION);
+        //byte[1]
+        byteBuf.writeByte(entity.entityDataType().token); //ensure that the chronicle byte array sorts first.
+        //byte[2-5]
+        byteBuf.writeInt(entity.nid());
+        //byte[6-13]
+        byteBuf.writeLong(entity.mostSignificantBits());
+        //byte[14-21]
+        byteBuf.writeLong(entity.leastSignificantBits());
+
+        long[] additionalUuidLongs = entity.additionalUuidLongs();
+        if (additionalUuidLongs == null) {
+            //byte[22]
+            byteBuf.writeByte((byte) 0);
+        } else {
+            //byte[22]
+            byteBuf.writeByte((byte) additionalUuidLongs.length);
 
-                    for (int i = 0; i < additionalUuidLongs.length; i++) {
-                        //byte[23 + (8*i) -> byte[30 + (8*i)]
-                        byteBuf.writeLong(additionalUuidLongs[i]);
+            for (int i = 0; i < additionalUuidLongs.length; i++) {
+                //byte[23 + (8*i) -> byte[30 + (8*i)]
+                byteBuf.writeLong(additionalUuidLongs[i]);
+            }
+        }
+        switch (entity) {
+            case SemanticEntity semanticEntity:
+                byteBuf.writeInt(semanticEntity.referencedComponentNid());
+                byteBuf.writeInt(semanticEntity.patternNid());
+                break;
+            case ConceptRecord conceptEntity:
+                // No additional fieldValues for concept records.
+                break;
+            case PatternEntity patternEntity:
+                // no additional fieldValues
+                break;
+            case StampEntity stampEntity:
+                // no additional fieldValues
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + entity);
+        }
+        byteBuf.writeInt(entity.versions().size());
+    }
+
+    /**
+     * @return the number of bytes {@link #writeVersion(ByteBuf, EntityVersion)} writes for this version.
+     */
+    public static int versionSize(EntityVersion entityVersion) {
+        // token and stamp nid
+        int size = 1 + 4;
+        switch (entityVersion) {
+            case ConceptEntityVersion conceptEntityVersion:
+                // no additional data
+                break;
+            case PatternVersionRecord patternVersionRecord:
+                size += 4 + 4 + 4 + 12 * patternVersionRecord.fieldDefinitions().size();
+                break;
+            case SemanticEntityVersion semanticEntityVersion:
+                size += 4;
+                if (semanticEntityVersion.fieldValues() instanceof EncodedFieldList encodedFields) {
+                    size += encodedFields.encodedLength();
+                } else {
+                    for (Object field : semanticEntityVersion.fieldValues()) {
+                        size += fieldSize(field);
                     }
                 }
-                switch (entity) {
-                    case SemanticEntity semanticEntity:
-                        byteBuf.writeInt(semanticEntity.referencedComponentNid());
-                        byteBuf.writeInt(semanticEntity.patternNid());
-                        break;
-                    case ConceptRecord conceptEntity:
-                        // No additional fieldValues for concept records.
-                        break;
-                    case PatternEntity patternEntity:
-                        // no additional fieldValues
-                        break;
-                    case StampEntity stampEntity:
-                        // no additional fieldValues
-                        break;
-                    default:
-                        throw new IllegalStateException("Unexpected value: " + entity);
-                }
-                //finishEntityWrite(byteBuf);
-                byteBuf.writeInt(entity.versions().size());
-
-                int chronicleArrayCount = entity.versions().size() + 1;
-                int chronicleFieldIndex = 0;
-                byte[][] entityArray = new byte[chronicleArrayCount][];
-                entityArray[chronicleFieldIndex++] = byteBuf.asArray();
-                for (EntityVersion version : entity.versions()) {
-                    entityArray[chronicleFieldIndex++] = getBytes(version);
-                }
-                int totalSize = 0;
-                totalSize += 4; // Integer for the number of arrays
-                for (byte[] arrayBytes : entityArray) {
-                    totalSize += 4; // integer for size of array
-                    totalSize += arrayBytes.length;
-                }
-                ByteBuf finalByteBuf = ByteBufPool.allocate(totalSize);
-                finalByteBuf.writeInt(entityArray.length);
-                for (byte[] arrayBytes : entityArray) {
-                    finalByteBuf.writeInt(arrayBytes.length);
-                    finalByteBuf.write(arrayBytes);
-                }
-                return finalByteBuf.asArray();
-            } catch (ArrayIndexOutOfBoundsException e) {
-                MAX_ENTITY_SIZE = MAX_ENTITY_SIZE * 2;
-                LOG.info(e.getMessage() + " will increase entity size to " + MAX_ENTITY_SIZE);
-            }
+                break;
+            case StampEntityVersion stampEntityVersion:
+                size += 4 + 8 + 4 + 4 + 4;
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + entityVersion);
         }
-        throw new IllegalStateException("Should never reach here. ");
+        return size;
     }
 
-    public static byte[] getBytes(EntityVersion entityVersion) {
-        // TODO: write directly to a single ByteBuf, rather that the approach below.
-        boolean complete = false;
-        while (!complete) {
-            try {
-                ByteBuf byteBuf = ByteBufPool.allocate(MAX_VERSION_SIZE);
-                if (entityVersion.versionDataType().token == 0) {
-                    throw new IllegalStateException("Version type token cannot be zero... " + entityVersion);
+    public static void writeVersion(ByteBuf byteBuf, EntityVersion entityVersion) {
+        if (entityVersion.versionDataType().token == 0) {
+            throw new IllegalStateException("Version type token cannot be zero... " + entityVersion);
+        }
+        byteBuf.writeByte(entityVersion.versionDataType().token); //ensure that the chronicle byte array sorts first.
+        byteBuf.writeInt(entityVersion.stampNid());
+        switch (entityVersion) {
+            case ConceptEntityVersion conceptEntityVersion:
+                // no additional data
+                break;
+            case PatternVersionRecord patternVersionRecord:
+                byteBuf.writeInt(patternVersionRecord.semanticPurposeNid());
+                byteBuf.writeInt(patternVersionRecord.semanticMeaningNid());
+                byteBuf.writeInt(patternVersionRecord.fieldDefinitions().size());
+                for (FieldDefinitionRecord field : patternVersionRecord.fieldDefinitions()) {
+                    byteBuf.writeInt(field.dataTypeNid());
+                    byteBuf.writeInt(field.purposeNid());
+                    byteBuf.writeInt(field.meaningNid());
                 }
-                byteBuf.writeByte(entityVersion.versionDataType().token); //ensure that the chronicle byte array sorts first.
-                byteBuf.writeInt(entityVersion.stampNid());
-                switch (entityVersion) {
-                    case ConceptEntityVersion conceptEntityVersion:
-                        // no additional data
-                        break;
-                    case PatternVersionRecord patternVersionRecord:
-                        byteBuf.writeInt(patternVersionRecord.semanticPurposeNid());
-                        byteBuf.writeInt(patternVersionRecord.semanticMeaningNid());
-                        byteBuf.writeInt(patternVersionRecord.fieldDefinitions().size());
-                        for (FieldDefinitionRecord field : patternVersionRecord.fieldDefinitions()) {
-                            byteBuf.writeInt(field.dataTypeNid());
-                            byteBuf.writeInt(field.purposeNid());
-                            byteBuf.writeInt(field.meaningNid());
-                        }
-                        break;
-                    case SemanticEntityVersion semanticEntityVersion:
-                        byteBuf.writeInt(semanticEntityVersion.fieldValues().size());
-                        for (Object field : semanticEntityVersion.fieldValues()) {
-                            writeField(byteBuf, field);
-                        }
-                        break;
-                    case StampEntityVersion stampEntityVersion:
-                        byteBuf.writeInt(stampEntityVersion.stateNid());
-                        byteBuf.writeLong(stampEntityVersion.time());
-                        byteBuf.writeInt(stampEntityVersion.authorNid());
-                        byteBuf.writeInt(stampEntityVersion.moduleNid());
-                        byteBuf.writeInt(stampEntityVersion.pathNid());
-                        break;
-                    default:
-                        throw new IllegalStateException("Unexpected value: " + entityVersion);
+                break;
+            case SemanticEntityVersion semanticEntityVersion:
+                byteBuf.writeInt(semanticEntityVersion.fieldValues().size());
+                if (semanticEntityVersion.fieldValues() instanceof EncodedFieldList encodedFields) {
+                    encodedFields.writeEncoded(byteBuf);
+                } else {
+                    for (Object field : semanticEntityVersion.fieldValues()) {
+                        writeField(byteBuf, field);
+                    }
                 }
-                //writeVersionFields(byteBuf);
-                return byteBuf.asArray();
-            } catch (ArrayIndexOutOfBoundsException e) {
-                MAX_VERSION_SIZE = MAX_VERSION_SIZE * 2;
-                LOG.info(e.getMessage() + " will increase version size to " + MAX_VERSION_SIZE);
-            }
+                break;
+            case StampEntityVersion stampEntityVersion:
+                byteBuf.writeInt(stampEntityVersion.stateNid());
+                byteBuf.writeLong(stampEntityVersion.time());
+                byteBuf.writeInt(stampEntityVersion.authorNid());
+                byteBuf.writeInt(stampEntityVersion.moduleNid());
+                byteBuf.writeInt(stampEntityVersion.pathNid());
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + entityVersion);
         }
-        throw new IllegalStateException("Should never reach here. ");
+    }
+
+    /**
+     * Computes the number of bytes {@link #writeField(ByteBuf, Object)} writes for a field, including its token.
+     * The cases must stay in the same order as writeField so the same case is selected for every field.
+     * @param field
+     * @return encoded size in bytes
+     */
+    public static int fieldSize(Object field) {
+        return 1 + switch (field) {
+            case Boolean booleanField -> 1;
+            case Float floatField -> 4;
+            case Double doubleField -> 4;
+            case byte[] byteArrayField -> 4 + byteArrayField.length;
+            case Integer integerField -> 4;
+            case Long longField -> 8;
+            case BigDecimal decimalField -> 4 + utf8Length(decimalField.toString());
+            case Instant instantField -> 8 + 4;
+            case String stringField -> 4 + utf8Length(stringField);
+            case ConceptFacade conceptField -> 4;
+            case Concept conceptField -> 4;
+            case SemanticFacade semanticField -> 4;
+            case Semantic semanticField -> 4;
+            case PatternFacade patternField -> 4;
+            case Pattern patternField -> 4;
+            case EntityFacade entityField -> 4;
+            case Component componentField -> 4;
+            case DiTreeEntity diTreeEntityField -> diTreeEntityField.encodedSize();
+            // the planar point token is written twice
+            case PlanarPoint planarPointField -> 1 + 4 + 4;
+            case SpatialPoint spatialPointField -> 4 + 4 + 4;
+            case IntIdList intIdListField -> 4 + 4 * intIdListField.size();
+            case IntIdSet intIdSetField -> 4 + 4 * intIdSetField.size();
+            case PublicId publicId -> 4;
+            case PublicIdList publicIdListField -> 4 + 4 * publicIdListField.size();
+            case PublicIdSet publicIdSetField -> 4 + 4 * publicIdSetField.size();
+            default -> throw new IllegalStateException("Unexpected value: %s of class: %s".formatted(field, field.getClass()));
+        };
     }
 
     /**
@@ -193,107 +283,163 @@ public static byte[] getBytes(EntityVersion entityVersion) {
      */
     public static void writeField(ByteBuf writeBuf, Object field) {
         switch (field) {
-            case Boolean booleanField ->
-                    writeTokenAndField(writeBuf, FieldDataType.BOOLEAN, () -> writeBuf.writeBoolean(booleanField));
-            case Float floatField ->
-                    writeTokenAndField(writeBuf, FieldDataType.FLOAT, () -> writeBuf.writeFloat(floatField));
-            case Double doubleField ->
-                    writeTokenAndField(writeBuf, FieldDataType.FLOAT, () -> writeBuf.writeFloat(doubleField.floatValue()));
-            case byte[] byteArrayField ->
-                    writeTokenAndField(writeBuf, FieldDataType.BYTE_ARRAY, () -> {
-                        writeBuf.writeInt(byteArrayField.length);
-                        writeBuf.write(byteArrayField);
-                    });
-            case Integer integerField ->
-                    writeTokenAndField(writeBuf, FieldDataType.INTEGER, () -> writeBuf.writeInt(integerField));
-            case Long longField ->
-                    writeTokenAndField(writeBuf, FieldDataType.LONG, () -> writeBuf.writeLong(longField));
-			case BigDecimal decimalField -> writeTokenAndField(writeBuf, FieldDataType.DECIMAL, () -> {
-				byte[] bytes = decimalField.toString().getBytes(UTF_8);
-				writeBuf.writeInt(bytes.length);
-				writeBuf.write(bytes);
-			});
-            case Instant instantField ->
-                    writeTokenAndField(writeBuf, FieldDataType.INSTANT, () -> {
-                        writeBuf.writeLong(instantField.getEpochSecond());
-                        writeBuf.writeInt(instantField.getNano());
-                    });
-            case String stringField ->
-                    writeTokenAndField(writeBuf, FieldDataType.STRING, () -> {
-                        byte[] bytes = stringField.getBytes(UTF_8);
-                        writeBuf.writeInt(bytes.length);
-                        writeBuf.write(bytes);
-                    });
-            case ConceptFacade conceptField ->
-                    writeTokenAndField(writeBuf, FieldDataType.CONCEPT, () -> writeBuf.writeInt(conceptField.nid()));
-            case Concept conceptField ->
-                    writeTokenAndField(writeBuf, FieldDataType.CONCEPT, () -> writeBuf.writeInt(Entity.nid(conceptField)));
-            case SemanticFacade semanticField ->
-                    writeTokenAndField(writeBuf, FieldDataType.SEMANTIC, () -> writeBuf.writeInt(semanticField.nid()));
-            case Semantic semanticField ->
-                    writeTokenAndField(writeBuf, FieldDataType.SEMANTIC, () -> writeBuf.writeInt(Entity.nid(semanticField)));
-            case PatternFacade patternField ->
-                    writeTokenAndField(writeBuf, FieldDataType.PATTERN, () -> writeBuf.writeInt(patternField.nid()));
-            case Pattern patternField ->
-                    writeTokenAndField(writeBuf, FieldDataType.PATTERN, () -> writeBuf.writeInt(Entity.nid(patternField)));
-            case EntityFacade entityField ->
-                    writeTokenAndField(writeBuf, FieldDataType.IDENTIFIED_THING, () -> writeBuf.writeInt(entityField.nid()));
+            case Boolean booleanField -> {
+                writeBuf.writeByte(FieldDataType.BOOLEAN.token);
+                writeBuf.writeBoolean(booleanField);
+            }
+            case Float floatField -> {
+                writeBuf.writeByte(FieldDataType.FLOAT.token);
+                writeBuf.writeFloat(floatField);
+            }
+            case Double doubleField -> {
+                writeBuf.writeByte(FieldDataType.FLOAT.token);
+                writeBuf.writeFloat(doubleField.floatValue());
+            }
+            case byte[] byteArrayField -> {
+                writeBuf.writeByte(FieldDataType.BYTE_ARRAY.token);
+                writeBuf.writeInt(byteArrayField.length);
+                writeBuf.write(byteArrayField);
+            }
+            case Integer integerField -> {
+                writeBuf.writeByte(FieldDataType.INTEGER.token);
+                writeBuf.writeInt(integerField);
+            }
+            case Long longField -> {
+                writeBuf.writeByte(FieldDataType.LONG.token);
+                writeBuf.writeLong(longField);
+            }
+            case BigDecimal decimalField -> {
+                writeBuf.writeByte(FieldDataType.DECIMAL.token);
+                writeUtf8(writeBuf, decimalField.toString());
+            }
+            case Instant instantField -> {
+                writeBuf.writeByte(FieldDataType.INSTANT.token);
+                writeBuf.writeLong(instantField.getEpochSecond());
+                writeBuf.writeInt(instantField.getNano());
+            }
+            case String stringField -> {
+                writeBuf.writeByte(FieldDataType.STRING.token);
+                writeUtf8(writeBuf, stringField);
+            }
+            case ConceptFacade conceptField -> writeNidField(writeBuf, FieldDataType.CONCEPT, conceptField.nid());
+            case Concept conceptField -> writeNidField(writeBuf, FieldDataType.CONCEPT, Entity.nid(conceptField));
+            case SemanticFacade semanticField -> writeNidField(writeBuf, FieldDataType.SEMANTIC, semanticField.nid());
+            case Semantic semanticField -> writeNidField(writeBuf, FieldDataType.SEMANTIC, Entity.nid(semanticField));
+            case PatternFacade patternField -> writeNidField(writeBuf, FieldDataType.PATTERN, patternField.nid());
+            case Pattern patternField -> writeNidField(writeBuf, FieldDataType.PATTERN, Entity.nid(patternField));
+            case EntityFacade entityField -> writeNidField(writeBuf, FieldDataType.IDENTIFIED_THING, entityField.nid());
             case Component componentField ->
-                    writeTokenAndField(writeBuf, FieldDataType.IDENTIFIED_THING, () -> writeBuf.writeInt(Entity.nid(componentField)));
-            case DiTreeEntity diTreeEntityField ->
-                    writeTokenAndField(writeBuf, FieldDataType.DITREE, () ->
-                            writeBuf.write(diTreeEntityField.getBytes()));
-            case PlanarPoint planarPointField ->
-                    writeTokenAndField(writeBuf, FieldDataType.PLANAR_POINT, () -> {
-                        writeBuf.writeByte(FieldDataType.PLANAR_POINT.token);
-                        writeBuf.writeFloat(planarPointField.x());
-                        writeBuf.writeFloat(planarPointField.y());
-                    });
-            case SpatialPoint spatialPointField ->
-                    writeTokenAndField(writeBuf, FieldDataType.SPATIAL_POINT, () -> {
-                        writeBuf.writeInt((int) spatialPointField.x());
-                        writeBuf.writeFloat(spatialPointField.y());
-                        writeBuf.writeFloat(spatialPointField.z());
-                    });
-            case IntIdList intIdListField ->
-                    writeTokenAndField(writeBuf, COMPONENT_ID_LIST, () -> {
-                        writeBuf.writeInt(intIdListField.size());
-                        intIdListField.forEach(id -> writeBuf.writeInt(id));
-                    });
-            case IntIdSet intIdSetField ->
-                    writeTokenAndField(writeBuf, FieldDataType.COMPONENT_ID_SET, () -> {
-                        writeBuf.writeInt(intIdSetField.size());
-                        intIdSetField.forEach(id -> writeBuf.writeInt(id));
-                    });
-            case PublicId publicId ->
-                    writeTokenAndField(writeBuf, FieldDataType.IDENTIFIED_THING, () ->
-                            writeBuf.writeInt(Entity.nid(publicId)));
+                    writeNidField(writeBuf, FieldDataType.IDENTIFIED_THING, Entity.nid(componentField));
+            case DiTreeEntity diTreeEntityField -> {
+                writeBuf.writeByte(FieldDataType.DITREE.token);
+                diTreeEntityField.write(writeBuf);
+            }
+            case PlanarPoint planarPointField -> {
+                writeBuf.writeByte(FieldDataType.PLANAR_POINT.token);
+                writeBuf.writeByte(FieldDataType.PLANAR_POINT.token);
+                writeBuf.writeFloat(planarPointField.x());
+                writeBuf.writeFloat(planarPointField.y());
+            }
+            case SpatialPoint spatialPointField -> {
+                writeBuf.writeByte(FieldDataType.SPATIAL_POINT.token);
+                writeBuf.writeInt((int) spatialPointField.x());
+                writeBuf.writeFloat(spatialPointField.y());
+                writeBuf.writeFloat(spatialPointField.z());
+            }
+            case IntIdList intIdListField -> {
+                writeBuf.writeByte(COMPONENT_ID_LIST.token);
+                writeBuf.writeInt(intIdListField.size());
+                for (int i = 0; i < intIdListField.size(); i++) {
+                    writeBuf.writeInt(intIdListField.get(i));
+                }
+            }
+            case IntIdSet intIdSetField -> {
+                writeBuf.writeByte(FieldDataType.COMPONENT_ID_SET.token);
+                writeBuf.writeInt(intIdSetField.size());
+                intIdSetField.forEach(writeBuf::writeInt);
+            }
+            case PublicId publicId -> writeNidField(writeBuf, FieldDataType.IDENTIFIED_THING, Entity.nid(publicId));
             case PublicIdList publicIdListField -> {
-                    MutableIntList nidList = IntLists.mutable.withInitialCapacity(publicIdListField.size());
-                    publicIdListField.forEach(publicId -> {
-                        nidList.add(PrimitiveData.get().nidForPublicId((PublicId) publicId));
-                    });
-                    writeBuf.writeByte(COMPONENT_ID_LIST.token);
-                    writeBuf.writeInt(nidList.size());
-                    nidList.forEach(id -> writeBuf.writeInt(id));
+                writeBuf.writeByte(COMPONENT_ID_LIST.token);
+                writeBuf.writeInt(publicIdListField.size());
+                publicIdListField.forEach(publicId ->
+                        writeBuf.writeInt(PrimitiveData.get().nidForPublicId((PublicId) publicId)));
             }
             case PublicIdSet publicIdSetField -> {
-                MutableIntList nidSet = IntLists.mutable.withInitialCapacity(publicIdSetField.size());
-                publicIdSetField.forEach(publicId -> {
-                    nidSet.add(PrimitiveData.get().nidForPublicId((PublicId) publicId));
-                });
                 writeBuf.writeByte(FieldDataType.COMPONENT_ID_SET.token);
-                writeBuf.writeInt(nidSet.size());
-                nidSet.forEach(id -> writeBuf.writeInt(id));
+                writeBuf.writeInt(publicIdSetField.size());
+                publicIdSetField.forEach(publicId ->
+                        writeBuf.writeInt(PrimitiveData.get().nidForPublicId((PublicId) publicId)));
             }
             default -> throw new IllegalStateException("Unexpected value: %s of class: %s".formatted(field, field.getClass()));
         }
     }
+
+    private static void writeNidField(ByteBuf writeBuf, FieldDataType fieldDataType, int nid) {
+        writeBuf.writeByte(fieldDataType.token);
+        writeBuf.writeInt(nid);
+    }
+
     public static void writeTokenAndField(ByteBuf writeBuf, FieldDataType fieldDataType, Runnable writer) {
         writeBuf.writeByte(fieldDataType.token);
         writer.run();
     }
 
+    /**
+     * @return the length of the string encoded as UTF-8, matching {@code string.getBytes(UTF_8).length}: unpaired
+     * surrogates are replaced with a single byte '?'.
+     */
+    public static int utf8Length(String string) {
+        int length = string.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    // 4 bytes for the pair
+                    utf8Length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Length += 2;
+                }
+            }
+        }
+        return utf8Length;
+    }
+
+    /**
+     * Writes the UTF-8 length of the string followed by its UTF-8 bytes, directly into the buffer.
+     */
+    public static void writeUtf8(ByteBuf writeBuf, String string) {
+        writeBuf.writeInt(utf8Length(string));
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                writeBuf.writeByte((byte) c);
+            } else if (c < 0x800) {
+                writeBuf.writeByte((byte) (0xC0 | (c >> 6)));
+                writeBuf.writeByte((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                writeBuf.writeByte((byte) (0xF0 | (codePoint >> 18)));
+                writeBuf.writeByte((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                writeBuf.writeByte((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                writeBuf.writeByte((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                writeBuf.writeByte((byte) '?');
+            } else {
+                writeBuf.writeByte((byte) (0xE0 | (c >> 12)));
+                writeBuf.writeByte((byte) (0x80 | ((c >> 6) & 0x3F)));
+                writeBuf.writeByte((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
     public static void writeField(ByteBuf writeBuf, EntityFacade entityField) {
         writeBuf.writeByte(FieldDataType.IDENTIFIED_THING.token);
         writeBuf.writeInt(entityField.nid());
@@ -387,6 +533,17 @@ private static <V extends EntityVersion> V makeVersion(Version version, Entity<?
 
     public static void collectUuids(byte[] data, ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap,
                                     ConcurrentHashMap<UUID, Integer> uuidToNidMap) {
+        collectUuids(data, (patternNid, elementNid) -> patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentHashSet())
+                .add(elementNid), uuidToNidMap);
+    }
+
+    /**
+     * Reads the nid and uuids from the chronology header of the entity bytes without decoding versions.
+     *
+     * @param patternElementProcedure receives (pattern nid, semantic nid) when the bytes are a semantic chronology.
+     */
+    public static void collectUuids(byte[] data, IntIntProcedure patternElementProcedure,
+                                    ConcurrentHashMap<UUID, Integer> uuidToNidMap) {
         ByteBuf buf = ByteBuf.wrapForReading(data);
         // bytes starts with number of arrays (int = 4 bytes), then size of first array (int = 4 bytes), then type token
         int numberOfArrays = buf.readInt();
@@ -417,20 +574,22 @@ public static void collectUuids(byte[] data, ConcurrentHashMap<Integer, Concurre
             int referencedComponentNid = buf.readInt();
             int patternNid = buf.readInt();
             int versionCount = buf.readInt();
-            patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentHashSet())
-                    .add(nid);
+            patternElementProcedure.value(patternNid, nid);
         }
     }
 
+    /**
+     * Makes an entity from its stored bytes. Semantic field values are not decoded until they are accessed; they
+     * remain in, and retain, the data array, which must not be modified afterwards.
+     */
     public static <T extends Entity<V>, V extends EntityVersion> T make(byte[] data) {
         // TODO change to use DecoderInput instead of ByteBuf directly.
-        // TODO remove the parts where it computes size.
         ByteBuf buf = ByteBuf.wrapForReading(data);
         // bytes starts with number of arrays (int = 4 bytes), then size of first array (int = 4 bytes), then type token
         int numberOfArrays = buf.readInt();
         int sizeOfFirstArray = buf.readInt();
         byte formatVersion = buf.readByte();
-        return make(buf, formatVersion);
+        return make(buf, formatVersion, FieldDataType.fromToken(buf.readByte()), true);
     }
 
     public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf readBuf, byte entityFormatVersion) {
@@ -439,7 +598,11 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
     }
 
     public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf readBuf, byte entityFormatVersion, FieldDataType fieldDataType) {
+        return make(readBuf, entityFormatVersion, fieldDataType, false);
+    }
 
+    private static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf readBuf, byte entityFormatVersion,
+                                                                         FieldDataType fieldDataType, boolean decodeFieldsOnDemand) {
         if (entityFormatVersion != ENTITY_FORMAT_VERSION) {
             throw new IllegalStateException("Unsupported entity format version: " + entityFormatVersion);
         }
@@ -464,7 +627,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 ConceptRecord conceptRecord = new ConceptRecord(mostSignificantBits, leastSignificantBits,
                         additionalUuidLongs, nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    ConceptVersionRecord version = (ConceptVersionRecord) makeVersion(readBuf, entityFormatVersion, conceptRecord);
+                    ConceptVersionRecord version = (ConceptVersionRecord) makeVersion(readBuf, entityFormatVersion, conceptRecord, false);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -481,7 +644,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                         additionalUuidLongs, nid, patternNid, referencedComponentNid,
                         versions);
                 for (int i = 0; i < versionCount; i++) {
-                    SemanticVersionRecord version = (SemanticVersionRecord) makeVersion(readBuf, entityFormatVersion, semanticRecord);
+                    SemanticVersionRecord version = (SemanticVersionRecord) makeVersion(readBuf, entityFormatVersion, semanticRecord, decodeFieldsOnDemand);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -497,7 +660,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 PatternRecord patternRecord = new PatternRecord(mostSignificantBits, leastSignificantBits,
                         additionalUuidLongs, nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    PatternVersionRecord version = (PatternVersionRecord) makeVersion(readBuf, entityFormatVersion, patternRecord);
+                    PatternVersionRecord version = (PatternVersionRecord) makeVersion(readBuf, entityFormatVersion, patternRecord, false);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -513,7 +676,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 StampRecord stampRecord = new StampRecord(mostSignificantBits, leastSignificantBits,
                         additionalUuidLongs, nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    versions.add((StampVersionRecord) makeVersion(readBuf, entityFormatVersion, stampRecord));
+                    versions.add((StampVersionRecord) makeVersion(readBuf, entityFormatVersion, stampRecord, false));
                 }
                 versions.build();
                 yield (T) stampRecord;
@@ -523,9 +686,10 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
         };
     }
 
-    private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, Entity<? extends EntityVersion> entity) {
-        // bytes used by this version. Not used by this way of reading the data,
-        // but is used for merge functions for concurrent write of versions using CAS...
+    private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, Entity<? extends EntityVersion> entity,
+                                             boolean decodeFieldsOnDemand) {
+        // bytes used by this version. Used to skip over encoded fields that are decoded on demand,
+        // and by merge functions for concurrent write of versions using CAS...
         int bytesInVersion = readBuf.readInt();
         byte token = readBuf.readByte();
         int stampNid = readBuf.readInt();
@@ -568,6 +732,14 @@ private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, En
             case ConceptRecord conceptRecord -> new ConceptVersionRecord(conceptRecord, stampNid);
             case SemanticRecord semanticRecord -> {
                 int fieldCount = readBuf.readInt();
+                if (decodeFieldsOnDemand) {
+                    // bytesInVersion includes the token, stamp nid, and field count already read.
+                    int fieldsLength = bytesInVersion - 1 - 4 - 4;
+                    EncodedFieldList fields = new EncodedFieldList(readBuf.array(), readBuf.head(), fieldsLength,
+                            fieldCount, formatVersion);
+                    readBuf.moveHead(fieldsLength);
+                    yield new SemanticVersionRecord(semanticRecord, stampNid, fields);
+                }
                 RecordListBuilder<Object> fields = RecordListBuilder.make();
                 for (int i = 0; i < fieldCount; i++) {
                     FieldDataType dataType = FieldDataType.fromToken(readBuf.readByte());
@@ -241,6 +241,14 @@ default int nidForComponent(Component component) {
 
     void invalidateCaches(int... nids);
 
+    /**
+     * @return a point in time view of each cache of this service.
+     * @throws UnsupportedOperationException if this service does not report cache metrics.
+     */
+    default List<EntityCacheMetrics> cacheMetrics() {
+        throw new UnsupportedOperationException("Cache metrics are not supported by: " + getClass().getName());
+    }
+
     <T extends Chronology<V>, V extends Version> T unmarshalChronology(byte[] bytes);
 
     default void addSortedUuids(List<UUID> uuidList, IntIdList idList) throws NoSuchElementException {
@@ -108,6 +108,14 @@ public ImmutableList<T> build() {
         return this;
     }
 
+    /**
+     * The elements answered before the list is built. Subclasses that hold their elements in another form
+     * override this to supply them.
+     */
+    ImmutableList<T> unbuiltList() {
+        return mutableList.toImmutable();
+    }
+
     public RecordListBuilder<T> with(T element) {
         if (mutableList != null) {
             mutableList.add(element);
@@ -128,7 +136,7 @@ public ImmutableList<T> newWith(T t) {
     @Override
     public ImmutableList<T> newWithout(T t) {
         if (immutableList == null) {
-            return mutableList.toImmutable().newWithout(t);
+            return unbuiltList().newWithout(t);
         }
         return immutableList.newWithout(t);
     }
@@ -137,7 +145,7 @@ public ImmutableList<T> newWithout(T t) {
     @Override
     public ImmutableList<T> newWithAll(Iterable<? extends T> iterable) {
         if (immutableList == null) {
-            return mutableList.toImmutable().newWithAll(iterable);
+            return unbuiltList().newWithAll(iterable);
         }
         return immutableList.newWithAll(iterable);
     }
@@ -145,7 +153,7 @@ public ImmutableList<T> newWithAll(Iterable<? extends T> iterable) {
     @Override
     public ImmutableList<T> newWithoutAll(Iterable<? extends T> iterable) {
         if (immutableList == null) {
-            return mutableList.toImmutable().newWithoutAll(iterable);
+            return unbuiltList().newWithoutAll(iterable);
         }
         return immutableList.newWithoutAll(iterable);
     }
@@ -153,7 +161,7 @@ public ImmutableList<T> newWithoutAll(Iterable<? extends T> iterable) {
     @Override
     public ImmutableList<T> tap(Procedure<? super T> procedure) {
         if (immutableList == null) {
-            return mutableList.toImmutable().tap(procedure);
+            return unbuiltList().tap(procedure);
         };
         return immutableList.tap(procedure);
     }
@@ -161,7 +169,7 @@ public ImmutableList<T> tap(Procedure<? super T> procedure) {
     @Override
     public ImmutableList<T> select(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().select(predicate);
+            return unbuiltList().select(predicate);
         }
         return immutableList.select(predicate);
     }
@@ -169,7 +177,7 @@ public ImmutableList<T> select(Predicate<? super T> predicate) {
     @Override
     public <P> ImmutableList<T> selectWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().selectWith(predicate2, p);
+            return unbuiltList().selectWith(predicate2, p);
         }
         return immutableList.selectWith(predicate2, p);
     }
@@ -177,7 +185,7 @@ public <P> ImmutableList<T> selectWith(Predicate2<? super T, ? super P> predicat
     @Override
     public ImmutableList<T> reject(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().reject(predicate);
+            return unbuiltList().reject(predicate);
         }
         return immutableList.reject(predicate);
     }
@@ -185,7 +193,7 @@ public ImmutableList<T> reject(Predicate<? super T> predicate) {
     @Override
     public <P> ImmutableList<T> rejectWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().rejectWith(predicate2, p);
+            return unbuiltList().rejectWith(predicate2, p);
         }
         return immutableList.rejectWith(predicate2, p);
     }
@@ -193,7 +201,7 @@ public <P> ImmutableList<T> rejectWith(Predicate2<? super T, ? super P> predicat
     @Override
     public PartitionImmutableList<T> partition(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().partition(predicate);
+            return unbuiltList().partition(predicate);
         }
         return immutableList.partition(predicate);
     }
@@ -201,7 +209,7 @@ public PartitionImmutableList<T> partition(Predicate<? super T> predicate) {
     @Override
     public <P> PartitionImmutableList<T> partitionWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().partitionWith(predicate2, p);
+            return unbuiltList().partitionWith(predicate2, p);
         }
         return immutableList.partitionWith(predicate2, p);
     }
@@ -209,7 +217,7 @@ public <P> PartitionImmutableList<T> partitionWith(Predicate2<? super T, ? super
     @Override
     public <S> ImmutableList<S> selectInstancesOf(Class<S> aClass) {
         if (immutableList == null) {
-            return mutableList.toImmutable().selectInstancesOf(aClass);
+            return unbuiltList().selectInstancesOf(aClass);
         }
         return immutableList.selectInstancesOf(aClass);
     }
@@ -217,7 +225,7 @@ public <S> ImmutableList<S> selectInstancesOf(Class<S> aClass) {
     @Override
     public <V> ImmutableList<V> collect(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collect(function);
+            return unbuiltList().collect(function);
         }
         return immutableList.collect(function);
     }
@@ -225,7 +233,7 @@ public <V> ImmutableList<V> collect(Function<? super T, ? extends V> function) {
     @Override
     public <V> ImmutableList<V> collectWithIndex(ObjectIntToObjectFunction<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectWithIndex(function);
+            return unbuiltList().collectWithIndex(function);
         }
         return immutableList.collectWithIndex(function);
     }
@@ -233,7 +241,7 @@ public <V> ImmutableList<V> collectWithIndex(ObjectIntToObjectFunction<? super T
     @Override
     public ImmutableBooleanList collectBoolean(BooleanFunction<? super T> booleanFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectBoolean(booleanFunction);
+            return unbuiltList().collectBoolean(booleanFunction);
         }
         ;
         return immutableList.collectBoolean(booleanFunction);
@@ -242,7 +250,7 @@ public ImmutableBooleanList collectBoolean(BooleanFunction<? super T> booleanFun
     @Override
     public ImmutableByteList collectByte(ByteFunction<? super T> byteFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectByte(byteFunction);
+            return unbuiltList().collectByte(byteFunction);
         }
         return immutableList.collectByte(byteFunction);
     }
@@ -250,7 +258,7 @@ public ImmutableByteList collectByte(ByteFunction<? super T> byteFunction) {
     @Override
     public ImmutableCharList collectChar(CharFunction<? super T> charFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectChar(charFunction);
+            return unbuiltList().collectChar(charFunction);
         }
         return immutableList.collectChar(charFunction);
     }
@@ -258,7 +266,7 @@ public ImmutableCharList collectChar(CharFunction<? super T> charFunction) {
     @Override
     public ImmutableDoubleList collectDouble(DoubleFunction<? super T> doubleFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectDouble(doubleFunction);
+            return unbuiltList().collectDouble(doubleFunction);
         }
         return immutableList.collectDouble(doubleFunction);
     }
@@ -266,7 +274,7 @@ public ImmutableDoubleList collectDouble(DoubleFunction<? super T> doubleFunctio
     @Override
     public ImmutableFloatList collectFloat(FloatFunction<? super T> floatFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectFloat(floatFunction);
+            return unbuiltList().collectFloat(floatFunction);
         }
 
         return immutableList.collectFloat(floatFunction);
@@ -275,7 +283,7 @@ public ImmutableFloatList collectFloat(FloatFunction<? super T> floatFunction) {
     @Override
     public ImmutableIntList collectInt(IntFunction<? super T> intFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectInt(intFunction);
+            return unbuiltList().collectInt(intFunction);
         }
         return immutableList.collectInt(intFunction);
     }
@@ -283,7 +291,7 @@ public ImmutableIntList collectInt(IntFunction<? super T> intFunction) {
     @Override
     public ImmutableLongList collectLong(LongFunction<? super T> longFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectLong(longFunction);
+            return unbuiltList().collectLong(longFunction);
         }
         return immutableList.collectLong(longFunction);
     }
@@ -291,7 +299,7 @@ public ImmutableLongList collectLong(LongFunction<? super T> longFunction) {
     @Override
     public ImmutableShortList collectShort(ShortFunction<? super T> shortFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectShort(shortFunction);
+            return unbuiltList().collectShort(shortFunction);
         }
         return immutableList.collectShort(shortFunction);
     }
@@ -299,7 +307,7 @@ public ImmutableShortList collectShort(ShortFunction<? super T> shortFunction) {
     @Override
     public <P, V> ImmutableList<V> collectWith(Function2<? super T, ? super P, ? extends V> function2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectWith(function2, p);
+            return unbuiltList().collectWith(function2, p);
         }
         return immutableList.collectWith(function2, p);
     }
@@ -307,7 +315,7 @@ public <P, V> ImmutableList<V> collectWith(Function2<? super T, ? super P, ? ext
     @Override
     public <V> ImmutableList<V> collectIf(Predicate<? super T> predicate, Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectIf(predicate, function);
+            return unbuiltList().collectIf(predicate, function);
         }
 
         return immutableList.collectIf(predicate, function);
@@ -316,7 +324,7 @@ public <V> ImmutableList<V> collectIf(Predicate<? super T> predicate, Function<?
     @Override
     public <V> ImmutableList<V> flatCollect(Function<? super T, ? extends Iterable<V>> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollect(function);
+            return unbuiltList().flatCollect(function);
         }
 
         return immutableList.flatCollect(function);
@@ -325,7 +333,7 @@ public <V> ImmutableList<V> flatCollect(Function<? super T, ? extends Iterable<V
     @Override
     public <P, V> ImmutableList<V> flatCollectWith(Function2<? super T, ? super P, ? extends Iterable<V>> function, P parameter) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectWith(function, parameter);
+            return unbuiltList().flatCollectWith(function, parameter);
         }
 
         return immutableList.flatCollectWith(function, parameter);
@@ -334,7 +342,7 @@ public <P, V> ImmutableList<V> flatCollectWith(Function2<? super T, ? super P, ?
     @Override
     public <V> ImmutableListMultimap<V, T> groupBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupBy(function);
+            return unbuiltList().groupBy(function);
         }
         return immutableList.groupBy(function);
     }
@@ -342,7 +350,7 @@ public <V> ImmutableListMultimap<V, T> groupBy(Function<? super T, ? extends V>
     @Override
     public <V> ImmutableListMultimap<V, T> groupByEach(Function<? super T, ? extends Iterable<V>> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupByEach(function);
+            return unbuiltList().groupByEach(function);
         }
         return immutableList.groupByEach(function);
     }
@@ -350,7 +358,7 @@ public <V> ImmutableListMultimap<V, T> groupByEach(Function<? super T, ? extends
     @Override
     public ImmutableList<T> distinct() {
         if (immutableList == null) {
-            return mutableList.toImmutable().distinct();
+            return unbuiltList().distinct();
         }
         return immutableList.distinct();
     }
@@ -358,7 +366,7 @@ public ImmutableList<T> distinct() {
     @Override
     public ImmutableList<T> distinct(HashingStrategy<? super T> hashingStrategy) {
         if (immutableList == null) {
-            return mutableList.toImmutable().distinct(hashingStrategy);
+            return unbuiltList().distinct(hashingStrategy);
         }
         return immutableList.distinct(hashingStrategy);
     }
@@ -366,7 +374,7 @@ public ImmutableList<T> distinct(HashingStrategy<? super T> hashingStrategy) {
     @Override
     public <V> ImmutableList<T> distinctBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().distinctBy(function);
+            return unbuiltList().distinctBy(function);
         }
         return immutableList.distinctBy(function);
     }
@@ -374,7 +382,7 @@ public <V> ImmutableList<T> distinctBy(Function<? super T, ? extends V> function
     @Override
     public <S> ImmutableList<Pair<T, S>> zip(Iterable<S> iterable) {
         if (immutableList == null) {
-            return mutableList.toImmutable().zip(iterable);
+            return unbuiltList().zip(iterable);
         }
         return immutableList.zip(iterable);
     }
@@ -382,7 +390,7 @@ public <S> ImmutableList<Pair<T, S>> zip(Iterable<S> iterable) {
     @Override
     public ImmutableList<Pair<T, Integer>> zipWithIndex() {
         if (immutableList == null) {
-            return mutableList.toImmutable().zipWithIndex();
+            return unbuiltList().zipWithIndex();
         }
         return immutableList.zipWithIndex();
     }
@@ -390,7 +398,7 @@ public ImmutableList<Pair<T, Integer>> zipWithIndex() {
     @Override
     public ImmutableList<T> take(int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().take(i);
+            return unbuiltList().take(i);
         }
         return immutableList.take(i);
     }
@@ -398,7 +406,7 @@ public ImmutableList<T> take(int i) {
     @Override
     public ImmutableList<T> takeWhile(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().takeWhile(predicate);
+            return unbuiltList().takeWhile(predicate);
         }
         return immutableList.takeWhile(predicate);
     }
@@ -406,7 +414,7 @@ public ImmutableList<T> takeWhile(Predicate<? super T> predicate) {
     @Override
     public ImmutableList<T> drop(int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().drop(i);
+            return unbuiltList().drop(i);
         }
         return immutableList.drop(i);
     }
@@ -414,7 +422,7 @@ public ImmutableList<T> drop(int i) {
     @Override
     public ImmutableList<T> dropWhile(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().dropWhile(predicate);
+            return unbuiltList().dropWhile(predicate);
         }
         return immutableList.dropWhile(predicate);
     }
@@ -422,7 +430,7 @@ public ImmutableList<T> dropWhile(Predicate<? super T> predicate) {
     @Override
     public PartitionImmutableList<T> partitionWhile(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().partitionWhile(predicate);
+            return unbuiltList().partitionWhile(predicate);
         }
         return immutableList.partitionWhile(predicate);
     }
@@ -430,7 +438,7 @@ public PartitionImmutableList<T> partitionWhile(Predicate<? super T> predicate)
     @Override
     public List<T> castToList() {
         if (immutableList == null) {
-            return mutableList.toImmutable().castToList();
+            return unbuiltList().castToList();
         }
 
         return immutableList.castToList();
@@ -439,7 +447,7 @@ public List<T> castToList() {
     @Override
     public ImmutableList<T> subList(int i, int i1) {
         if (immutableList == null) {
-            return mutableList.toImmutable().subList(i, i1);
+            return unbuiltList().subList(i, i1);
         }
 
         return immutableList.subList(i, i1);
@@ -448,7 +456,7 @@ public ImmutableList<T> subList(int i, int i1) {
     @Override
     public ImmutableList<T> toReversed() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toReversed();
+            return unbuiltList().toReversed();
         }
 
         return immutableList.toReversed();
@@ -457,7 +465,7 @@ public ImmutableList<T> toReversed() {
     @Override
     public <V> ImmutableObjectLongMap<V> sumByInt(Function<? super T, ? extends V> function, IntFunction<? super T> intFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumByInt(function, intFunction);
+            return unbuiltList().sumByInt(function, intFunction);
         }
 
         return immutableList.sumByInt(function, intFunction);
@@ -466,7 +474,7 @@ public <V> ImmutableObjectLongMap<V> sumByInt(Function<? super T, ? extends V> f
     @Override
     public <V> ImmutableObjectDoubleMap<V> sumByFloat(Function<? super T, ? extends V> function, FloatFunction<? super T> floatFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumByFloat(function, floatFunction);
+            return unbuiltList().sumByFloat(function, floatFunction);
         }
 
         return immutableList.sumByFloat(function, floatFunction);
@@ -475,7 +483,7 @@ public <V> ImmutableObjectDoubleMap<V> sumByFloat(Function<? super T, ? extends
     @Override
     public <V> ImmutableObjectLongMap<V> sumByLong(Function<? super T, ? extends V> function, LongFunction<? super T> longFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumByLong(function, longFunction);
+            return unbuiltList().sumByLong(function, longFunction);
         }
 
         return immutableList.sumByLong(function, longFunction);
@@ -484,7 +492,7 @@ public <V> ImmutableObjectLongMap<V> sumByLong(Function<? super T, ? extends V>
     @Override
     public <V> ImmutableObjectDoubleMap<V> sumByDouble(Function<? super T, ? extends V> function, DoubleFunction<? super T> doubleFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumByDouble(function, doubleFunction);
+            return unbuiltList().sumByDouble(function, doubleFunction);
         }
 
         return immutableList.sumByDouble(function, doubleFunction);
@@ -493,7 +501,7 @@ public <V> ImmutableObjectDoubleMap<V> sumByDouble(Function<? super T, ? extends
     @Override
     public <V> ImmutableBag<V> countBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countBy(function);
+            return unbuiltList().countBy(function);
         }
 
         return immutableList.countBy(function);
@@ -502,7 +510,7 @@ public <V> ImmutableBag<V> countBy(Function<? super T, ? extends V> function) {
     @Override
     public <V, P> ImmutableBag<V> countByWith(Function2<? super T, ? super P, ? extends V> function, P parameter) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countByWith(function, parameter);
+            return unbuiltList().countByWith(function, parameter);
         }
 
         return immutableList.countByWith(function, parameter);
@@ -511,7 +519,7 @@ public <V, P> ImmutableBag<V> countByWith(Function2<? super T, ? super P, ? exte
     @Override
     public <V> ImmutableBag<V> countByEach(Function<? super T, ? extends Iterable<V>> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countByEach(function);
+            return unbuiltList().countByEach(function);
         }
 
         return immutableList.countByEach(function);
@@ -520,7 +528,7 @@ public <V> ImmutableBag<V> countByEach(Function<? super T, ? extends Iterable<V>
     @Override
     public <V> ImmutableMap<V, T> groupByUniqueKey(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupByUniqueKey(function);
+            return unbuiltList().groupByUniqueKey(function);
         }
 
         return immutableList.groupByUniqueKey(function);
@@ -529,7 +537,7 @@ public <V> ImmutableMap<V, T> groupByUniqueKey(Function<? super T, ? extends V>
     @Override
     public <K, V> ImmutableMap<K, V> aggregateInPlaceBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Procedure2<? super V, ? super T> mutatingAggregator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().aggregateInPlaceBy(groupBy, zeroValueFactory, mutatingAggregator);
+            return unbuiltList().aggregateInPlaceBy(groupBy, zeroValueFactory, mutatingAggregator);
         }
 
         return immutableList.aggregateInPlaceBy(groupBy, zeroValueFactory, mutatingAggregator);
@@ -538,7 +546,7 @@ public <K, V> ImmutableMap<K, V> aggregateInPlaceBy(Function<? super T, ? extend
     @Override
     public <K, V> ImmutableMap<K, V> aggregateBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Function2<? super V, ? super T, ? extends V> nonMutatingAggregator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator);
+            return unbuiltList().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator);
         }
 
         return immutableList.aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator);
@@ -547,7 +555,7 @@ public <K, V> ImmutableMap<K, V> aggregateBy(Function<? super T, ? extends K> gr
     @Override
     public Stream<T> stream() {
         if (immutableList == null) {
-            return mutableList.toImmutable().stream();
+            return unbuiltList().stream();
         }
 
         return immutableList.stream();
@@ -556,7 +564,7 @@ public Stream<T> stream() {
     @Override
     public Stream<T> parallelStream() {
         if (immutableList == null) {
-            return mutableList.toImmutable().parallelStream();
+            return unbuiltList().parallelStream();
         }
 
         return immutableList.parallelStream();
@@ -565,7 +573,7 @@ public Stream<T> parallelStream() {
     @Override
     public Spliterator<T> spliterator() {
         if (immutableList == null) {
-            return mutableList.toImmutable().spliterator();
+            return unbuiltList().spliterator();
         }
 
         return immutableList.spliterator();
@@ -574,7 +582,7 @@ public Spliterator<T> spliterator() {
     @Override
     public Collection<T> castToCollection() {
         if (immutableList == null) {
-            return mutableList.toImmutable().castToCollection();
+            return unbuiltList().castToCollection();
         }
 
         return immutableList.castToCollection();
@@ -583,7 +591,7 @@ public Collection<T> castToCollection() {
     @Override
     public void forEach(Procedure<? super T> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEach(procedure);
+            unbuiltList().forEach(procedure);
         } else {
             immutableList.forEach(procedure);
         }
@@ -592,7 +600,7 @@ public void forEach(Procedure<? super T> procedure) {
     @Override
     public int size() {
         if (immutableList == null) {
-            return mutableList.toImmutable().size();
+            return unbuiltList().size();
         }
 
         return immutableList.size();
@@ -601,7 +609,7 @@ public int size() {
     @Override
     public boolean isEmpty() {
         if (immutableList == null) {
-            return mutableList.toImmutable().isEmpty();
+            return unbuiltList().isEmpty();
         }
 
         return immutableList.isEmpty();
@@ -610,7 +618,7 @@ public boolean isEmpty() {
     @Override
     public boolean notEmpty() {
         if (immutableList == null) {
-            return mutableList.toImmutable().notEmpty();
+            return unbuiltList().notEmpty();
         }
 
         return immutableList.notEmpty();
@@ -619,7 +627,7 @@ public boolean notEmpty() {
     @Override
     public T getAny() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getAny();
+            return unbuiltList().getAny();
         }
 
         return immutableList.getAny();
@@ -629,7 +637,7 @@ public T getAny() {
     @Deprecated
     public T getFirst() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getFirst();
+            return unbuiltList().getFirst();
         }
 
         return immutableList.getFirst();
@@ -639,7 +647,7 @@ public T getFirst() {
     @Deprecated
     public T getLast() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getLast();
+            return unbuiltList().getLast();
         }
 
         return immutableList.getLast();
@@ -648,7 +656,7 @@ public T getLast() {
     @Override
     public T getOnly() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getOnly();
+            return unbuiltList().getOnly();
         }
 
         return immutableList.getOnly();
@@ -657,7 +665,7 @@ public T getOnly() {
     @Override
     public boolean contains(Object o) {
         if (immutableList == null) {
-            return mutableList.toImmutable().contains(o);
+            return unbuiltList().contains(o);
         }
 
         return immutableList.contains(o);
@@ -666,7 +674,7 @@ public boolean contains(Object o) {
     @Override
     public <V> boolean containsBy(Function<? super T, ? extends V> function, V value) {
         if (immutableList == null) {
-            return mutableList.toImmutable().containsBy(function, value);
+            return unbuiltList().containsBy(function, value);
         }
 
         return immutableList.containsBy(function, value);
@@ -675,7 +683,7 @@ public <V> boolean containsBy(Function<? super T, ? extends V> function, V value
     @Override
     public boolean containsAllIterable(Iterable<?> iterable) {
         if (immutableList == null) {
-            return mutableList.toImmutable().containsAllIterable(iterable);
+            return unbuiltList().containsAllIterable(iterable);
         }
 
         return immutableList.containsAllIterable(iterable);
@@ -684,7 +692,7 @@ public boolean containsAllIterable(Iterable<?> iterable) {
     @Override
     public boolean containsAll(Collection<?> collection) {
         if (immutableList == null) {
-            return mutableList.toImmutable().containsAll(collection);
+            return unbuiltList().containsAll(collection);
         }
 
         return immutableList.containsAll(collection);
@@ -693,7 +701,7 @@ public boolean containsAll(Collection<?> collection) {
     @Override
     public boolean containsAllArguments(Object... objects) {
         if (immutableList == null) {
-            return mutableList.toImmutable().containsAllArguments(objects);
+            return unbuiltList().containsAllArguments(objects);
         }
 
         return immutableList.containsAllArguments(objects);
@@ -702,7 +710,7 @@ public boolean containsAllArguments(Object... objects) {
     @Override
     public void each(Procedure<? super T> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().each(procedure);
+            unbuiltList().each(procedure);
         } else {
             immutableList.each(procedure);
         }
@@ -711,7 +719,7 @@ public void each(Procedure<? super T> procedure) {
     @Override
     public <R extends Collection<T>> R select(Predicate<? super T> predicate, R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().select(predicate, ts);
+            return unbuiltList().select(predicate, ts);
         }
 
         return immutableList.select(predicate, ts);
@@ -720,7 +728,7 @@ public <R extends Collection<T>> R select(Predicate<? super T> predicate, R ts)
     @Override
     public <P, R extends Collection<T>> R selectWith(Predicate2<? super T, ? super P> predicate2, P p, R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().selectWith(predicate2, p, ts);
+            return unbuiltList().selectWith(predicate2, p, ts);
         }
 
         return immutableList.selectWith(predicate2, p, ts);
@@ -729,7 +737,7 @@ public <P, R extends Collection<T>> R selectWith(Predicate2<? super T, ? super P
     @Override
     public <R extends Collection<T>> R reject(Predicate<? super T> predicate, R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().reject(predicate, ts);
+            return unbuiltList().reject(predicate, ts);
         }
 
         return immutableList.reject(predicate, ts);
@@ -738,7 +746,7 @@ public <R extends Collection<T>> R reject(Predicate<? super T> predicate, R ts)
     @Override
     public <P, R extends Collection<T>> R rejectWith(Predicate2<? super T, ? super P> predicate2, P p, R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().rejectWith(predicate2, p, ts);
+            return unbuiltList().rejectWith(predicate2, p, ts);
         }
 
         return immutableList.rejectWith(predicate2, p, ts);
@@ -747,7 +755,7 @@ public <P, R extends Collection<T>> R rejectWith(Predicate2<? super T, ? super P
     @Override
     public <V, R extends Collection<V>> R collect(Function<? super T, ? extends V> function, R vs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collect(function, vs);
+            return unbuiltList().collect(function, vs);
         }
 
         return immutableList.collect(function, vs);
@@ -756,7 +764,7 @@ public <V, R extends Collection<V>> R collect(Function<? super T, ? extends V> f
     @Override
     public <R extends MutableBooleanCollection> R collectBoolean(BooleanFunction<? super T> booleanFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectBoolean(booleanFunction, r);
+            return unbuiltList().collectBoolean(booleanFunction, r);
         }
 
         return immutableList.collectBoolean(booleanFunction, r);
@@ -765,7 +773,7 @@ public <R extends MutableBooleanCollection> R collectBoolean(BooleanFunction<? s
     @Override
     public <R extends MutableByteCollection> R collectByte(ByteFunction<? super T> byteFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectByte(byteFunction, r);
+            return unbuiltList().collectByte(byteFunction, r);
         }
 
         return immutableList.collectByte(byteFunction, r);
@@ -774,7 +782,7 @@ public <R extends MutableByteCollection> R collectByte(ByteFunction<? super T> b
     @Override
     public <R extends MutableCharCollection> R collectChar(CharFunction<? super T> charFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectChar(charFunction, r);
+            return unbuiltList().collectChar(charFunction, r);
         }
 
         return immutableList.collectChar(charFunction, r);
@@ -783,7 +791,7 @@ public <R extends MutableCharCollection> R collectChar(CharFunction<? super T> c
     @Override
     public <R extends MutableDoubleCollection> R collectDouble(DoubleFunction<? super T> doubleFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectDouble(doubleFunction, r);
+            return unbuiltList().collectDouble(doubleFunction, r);
         }
 
         return immutableList.collectDouble(doubleFunction, r);
@@ -792,7 +800,7 @@ public <R extends MutableDoubleCollection> R collectDouble(DoubleFunction<? supe
     @Override
     public <R extends MutableFloatCollection> R collectFloat(FloatFunction<? super T> floatFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectFloat(floatFunction, r);
+            return unbuiltList().collectFloat(floatFunction, r);
         }
 
         return immutableList.collectFloat(floatFunction, r);
@@ -801,7 +809,7 @@ public <R extends MutableFloatCollection> R collectFloat(FloatFunction<? super T
     @Override
     public <R extends MutableIntCollection> R collectInt(IntFunction<? super T> intFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectInt(intFunction, r);
+            return unbuiltList().collectInt(intFunction, r);
         }
 
         return immutableList.collectInt(intFunction, r);
@@ -810,7 +818,7 @@ public <R extends MutableIntCollection> R collectInt(IntFunction<? super T> intF
     @Override
     public <R extends MutableLongCollection> R collectLong(LongFunction<? super T> longFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectLong(longFunction, r);
+            return unbuiltList().collectLong(longFunction, r);
         }
 
         return immutableList.collectLong(longFunction, r);
@@ -819,7 +827,7 @@ public <R extends MutableLongCollection> R collectLong(LongFunction<? super T> l
     @Override
     public <R extends MutableShortCollection> R collectShort(ShortFunction<? super T> shortFunction, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectShort(shortFunction, r);
+            return unbuiltList().collectShort(shortFunction, r);
         }
 
         return immutableList.collectShort(shortFunction, r);
@@ -828,7 +836,7 @@ public <R extends MutableShortCollection> R collectShort(ShortFunction<? super T
     @Override
     public <P, V, R extends Collection<V>> R collectWith(Function2<? super T, ? super P, ? extends V> function2, P p, R vs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectWith(function2, p, vs);
+            return unbuiltList().collectWith(function2, p, vs);
         }
 
         return immutableList.collectWith(function2, p, vs);
@@ -837,7 +845,7 @@ public <P, V, R extends Collection<V>> R collectWith(Function2<? super T, ? supe
     @Override
     public <V, R extends Collection<V>> R collectIf(Predicate<? super T> predicate, Function<? super T, ? extends V> function, R vs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectIf(predicate, function, vs);
+            return unbuiltList().collectIf(predicate, function, vs);
         }
 
         return immutableList.collectIf(predicate, function, vs);
@@ -846,7 +854,7 @@ public <V, R extends Collection<V>> R collectIf(Predicate<? super T> predicate,
     @Override
     public <R extends MutableByteCollection> R flatCollectByte(Function<? super T, ? extends ByteIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectByte(function, target);
+            return unbuiltList().flatCollectByte(function, target);
         }
 
         return immutableList.flatCollectByte(function, target);
@@ -855,7 +863,7 @@ public <R extends MutableByteCollection> R flatCollectByte(Function<? super T, ?
     @Override
     public <R extends MutableCharCollection> R flatCollectChar(Function<? super T, ? extends CharIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectChar(function, target);
+            return unbuiltList().flatCollectChar(function, target);
         }
 
         return immutableList.flatCollectChar(function, target);
@@ -864,7 +872,7 @@ public <R extends MutableCharCollection> R flatCollectChar(Function<? super T, ?
     @Override
     public <R extends MutableIntCollection> R flatCollectInt(Function<? super T, ? extends IntIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectInt(function, target);
+            return unbuiltList().flatCollectInt(function, target);
         }
 
         return immutableList.flatCollectInt(function, target);
@@ -873,7 +881,7 @@ public <R extends MutableIntCollection> R flatCollectInt(Function<? super T, ? e
     @Override
     public <R extends MutableShortCollection> R flatCollectShort(Function<? super T, ? extends ShortIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectShort(function, target);
+            return unbuiltList().flatCollectShort(function, target);
         }
 
         return immutableList.flatCollectShort(function, target);
@@ -882,7 +890,7 @@ public <R extends MutableShortCollection> R flatCollectShort(Function<? super T,
     @Override
     public <R extends MutableDoubleCollection> R flatCollectDouble(Function<? super T, ? extends DoubleIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectDouble(function, target);
+            return unbuiltList().flatCollectDouble(function, target);
         }
 
         return immutableList.flatCollectDouble(function, target);
@@ -891,7 +899,7 @@ public <R extends MutableDoubleCollection> R flatCollectDouble(Function<? super
     @Override
     public <R extends MutableFloatCollection> R flatCollectFloat(Function<? super T, ? extends FloatIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectFloat(function, target);
+            return unbuiltList().flatCollectFloat(function, target);
         }
 
         return immutableList.flatCollectFloat(function, target);
@@ -900,7 +908,7 @@ public <R extends MutableFloatCollection> R flatCollectFloat(Function<? super T,
     @Override
     public <R extends MutableLongCollection> R flatCollectLong(Function<? super T, ? extends LongIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectLong(function, target);
+            return unbuiltList().flatCollectLong(function, target);
         }
 
         return immutableList.flatCollectLong(function, target);
@@ -909,7 +917,7 @@ public <R extends MutableLongCollection> R flatCollectLong(Function<? super T, ?
     @Override
     public <R extends MutableBooleanCollection> R flatCollectBoolean(Function<? super T, ? extends BooleanIterable> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectBoolean(function, target);
+            return unbuiltList().flatCollectBoolean(function, target);
         }
 
         return immutableList.flatCollectBoolean(function, target);
@@ -918,7 +926,7 @@ public <R extends MutableBooleanCollection> R flatCollectBoolean(Function<? supe
     @Override
     public <V, R extends Collection<V>> R flatCollect(Function<? super T, ? extends Iterable<V>> function, R vs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollect(function, vs);
+            return unbuiltList().flatCollect(function, vs);
         }
 
         return immutableList.flatCollect(function, vs);
@@ -927,7 +935,7 @@ public <V, R extends Collection<V>> R flatCollect(Function<? super T, ? extends
     @Override
     public <P, V, R extends Collection<V>> R flatCollectWith(Function2<? super T, ? super P, ? extends Iterable<V>> function, P parameter, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().flatCollectWith(function, parameter, target);
+            return unbuiltList().flatCollectWith(function, parameter, target);
         }
 
         return immutableList.flatCollectWith(function, parameter, target);
@@ -936,7 +944,7 @@ public <P, V, R extends Collection<V>> R flatCollectWith(Function2<? super T, ?
     @Override
     public T detect(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detect(predicate);
+            return unbuiltList().detect(predicate);
         }
 
         return immutableList.detect(predicate);
@@ -945,7 +953,7 @@ public T detect(Predicate<? super T> predicate) {
     @Override
     public <P> T detectWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectWith(predicate2, p);
+            return unbuiltList().detectWith(predicate2, p);
         }
 
         return immutableList.detectWith(predicate2, p);
@@ -954,7 +962,7 @@ public <P> T detectWith(Predicate2<? super T, ? super P> predicate2, P p) {
     @Override
     public Optional<T> detectOptional(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectOptional(predicate);
+            return unbuiltList().detectOptional(predicate);
         }
 
         return immutableList.detectOptional(predicate);
@@ -963,7 +971,7 @@ public Optional<T> detectOptional(Predicate<? super T> predicate) {
     @Override
     public <P> Optional<T> detectWithOptional(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectWithOptional(predicate2, p);
+            return unbuiltList().detectWithOptional(predicate2, p);
         }
 
         return immutableList.detectWithOptional(predicate2, p);
@@ -972,7 +980,7 @@ public <P> Optional<T> detectWithOptional(Predicate2<? super T, ? super P> predi
     @Override
     public T detectIfNone(Predicate<? super T> predicate, Function0<? extends T> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectIfNone(predicate, function);
+            return unbuiltList().detectIfNone(predicate, function);
         }
 
         return immutableList.detectIfNone(predicate, function);
@@ -981,7 +989,7 @@ public T detectIfNone(Predicate<? super T> predicate, Function0<? extends T> fun
     @Override
     public <P> T detectWithIfNone(Predicate2<? super T, ? super P> predicate2, P p, Function0<? extends T> function0) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectWithIfNone(predicate2, p, function0);
+            return unbuiltList().detectWithIfNone(predicate2, p, function0);
         }
 
         return immutableList.detectWithIfNone(predicate2, p, function0);
@@ -990,7 +998,7 @@ public <P> T detectWithIfNone(Predicate2<? super T, ? super P> predicate2, P p,
     @Override
     public int count(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().count(predicate);
+            return unbuiltList().count(predicate);
         }
 
         return immutableList.count(predicate);
@@ -999,7 +1007,7 @@ public int count(Predicate<? super T> predicate) {
     @Override
     public <P> int countWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countWith(predicate2, p);
+            return unbuiltList().countWith(predicate2, p);
         }
 
         return immutableList.countWith(predicate2, p);
@@ -1008,7 +1016,7 @@ public <P> int countWith(Predicate2<? super T, ? super P> predicate2, P p) {
     @Override
     public boolean anySatisfy(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().anySatisfy(predicate);
+            return unbuiltList().anySatisfy(predicate);
         }
 
         return immutableList.anySatisfy(predicate);
@@ -1017,7 +1025,7 @@ public boolean anySatisfy(Predicate<? super T> predicate) {
     @Override
     public <P> boolean anySatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().anySatisfyWith(predicate2, p);
+            return unbuiltList().anySatisfyWith(predicate2, p);
         }
 
         return immutableList.anySatisfyWith(predicate2, p);
@@ -1026,7 +1034,7 @@ public <P> boolean anySatisfyWith(Predicate2<? super T, ? super P> predicate2, P
     @Override
     public boolean allSatisfy(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().allSatisfy(predicate);
+            return unbuiltList().allSatisfy(predicate);
         }
 
         return immutableList.allSatisfy(predicate);
@@ -1035,7 +1043,7 @@ public boolean allSatisfy(Predicate<? super T> predicate) {
     @Override
     public <P> boolean allSatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().allSatisfyWith(predicate2, p);
+            return unbuiltList().allSatisfyWith(predicate2, p);
         }
 
         return immutableList.allSatisfyWith(predicate2, p);
@@ -1044,7 +1052,7 @@ public <P> boolean allSatisfyWith(Predicate2<? super T, ? super P> predicate2, P
     @Override
     public boolean noneSatisfy(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().noneSatisfy(predicate);
+            return unbuiltList().noneSatisfy(predicate);
         }
 
         return immutableList.noneSatisfy(predicate);
@@ -1053,7 +1061,7 @@ public boolean noneSatisfy(Predicate<? super T> predicate) {
     @Override
     public <P> boolean noneSatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
         if (immutableList == null) {
-            return mutableList.toImmutable().noneSatisfyWith(predicate2, p);
+            return unbuiltList().noneSatisfyWith(predicate2, p);
         }
 
         return immutableList.noneSatisfyWith(predicate2, p);
@@ -1062,7 +1070,7 @@ public <P> boolean noneSatisfyWith(Predicate2<? super T, ? super P> predicate2,
     @Override
     public <IV> IV injectInto(IV iv, Function2<? super IV, ? super T, ? extends IV> function2) {
         if (immutableList == null) {
-            return mutableList.toImmutable().injectInto(iv, function2);
+            return unbuiltList().injectInto(iv, function2);
         }
 
         return immutableList.injectInto(iv, function2);
@@ -1071,7 +1079,7 @@ public <IV> IV injectInto(IV iv, Function2<? super IV, ? super T, ? extends IV>
     @Override
     public int injectInto(int i, IntObjectToIntFunction<? super T> intObjectToIntFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().injectInto(i, intObjectToIntFunction);
+            return unbuiltList().injectInto(i, intObjectToIntFunction);
         }
 
         return immutableList.injectInto(i, intObjectToIntFunction);
@@ -1080,7 +1088,7 @@ public int injectInto(int i, IntObjectToIntFunction<? super T> intObjectToIntFun
     @Override
     public long injectInto(long l, LongObjectToLongFunction<? super T> longObjectToLongFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().injectInto(l, longObjectToLongFunction);
+            return unbuiltList().injectInto(l, longObjectToLongFunction);
         }
 
         return immutableList.injectInto(l, longObjectToLongFunction);
@@ -1089,7 +1097,7 @@ public long injectInto(long l, LongObjectToLongFunction<? super T> longObjectToL
     @Override
     public float injectInto(float v, FloatObjectToFloatFunction<? super T> floatObjectToFloatFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().injectInto(v, floatObjectToFloatFunction);
+            return unbuiltList().injectInto(v, floatObjectToFloatFunction);
         }
 
         return immutableList.injectInto(v, floatObjectToFloatFunction);
@@ -1098,7 +1106,7 @@ public float injectInto(float v, FloatObjectToFloatFunction<? super T> floatObje
     @Override
     public double injectInto(double v, DoubleObjectToDoubleFunction<? super T> doubleObjectToDoubleFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().injectInto(v, doubleObjectToDoubleFunction);
+            return unbuiltList().injectInto(v, doubleObjectToDoubleFunction);
         }
 
         return immutableList.injectInto(v, doubleObjectToDoubleFunction);
@@ -1107,7 +1115,7 @@ public double injectInto(double v, DoubleObjectToDoubleFunction<? super T> doubl
     @Override
     public <R extends Collection<T>> R into(R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().into(ts);
+            return unbuiltList().into(ts);
         }
 
         return immutableList.into(ts);
@@ -1116,7 +1124,7 @@ public <R extends Collection<T>> R into(R ts) {
     @Override
     public MutableList<T> toList() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toList();
+            return unbuiltList().toList();
         }
 
         return immutableList.toList();
@@ -1125,7 +1133,7 @@ public MutableList<T> toList() {
     @Override
     public MutableList<T> toSortedList() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedList();
+            return unbuiltList().toSortedList();
         }
 
         return immutableList.toSortedList();
@@ -1134,7 +1142,7 @@ public MutableList<T> toSortedList() {
     @Override
     public MutableList<T> toSortedList(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedList(comparator);
+            return unbuiltList().toSortedList(comparator);
         }
 
         return immutableList.toSortedList(comparator);
@@ -1143,7 +1151,7 @@ public MutableList<T> toSortedList(Comparator<? super T> comparator) {
     @Override
     public <V extends Comparable<? super V>> MutableList<T> toSortedListBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedListBy(function);
+            return unbuiltList().toSortedListBy(function);
         }
 
         return immutableList.toSortedListBy(function);
@@ -1152,7 +1160,7 @@ public <V extends Comparable<? super V>> MutableList<T> toSortedListBy(Function<
     @Override
     public MutableSet<T> toSet() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSet();
+            return unbuiltList().toSet();
         }
 
         return immutableList.toSet();
@@ -1161,7 +1169,7 @@ public MutableSet<T> toSet() {
     @Override
     public MutableSortedSet<T> toSortedSet() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedSet();
+            return unbuiltList().toSortedSet();
         }
 
         return immutableList.toSortedSet();
@@ -1170,7 +1178,7 @@ public MutableSortedSet<T> toSortedSet() {
     @Override
     public MutableSortedSet<T> toSortedSet(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedSet(comparator);
+            return unbuiltList().toSortedSet(comparator);
         }
 
         return immutableList.toSortedSet(comparator);
@@ -1179,7 +1187,7 @@ public MutableSortedSet<T> toSortedSet(Comparator<? super T> comparator) {
     @Override
     public <V extends Comparable<? super V>> MutableSortedSet<T> toSortedSetBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedSetBy(function);
+            return unbuiltList().toSortedSetBy(function);
         }
 
         return immutableList.toSortedSetBy(function);
@@ -1188,7 +1196,7 @@ public <V extends Comparable<? super V>> MutableSortedSet<T> toSortedSetBy(Funct
     @Override
     public MutableBag<T> toBag() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toBag();
+            return unbuiltList().toBag();
         }
 
         return immutableList.toBag();
@@ -1197,7 +1205,7 @@ public MutableBag<T> toBag() {
     @Override
     public MutableSortedBag<T> toSortedBag() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedBag();
+            return unbuiltList().toSortedBag();
         }
 
         return immutableList.toSortedBag();
@@ -1206,7 +1214,7 @@ public MutableSortedBag<T> toSortedBag() {
     @Override
     public MutableSortedBag<T> toSortedBag(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedBag(comparator);
+            return unbuiltList().toSortedBag(comparator);
         }
 
         return immutableList.toSortedBag(comparator);
@@ -1215,7 +1223,7 @@ public MutableSortedBag<T> toSortedBag(Comparator<? super T> comparator) {
     @Override
     public <V extends Comparable<? super V>> MutableSortedBag<T> toSortedBagBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedBagBy(function);
+            return unbuiltList().toSortedBagBy(function);
         }
 
         return immutableList.toSortedBagBy(function);
@@ -1224,7 +1232,7 @@ public <V extends Comparable<? super V>> MutableSortedBag<T> toSortedBagBy(Funct
     @Override
     public <NK, NV> MutableMap<NK, NV> toMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toMap(function, function1);
+            return unbuiltList().toMap(function, function1);
         }
 
         return immutableList.toMap(function, function1);
@@ -1233,7 +1241,7 @@ public <NK, NV> MutableMap<NK, NV> toMap(Function<? super T, ? extends NK> funct
     @Override
     public <NK, NV, R extends Map<NK, NV>> R toMap(Function<? super T, ? extends NK> keyFunction, Function<? super T, ? extends NV> valueFunction, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toMap(keyFunction, valueFunction, target);
+            return unbuiltList().toMap(keyFunction, valueFunction, target);
         }
 
         return immutableList.toMap(keyFunction, valueFunction, target);
@@ -1242,7 +1250,7 @@ public <NK, NV, R extends Map<NK, NV>> R toMap(Function<? super T, ? extends NK>
     @Override
     public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedMap(function, function1);
+            return unbuiltList().toSortedMap(function, function1);
         }
 
         return immutableList.toSortedMap(function, function1);
@@ -1251,7 +1259,7 @@ public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Function<? super T, ? exten
     @Override
     public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Comparator<? super NK> comparator, Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedMap(comparator, function, function1);
+            return unbuiltList().toSortedMap(comparator, function, function1);
         }
 
         return immutableList.toSortedMap(comparator, function, function1);
@@ -1260,7 +1268,7 @@ public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Comparator<? super NK> comp
     @Override
     public <KK extends Comparable<? super KK>, NK, NV> MutableSortedMap<NK, NV> toSortedMapBy(Function<? super NK, KK> sortBy, Function<? super T, ? extends NK> keyFunction, Function<? super T, ? extends NV> valueFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toSortedMapBy(sortBy, keyFunction, valueFunction);
+            return unbuiltList().toSortedMapBy(sortBy, keyFunction, valueFunction);
         }
 
         return immutableList.toSortedMapBy(sortBy, keyFunction, valueFunction);
@@ -1269,7 +1277,7 @@ public <KK extends Comparable<? super KK>, NK, NV> MutableSortedMap<NK, NV> toSo
     @Override
     public <NK, NV> MutableBiMap<NK, NV> toBiMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toBiMap(function, function1);
+            return unbuiltList().toBiMap(function, function1);
         }
 
         return immutableList.toBiMap(function, function1);
@@ -1278,7 +1286,7 @@ public <NK, NV> MutableBiMap<NK, NV> toBiMap(Function<? super T, ? extends NK> f
     @Override
     public LazyIterable<T> asLazy() {
         if (immutableList == null) {
-            return mutableList.toImmutable().asLazy();
+            return unbuiltList().asLazy();
         }
 
         return immutableList.asLazy();
@@ -1287,7 +1295,7 @@ public LazyIterable<T> asLazy() {
     @Override
     public Object[] toArray() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toArray();
+            return unbuiltList().toArray();
         }
 
         return immutableList.toArray();
@@ -1296,7 +1304,7 @@ public Object[] toArray() {
     @Override
     public <E> E[] toArray(E[] es) {
         if (immutableList == null) {
-            return mutableList.toImmutable().toArray(es);
+            return unbuiltList().toArray(es);
         }
 
         return immutableList.toArray(es);
@@ -1305,7 +1313,7 @@ public <E> E[] toArray(E[] es) {
     @Override
     public T min(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().min(comparator);
+            return unbuiltList().min(comparator);
         }
 
         return immutableList.min(comparator);
@@ -1314,7 +1322,7 @@ public T min(Comparator<? super T> comparator) {
     @Override
     public T max(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().max(comparator);
+            return unbuiltList().max(comparator);
         }
 
         return immutableList.max(comparator);
@@ -1323,7 +1331,7 @@ public T max(Comparator<? super T> comparator) {
     @Override
     public Optional<T> minOptional(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().minOptional(comparator);
+            return unbuiltList().minOptional(comparator);
         }
 
         return immutableList.minOptional(comparator);
@@ -1332,7 +1340,7 @@ public Optional<T> minOptional(Comparator<? super T> comparator) {
     @Override
     public Optional<T> maxOptional(Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().maxOptional(comparator);
+            return unbuiltList().maxOptional(comparator);
         }
 
         return immutableList.maxOptional(comparator);
@@ -1341,7 +1349,7 @@ public Optional<T> maxOptional(Comparator<? super T> comparator) {
     @Override
     public T min() {
         if (immutableList == null) {
-            return mutableList.toImmutable().min();
+            return unbuiltList().min();
         }
 
         return immutableList.min();
@@ -1350,7 +1358,7 @@ public T min() {
     @Override
     public T max() {
         if (immutableList == null) {
-            return mutableList.toImmutable().max();
+            return unbuiltList().max();
         }
 
         return immutableList.max();
@@ -1359,7 +1367,7 @@ public T max() {
     @Override
     public Optional<T> minOptional() {
         if (immutableList == null) {
-            return mutableList.toImmutable().minOptional();
+            return unbuiltList().minOptional();
         }
 
         return immutableList.minOptional();
@@ -1368,7 +1376,7 @@ public Optional<T> minOptional() {
     @Override
     public Optional<T> maxOptional() {
         if (immutableList == null) {
-            return mutableList.toImmutable().maxOptional();
+            return unbuiltList().maxOptional();
         }
 
         return immutableList.maxOptional();
@@ -1377,7 +1385,7 @@ public Optional<T> maxOptional() {
     @Override
     public <V extends Comparable<? super V>> T minBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().minBy(function);
+            return unbuiltList().minBy(function);
         }
 
         return immutableList.minBy(function);
@@ -1386,7 +1394,7 @@ public <V extends Comparable<? super V>> T minBy(Function<? super T, ? extends V
     @Override
     public <V extends Comparable<? super V>> T maxBy(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().maxBy(function);
+            return unbuiltList().maxBy(function);
         }
 
         return immutableList.maxBy(function);
@@ -1395,7 +1403,7 @@ public <V extends Comparable<? super V>> T maxBy(Function<? super T, ? extends V
     @Override
     public <V extends Comparable<? super V>> Optional<T> minByOptional(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().minByOptional(function);
+            return unbuiltList().minByOptional(function);
         }
 
         return immutableList.minByOptional(function);
@@ -1404,7 +1412,7 @@ public <V extends Comparable<? super V>> Optional<T> minByOptional(Function<? su
     @Override
     public <V extends Comparable<? super V>> Optional<T> maxByOptional(Function<? super T, ? extends V> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().maxByOptional(function);
+            return unbuiltList().maxByOptional(function);
         }
 
         return immutableList.maxByOptional(function);
@@ -1413,7 +1421,7 @@ public <V extends Comparable<? super V>> Optional<T> maxByOptional(Function<? su
     @Override
     public long sumOfInt(IntFunction<? super T> intFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumOfInt(intFunction);
+            return unbuiltList().sumOfInt(intFunction);
         }
 
         return immutableList.sumOfInt(intFunction);
@@ -1422,7 +1430,7 @@ public long sumOfInt(IntFunction<? super T> intFunction) {
     @Override
     public double sumOfFloat(FloatFunction<? super T> floatFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumOfFloat(floatFunction);
+            return unbuiltList().sumOfFloat(floatFunction);
         }
 
         return immutableList.sumOfFloat(floatFunction);
@@ -1431,7 +1439,7 @@ public double sumOfFloat(FloatFunction<? super T> floatFunction) {
     @Override
     public long sumOfLong(LongFunction<? super T> longFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumOfLong(longFunction);
+            return unbuiltList().sumOfLong(longFunction);
         }
 
         return immutableList.sumOfLong(longFunction);
@@ -1440,7 +1448,7 @@ public long sumOfLong(LongFunction<? super T> longFunction) {
     @Override
     public double sumOfDouble(DoubleFunction<? super T> doubleFunction) {
         if (immutableList == null) {
-            return mutableList.toImmutable().sumOfDouble(doubleFunction);
+            return unbuiltList().sumOfDouble(doubleFunction);
         }
 
         return immutableList.sumOfDouble(doubleFunction);
@@ -1449,7 +1457,7 @@ public double sumOfDouble(DoubleFunction<? super T> doubleFunction) {
     @Override
     public IntSummaryStatistics summarizeInt(IntFunction<? super T> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().summarizeInt(function);
+            return unbuiltList().summarizeInt(function);
         }
 
         return immutableList.summarizeInt(function);
@@ -1458,7 +1466,7 @@ public IntSummaryStatistics summarizeInt(IntFunction<? super T> function) {
     @Override
     public DoubleSummaryStatistics summarizeFloat(FloatFunction<? super T> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().summarizeFloat(function);
+            return unbuiltList().summarizeFloat(function);
         }
 
         return immutableList.summarizeFloat(function);
@@ -1467,7 +1475,7 @@ public DoubleSummaryStatistics summarizeFloat(FloatFunction<? super T> function)
     @Override
     public LongSummaryStatistics summarizeLong(LongFunction<? super T> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().summarizeLong(function);
+            return unbuiltList().summarizeLong(function);
         }
 
         return immutableList.summarizeLong(function);
@@ -1476,7 +1484,7 @@ public LongSummaryStatistics summarizeLong(LongFunction<? super T> function) {
     @Override
     public DoubleSummaryStatistics summarizeDouble(DoubleFunction<? super T> function) {
         if (immutableList == null) {
-            return mutableList.toImmutable().summarizeDouble(function);
+            return unbuiltList().summarizeDouble(function);
         }
 
         return immutableList.summarizeDouble(function);
@@ -1485,7 +1493,7 @@ public DoubleSummaryStatistics summarizeDouble(DoubleFunction<? super T> functio
     @Override
     public <R, A> R reduceInPlace(Collector<? super T, A, R> collector) {
         if (immutableList == null) {
-            return mutableList.toImmutable().reduceInPlace(collector);
+            return unbuiltList().reduceInPlace(collector);
         }
 
         return immutableList.reduceInPlace(collector);
@@ -1494,7 +1502,7 @@ public <R, A> R reduceInPlace(Collector<? super T, A, R> collector) {
     @Override
     public <R> R reduceInPlace(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().reduceInPlace(supplier, accumulator);
+            return unbuiltList().reduceInPlace(supplier, accumulator);
         }
 
         return immutableList.reduceInPlace(supplier, accumulator);
@@ -1503,7 +1511,7 @@ public <R> R reduceInPlace(Supplier<R> supplier, BiConsumer<R, ? super T> accumu
     @Override
     public Optional<T> reduce(BinaryOperator<T> accumulator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().reduce(accumulator);
+            return unbuiltList().reduce(accumulator);
         }
 
         return immutableList.reduce(accumulator);
@@ -1512,7 +1520,7 @@ public Optional<T> reduce(BinaryOperator<T> accumulator) {
     @Override
     public String makeString() {
         if (immutableList == null) {
-            return mutableList.toImmutable().makeString();
+            return unbuiltList().makeString();
         }
 
         return immutableList.makeString();
@@ -1521,7 +1529,7 @@ public String makeString() {
     @Override
     public String makeString(String separator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().makeString(separator);
+            return unbuiltList().makeString(separator);
         }
 
         return immutableList.makeString(separator);
@@ -1530,7 +1538,7 @@ public String makeString(String separator) {
     @Override
     public String makeString(String start, String separator, String end) {
         if (immutableList == null) {
-            return mutableList.toImmutable().makeString(start, separator, end);
+            return unbuiltList().makeString(start, separator, end);
         }
 
         return immutableList.makeString(start, separator, end);
@@ -1539,7 +1547,7 @@ public String makeString(String start, String separator, String end) {
     @Override
     public void appendString(Appendable appendable) {
         if (immutableList == null) {
-            mutableList.toImmutable().appendString(appendable);
+            unbuiltList().appendString(appendable);
         } else {
             immutableList.appendString(appendable);
         }
@@ -1548,7 +1556,7 @@ public void appendString(Appendable appendable) {
     @Override
     public void appendString(Appendable appendable, String separator) {
         if (immutableList == null) {
-            mutableList.toImmutable().appendString(appendable, separator);
+            unbuiltList().appendString(appendable, separator);
         } else {
             immutableList.appendString(appendable, separator);
         }
@@ -1557,7 +1565,7 @@ public void appendString(Appendable appendable, String separator) {
     @Override
     public void appendString(Appendable appendable, String s, String s1, String s2) {
         if (immutableList == null) {
-            mutableList.toImmutable().appendString(appendable, s, s1, s2);
+            unbuiltList().appendString(appendable, s, s1, s2);
         } else {
             immutableList.appendString(appendable, s, s1, s2);
         }
@@ -1566,7 +1574,7 @@ public void appendString(Appendable appendable, String s, String s1, String s2)
     @Override
     public <V, R extends MutableBagIterable<V>> R countBy(Function<? super T, ? extends V> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countBy(function, target);
+            return unbuiltList().countBy(function, target);
         }
 
         return immutableList.countBy(function, target);
@@ -1575,7 +1583,7 @@ public <V, R extends MutableBagIterable<V>> R countBy(Function<? super T, ? exte
     @Override
     public <V, P, R extends MutableBagIterable<V>> R countByWith(Function2<? super T, ? super P, ? extends V> function, P parameter, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countByWith(function, parameter, target);
+            return unbuiltList().countByWith(function, parameter, target);
         }
 
         return immutableList.countByWith(function, parameter, target);
@@ -1584,7 +1592,7 @@ public <V, P, R extends MutableBagIterable<V>> R countByWith(Function2<? super T
     @Override
     public <V, R extends MutableBagIterable<V>> R countByEach(Function<? super T, ? extends Iterable<V>> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().countByEach(function, target);
+            return unbuiltList().countByEach(function, target);
         }
 
         return immutableList.countByEach(function, target);
@@ -1593,7 +1601,7 @@ public <V, R extends MutableBagIterable<V>> R countByEach(Function<? super T, ?
     @Override
     public <V, R extends MutableMultimap<V, T>> R groupBy(Function<? super T, ? extends V> function, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupBy(function, r);
+            return unbuiltList().groupBy(function, r);
         }
 
         return immutableList.groupBy(function, r);
@@ -1602,7 +1610,7 @@ public <V, R extends MutableMultimap<V, T>> R groupBy(Function<? super T, ? exte
     @Override
     public <V, R extends MutableMultimap<V, T>> R groupByEach(Function<? super T, ? extends Iterable<V>> function, R r) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupByEach(function, r);
+            return unbuiltList().groupByEach(function, r);
         }
 
         return immutableList.groupByEach(function, r);
@@ -1611,7 +1619,7 @@ public <V, R extends MutableMultimap<V, T>> R groupByEach(Function<? super T, ?
     @Override
     public <V, R extends MutableMapIterable<V, T>> R groupByUniqueKey(Function<? super T, ? extends V> function, R ts) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupByUniqueKey(function, ts);
+            return unbuiltList().groupByUniqueKey(function, ts);
         }
 
         return immutableList.groupByUniqueKey(function, ts);
@@ -1621,7 +1629,7 @@ public <V, R extends MutableMapIterable<V, T>> R groupByUniqueKey(Function<? sup
     @Deprecated
     public <S, R extends Collection<Pair<T, S>>> R zip(Iterable<S> iterable, R pairs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().zip(iterable, pairs);
+            return unbuiltList().zip(iterable, pairs);
         }
 
         return immutableList.zip(iterable, pairs);
@@ -1631,7 +1639,7 @@ public <S, R extends Collection<Pair<T, S>>> R zip(Iterable<S> iterable, R pairs
     @Deprecated
     public <R extends Collection<Pair<T, Integer>>> R zipWithIndex(R pairs) {
         if (immutableList == null) {
-            return mutableList.toImmutable().zipWithIndex(pairs);
+            return unbuiltList().zipWithIndex(pairs);
         }
 
         return immutableList.zipWithIndex(pairs);
@@ -1640,7 +1648,7 @@ public <R extends Collection<Pair<T, Integer>>> R zipWithIndex(R pairs) {
     @Override
     public RichIterable<RichIterable<T>> chunk(int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().chunk(i);
+            return unbuiltList().chunk(i);
         }
 
         return immutableList.chunk(i);
@@ -1649,7 +1657,7 @@ public RichIterable<RichIterable<T>> chunk(int i) {
     @Override
     public <K, V, R extends MutableMapIterable<K, V>> R aggregateBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Function2<? super V, ? super T, ? extends V> nonMutatingAggregator, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator, target);
+            return unbuiltList().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator, target);
         }
 
         return immutableList.aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator, target);
@@ -1658,7 +1666,7 @@ public <K, V, R extends MutableMapIterable<K, V>> R aggregateBy(Function<? super
     @Override
     public <K, V, R extends MutableMultimap<K, V>> R groupByAndCollect(Function<? super T, ? extends K> groupByFunction, Function<? super T, ? extends V> collectFunction, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().groupByAndCollect(groupByFunction, collectFunction, target);
+            return unbuiltList().groupByAndCollect(groupByFunction, collectFunction, target);
         }
 
         return immutableList.groupByAndCollect(groupByFunction, collectFunction, target);
@@ -1667,7 +1675,7 @@ public <K, V, R extends MutableMultimap<K, V>> R groupByAndCollect(Function<? su
     @Override
     public void forEach(Consumer<? super T> consumer) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEach(consumer);
+            unbuiltList().forEach(consumer);
         } else {
             immutableList.forEach(consumer);
         }
@@ -1677,7 +1685,7 @@ public void forEach(Consumer<? super T> consumer) {
     @Deprecated
     public void forEachWithIndex(ObjectIntProcedure<? super T> objectIntProcedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEachWithIndex(objectIntProcedure);
+            unbuiltList().forEachWithIndex(objectIntProcedure);
         } else {
             immutableList.forEachWithIndex(objectIntProcedure);
         }
@@ -1686,7 +1694,7 @@ public void forEachWithIndex(ObjectIntProcedure<? super T> objectIntProcedure) {
     @Override
     public <P> void forEachWith(Procedure2<? super T, ? super P> procedure2, P p) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEachWith(procedure2, p);
+            unbuiltList().forEachWith(procedure2, p);
         } else {
             immutableList.forEachWith(procedure2, p);
         }
@@ -1695,7 +1703,7 @@ public <P> void forEachWith(Procedure2<? super T, ? super P> procedure2, P p) {
     @Override
     public Iterator<T> iterator() {
         if (immutableList == null) {
-            return mutableList.toImmutable().iterator();
+            return unbuiltList().iterator();
         }
 
         return immutableList.iterator();
@@ -1704,7 +1712,7 @@ public Iterator<T> iterator() {
     @Override
     public T get(int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().get(i);
+            return unbuiltList().get(i);
         }
 
         return immutableList.get(i);
@@ -1713,7 +1721,7 @@ public T get(int i) {
     @Override
     public int lastIndexOf(Object o) {
         if (immutableList == null) {
-            return mutableList.toImmutable().lastIndexOf(o);
+            return unbuiltList().lastIndexOf(o);
         }
 
         return immutableList.lastIndexOf(o);
@@ -1722,7 +1730,7 @@ public int lastIndexOf(Object o) {
     @Override
     public ListIterator<T> listIterator() {
         if (immutableList == null) {
-            return mutableList.toImmutable().listIterator();
+            return unbuiltList().listIterator();
         }
 
         return immutableList.listIterator();
@@ -1731,7 +1739,7 @@ public ListIterator<T> listIterator() {
     @Override
     public ListIterator<T> listIterator(int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().listIterator(i);
+            return unbuiltList().listIterator(i);
         }
 
         return immutableList.listIterator(i);
@@ -1740,7 +1748,7 @@ public ListIterator<T> listIterator(int i) {
     @Override
     public ImmutableList<T> toImmutable() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toImmutable();
+            return unbuiltList().toImmutable();
         }
 
         return immutableList.toImmutable();
@@ -1750,7 +1758,7 @@ public ImmutableList<T> toImmutable() {
     @Beta
     public ParallelListIterable<T> asParallel(ExecutorService executorService, int i) {
         if (immutableList == null) {
-            return mutableList.toImmutable().asParallel(executorService, i);
+            return unbuiltList().asParallel(executorService, i);
         }
 
         return immutableList.asParallel(executorService, i);
@@ -1759,7 +1767,7 @@ public ParallelListIterable<T> asParallel(ExecutorService executorService, int i
     @Override
     public int binarySearch(T key, Comparator<? super T> comparator) {
         if (immutableList == null) {
-            return mutableList.toImmutable().binarySearch(key, comparator);
+            return unbuiltList().binarySearch(key, comparator);
         }
 
         return immutableList.binarySearch(key, comparator);
@@ -1768,7 +1776,7 @@ public int binarySearch(T key, Comparator<? super T> comparator) {
     @Override
     public int binarySearch(T key) {
         if (immutableList == null) {
-            return mutableList.toImmutable().binarySearch(key);
+            return unbuiltList().binarySearch(key);
         }
 
         return immutableList.binarySearch(key);
@@ -1777,7 +1785,7 @@ public int binarySearch(T key) {
     @Override
     public <T2> void forEachInBoth(ListIterable<T2> other, Procedure2<? super T, ? super T2> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEachInBoth(other, procedure);
+            unbuiltList().forEachInBoth(other, procedure);
         } else {
             immutableList.forEachInBoth(other, procedure);
         }
@@ -1786,7 +1794,7 @@ public <T2> void forEachInBoth(ListIterable<T2> other, Procedure2<? super T, ? s
     @Override
     public int hashCode() {
         if (immutableList == null) {
-            return mutableList.toImmutable().hashCode();
+            return unbuiltList().hashCode();
         }
 
         return immutableList.hashCode();
@@ -1795,7 +1803,7 @@ public int hashCode() {
     @Override
     public boolean equals(Object o) {
         if (immutableList == null) {
-            return mutableList.toImmutable().equals(o);
+            return unbuiltList().equals(o);
         }
 
         return immutableList.equals(o);
@@ -1804,7 +1812,7 @@ public boolean equals(Object o) {
     @Override
     public String toString() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toString();
+            return unbuiltList().toString();
         }
 
         return immutableList.toString();
@@ -1813,7 +1821,7 @@ public String toString() {
     @Override
     public void reverseForEach(Procedure<? super T> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().reverseForEach(procedure);
+            unbuiltList().reverseForEach(procedure);
         } else {
             immutableList.reverseForEach(procedure);
         }
@@ -1822,7 +1830,7 @@ public void reverseForEach(Procedure<? super T> procedure) {
     @Override
     public void reverseForEachWithIndex(ObjectIntProcedure<? super T> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().reverseForEachWithIndex(procedure);
+            unbuiltList().reverseForEachWithIndex(procedure);
         } else {
             immutableList.reverseForEachWithIndex(procedure);
         }
@@ -1831,7 +1839,7 @@ public void reverseForEachWithIndex(ObjectIntProcedure<? super T> procedure) {
     @Override
     public LazyIterable<T> asReversed() {
         if (immutableList == null) {
-            return mutableList.toImmutable().asReversed();
+            return unbuiltList().asReversed();
         }
 
         return immutableList.asReversed();
@@ -1840,7 +1848,7 @@ public LazyIterable<T> asReversed() {
     @Override
     public int detectLastIndex(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectLastIndex(predicate);
+            return unbuiltList().detectLastIndex(predicate);
         }
 
         return immutableList.detectLastIndex(predicate);
@@ -1849,7 +1857,7 @@ public int detectLastIndex(Predicate<? super T> predicate) {
     @Override
     public int indexOf(Object o) {
         if (immutableList == null) {
-            return mutableList.toImmutable().indexOf(o);
+            return unbuiltList().indexOf(o);
         }
 
         return immutableList.indexOf(o);
@@ -1858,7 +1866,7 @@ public int indexOf(Object o) {
     @Override
     public Optional<T> getFirstOptional() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getFirstOptional();
+            return unbuiltList().getFirstOptional();
         }
 
         return immutableList.getFirstOptional();
@@ -1867,7 +1875,7 @@ public Optional<T> getFirstOptional() {
     @Override
     public Optional<T> getLastOptional() {
         if (immutableList == null) {
-            return mutableList.toImmutable().getLastOptional();
+            return unbuiltList().getLastOptional();
         }
 
         return immutableList.getLastOptional();
@@ -1876,7 +1884,7 @@ public Optional<T> getLastOptional() {
     @Override
     public <S> boolean corresponds(OrderedIterable<S> orderedIterable, Predicate2<? super T, ? super S> predicate2) {
         if (immutableList == null) {
-            return mutableList.toImmutable().corresponds(orderedIterable, predicate2);
+            return unbuiltList().corresponds(orderedIterable, predicate2);
         }
 
         return immutableList.corresponds(orderedIterable, predicate2);
@@ -1885,7 +1893,7 @@ public <S> boolean corresponds(OrderedIterable<S> orderedIterable, Predicate2<?
     @Override
     public void forEach(int i, int i1, Procedure<? super T> procedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEach(i, i1, procedure);
+            unbuiltList().forEach(i, i1, procedure);
         } else {
             immutableList.forEach(i, i1, procedure);
         }
@@ -1894,7 +1902,7 @@ public void forEach(int i, int i1, Procedure<? super T> procedure) {
     @Override
     public void forEachWithIndex(int i, int i1, ObjectIntProcedure<? super T> objectIntProcedure) {
         if (immutableList == null) {
-            mutableList.toImmutable().forEachWithIndex(i, i1, objectIntProcedure);
+            unbuiltList().forEachWithIndex(i, i1, objectIntProcedure);
         } else {
             immutableList.forEachWithIndex(i, i1, objectIntProcedure);
         }
@@ -1903,7 +1911,7 @@ public void forEachWithIndex(int i, int i1, ObjectIntProcedure<? super T> object
     @Override
     public MutableStack<T> toStack() {
         if (immutableList == null) {
-            return mutableList.toImmutable().toStack();
+            return unbuiltList().toStack();
         }
 
         return immutableList.toStack();
@@ -1912,7 +1920,7 @@ public MutableStack<T> toStack() {
     @Override
     public <V, R extends Collection<V>> R collectWithIndex(ObjectIntToObjectFunction<? super T, ? extends V> function, R target) {
         if (immutableList == null) {
-            return mutableList.toImmutable().collectWithIndex(function, target);
+            return unbuiltList().collectWithIndex(function, target);
         }
 
         return immutableList.collectWithIndex(function, target);
@@ -1921,7 +1929,7 @@ public <V, R extends Collection<V>> R collectWithIndex(ObjectIntToObjectFunction
     @Override
     public int detectIndex(Predicate<? super T> predicate) {
         if (immutableList == null) {
-            return mutableList.toImmutable().detectIndex(predicate);
+            return unbuiltList().detectIndex(predicate);
         }
 
         return immutableList.detectIndex(predicate);
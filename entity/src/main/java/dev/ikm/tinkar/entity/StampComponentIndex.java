@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.util.time.Stopwatch;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.eclipse.collections.impl.factory.primitive.LongObjectMaps;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Secondary index of a data store from stamp time to stamp nids, and from stamp nid to the nids of the components
+ * with a version on that stamp, so changes within a time span are found without reading every component.
+ * <p>
+ * Providers pass each merged entity to {@link #index(Object)}. The entities stored before are indexed by the first
+ * query, with a parallel scan of the store, so a store whose time ranges are never queried pays nothing for the
+ * index beyond its merges; queries concurrent with the scan wait for it. Merges are indexed whether or not the
+ * scan has run, so a merge concurrent with the scan is never lost.
+ * <p>
+ * Stamp nids are kept in primitive maps striped by stamp nid. Times are kept in a primitive map with an array of
+ * the distinct times in order, so a range is found by binary search; times added since the last query are sorted
+ * into the array by the next.
+ * <p>
+ * A stamp is indexed under every time it has had, since an uncommitted stamp gains its commit time in a later
+ * version. Callers compare the current time of the stamps returned by {@link #forEachStampNidInTimeRange}
+ * against the range.
+ */
+public final class StampComponentIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(StampComponentIndex.class);
+    private static final int STRIPES = 64;
+
+    private final Consumer<ObjIntConsumer<byte[]>> forEachParallel;
+    // The time fields are guarded by timeToStampNids.
+    private final MutableLongObjectMap<MutableIntSet> timeToStampNids = LongObjectMaps.mutable.empty();
+    private final MutableLongSet unsortedTimes = LongSets.mutable.empty();
+    private long[] sortedTimes = new long[0];
+    // Each stripe is guarded by itself.
+    private final MutableIntObjectMap<MutableIntSet>[] stampToComponentNids;
+    private final AtomicBoolean buildStarted = new AtomicBoolean();
+    private final CountDownLatch built = new CountDownLatch(1);
+    private volatile RuntimeException buildFailure;
+
+    public StampComponentIndex(PrimitiveDataService dataService) {
+        this.forEachParallel = action -> dataService.forEachParallel(action);
+        this.stampToComponentNids = newStripes();
+    }
+
+    /**
+     * @param forEachParallel passes the bytes and nid of each entity stored to the action
+     */
+    StampComponentIndex(Consumer<ObjIntConsumer<byte[]>> forEachParallel) {
+        this.forEachParallel = forEachParallel;
+        this.stampToComponentNids = newStripes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MutableIntObjectMap<MutableIntSet>[] newStripes() {
+        MutableIntObjectMap<MutableIntSet>[] stripes = new MutableIntObjectMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = IntObjectMaps.mutable.empty();
+        }
+        return stripes;
+    }
+
+    /**
+     * Indexes the stamp times of a stamp entity, or the stamps of the versions of any other entity. Other objects
+     * are ignored.
+     */
+    public void index(Object sourceObject) {
+        if (sourceObject instanceof StampEntity<?> stampEntity) {
+            synchronized (timeToStampNids) {
+                for (StampEntityVersion version : stampEntity.versions()) {
+                    MutableIntSet stampNids = timeToStampNids.get(version.time());
+                    if (stampNids == null) {
+                        stampNids = IntSets.mutable.empty();
+                        timeToStampNids.put(version.time(), stampNids);
+                        unsortedTimes.add(version.time());
+                    }
+                    stampNids.add(stampEntity.nid());
+                }
+            }
+        } else if (sourceObject instanceof Entity<?> entity) {
+            for (EntityVersion version : entity.versions()) {
+                MutableIntObjectMap<MutableIntSet> stripe = stripe(version.stampNid());
+                synchronized (stripe) {
+                    stripe.getIfAbsentPut(version.stampNid(), IntSets.mutable::empty).add(entity.nid());
+                }
+            }
+        }
+    }
+
+    private MutableIntObjectMap<MutableIntSet> stripe(int stampNid) {
+        return stampToComponentNids[(stampNid ^ (stampNid >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Passes each stamp that has had a time in the inclusive range to the procedure, once.
+     */
+    public void forEachStampNidInTimeRange(long fromEpochMillis, long toEpochMillis, IntProcedure procedure) {
+        awaitBuilt();
+        MutableIntSet stampNids = IntSets.mutable.empty();
+        synchronized (timeToStampNids) {
+            sortTimes();
+            int index = Arrays.binarySearch(sortedTimes, fromEpochMillis);
+            for (int i = index < 0 ? -index - 1 : index; i < sortedTimes.length && sortedTimes[i] <= toEpochMillis; i++) {
+                stampNids.addAll(timeToStampNids.get(sortedTimes[i]));
+            }
+        }
+        stampNids.forEach(procedure);
+    }
+
+    /**
+     * Merges the times added since the last query into the sorted times.
+     */
+    private void sortTimes() {
+        if (unsortedTimes.isEmpty()) {
+            return;
+        }
+        long[] addedTimes = unsortedTimes.toSortedArray();
+        long[] mergedTimes = new long[sortedTimes.length + addedTimes.length];
+        int sortedIndex = 0;
+        int addedIndex = 0;
+        for (int i = 0; i < mergedTimes.length; i++) {
+            if (addedIndex == addedTimes.length ||
+                    (sortedIndex < sortedTimes.length && sortedTimes[sortedIndex] < addedTimes[addedIndex])) {
+                mergedTimes[i] = sortedTimes[sortedIndex++];
+            } else {
+                mergedTimes[i] = addedTimes[addedIndex++];
+            }
+        }
+        sortedTimes = mergedTimes;
+        unsortedTimes.clear();
+    }
+
+    /**
+     * Passes the nid of each component with a version on the stamp to the procedure.
+     */
+    public void forEachComponentNidOfStamp(int stampNid, IntProcedure procedure) {
+        awaitBuilt();
+        MutableIntObjectMap<MutableIntSet> stripe = stripe(stampNid);
+        int[] componentNids;
+        synchronized (stripe) {
+            MutableIntSet nids = stripe.get(stampNid);
+            if (nids == null) {
+                return;
+            }
+            componentNids = nids.toArray();
+        }
+        for (int componentNid : componentNids) {
+            procedure.value(componentNid);
+        }
+    }
+
+    private void awaitBuilt() {
+        if (built.getCount() > 0) {
+            if (buildStarted.compareAndSet(false, true)) {
+                build();
+            } else {
+                try {
+                    built.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the stamp component index", e);
+                }
+            }
+        }
+        if (buildFailure != null) {
+            throw new IllegalStateException("Unable to build the stamp component index", buildFailure);
+        }
+    }
+
+    private void build() {
+        try {
+            Stopwatch stopwatch = new Stopwatch();
+            forEachParallel.accept((bytes, nid) -> index(EntityRecordFactory.make(bytes)));
+            stopwatch.stop();
+            int stampCount = 0;
+            for (MutableIntObjectMap<MutableIntSet> stripe : stampToComponentNids) {
+                synchronized (stripe) {
+                    stampCount += stripe.size();
+                }
+            }
+            LOG.info("Built stamp component index for " + stampCount + " stamps in " + stopwatch.durationString());
+        } catch (RuntimeException e) {
+            LOG.error("Unable to build the stamp component index", e);
+            buildFailure = e;
+        } finally {
+            built.countDown();
+        }
+    }
+}
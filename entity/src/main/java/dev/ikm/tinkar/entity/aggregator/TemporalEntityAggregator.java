@@ -16,8 +16,15 @@
 package dev.ikm.tinkar.entity.aggregator;
 
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.entity.ConceptEntity;
 import dev.ikm.tinkar.entity.EntityCountSummary;
 import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -34,8 +41,58 @@ public TemporalEntityAggregator(long fromEpochMillis, long toEpochMillis) {
         this.toEpochMillis = toEpochMillis;
     }
 
+    /**
+     * Resolves the stamps in the time span through the stamp time index of the data store, and the components
+     * with a version on those stamps through its stamp component index, so the work is proportional to the
+     * amount of change in the span. Falls back to a scan of every component if the data store has no such index.
+     */
     @Override
     public EntityCountSummary aggregate(IntConsumer nidConsumer) {
+        initCounts();
+        MutableIntSet filteredStampNids = IntSets.mutable.empty();
+        try {
+            PrimitiveData.get().forEachStampNidInTimeRange(fromEpochMillis, toEpochMillis, (stampNid) ->
+                    EntityService.get().getStamp(stampNid).ifPresent((stampEntity) -> {
+                        // The index includes stamps that had a time in the range before being committed or canceled.
+                        if (fromEpochMillis <= stampEntity.time() && stampEntity.time() <= toEpochMillis) {
+                            filteredStampNids.add(stampEntity.nid());
+                        }
+                    }));
+        } catch (UnsupportedOperationException e) {
+            return aggregateByScan(nidConsumer);
+        }
+
+        // Aggregate stamps that meet filter conditions
+        stampsAggregatedCount.set(filteredStampNids.size());
+        filteredStampNids.toSortedList().forEach(nidConsumer::accept);
+
+        // Write whole chronology if ANY of the stamps satisfy conditions
+        MutableIntSet componentNids = IntSets.mutable.empty();
+        filteredStampNids.forEach(stampNid -> PrimitiveData.get().forEachComponentNidOfStamp(stampNid, componentNids::add));
+        MutableIntList conceptNids = IntLists.mutable.empty();
+        MutableIntList semanticNids = IntLists.mutable.empty();
+        MutableIntList patternNids = IntLists.mutable.empty();
+        componentNids.forEach(componentNid -> {
+            switch (EntityService.get().getEntityFast(componentNid)) {
+                case ConceptEntity ignored -> conceptNids.add(componentNid);
+                case SemanticEntity ignored -> semanticNids.add(componentNid);
+                case PatternEntity ignored -> patternNids.add(componentNid);
+                case null, default -> { }
+            }
+        });
+
+        // Aggregate concepts, then semantics, then patterns, as the scan does
+        conceptsAggregatedCount.set(conceptNids.size());
+        conceptNids.sortThis().forEach(nidConsumer::accept);
+        semanticsAggregatedCount.set(semanticNids.size());
+        semanticNids.sortThis().forEach(nidConsumer::accept);
+        patternsAggregatedCount.set(patternNids.size());
+        patternNids.sortThis().forEach(nidConsumer::accept);
+
+        return summarize();
+    }
+
+    private EntityCountSummary aggregateByScan(IntConsumer nidConsumer) {
         initCounts();
         // Filter Stamp Nids based on the supplied time span
         Set<Integer> filteredStampNids = new HashSet<>();
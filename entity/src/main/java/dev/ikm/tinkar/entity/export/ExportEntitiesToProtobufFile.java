@@ -17,6 +17,7 @@
 
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.service.TrackingCallable;
 import dev.ikm.tinkar.entity.*;
 import dev.ikm.tinkar.entity.aggregator.DefaultEntityAggregator;
@@ -30,6 +31,7 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -37,6 +39,9 @@
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
@@ -48,9 +53,11 @@ public class ExportEntitiesToProtobufFile extends TrackingCallable<EntityCountSu
     private final File protobufFile;
     private final EntityToTinkarSchemaTransformer entityTransformer =
             EntityToTinkarSchemaTransformer.getInstance();
-    private final Set<PublicId> moduleList = new HashSet<>();
-    private final Set<PublicId> authorList = new HashSet<>();
+    private static final int ENTITIES_PER_ENTRY = 65_536;
+    private final Set<PublicId> moduleList = ConcurrentHashMap.newKeySet();
+    private final Set<PublicId> authorList = ConcurrentHashMap.newKeySet();
     private final EntityAggregator entityAggregator;
+    private boolean parallel = false;
 
 
     private ExportEntitiesToProtobufFile(File file, EntityAggregator entityAggregator) {
@@ -76,6 +83,20 @@ public ExportEntitiesToProtobufFile(File file, List<PublicId> membershipTags) {
         updateTitle("Tag-Based Export to Protobuf");
     }
 
+    /**
+     * In parallel mode, the aggregated nids are cut into consecutive ranges of up to 65,536 entities that are
+     * fetched, transformed, and serialized concurrently, and each range is written to its own zip entry in
+     * aggregation order. {@link dev.ikm.tinkar.entity.load.LoadEntitiesFromProtobufFile} reads the entries of such
+     * an archive concurrently.
+     *
+     * @param parallel true to export with multiple threads into multiple zip entries
+     * @return this export
+     */
+    public ExportEntitiesToProtobufFile parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
     @Override
     public EntityCountSummary compute() {
         updateMessage("Analyzing Entities...");
@@ -89,33 +110,33 @@ public EntityCountSummary compute() {
              BufferedOutputStream bos = new BufferedOutputStream(fos);
              ZipOutputStream zos = new ZipOutputStream(bos)) {
 
-            // Create a single entry
-            ZipEntry zipEntry = new ZipEntry(protobufFile.getName().replace(".zip", ""));
-            zos.putNextEntry(zipEntry);
-
-            IntConsumer exportNidConsumer = (nid) -> {
-                Entity<? extends EntityVersion> entity = EntityService.get().getEntityFast(nid);
-                // Store Module & Author Dependencies for Manifest
-                if (entity instanceof StampEntity stampEntity) {
-                    moduleList.add(stampEntity.module().publicId());
-                    authorList.add(stampEntity.author().publicId());
-                }
-                // Transform and Write data
-                TinkarMsg pbTinkarMsg = entityTransformer.transform(entity);
-                try {
-                    pbTinkarMsg.writeDelimitedTo(zos);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                completedUnitOfWork();
-            };
+            String entryName = protobufFile.getName().replace(".zip", "");
+            if (parallel) {
+                ParallelEntryWriter entryWriter = new ParallelEntryWriter(zos, entryName);
+                entityCountSummary = entityAggregator.aggregate(entryWriter);
+                entryWriter.finish();
+            } else {
+                // Create a single entry
+                ZipEntry zipEntry = new ZipEntry(entryName);
+                zos.putNextEntry(zipEntry);
 
-            entityCountSummary = entityAggregator.aggregate(exportNidConsumer);
+                IntConsumer exportNidConsumer = (nid) -> {
+                    // Transform and Write data
+                    try {
+                        transform(nid).writeDelimitedTo(zos);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    completedUnitOfWork();
+                };
 
-            zos.closeEntry();
-            zos.flush();
-            LOG.info("Data zipEntry size: " + zipEntry.getSize());
-            LOG.info("Data zipEntry compressed size: " + zipEntry.getCompressedSize());
+                entityCountSummary = entityAggregator.aggregate(exportNidConsumer);
+
+                zos.closeEntry();
+                zos.flush();
+                LOG.info("Data zipEntry size: " + zipEntry.getSize());
+                LOG.info("Data zipEntry compressed size: " + zipEntry.getCompressedSize());
+            }
 
             // Write Manifest File
             ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
@@ -144,6 +165,88 @@ public EntityCountSummary compute() {
         return entityCountSummary;
     }
 
+    private TinkarMsg transform(int nid) {
+        Entity<? extends EntityVersion> entity = EntityService.get().getEntityFast(nid);
+        // Store Module & Author Dependencies for Manifest
+        if (entity instanceof StampEntity stampEntity) {
+            moduleList.add(stampEntity.module().publicId());
+            authorList.add(stampEntity.author().publicId());
+        }
+        return entityTransformer.transform(entity);
+    }
+
+    /**
+     * Collects aggregated nids into ranges, serializes each range on the thread pool, and writes the serialized
+     * ranges to consecutive zip entries in the order they were aggregated. A bounded number of ranges may be
+     * pending at once, so aggregation waits on the oldest range rather than buffering the whole export.
+     */
+    private class ParallelEntryWriter implements IntConsumer {
+        private final ZipOutputStream zos;
+        private final String entryName;
+        private final int maxPendingEntries = TinkExecutor.threadPool().getMaximumPoolSize() * 2;
+        private final ArrayDeque<Future<byte[]>> pendingEntries = new ArrayDeque<>();
+        private int[] nids = new int[ENTITIES_PER_ENTRY];
+        private int nidCount = 0;
+        private int entryCount = 0;
+
+        private ParallelEntryWriter(ZipOutputStream zos, String entryName) {
+            this.zos = zos;
+            this.entryName = entryName;
+        }
+
+        @Override
+        public void accept(int nid) {
+            nids[nidCount++] = nid;
+            if (nidCount == nids.length) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            int[] entryNids = nidCount == nids.length ? nids : Arrays.copyOf(nids, nidCount);
+            nids = new int[ENTITIES_PER_ENTRY];
+            nidCount = 0;
+            if (pendingEntries.size() == maxPendingEntries) {
+                writeOldestEntry();
+            }
+            pendingEntries.add(TinkExecutor.threadPool().submit(() -> serialize(entryNids)));
+        }
+
+        private byte[] serialize(int[] entryNids) throws IOException {
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            for (int nid : entryNids) {
+                transform(nid).writeDelimitedTo(entryBytes);
+                completedUnitOfWork();
+            }
+            return entryBytes.toByteArray();
+        }
+
+        private void writeOldestEntry() {
+            try {
+                byte[] entryBytes = pendingEntries.remove().get();
+                zos.putNextEntry(new ZipEntry(String.format("%s-%05d", entryName, entryCount++)));
+                zos.write(entryBytes);
+                zos.closeEntry();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void finish() throws IOException {
+            if (nidCount > 0) {
+                submit();
+            }
+            while (!pendingEntries.isEmpty()) {
+                writeOldestEntry();
+            }
+            zos.flush();
+            LOG.info("Wrote " + entryCount + " data zip entries");
+        }
+    }
+
     public static String generateManifestContent(long entityCount,
                                            long conceptsCount,
                                            long semanticsCount,
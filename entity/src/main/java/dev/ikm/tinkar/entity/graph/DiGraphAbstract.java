@@ -182,6 +182,15 @@ public int estimatedBytes() {
         return vertexMap.size() * 64;
     }
 
+    protected static int intIntListMapEncodedSize(ImmutableIntObjectMap<ImmutableIntList> map) {
+        // map size, then vertex index and list size for each entry
+        int size = 4 + 8 * map.size();
+        for (ImmutableIntList destinationVertexes : map.values()) {
+            size += 4 * destinationVertexes.size();
+        }
+        return size;
+    }
+
     protected void writeIntIntListMap(ByteBuf byteBuf, ImmutableIntObjectMap<ImmutableIntList> map) {
         byteBuf.writeInt(successorMap().size());
         map.forEachKeyValue((int vertexIndex, ImmutableIntList destinationVertexes) -> {
@@ -195,11 +204,19 @@ public ImmutableIntObjectMap<ImmutableIntList> successorMap() {
         return successorMap;
     }
 
+    protected int vertexMapEncodedSize() {
+        int size = 4;
+        for (V vertexEntity : vertexMap) {
+            size += vertexEntity.encodedSize();
+        }
+        return size;
+    }
+
     protected void writeVertexMap(ByteBuf byteBuf) {
         byteBuf.writeInt(vertexMap.size());
-        vertexMap.forEach(vertexEntity -> {
-            byteBuf.write(vertexEntity.getBytes());
-        });
+        for (V vertexEntity : vertexMap) {
+            vertexEntity.write(byteBuf);
+        }
     }
 
     public final void breadthFirstProcess(int startNid, VertexVisitData vertexVisitData) {
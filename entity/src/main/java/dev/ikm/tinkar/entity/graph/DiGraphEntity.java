@@ -18,7 +18,6 @@
 import dev.ikm.tinkar.component.graph.DiGraph;
 import dev.ikm.tinkar.component.graph.Vertex;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
@@ -31,7 +30,6 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.atomic.AtomicReference;
 
 public class DiGraphEntity<V extends EntityVertex> extends DiGraphAbstract<V> implements DiGraph<V> {
     private static final Logger LOG = LoggerFactory.getLogger(DiGraphEntity.class);
@@ -98,27 +96,27 @@ public ImmutableIntObjectMap<ImmutableIntList> predecessorMap() {
     }
 
     public final byte[] getBytes() {
-        int defaultSize = estimatedBytes();
-        int bufSize = defaultSize;
-        AtomicReference<ByteBuf> byteBufRef =
-                new AtomicReference<>(ByteBufPool.allocate(bufSize));
-        while (true) {
-            try {
-                ByteBuf byteBuf = byteBufRef.get();
-                writeVertexMap(byteBuf);
-                writeIntIntListMap(byteBuf, successorMap());
-                writeIntIntListMap(byteBuf, predecessorMap());
-
-                byteBuf.writeInt(roots.size());
-                roots.forEach(root -> byteBuf.writeInt(root.vertexIndex()));
-                return byteBuf.asArray();
-            } catch (ArrayIndexOutOfBoundsException e) {
-                LOG.info("Tree: " + e.getMessage());
-                byteBufRef.get().recycle();
-                bufSize = bufSize + defaultSize;
-                byteBufRef.set(ByteBufPool.allocate(bufSize));
-            }
-        }
+        byte[] bytes = new byte[encodedSize()];
+        write(ByteBuf.wrapForWriting(bytes));
+        return bytes;
+    }
+
+    /**
+     * @return the number of bytes {@link #write(ByteBuf)} writes for this graph.
+     */
+    public int encodedSize() {
+        // vertexes, successors, predecessors, root count and indexes
+        return vertexMapEncodedSize() + intIntListMapEncodedSize(successorMap()) +
+                intIntListMapEncodedSize(predecessorMap()) + 4 + 4 * roots.size();
+    }
+
+    public void write(ByteBuf byteBuf) {
+        writeVertexMap(byteBuf);
+        writeIntIntListMap(byteBuf, successorMap());
+        writeIntIntListMap(byteBuf, predecessorMap());
+
+        byteBuf.writeInt(roots.size());
+        roots.forEach(root -> byteBuf.writeInt(root.vertexIndex()));
     }
 
     public static class Builder<V extends EntityVertex> {
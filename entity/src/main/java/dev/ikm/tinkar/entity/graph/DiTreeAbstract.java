@@ -19,7 +19,6 @@
 import dev.ikm.tinkar.component.graph.GraphAdaptorFactory;
 import dev.ikm.tinkar.terms.ConceptFacade;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
@@ -41,7 +40,6 @@
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class DiTreeAbstract<V extends EntityVertex> extends DiGraphAbstract<V> implements DiTree<V> {
     private static final Logger LOG = LoggerFactory.getLogger(DiTreeEntity.class);
@@ -95,31 +93,31 @@ public ImmutableIntIntMap predecessorMap() {
     }
 
     public final byte[] getBytes() {
-        int defaultSize = estimatedBytes();
-        int bufSize = defaultSize;
-        AtomicReference<ByteBuf> byteBufRef =
-                new AtomicReference<>(ByteBufPool.allocate(bufSize));
-        while (true) {
-            try {
-                ByteBuf byteBuf = byteBufRef.get();
-                writeVertexMap(byteBuf);
-                writeIntIntListMap(byteBuf, successorMap());
-
-                byteBuf.writeInt(predecessorMap.size());
-                predecessorMap.forEachKeyValue((vertex, predecessor) -> {
-                    byteBuf.writeInt(vertex);
-                    byteBuf.writeInt(predecessor);
-                });
+        byte[] bytes = new byte[encodedSize()];
+        write(ByteBuf.wrapForWriting(bytes));
+        return bytes;
+    }
 
-                byteBuf.writeInt(root.vertexIndex());
-                return byteBuf.asArray();
-            } catch (ArrayIndexOutOfBoundsException e) {
-                LOG.info("Tree: " + e.getMessage());
-                byteBufRef.get().recycle();
-                bufSize = bufSize + defaultSize;
-                byteBufRef.set(ByteBufPool.allocate(bufSize));
-            }
-        }
+    /**
+     * @return the number of bytes {@link #write(ByteBuf)} writes for this tree.
+     */
+    public int encodedSize() {
+        // vertexes, successors, predecessor count and pairs, root index
+        return vertexMapEncodedSize() + intIntListMapEncodedSize(successorMap()) +
+                4 + 8 * predecessorMap.size() + 4;
+    }
+
+    public void write(ByteBuf byteBuf) {
+        writeVertexMap(byteBuf);
+        writeIntIntListMap(byteBuf, successorMap());
+
+        byteBuf.writeInt(predecessorMap.size());
+        predecessorMap.forEachKeyValue((vertex, predecessor) -> {
+            byteBuf.writeInt(vertex);
+            byteBuf.writeInt(predecessor);
+        });
+
+        byteBuf.writeInt(root.vertexIndex());
     }
 
     @Override
@@ -27,7 +27,6 @@
 import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.PatternFacade;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
@@ -46,14 +45,12 @@
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.LongConsumer;
 
 import static dev.ikm.tinkar.entity.EntityRecordFactory.ENTITY_FORMAT_VERSION;
 
 public class EntityVertex implements Vertex, VertexId {
     private static final Logger LOG = LoggerFactory.getLogger(EntityVertex.class);
-    private static final int DEFAULT_SIZE = 64;
     protected long mostSignificantBits;
     protected long leastSignificantBits;
     protected int vertexIndex = -1;
@@ -471,33 +468,40 @@ public void setProperties(MutableIntObjectMap<Object> properties){
     }
 
     public final byte[] getBytes() {
-        int bufSize = DEFAULT_SIZE;
-        AtomicReference<ByteBuf> byteBufRef =
-                new AtomicReference<>(ByteBufPool.allocate(bufSize));
-        while (true) {
-            try {
-                ByteBuf byteBuf = byteBufRef.get();
-                byteBuf.writeLong(mostSignificantBits);
-                byteBuf.writeLong(leastSignificantBits);
-                byteBuf.writeInt(vertexIndex);
-                byteBuf.writeInt(meaningNid);
-                if (properties == null) {
-                    byteBuf.writeInt(0);
-                } else {
-                    byteBuf.writeInt(properties.size());
-                    properties.forEachKeyValue((nid, value) -> {
-                        byteBuf.writeInt(nid);
-                        EntityRecordFactory.writeField(byteBuf, value);
-                    });
-                }
-                return byteBuf.asArray();
-            } catch (ArrayIndexOutOfBoundsException e) {
-                byteBufRef.get().recycle();
-                bufSize = bufSize + DEFAULT_SIZE;
-                LOG.info("Growing Vertex size: " + bufSize);
-                byteBufRef.set(ByteBufPool.allocate(bufSize));
+        byte[] bytes = new byte[encodedSize()];
+        write(ByteBuf.wrapForWriting(bytes));
+        return bytes;
+    }
+
+    /**
+     * @return the number of bytes {@link #write(ByteBuf)} writes for this vertex.
+     */
+    public int encodedSize() {
+        // msb, lsb, vertex index, meaning nid, property count
+        int size = 8 + 8 + 4 + 4 + 4;
+        if (properties != null) {
+            for (Object value : properties.values()) {
+                // property nid
+                size += 4 + EntityRecordFactory.fieldSize(value);
             }
         }
+        return size;
+    }
+
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeLong(mostSignificantBits);
+        byteBuf.writeLong(leastSignificantBits);
+        byteBuf.writeInt(vertexIndex);
+        byteBuf.writeInt(meaningNid);
+        if (properties == null) {
+            byteBuf.writeInt(0);
+        } else {
+            byteBuf.writeInt(properties.size());
+            properties.forEachKeyValue((nid, value) -> {
+                byteBuf.writeInt(nid);
+                EntityRecordFactory.writeField(byteBuf, value);
+            });
+        }
     }
 
     public void setVertexIndex(int vertexIndex) {
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.entity.load;
 
+import com.google.protobuf.CodedInputStream;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
 import dev.ikm.tinkar.common.service.PrimitiveData;
@@ -32,24 +33,65 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 /**
  * The purpose of this class is to successfully load all Protobuf messages from a protobuf file and transform them into entities.
+ * <p>
+ * The import is a pipeline. Read threads read the delimited messages of the data entries as raw bytes and hand
+ * them on in chunks, one thread per entry, so the entries of a multi-entry archive are decompressed concurrently;
+ * parse threads turn each chunk into entities; a single write thread puts the entities of each chunk to the
+ * {@link EntityService}. The write thread puts chunks in archive order, so entities are written in file order, and
+ * stamps are written before the versions that follow them, exactly as a sequential import would. A bounded number
+ * of chunks may be in flight at once, so a slow stage holds back the readers rather than accumulating messages in
+ * memory.
  */
 public class LoadEntitiesFromProtobufFile extends TrackingCallable<EntityCountSummary> {
 
     protected static final Logger LOG = LoggerFactory.getLogger(LoadEntitiesFromProtobufFile.class.getName());
 
+    private static final int MESSAGES_PER_CHUNK = 1024;
+    private static final int PARSE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    private static final int CHUNKS_IN_FLIGHT = PARSE_THREADS * 4;
+    private static final int MAX_READ_THREADS = 4;
+
+    /**
+     * @param entry        position of the data entry in the archive
+     * @param index        position of the chunk in its entry
+     * @param lastOfEntry  true for the final, possibly empty, chunk of an entry
+     * @param permits      in flight permits of the reader of the entry, released once the chunk is written
+     */
+    private record RawChunk(int entry, int index, boolean lastOfEntry, List<byte[]> messages, Semaphore permits) {
+    }
+
+    private record EntityChunk(int entry, int index, boolean lastOfEntry,
+                               List<Entity<? extends EntityVersion>> entities, Semaphore permits) {
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static final RawChunk END_OF_FILE = new RawChunk(-1, -1, true, List.of(), null);
+
     private final TinkarSchemaToEntityTransformer entityTransformer =
             TinkarSchemaToEntityTransformer.getInstance();
     private static final String MANIFEST_RELPATH = "META-INF/MANIFEST.MF";
@@ -59,6 +101,11 @@ public class LoadEntitiesFromProtobufFile extends TrackingCallable<EntityCountSu
     private final AtomicLong importSemanticCount = new AtomicLong();
     private final AtomicLong importPatternCount = new AtomicLong();
     private final AtomicLong importStampCount = new AtomicLong();
+    private final AtomicLong readNanos = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong parseCount = new AtomicLong();
 
     public LoadEntitiesFromProtobufFile(File importFile) {
         super(false, true);
@@ -77,54 +124,29 @@ public EntityCountSummary compute() {
         updateProgress(-1, 1);
         updateMessage("Analyzing Import File...");
 
-        // Analyze Manifest and update tracking callable
-        long expectedImports = analyzeManifest();
-        LOG.info(expectedImports + " Entities to process...");
-        updateProgress(0, expectedImports);
-        updateMessage("Importing Protobuf Data...");
-
-        // Process Protobuf Entry
-        EntityService.get().beginLoadPhase();
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(importFile))) {
-            // Consumer to be run for each transformed Entity
-            Consumer<Entity<? extends  EntityVersion>> entityConsumer = entity -> {
-                    EntityService.get().putEntityQuietly(entity);
-                    updateCounts(entity);
-            };
+        long expectedImports;
+        try (ZipFile zipFile = new ZipFile(importFile)) {
+            // Analyze Manifest and update tracking callable
+            expectedImports = analyzeManifest(zipFile);
+            LOG.info(expectedImports + " Entities to process...");
+            updateProgress(0, expectedImports);
+            updateMessage("Importing Protobuf Data...");
 
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    continue;
-                }
-                while (zis.available() > 0) {
-                    // zis.available returns 1 until AFTER EOF has been reached
-                    // Protobuf parser reads the data UP TO EOF, so zis.available
-                    // will return 1 when the only thing left is EOF
-                    // pbTinkarMsg should be null for this last entry
-                    TinkarMsg pbTinkarMsg = TinkarMsg.parseDelimitedFrom(zis);
-                    if (pbTinkarMsg == null) {
-                        continue;
-                    }
-
-                    // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
-                    entityTransformer.transform(pbTinkarMsg, entityConsumer, (stampEntity) -> {});
-
-                    // Batch progress updates to prevent hanging the UI thread
-                    if (importCount.incrementAndGet() % 1000 == 0) {
-                        updateProgress(importCount.get(), expectedImports);
-                    }
+            // Process Protobuf Entry
+            EntityService.get().beginLoadPhase();
+            try {
+                importEntries(zipFile, expectedImports);
+            } finally {
+                try {
+                    EntityService.get().endLoadPhase();
+                } catch (Exception e) {
+                    LOG.error("Encountered exception {}", e.getMessage());
                 }
             }
         } catch (IOException e) {
             updateTitle("Import Protobuf Data from " + importFile.getName() + " with error(s)");
             throw new RuntimeException(e);
         } finally {
-            try {
-                EntityService.get().endLoadPhase();
-            } catch (Exception e) {
-                LOG.error("Encountered exception {}", e.getMessage());
-            }
             updateMessage("In " + durationString());
             updateProgress(1,1);
         }
@@ -135,6 +157,247 @@ public EntityCountSummary compute() {
         return summarize();
     }
 
+    private void importEntries(ZipFile zipFile, long expectedImports) throws IOException {
+        List<ZipEntry> dataEntries = zipFile.stream()
+                .filter(zipEntry -> !zipEntry.getName().equals(MANIFEST_RELPATH))
+                .map(zipEntry -> (ZipEntry) zipEntry)
+                .toList();
+        int readThreads = Math.max(1, Math.min(MAX_READ_THREADS, dataEntries.size()));
+        // Each reader has its own share of the chunks in flight. The write stage holds chunks that arrive ahead
+        // of the earliest unwritten entry, but the reader of that entry always has permits of its own, so the
+        // pipeline cannot stall waiting for it; the queues hold every chunk that may be in flight.
+        int permitsPerReader = Math.max(1, CHUNKS_IN_FLIGHT / readThreads);
+        BlockingQueue<RawChunk> rawChunks = new ArrayBlockingQueue<>(readThreads * permitsPerReader + PARSE_THREADS);
+        BlockingQueue<EntityChunk> entityChunks = new ArrayBlockingQueue<>(readThreads * permitsPerReader);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger nextEntry = new AtomicInteger();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < readThreads; i++) {
+            readers.add(startStage("Protobuf import read " + i, failure,
+                    () -> readEntries(zipFile, dataEntries, nextEntry, permitsPerReader, rawChunks, failure)));
+        }
+        List<Thread> stages = new ArrayList<>(readers);
+        for (int i = 0; i < PARSE_THREADS; i++) {
+            stages.add(startStage("Protobuf import parse " + i, failure,
+                    () -> parseChunks(rawChunks, entityChunks, failure)));
+        }
+        stages.add(startStage("Protobuf import write", failure,
+                () -> writeChunks(entityChunks, dataEntries.size(), failure, expectedImports)));
+
+        try {
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            int endsOffered = 0;
+            while (endsOffered < PARSE_THREADS && failure.get() == null) {
+                if (rawChunks.offer(END_OF_FILE, 100, TimeUnit.MILLISECONDS)) {
+                    endsOffered++;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stop the stages as if one had failed, and report the interrupt once they have stopped.
+            failure.compareAndSet(null, e);
+        } finally {
+            // Each stage checks the failure flag at least every 100 milliseconds, so all of them stop without
+            // being interrupted, which could close channels they share with the entity service. None may still be
+            // writing when the caller ends the load phase.
+            joinUninterruptibly(stages);
+            logThroughput();
+        }
+        if (failure.get() instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() instanceof IOException ioException) {
+            throw ioException;
+        }
+        throwIfFailed(failure);
+    }
+
+    private static void joinUninterruptibly(List<Thread> stages) {
+        boolean interrupted = false;
+        for (Thread stage : stages) {
+            while (stage.isAlive()) {
+                try {
+                    stage.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readEntries(ZipFile zipFile, List<ZipEntry> dataEntries, AtomicInteger nextEntry,
+                             int permitsPerReader, BlockingQueue<RawChunk> rawChunks,
+                             AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(permitsPerReader);
+        int entry;
+        while (failure.get() == null && (entry = nextEntry.getAndIncrement()) < dataEntries.size()) {
+            try (InputStream in = new BufferedInputStream(zipFile.getInputStream(dataEntries.get(entry)))) {
+                int index = 0;
+                List<byte[]> messages = new ArrayList<>(MESSAGES_PER_CHUNK);
+                long readStart = System.nanoTime();
+                byte[] message;
+                while ((message = readDelimited(in)) != null) {
+                    messages.add(message);
+                    if (messages.size() == MESSAGES_PER_CHUNK) {
+                        readNanos.addAndGet(System.nanoTime() - readStart);
+                        submit(new RawChunk(entry, index++, false, messages, permits), rawChunks, failure);
+                        messages = new ArrayList<>(MESSAGES_PER_CHUNK);
+                        readStart = System.nanoTime();
+                    }
+                }
+                readNanos.addAndGet(System.nanoTime() - readStart);
+                submit(new RawChunk(entry, index, true, messages, permits), rawChunks, failure);
+            }
+        }
+    }
+
+    /**
+     * Reads one length-delimited message, as written by {@code writeDelimitedTo}, without parsing it.
+     *
+     * @return the bytes of the message, or null at the end of the entry
+     */
+    private static byte[] readDelimited(InputStream in) throws IOException {
+        int firstByte = in.read();
+        if (firstByte == -1) {
+            return null;
+        }
+        int size = CodedInputStream.readRawVarint32(firstByte, in);
+        byte[] message = in.readNBytes(size);
+        if (message.length != size) {
+            throw new IOException("Truncated message: expected " + size + " bytes, read " + message.length);
+        }
+        return message;
+    }
+
+    private void submit(RawChunk rawChunk, BlockingQueue<RawChunk> rawChunks,
+                        AtomicReference<Throwable> failure) throws InterruptedException {
+        // Also stops a reader that still has permits, rather than reading the rest of its entry.
+        throwIfFailed(failure);
+        readCount.addAndGet(rawChunk.messages().size());
+        while (!rawChunk.permits().tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            throwIfFailed(failure);
+        }
+        // Cannot block: the queue holds more chunks than may be in flight.
+        rawChunks.put(rawChunk);
+    }
+
+    private Thread startStage(String name, AtomicReference<Throwable> failure, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (InterruptedException e) {
+                // Stages are not interrupted by the import, so stop the others too.
+                failure.compareAndSet(null, e);
+                Thread.currentThread().interrupt();
+            } catch (Throwable th) {
+                failure.compareAndSet(null, th);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void parseChunks(BlockingQueue<RawChunk> rawChunks, BlockingQueue<EntityChunk> entityChunks,
+                             AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+        while (failure.get() == null) {
+            RawChunk rawChunk = rawChunks.poll(100, TimeUnit.MILLISECONDS);
+            if (rawChunk == END_OF_FILE) {
+                return;
+            }
+            if (rawChunk == null) {
+                continue;
+            }
+            long parseStart = System.nanoTime();
+            List<Entity<? extends EntityVersion>> entities = new ArrayList<>(rawChunk.messages().size());
+            for (byte[] message : rawChunk.messages()) {
+                // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
+                entityTransformer.transform(TinkarMsg.parseFrom(message), entities::add, (stampEntity) -> {});
+            }
+            parseNanos.addAndGet(System.nanoTime() - parseStart);
+            parseCount.addAndGet(entities.size());
+            // Cannot block: the queue holds as many chunks as may be in flight.
+            entityChunks.put(new EntityChunk(rawChunk.entry(), rawChunk.index(), rawChunk.lastOfEntry(),
+                    entities, rawChunk.permits()));
+        }
+    }
+
+    private void writeChunks(BlockingQueue<EntityChunk> entityChunks, int entryCount,
+                             AtomicReference<Throwable> failure, long expectedImports) throws InterruptedException {
+        Map<Long, EntityChunk> waitingChunks = new HashMap<>();
+        int nextEntry = 0;
+        int nextIndex = 0;
+        while (failure.get() == null && nextEntry < entryCount) {
+            EntityChunk entityChunk = entityChunks.poll(100, TimeUnit.MILLISECONDS);
+            if (entityChunk == null) {
+                continue;
+            }
+            waitingChunks.put(chunkKey(entityChunk.entry(), entityChunk.index()), entityChunk);
+            while ((entityChunk = waitingChunks.remove(chunkKey(nextEntry, nextIndex))) != null) {
+                long writeStart = System.nanoTime();
+                for (Entity<? extends EntityVersion> entity : entityChunk.entities()) {
+                    EntityService.get().putEntityQuietly(entity);
+                    updateCounts(entity);
+                }
+                writeNanos.addAndGet(System.nanoTime() - writeStart);
+                importCount.addAndGet(entityChunk.entities().size());
+                entityChunk.permits().release();
+                if (entityChunk.lastOfEntry()) {
+                    nextEntry++;
+                    nextIndex = 0;
+                } else {
+                    nextIndex++;
+                }
+                updateProgress(importCount.get(), expectedImports);
+                if (updateIntervalElapsed()) {
+                    updateMessage("Importing Protobuf Data... " + throughputString());
+                }
+            }
+        }
+    }
+
+    private static long chunkKey(int entry, int index) {
+        return ((long) entry << 32) | index;
+    }
+
+    private static void throwIfFailed(AtomicReference<Throwable> failure) {
+        Throwable throwable = failure.get();
+        if (throwable instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+        if (throwable != null) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * @return messages per second of busy time for each stage; parse time is summed over the parse threads
+     */
+    private String throughputString() {
+        return "read: " + perSecond(readCount.get(), readNanos.get()) +
+                "/s, parse: " + perSecond(parseCount.get(), parseNanos.get() / PARSE_THREADS) +
+                "/s, write: " + perSecond(importCount.get(), writeNanos.get()) + "/s";
+    }
+
+    private static long perSecond(long count, long nanos) {
+        if (nanos == 0) {
+            return 0;
+        }
+        return count * 1_000_000_000L / nanos;
+    }
+
+    private void logThroughput() {
+        LOG.info("Protobuf import stage throughput with " + PARSE_THREADS + " parse threads, " + throughputString());
+    }
+
     private void updateCounts(Entity entity){
         switch (entity) {
             case ConceptEntity ignored -> importConceptCount.incrementAndGet();
@@ -161,32 +424,32 @@ protected void initCounts() {
         importSemanticCount.set(0);
         importPatternCount.set(0);
         importStampCount.set(0);
+        readNanos.set(0);
+        parseNanos.set(0);
+        writeNanos.set(0);
+        readCount.set(0);
+        parseCount.set(0);
     }
 
-    private long analyzeManifest() {
+    private long analyzeManifest(ZipFile zipFile) throws IOException {
         long expectedImports = -1;
         Map<PublicId, String> manifestEntryData = new HashMap<>();
 
         // Read Manifest from Zip
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(importFile))) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    Manifest manifest = new Manifest(zis);
-                    expectedImports = Long.parseLong(manifest.getMainAttributes().getValue("Total-Count"));
-                    // Get Dependent Module / Author PublicIds and Descriptions
-                    manifest.getEntries().keySet().forEach((publicIdKey) -> {
-                        PublicId publicId = PublicIds.of(publicIdKey.split(","));
-                        String description = manifest.getEntries().get(publicIdKey).getValue("Description");
-                        manifestEntryData.put(publicId, description);
-                    });
-                }
-                zis.closeEntry();
-                LOG.info(zipEntry.getName() + " zip entry size: " + zipEntry.getSize());
+        ZipEntry manifestEntry = zipFile.getEntry(MANIFEST_RELPATH);
+        if (manifestEntry != null) {
+            try (InputStream in = zipFile.getInputStream(manifestEntry)) {
+                Manifest manifest = new Manifest(in);
+                expectedImports = Long.parseLong(manifest.getMainAttributes().getValue("Total-Count"));
+                // Get Dependent Module / Author PublicIds and Descriptions
+                manifest.getEntries().keySet().forEach((publicIdKey) -> {
+                    PublicId publicId = PublicIds.of(publicIdKey.split(","));
+                    String description = manifest.getEntries().get(publicIdKey).getValue("Description");
+                    manifestEntryData.put(publicId, description);
+                });
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        zipFile.stream().forEach(zipEntry -> LOG.info(zipEntry.getName() + " zip entry size: " + zipEntry.getSize()));
 
         manifestEntryData.keySet().forEach((publicId) -> {
             if (!PrimitiveData.get().hasPublicId(publicId)) {
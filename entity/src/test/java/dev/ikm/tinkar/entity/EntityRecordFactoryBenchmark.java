@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.common.id.IntIds;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.factory.Lists;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass, exactly sized {@link EntityRecordFactory#getBytes(Entity)} with the previous
+ * approach of encoding into oversized pooled buffers and copying. Run {@link #main(String[])} from the test
+ * classpath; it enables the gc profiler, and gc.alloc.rate.norm reports the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityRecordFactoryBenchmark {
+    private static final int LEGACY_ENTITY_SIZE = 32767;
+    private static final int LEGACY_VERSION_SIZE = 16384;
+
+    @Param({"1", "8"})
+    int versionCount;
+
+    SemanticRecord semanticRecord;
+
+    @Setup
+    public void setup() {
+        semanticRecord = semanticRecord(versionCount);
+    }
+
+    @Benchmark
+    public byte[] singlePass() {
+        return EntityRecordFactory.getBytes(semanticRecord);
+    }
+
+    @Benchmark
+    public byte[] legacyCopying() {
+        return legacyBytes(semanticRecord);
+    }
+
+    static SemanticRecord semanticRecord(int versionCount) {
+        UUID uuid = UUID.nameUUIDFromBytes("EntityRecordFactoryBenchmark".getBytes());
+        RecordListBuilder<SemanticVersionRecord> versions = RecordListBuilder.make();
+        SemanticRecord semanticRecord = new SemanticRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                new long[]{1L, 2L}, Integer.MIN_VALUE + 10, Integer.MIN_VALUE + 2, Integer.MIN_VALUE + 3, versions);
+        for (int i = 0; i < versionCount; i++) {
+            versions.add(new SemanticVersionRecord(semanticRecord, Integer.MIN_VALUE + 100 + i,
+                    Lists.immutable.of("Description text, version " + i + " — Überprüfung 𝔘",
+                            i, (long) i << 32, Instant.ofEpochSecond(i, i), true, 1.5f,
+                            IntIds.list.of(Integer.MIN_VALUE + 20, Integer.MIN_VALUE + 21, Integer.MIN_VALUE + 22))));
+        }
+        versions.build();
+        return semanticRecord;
+    }
+
+    /**
+     * The encoding approach replaced by the single pass writer: a fixed size pooled buffer for the chronology and
+     * each version, each copied out with asArray, then copied again into a final buffer.
+     */
+    static byte[] legacyBytes(Entity<? extends EntityVersion> entity) {
+        ByteBuf byteBuf = ByteBufPool.allocate(LEGACY_ENTITY_SIZE);
+        EntityRecordFactory.writeChronology(byteBuf, entity);
+        byte[][] entityArray = new byte[entity.versions().size() + 1][];
+        entityArray[0] = byteBuf.asArray();
+        int chronicleFieldIndex = 1;
+        for (EntityVersion version : entity.versions()) {
+            ByteBuf versionBuf = ByteBufPool.allocate(LEGACY_VERSION_SIZE);
+            EntityRecordFactory.writeVersion(versionBuf, version);
+            entityArray[chronicleFieldIndex++] = versionBuf.asArray();
+        }
+        int totalSize = 4;
+        for (byte[] arrayBytes : entityArray) {
+            totalSize += 4 + arrayBytes.length;
+        }
+        ByteBuf finalByteBuf = ByteBufPool.allocate(totalSize);
+        finalByteBuf.writeInt(entityArray.length);
+        for (byte[] arrayBytes : entityArray) {
+            finalByteBuf.writeInt(arrayBytes.length);
+            finalByteBuf.write(arrayBytes);
+        }
+        return finalByteBuf.asArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EntityRecordFactoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import io.activej.bytebuf.ByteBuf;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityRecordFactoryTest {
+
+    @Test
+    void utf8MatchesStringEncoder() {
+        String[] strings = {"", "ascii", "Überprüfung", "€ and 中文", "pair 𝔘 end", "lone \uD835 high", "lone \uDC18 low", "\uD835"};
+        for (String string : strings) {
+            byte[] expected = string.getBytes(UTF_8);
+            assertEquals(expected.length, EntityRecordFactory.utf8Length(string), string);
+            byte[] written = new byte[4 + expected.length];
+            ByteBuf byteBuf = ByteBuf.wrapForWriting(written);
+            EntityRecordFactory.writeUtf8(byteBuf, string);
+            assertEquals(written.length, byteBuf.tail(), string);
+            ByteBuf readBuf = ByteBuf.wrapForReading(written);
+            assertEquals(expected.length, readBuf.readInt());
+            byte[] encoded = new byte[expected.length];
+            readBuf.read(encoded);
+            assertArrayEquals(expected, encoded, string);
+        }
+    }
+
+    @Test
+    void singlePassMatchesLegacyEncoding() {
+        for (int versionCount : new int[]{0, 1, 5}) {
+            SemanticRecord semanticRecord = EntityRecordFactoryBenchmark.semanticRecord(versionCount);
+            assertArrayEquals(EntityRecordFactoryBenchmark.legacyBytes(semanticRecord),
+                    EntityRecordFactory.getBytes(semanticRecord));
+        }
+    }
+
+    @Test
+    void encodedFieldsDecodeOnDemand() {
+        ImmutableList<Object> fieldValues = Lists.immutable.of("Überprüfung", 7, 11L);
+        int length = 0;
+        for (Object field : fieldValues) {
+            length += EntityRecordFactory.fieldSize(field);
+        }
+        // leading bytes stand in for the rest of the entity
+        byte[] data = new byte[3 + length];
+        ByteBuf byteBuf = ByteBuf.wrapForWriting(data);
+        byteBuf.moveTail(3);
+        for (Object field : fieldValues) {
+            EntityRecordFactory.writeField(byteBuf, field);
+        }
+
+        EncodedFieldList encodedFields = new EncodedFieldList(data, 3, length, fieldValues.size(),
+                EntityRecordFactory.ENTITY_FORMAT_VERSION);
+        assertEquals(3, encodedFields.size());
+        assertFalse(encodedFields.isDecoded());
+
+        SemanticRecord semanticRecord = EntityRecordFactoryBenchmark.semanticRecord(0);
+        byte[] eager = EntityRecordFactory.getBytes(new SemanticVersionRecord(semanticRecord, Integer.MIN_VALUE + 100, fieldValues));
+        byte[] lazy = EntityRecordFactory.getBytes(new SemanticVersionRecord(semanticRecord, Integer.MIN_VALUE + 100, encodedFields));
+        assertArrayEquals(eager, lazy);
+        assertFalse(encodedFields.isDecoded());
+
+        assertEquals("Überprüfung", encodedFields.get(0));
+        assertTrue(encodedFields.isDecoded());
+        assertEquals(fieldValues, encodedFields.castToList());
+    }
+}
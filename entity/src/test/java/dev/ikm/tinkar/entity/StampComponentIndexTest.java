@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StampComponentIndexTest {
+    private static final int STATE_NID = Integer.MIN_VALUE + 1;
+
+    @Test
+    void timeRangeMatchesScan() {
+        StampComponentIndex index = new StampComponentIndex(action -> {
+        });
+        Random random = new Random(17);
+        List<StampRecord> stamps = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int stampNid = Integer.MIN_VALUE + 1_000 + i;
+            // Uncommitted stamps gain their commit time in a later version; some times are shared.
+            stamps.add(i % 10 == 0 ?
+                    stamp(stampNid, Long.MAX_VALUE, 1 + random.nextInt(1_000)) :
+                    stamp(stampNid, 1 + random.nextInt(1_000)));
+        }
+        Collections.shuffle(stamps, random);
+        List<StampRecord> indexed = new ArrayList<>();
+        for (StampRecord stamp : stamps) {
+            index.index(stamp);
+            indexed.add(stamp);
+            if (indexed.size() % 50 == 0) {
+                // Query between writes, so later times are merged into the sorted times.
+                assertRangesMatch(index, indexed, random);
+            }
+        }
+        assertRangesMatch(index, indexed, random);
+        assertArrayEquals(new int[0], stampNidsInRange(index, 1_001, Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void componentsOfStamp() {
+        StampComponentIndex index = new StampComponentIndex(action -> {
+        });
+        int stamp1 = Integer.MIN_VALUE + 10;
+        int stamp2 = Integer.MIN_VALUE + 11;
+        index.index(concept(Integer.MIN_VALUE + 100, stamp1));
+        index.index(concept(Integer.MIN_VALUE + 101, stamp1, stamp2));
+        index.index(concept(Integer.MIN_VALUE + 102, stamp2));
+        // Merging the same versions again does not add them twice.
+        index.index(concept(Integer.MIN_VALUE + 101, stamp2));
+        index.index(stamp(stamp1, 5));
+
+        assertArrayEquals(new int[]{Integer.MIN_VALUE + 100, Integer.MIN_VALUE + 101}, componentNids(index, stamp1));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE + 101, Integer.MIN_VALUE + 102}, componentNids(index, stamp2));
+        assertArrayEquals(new int[0], componentNids(index, Integer.MIN_VALUE + 12));
+    }
+
+    @Test
+    void storedEntitiesIndexedByFirstQuery() throws InterruptedException {
+        int stampNid = Integer.MIN_VALUE + 10;
+        int conceptNid = Integer.MIN_VALUE + 100;
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StampComponentIndex index = new StampComponentIndex(action -> {
+            scanning.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            action.accept(EntityRecordFactory.getBytes(stamp(stampNid, 7)), stampNid);
+            action.accept(EntityRecordFactory.getBytes(concept(conceptNid, stampNid)), conceptNid);
+        });
+        AtomicReference<int[]> firstQuery = new AtomicReference<>();
+        Thread firstQueryThread = Thread.ofVirtual().start(() -> firstQuery.set(stampNidsInRange(index, 7, 7)));
+        assertTrue(scanning.await(30, TimeUnit.SECONDS));
+        // A merge during the scan is indexed too.
+        index.index(concept(conceptNid + 1, stampNid));
+        release.countDown();
+        // A query during the scan waits for it.
+        assertArrayEquals(new int[]{conceptNid, conceptNid + 1}, componentNids(index, stampNid));
+        firstQueryThread.join();
+        assertArrayEquals(new int[]{stampNid}, firstQuery.get());
+    }
+
+    @Test
+    void storeScannedOnce() {
+        int stampNid = Integer.MIN_VALUE + 10;
+        AtomicInteger scans = new AtomicInteger();
+        StampComponentIndex index = new StampComponentIndex(action -> {
+            scans.incrementAndGet();
+            action.accept(EntityRecordFactory.getBytes(stamp(stampNid, 7)), stampNid);
+        });
+        index.index(stamp(stampNid + 1, 8));
+        assertEquals(0, scans.get());
+        assertArrayEquals(new int[]{stampNid, stampNid + 1}, stampNidsInRange(index, 0, 10));
+        assertArrayEquals(new int[]{stampNid}, stampNidsInRange(index, 7, 7));
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    void failedBuildFailsQueries() {
+        StampComponentIndex index = new StampComponentIndex(action -> {
+            throw new IllegalStateException("store closed");
+        });
+        assertThrows(IllegalStateException.class, () -> stampNidsInRange(index, 0, 10));
+        assertThrows(IllegalStateException.class, () -> componentNids(index, Integer.MIN_VALUE + 10));
+    }
+
+    private static void assertRangesMatch(StampComponentIndex index, List<StampRecord> stamps, Random random) {
+        for (int i = 0; i < 20; i++) {
+            long from = random.nextInt(1_100);
+            long to = from + random.nextInt(200);
+            MutableIntSet expected = IntSets.mutable.empty();
+            for (StampRecord stamp : stamps) {
+                for (StampVersionRecord version : stamp.versions()) {
+                    if (version.time() >= from && version.time() <= to) {
+                        expected.add(stamp.nid());
+                    }
+                }
+            }
+            assertArrayEquals(expected.toSortedArray(), stampNidsInRange(index, from, to), from + " to " + to);
+        }
+    }
+
+    private static int[] stampNidsInRange(StampComponentIndex index, long from, long to) {
+        MutableIntSet stampNids = IntSets.mutable.empty();
+        index.forEachStampNidInTimeRange(from, to, stampNid -> assertTrue(stampNids.add(stampNid)));
+        return stampNids.toSortedArray();
+    }
+
+    private static int[] componentNids(StampComponentIndex index, int stampNid) {
+        MutableIntSet componentNids = IntSets.mutable.empty();
+        index.forEachComponentNidOfStamp(stampNid, componentNid -> assertTrue(componentNids.add(componentNid)));
+        return componentNids.toSortedArray();
+    }
+
+    private static StampRecord stamp(int nid, long... times) {
+        RecordListBuilder<StampVersionRecord> versions = RecordListBuilder.make();
+        StampRecord stamp = new StampRecord(nid, nid, null, nid, versions);
+        for (long time : times) {
+            versions.add(new StampVersionRecord(stamp, STATE_NID, time, STATE_NID, STATE_NID, STATE_NID));
+        }
+        versions.build();
+        return stamp;
+    }
+
+    private static ConceptRecord concept(int nid, int... stampNids) {
+        RecordListBuilder<ConceptVersionRecord> versions = RecordListBuilder.make();
+        ConceptRecord concept = new ConceptRecord(nid, nid, null, nid, versions);
+        for (int stampNid : stampNids) {
+            versions.add(new ConceptVersionRecord(concept, stampNid));
+        }
+        versions.build();
+        return concept;
+    }
+}
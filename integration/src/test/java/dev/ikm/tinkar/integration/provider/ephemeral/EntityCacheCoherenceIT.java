@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.ephemeral;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.ConceptRecordBuilder;
+import dev.ikm.tinkar.entity.ConceptVersionRecord;
+import dev.ikm.tinkar.entity.ConceptVersionRecordBuilder;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityRecordFactory;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityCacheCoherenceIT {
+    private static final int VERSION_COUNT = 200;
+    private static final int READER_COUNT = 4;
+
+    @BeforeAll
+    static void beforeAll() {
+        TestHelper.startDataBase(DataStore.EPHEMERAL_STORE);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    @DisplayName("Readers loading an entity never cache it over a concurrent write")
+    public void readersRacingPutEntity() throws InterruptedException {
+        List<StampEntity> stamps = makeStamps(VERSION_COUNT);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        int nid = concept.nid();
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(0)));
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            int readerIndex = i;
+            readers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (writing.get()) {
+                        // One reader keeps invalidating, so the others keep loading from the store.
+                        if (readerIndex == 0) {
+                            EntityService.get().invalidateCaches(nid);
+                        }
+                        Entity<?> entity = EntityService.get().getEntityFast(nid);
+                        assertTrue(entity.versions().size() >= 1);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        try {
+            for (int i = 1; i < VERSION_COUNT; i++) {
+                EntityService.get().putEntity(conceptVersion(concept, stamps.get(i)));
+                int versionCount = EntityService.get().getEntityFast(nid).versions().size();
+                assertTrue(versionCount >= i + 1, "Write " + i + " not visible to the writer: " + versionCount);
+            }
+        } finally {
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        assertTrue(failures.isEmpty(), () -> "Reader failed: " + failures.peek());
+        assertEquals(VERSION_COUNT, EntityService.get().getEntityFast(nid).versions().size());
+    }
+
+    @Test
+    @DisplayName("Subscribers are notified of an edit once the writer flushes")
+    public void subscribersNotifiedOnFlush() {
+        List<StampEntity> stamps = makeStamps(VERSION_COUNT);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        int nid = concept.nid();
+        Set<Integer> notified = ConcurrentHashMap.newKeySet();
+        Subscriber<Integer> subscriber = notified::add;
+        EntityService.get().addSubscriberWithWeakReference(subscriber);
+        try {
+            for (int i = 0; i < VERSION_COUNT; i++) {
+                DataActivity activity = i % 2 == 0 ? DataActivity.SYNCHRONIZABLE_EDIT : DataActivity.LOCAL_EDIT;
+                EntityService.get().putEntity(conceptVersion(concept, stamps.get(i)), activity);
+                EntityService.get().flush();
+                assertTrue(notified.remove(nid), "Write " + i + " not delivered to subscribers after flush");
+            }
+        } finally {
+            EntityService.get().removeSubscriber(subscriber);
+        }
+    }
+
+    @Test
+    @DisplayName("A merge with the written version count but other versions is cached as stored")
+    public void mergeWithSameVersionCount() {
+        StampEntity storedStamp = makeStamps(1).get(0);
+        StampEntity canceledStamp = makeCanceledStamp();
+        StampEntity writtenStamp = makeStamps(1).get(0);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        EntityService.get().putEntity(conceptVersion(concept, storedStamp));
+        EntityService.get().invalidateCaches(concept.nid());
+        // The canceled version is removed and the stored version merged in, so the count is unchanged.
+        EntityService.get().putEntity(conceptVersion(concept, canceledStamp, writtenStamp));
+        assertCachedAsStored(concept.nid());
+        assertEquals(List.of(storedStamp.nid(), writtenStamp.nid()).stream().sorted().toList(),
+                stampNids(EntityService.get().getEntityFast(concept.nid())).stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("A merge with versions written behind the cache is cached as stored")
+    public void mergeWithDivergentVersionCount() {
+        List<StampEntity> stamps = makeStamps(3);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(0)));
+        ConceptEntity behindCache = conceptVersion(concept, stamps.get(1));
+        PrimitiveData.get().merge(concept.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE, behindCache.getBytes(),
+                behindCache, DataActivity.LOCAL_EDIT);
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(2)));
+        assertCachedAsStored(concept.nid());
+        assertEquals(3, EntityService.get().getEntityFast(concept.nid()).versions().size());
+    }
+
+    @Test
+    @DisplayName("Merged versions are cached in the order they are decoded in")
+    public void mergedVersionsInDecodedOrder() {
+        List<StampEntity> stamps = makeStamps(6);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(4), stamps.get(1)));
+        assertCachedAsStored(concept.nid());
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(5), stamps.get(0), stamps.get(3)));
+        assertCachedAsStored(concept.nid());
+        EntityService.get().putEntity(conceptVersion(concept, stamps.get(2), stamps.get(4)));
+        assertCachedAsStored(concept.nid());
+        assertEquals(6, EntityService.get().getEntityFast(concept.nid()).versions().size());
+    }
+
+    @Test
+    @DisplayName("Concurrent writers merging versions of one entity leave it cached as stored")
+    public void concurrentMerges() throws InterruptedException {
+        int writesPerWriter = VERSION_COUNT / READER_COUNT;
+        List<StampEntity> stamps = makeStamps(writesPerWriter * READER_COUNT);
+        EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.newRandom());
+        int nid = concept.nid();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            List<StampEntity> writerStamps = stamps.subList(i * writesPerWriter, (i + 1) * writesPerWriter);
+            writers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (StampEntity stamp : writerStamps) {
+                        EntityService.get().putEntity(conceptVersion(concept, stamp));
+                        assertTrue(stampNids(EntityService.get().getEntityFast(nid)).contains(stamp.nid()),
+                                "Write on " + stamp + " not visible to the writer");
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Writer failed: " + failures.peek());
+        assertCachedAsStored(nid);
+        assertEquals(stamps.size(), EntityService.get().getEntityFast(nid).versions().size());
+    }
+
+    private static void assertCachedAsStored(int nid) {
+        Entity<?> cached = EntityService.get().getEntityFast(nid);
+        Entity<?> stored = EntityRecordFactory.make(PrimitiveData.get().getBytes(nid));
+        assertEquals(stampNids(stored), stampNids(cached));
+        assertArrayEquals(stored.getBytes(), cached.getBytes());
+    }
+
+    private static List<Integer> stampNids(Entity<?> entity) {
+        List<Integer> stampNids = new ArrayList<>();
+        for (EntityVersion version : entity.versions()) {
+            stampNids.add(version.stampNid());
+        }
+        return stampNids;
+    }
+
+    static StampEntity makeCanceledStamp() {
+        Transaction transaction = new Transaction();
+        StampEntity stamp = transaction.getStamp(State.ACTIVE, PrimitiveData.PREMUNDANE_TIME + 1,
+                TinkarTerm.USER.publicId(), TinkarTerm.DEVELOPMENT_MODULE.publicId(),
+                TinkarTerm.DEVELOPMENT_PATH.publicId());
+        transaction.cancel();
+        return stamp;
+    }
+
+    static List<StampEntity> makeStamps(int count) {
+        Transaction transaction = new Transaction();
+        List<StampEntity> stamps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stamps.add(transaction.getStamp(State.ACTIVE, PrimitiveData.PREMUNDANE_TIME + i + 1,
+                    TinkarTerm.USER.publicId(), TinkarTerm.DEVELOPMENT_MODULE.publicId(),
+                    TinkarTerm.DEVELOPMENT_PATH.publicId()));
+        }
+        transaction.commit();
+        return stamps;
+    }
+
+    static ConceptEntity conceptVersion(EntityProxy.Concept concept, StampEntity... stamps) {
+        UUID uuid = concept.publicId().asUuidArray()[0];
+        ConceptRecord conceptRecord = ConceptRecordBuilder.builder()
+                .nid(concept.nid())
+                .leastSignificantBits(uuid.getLeastSignificantBits())
+                .mostSignificantBits(uuid.getMostSignificantBits())
+                .versions(RecordListBuilder.make())
+                .build();
+        RecordListBuilder<ConceptVersionRecord> versions = RecordListBuilder.make();
+        for (StampEntity stamp : stamps) {
+            versions.add(ConceptVersionRecordBuilder.builder()
+                    .chronology(conceptRecord)
+                    .stampNid(stamp.nid())
+                    .build());
+        }
+        return ConceptRecordBuilder.builder(conceptRecord).versions(versions.toImmutable()).build();
+    }
+}
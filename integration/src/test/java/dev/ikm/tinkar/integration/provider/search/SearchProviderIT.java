@@ -17,11 +17,23 @@
 
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.coordinate.Calculators;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
 import dev.ikm.tinkar.integration.TestConstants;
 import dev.ikm.tinkar.integration.helper.DataStore;
 import dev.ikm.tinkar.integration.helper.TestHelper;
 import dev.ikm.tinkar.provider.search.Searcher;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -30,13 +42,16 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class SearchProviderIT {
@@ -123,6 +138,61 @@ public void getDescriptionsIT() {
         );
     }
 
+    @Test
+    public void getPublicIdsIT() {
+        List<StampEntity> stamps = makeStamps(2);
+        // The second version of the last identifier replaces its value, so the first value is retired.
+        EntityService.get().putEntity(identifierSemantic(TinkarTerm.ROLE, stamps, "search-it-1"));
+        EntityService.get().putEntity(identifierSemantic(TinkarTerm.MEANING, stamps, "search-it-2"));
+        EntityService.get().putEntity(identifierSemantic(TinkarTerm.PURPOSE, stamps, "search-it-retired", "search-it-3"));
+
+        PublicId identifierSource = TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER.publicId();
+        Map<String, PublicId> publicIds = Searcher.getPublicIds(identifierSource,
+                List.of("search-it-1", "search-it-2", "search-it-3", "search-it-retired", "search-it-unknown"));
+
+        assertEquals(Map.of(
+                "search-it-1", TinkarTerm.ROLE.publicId(),
+                "search-it-2", TinkarTerm.MEANING.publicId(),
+                "search-it-3", TinkarTerm.PURPOSE.publicId()), publicIds);
+        assertEquals(TinkarTerm.MEANING.publicId(), Searcher.getPublicId(identifierSource, "search-it-2").get());
+        assertFalse(Searcher.getPublicId(identifierSource, "search-it-retired").isPresent());
+        assertFalse(Searcher.getPublicId(TinkarTerm.ROLE.publicId(), "search-it-1").isPresent());
+    }
+
+    private static List<StampEntity> makeStamps(int count) {
+        Transaction transaction = new Transaction();
+        long time = System.currentTimeMillis();
+        List<StampEntity> stamps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stamps.add(transaction.getStamp(State.ACTIVE, time + i, TinkarTerm.USER.publicId(),
+                    TinkarTerm.DEVELOPMENT_MODULE.publicId(), TinkarTerm.DEVELOPMENT_PATH.publicId()));
+        }
+        transaction.commit();
+        return stamps;
+    }
+
+    /**
+     * @return an identifier semantic of the concept from the universally unique identifier source, with a version
+     * for each value on successive stamps
+     */
+    private static SemanticRecord identifierSemantic(EntityProxy.Concept concept, List<StampEntity> stamps,
+                                                     String... values) {
+        PatternEntityVersion identifierPattern = Calculators.View.Default()
+                .latestPatternEntityVersion(TinkarTerm.IDENTIFIER_PATTERN).get();
+        UUID uuid = UUID.randomUUID();
+        RecordListBuilder<SemanticVersionRecord> versions = RecordListBuilder.make();
+        SemanticRecord semantic = new SemanticRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                null, PrimitiveData.nid(uuid), TinkarTerm.IDENTIFIER_PATTERN.nid(), concept.nid(), versions);
+        for (int i = 0; i < values.length; i++) {
+            Object[] fields = new Object[identifierPattern.fieldDefinitions().size()];
+            fields[identifierPattern.indexForMeaning(TinkarTerm.IDENTIFIER_SOURCE)] = TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER;
+            fields[identifierPattern.indexForMeaning(TinkarTerm.IDENTIFIER_VALUE)] = values[i];
+            versions.add(new SemanticVersionRecord(semantic, stamps.get(i).nid(), Lists.immutable.of(fields)));
+        }
+        versions.build();
+        return semantic;
+    }
+
     private void setupSnomedLoincLidrData() {
         File dataStore = new File(System.getProperty("user.home") + "/Solor/snomedLidrLoinc-data-5-6-2024-withCollabData-dev");
         TestHelper.stopDatabase();
@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.websocket;
+
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.provider.websocket.client.DataProviderWebsocketClient;
+import dev.ikm.tinkar.provider.websocket.server.DataProviderWebsocketServer;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpServer;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the websocket server over the ephemeral provider and a client against it in the same process, and checks
+ * the client's answers against the provider's own.
+ */
+class WebsocketClientServerIT {
+    private static final int SAMPLE_SIZE = 500;
+    private static final int CLIENT_THREADS = 8;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private static Eventloop serverEventloop;
+    private static Eventloop clientEventloop;
+    private static AsyncHttpServer server;
+    private static DataProviderWebsocketClient client;
+    private static PrimitiveDataService provider;
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        TestHelper.startDataBase(DataStore.EPHEMERAL_STORE);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        provider = PrimitiveData.get();
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        serverEventloop = startEventloop("Websocket test server");
+        server = AsyncHttpServer.create(serverEventloop, new DataProviderWebsocketServer(provider).servlet())
+                .withListenPort(port);
+        serverEventloop.submit(server::listen).get();
+
+        clientEventloop = startEventloop("Websocket test client");
+        client = new DataProviderWebsocketClient(new URI("ws://127.0.0.1:" + port + "/"), clientEventloop);
+    }
+
+    @AfterAll
+    static void afterAll() throws Exception {
+        client.close();
+        serverEventloop.submit(server::close).get();
+        stopEventloop(clientEventloop);
+        stopEventloop(serverEventloop);
+        TestHelper.stopDatabase();
+    }
+
+    private static Eventloop startEventloop(String name) {
+        Eventloop eventloop = Eventloop.create();
+        eventloop.keepAlive(true);
+        Thread thread = new Thread(eventloop, name);
+        thread.setDaemon(true);
+        thread.start();
+        return eventloop;
+    }
+
+    private static void stopEventloop(Eventloop eventloop) {
+        eventloop.execute(() -> {
+            eventloop.keepAlive(false);
+            eventloop.breakEventloop();
+        });
+    }
+
+    private static int[] sampleConceptNids() {
+        MutableIntList nids = IntLists.mutable.empty();
+        provider.forEachConceptNid(nid -> {
+            if (nids.size() < SAMPLE_SIZE) {
+                nids.add(nid);
+            }
+        });
+        return nids.toArray();
+    }
+
+    @Test
+    @DisplayName("Concurrent requests on one connection each get their own response")
+    public void concurrentRequestsAreMultiplexed() {
+        int[] nids = sampleConceptNids();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(CLIENT_THREADS);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < CLIENT_THREADS; thread++) {
+                    int offset = thread;
+                    futures.add(executor.submit(() -> {
+                        // Each thread walks the sample from a different starting point, so requests for different
+                        // nids are in flight together.
+                        for (int i = 0; i < nids.length; i++) {
+                            int nid = nids[(i + offset * nids.length / CLIENT_THREADS) % nids.length];
+                            UUID[] uuids = Entity.getFast(nid).publicId().asUuidArray();
+                            assertEquals(nid, client.nidForUuids(uuids));
+                            assertTrue(client.hasUuid(uuids[0]));
+                            assertArrayEquals(provider.getBytes(nid), client.getBytes(nid));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Batch operations answer every element in order in one request")
+    public void batchOperations() {
+        int[] sample = sampleConceptNids();
+        int[] nids = new int[sample.length + 1];
+        System.arraycopy(sample, 0, nids, 0, sample.length);
+        // A nid with no entity gets a null.
+        nids[sample.length] = Integer.MAX_VALUE - 1;
+        List<UUID[]> uuidSets = new ArrayList<>();
+        for (int nid : sample) {
+            uuidSets.add(Entity.getFast(nid).publicId().asUuidArray());
+        }
+
+        byte[][] entities = assertTimeoutPreemptively(TIMEOUT, () -> client.getBytes(nids));
+        int[] nidsForUuids = assertTimeoutPreemptively(TIMEOUT, () -> client.nidsForUuids(uuidSets));
+
+        assertEquals(nids.length, entities.length);
+        for (int i = 0; i < sample.length; i++) {
+            assertArrayEquals(provider.getBytes(sample[i]), entities[i], "nid " + sample[i]);
+        }
+        assertNull(entities[sample.length]);
+        assertArrayEquals(sample, nidsForUuids);
+    }
+
+    @Test
+    @DisplayName("Streamed iterations deliver every element of the provider's iteration")
+    public void streamedIterationsMatchProvider() {
+        MutableIntList expectedSemanticNids = IntLists.mutable.empty();
+        provider.forEachSemanticNid(expectedSemanticNids::add);
+        MutableIntList expectedConceptNids = IntLists.mutable.empty();
+        provider.forEachConceptNid(expectedConceptNids::add);
+        MutableIntList expectedEntityNids = IntLists.mutable.empty();
+        provider.forEach((bytes, nid) -> expectedEntityNids.add(nid));
+
+        MutableIntList semanticNids = IntLists.mutable.empty();
+        MutableIntList conceptNids = IntLists.mutable.empty();
+        MutableIntList entityNids = IntLists.mutable.empty();
+        AtomicInteger mismatchedEntities = new AtomicInteger();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            client.forEachSemanticNid(semanticNids::add);
+            client.forEachConceptNid(conceptNids::add);
+            client.forEach((bytes, nid) -> {
+                entityNids.add(nid);
+                // Consumers may make requests of their own while a stream is in progress.
+                if (entityNids.size() % 1000 == 0 && client.getBytes(nid).length != bytes.length) {
+                    mismatchedEntities.incrementAndGet();
+                }
+            });
+        });
+
+        assertEquals(expectedSemanticNids.toSortedList(), semanticNids.toSortedList());
+        assertEquals(expectedConceptNids.toSortedList(), conceptNids.toSortedList());
+        assertEquals(expectedEntityNids.toSortedList(), entityNids.toSortedList());
+        assertEquals(0, mismatchedEntities.get());
+    }
+
+    @Test
+    @DisplayName("A server error fails only its request, and the connection stays usable")
+    public void serverErrorFailsOnlyItsRequest() {
+        int nid = sampleConceptNids()[0];
+        // Bytes the server cannot decode as an entity, so the merge fails before anything is written.
+        IllegalStateException error = assertThrows(IllegalStateException.class, () ->
+                client.merge(nid, Integer.MAX_VALUE, Integer.MAX_VALUE, new byte[]{1, 2, 3}, null,
+                        DataActivity.SYNCHRONIZABLE_EDIT));
+        assertTrue(error.getMessage().contains("failed on server"), error.getMessage());
+
+        assertTimeoutPreemptively(TIMEOUT, () -> assertArrayEquals(provider.getBytes(nid), client.getBytes(nid)));
+    }
+
+    @Test
+    @DisplayName("Closing the connection mid stream ends the stream, and the next request reconnects")
+    public void closeMidStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try {
+                client.forEach((bytes, nid) -> {
+                    delivered.incrementAndGet();
+                    if (closed.compareAndSet(false, true)) {
+                        client.close();
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // Expected unless the whole stream arrived before the close took effect.
+                assertTrue(e.getMessage().contains("closed"), e.getMessage());
+            }
+        });
+        assertTrue(closed.get());
+        assertTrue(delivered.get() > 0);
+
+        int nid = sampleConceptNids()[0];
+        assertTimeoutPreemptively(TIMEOUT, () -> assertArrayEquals(provider.getBytes(nid), client.getBytes(nid)));
+    }
+}
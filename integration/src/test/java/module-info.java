@@ -49,6 +49,10 @@
     requires dev.ikm.tinkar.reasoner.elksnomed;
     requires dev.ikm.tinkar.reasoner.hybrid;
     requires dev.ikm.tinkar.reasoner.service;
+    requires dev.ikm.tinkar.provider.websocket.client;
+    requires dev.ikm.tinkar.provider.websocket.server;
+    requires io.activej.eventloop;
+    requires io.activej.http;
 
     uses CachingService;
     uses DataServiceController;
@@ -0,0 +1,204 @@
+package dev.ikm.tinkar.provider.changeset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the change set log. Each record is the int length of its payload, an int CRC32C of the rest of the
+ * record, a kind byte, the entity's nid, and the payload: the entity as a serialized TinkarMsg. A segment is written
+ * under the ".open" extension and renamed to ".log" when sealed, so a sealed segment is complete, while an open
+ * segment found at startup may end in a torn record and is repaired by {@link #recover(Path)}. The directory is
+ * forced after each create, rename and delete.
+ */
+final class ChangeSetSegment {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeSetSegment.class);
+
+    static final String OPEN_EXTENSION = ".open";
+    static final String SEALED_EXTENSION = ".log";
+    static final int HEADER_SIZE = 13;
+
+    static final byte CONCEPT = 1;
+    static final byte SEMANTIC = 2;
+    static final byte PATTERN = 3;
+    static final byte STAMP = 4;
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(byte kind, int nid, byte[] payload) throws IOException;
+    }
+
+    private final Path openPath;
+    private final Path sealedPath;
+    private final FileChannel channel;
+    private final long createdMillis = System.currentTimeMillis();
+    private long size = 0;
+    private long recordCount = 0;
+    private boolean forced = true;
+
+    /**
+     * @param baseName name of the segment, and of the zip it is compacted into, without extension.
+     */
+    ChangeSetSegment(Path folder, String baseName) throws IOException {
+        this.openPath = folder.resolve(baseName + OPEN_EXTENSION);
+        this.sealedPath = folder.resolve(baseName + SEALED_EXTENSION);
+        this.channel = FileChannel.open(openPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory(folder);
+    }
+
+    static ByteBuffer record(byte kind, int nid, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length);
+        record.putInt(crc(kind, nid, payload));
+        record.put(kind);
+        record.putInt(nid);
+        record.put(payload);
+        return record.flip();
+    }
+
+    private static int crc(byte kind, int nid, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(kind);
+        crc.update(ByteBuffer.allocate(4).putInt(0, nid));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends the records with one gathering write. The records are not durable until {@link #force()}.
+     */
+    void append(List<ByteBuffer> records) throws IOException {
+        ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        long written = 0;
+        while (written < remaining) {
+            written += channel.write(buffers);
+        }
+        size += remaining;
+        recordCount += buffers.length;
+        forced = false;
+    }
+
+    void force() throws IOException {
+        if (!forced) {
+            channel.force(false);
+            forced = true;
+        }
+    }
+
+    boolean forced() {
+        return forced;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long createdMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Forces and closes the segment, and renames it as sealed, or deletes it if nothing was written.
+     */
+    void seal() throws IOException {
+        force();
+        channel.close();
+        if (recordCount == 0) {
+            Files.delete(openPath);
+        } else {
+            Files.move(openPath, sealedPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        syncDirectory(openPath.getParent());
+    }
+
+    /**
+     * Forces the directory's entries to disk, so files created, renamed or deleted in it survive a crash. Skipped
+     * where a directory cannot be opened or forced, as on Windows, which persists entries with the file.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            LOG.debug("Unable to sync directory " + directory, e);
+        }
+    }
+
+    /**
+     * Passes each record of a segment to the consumer, in order, up to the first record that is incomplete or
+     * fails its CRC.
+     *
+     * @return the length of the segment up to the end of the last valid record.
+     */
+    static long forEachRecord(Path segment, RecordConsumer consumer) throws IOException {
+        long fileSize = Files.size(segment);
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (fileSize - validLength >= HEADER_SIZE) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length < 0 || length > fileSize - validLength - HEADER_SIZE) {
+                    break;
+                }
+                byte kind = in.readByte();
+                int nid = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(kind, nid, payload) != crc) {
+                    break;
+                }
+                consumer.accept(kind, nid, payload);
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Seals the segments left open by a process that did not shut down cleanly, truncating each after its last
+     * valid record.
+     */
+    static void recover(Path folder) throws IOException {
+        try (DirectoryStream<Path> openSegments = Files.newDirectoryStream(folder, "*" + OPEN_EXTENSION)) {
+            for (Path openSegment : openSegments) {
+                long fileSize = Files.size(openSegment);
+                long validLength = forEachRecord(openSegment, (kind, nid, payload) -> {
+                });
+                if (validLength < fileSize) {
+                    LOG.warn("Truncating torn change set record at " + validLength + " of " + fileSize +
+                            " bytes in " + openSegment);
+                }
+                if (validLength == 0) {
+                    Files.delete(openSegment);
+                    syncDirectory(folder);
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(openSegment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                    channel.force(true);
+                }
+                String fileName = openSegment.getFileName().toString();
+                Path sealed = openSegment.resolveSibling(
+                        fileName.substring(0, fileName.length() - OPEN_EXTENSION.length()) + SEALED_EXTENSION);
+                Files.move(openSegment, sealed, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(folder);
+                LOG.info("Recovered change set segment " + sealed);
+            }
+        }
+    }
+}
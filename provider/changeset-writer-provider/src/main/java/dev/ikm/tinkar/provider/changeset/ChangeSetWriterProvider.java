@@ -1,34 +1,52 @@
 package dev.ikm.tinkar.provider.changeset;
 
-import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.SaveState;
 import dev.ikm.tinkar.common.service.ServiceKeys;
 import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.util.time.DateTimeUtil;
 import dev.ikm.tinkar.entity.*;
-import dev.ikm.tinkar.entity.export.ExportEntitiesToProtobufFile;
 import dev.ikm.tinkar.entity.transform.EntityToTinkarSchemaTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.LongAdder;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.function.Function;
 
+/**
+ * Writes synchronizable changes to an append-only log of segment files, and compacts sealed segments into change
+ * set zips in the background.
+ * <p>
+ * Writers put their changes on a bounded queue, and block while it is full. A single service thread takes what is
+ * queued, up to a batch, appends the records with one write, and forces them to disk as the {@link FsyncPolicy}
+ * directs. Under the COMMIT policy, writers wait for the force of their batch, so one force is shared by every
+ * change in the batch. A segment is sealed when it reaches its size or age limit, or on {@link #save()}.
+ * <p>
+ * A crash loses at most the changes not yet forced. Segments left open are repaired when the provider starts, and
+ * compacted with the next sealed segment, when the entity service is available to describe their stamps'
+ * modules and authors in the manifest.
+ * <p>
+ * Once {@link #shutdown()} begins, new changes are rejected, and changes still queued when the service thread
+ * stops are failed, so no writer waits on a change that will not be written.
+ */
 public class ChangeSetWriterProvider implements ChangeSetWriterService, SaveState {
     private static final Logger LOG = LoggerFactory.getLogger(ChangeSetWriterProvider.class);
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final long DEFAULT_SEGMENT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 200;
+    private static final long IDLE_POLL_MILLIS = 1000;
+    private static final int BATCH_SIZE = 1024;
 
     private enum STATE {
         INITIALIZING,
         RUNNING,
-        ROTATING,
+        STOPPING,
         STOPPED,
         FAILED
     }
@@ -46,169 +64,296 @@ public static ChangeSetWriterProvider provider() {
         return ChangeSetWriterHolder.INSTANCE;
     }
 
+    /**
+     * A change to write, or, when the entity is null, a checkpoint that seals the current segment and compacts the
+     * sealed ones. Done, if not null, is completed when the change is durable or the checkpoint's compaction ends.
+     *
+     * @param stop true if the service thread stops after the checkpoint.
+     */
+    private record Request(Entity entity, boolean stop, CompletableFuture<Void> done) {
+    }
+
     private final File changeSetFolder;
-    private final AtomicReference<File> zipAtomicReference = new AtomicReference<>();
-    private final LinkedBlockingQueue<Entity> entitiesToWrite = new LinkedBlockingQueue<>();
+    private final Path segmentFolder;
+    private final BlockingQueue<Request> requests;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long segmentBytes;
+    private final long segmentMillis;
+    private final Function<Entity, ByteBuffer> recordEncoder;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("ChangeSetWriterProvider-Compactor").factory());
+    private volatile Throwable failure;
+    // Only used on the service thread.
+    private ChangeSetSegment segment;
+    private long lastForceMillis = System.currentTimeMillis();
+    private int segmentNumber = 0;
 
     private ChangeSetWriterProvider() {
-        Optional<File> optionalDataStoreRoot = ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT);
-        if (optionalDataStoreRoot.isPresent()) {
-            this.changeSetFolder = new File(optionalDataStoreRoot.get(), "changeSets");
-            if (!changeSetFolder.exists()) {
-                changeSetFolder.mkdirs();
-            }
-            newZipFile();
-            startService();
-        } else {
-            throw new IllegalStateException("ServiceKeys.DATA_STORE_ROOT not provided.");
+        this(new File(dataStoreRoot(), "changeSets"),
+                ServiceProperties.get(ServiceKeys.CHANGE_SET_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY),
+                FsyncPolicy.valueOf(ServiceProperties.get(ServiceKeys.CHANGE_SET_FSYNC_POLICY, FsyncPolicy.INTERVAL.name())),
+                ServiceProperties.get(ServiceKeys.CHANGE_SET_FSYNC_INTERVAL_MILLIS, DEFAULT_FSYNC_INTERVAL_MILLIS),
+                ServiceProperties.get(ServiceKeys.CHANGE_SET_SEGMENT_BYTES, DEFAULT_SEGMENT_BYTES),
+                ServiceProperties.get(ServiceKeys.CHANGE_SET_SEGMENT_MILLIS, DEFAULT_SEGMENT_MILLIS),
+                ChangeSetWriterProvider::encode);
+    }
+
+    /**
+     * @param recordEncoder encodes a change as a segment record.
+     */
+    ChangeSetWriterProvider(File changeSetFolder, int queueCapacity, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                            long segmentBytes, long segmentMillis, Function<Entity, ByteBuffer> recordEncoder) {
+        this.changeSetFolder = changeSetFolder;
+        this.segmentFolder = new File(changeSetFolder, "segments").toPath();
+        if (!segmentFolder.toFile().exists()) {
+            segmentFolder.toFile().mkdirs();
         }
+        this.requests = new ArrayBlockingQueue<>(queueCapacity);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.segmentBytes = segmentBytes;
+        this.segmentMillis = segmentMillis;
+        this.recordEncoder = recordEncoder;
+        try {
+            ChangeSetSegment.recover(segmentFolder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        startService();
+    }
+
+    private static File dataStoreRoot() {
+        Optional<File> optionalDataStoreRoot = ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT);
+        return optionalDataStoreRoot.orElseThrow(
+                () -> new IllegalStateException("ServiceKeys.DATA_STORE_ROOT not provided."));
+    }
+
+    private static ByteBuffer encode(Entity entity) {
+        byte kind = switch (entity) {
+            case ConceptEntity ignored -> ChangeSetSegment.CONCEPT;
+            case SemanticEntity ignored -> ChangeSetSegment.SEMANTIC;
+            case PatternEntity ignored -> ChangeSetSegment.PATTERN;
+            case StampEntity ignored -> ChangeSetSegment.STAMP;
+            default -> throw new IllegalStateException("Unexpected value: " + entity);
+        };
+        return ChangeSetSegment.record(kind, entity.nid(),
+                EntityToTinkarSchemaTransformer.getInstance().transform(entity).toByteArray());
     }
 
     @Override
     public void writeToChangeSet(Entity entity, DataActivity activity) {
+        switch (activity) {
+            case SYNCHRONIZABLE_EDIT -> {
+                // TODO: Need to also not write if the database is loading change sets.
+                if (!(entity instanceof StampEntity && entity.equals(StampRecord.nonExistentStamp()))) {
+                    CompletableFuture<Void> committed = fsyncPolicy == FsyncPolicy.COMMIT ? new CompletableFuture<>() : null;
+                    submit(new Request(entity, false, committed));
+                }
+            }
+            case LOADING_CHANGE_SET, INITIALIZE, LOCAL_EDIT, DATA_REPAIR -> {}
+        }
+    }
+
+    private void submit(Request request) {
+        switch (state.get()) {
+            case FAILED -> throw new IllegalStateException("Change set writer failed", failure);
+            case STOPPING -> throw new IllegalStateException("Change set writer is stopping");
+            case RUNNING -> {}
+            default -> startService();
+        }
+        enqueue(request);
+    }
+
+    private void enqueue(Request request) {
         try {
-            switch (activity) {
-                case SYNCHRONIZABLE_EDIT -> this.entitiesToWrite.put(entity);
-                case LOADING_CHANGE_SET, INITIALIZE, LOCAL_EDIT, DATA_REPAIR -> {}
+            while (!requests.offer(request, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (state.get() == STATE.STOPPED) {
+                    throw new IllegalStateException("Change set writer stopped");
+                }
+            }
+            // The service thread sets STOPPED before failing what is left on the queue, so either it fails this
+            // request, or the request is still queued here and is withdrawn.
+            if (state.get() == STATE.STOPPED && requests.remove(request)) {
+                throw new IllegalStateException("Change set writer stopped");
+            }
+            if (request.done() != null) {
+                request.done().get();
             }
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
-    private void newZipFile() {
-        this.zipAtomicReference.accumulateAndGet(null, (prev, x) -> {
-            if (prev == null) {
-                File newFile = new File(changeSetFolder,
-                        DateTimeUtil.nowWithZoneCompact().replace(':', '\uA789') + " ChangeSet.zip");
-                try {
-                    newFile.createNewFile();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                return newFile;
+    private synchronized void startService() {
+        if (state.get() == STATE.RUNNING || state.get() == STATE.FAILED) {
+            return;
+        }
+        // A stopped thread may still be finishing the batch of its stop checkpoint.
+        Thread previous = serviceThread.get();
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
             }
-            return prev;
-        });
+        }
+        state.set(STATE.RUNNING);
+        serviceThread.set(Thread.ofVirtual().name("ChangeSetWriterProvider-ServiceThread").start(this::writeChanges));
     }
 
-    private void startService() {
-        AtomicBoolean deleteZipFile = new AtomicBoolean(false);
-         Thread.ofVirtual().start(() -> {
-            Thread.currentThread().setName("ChangeSetWriterProvider-ServiceThread");
-            serviceThread.set(Thread.currentThread());
-            state.set(STATE.RUNNING);
-            File protobufFile = zipAtomicReference.get();
-            LongAdder entityCount = new LongAdder();
-            LongAdder conceptsCount = new LongAdder();
-            LongAdder semanticsCount = new LongAdder();
-            LongAdder patternsCount = new LongAdder();
-            LongAdder stampsCount = new LongAdder();
-
-            final Set<PublicId> moduleList = new HashSet<>();
-            final Set<PublicId> authorList = new HashSet<>();
-            final EntityToTinkarSchemaTransformer entityTransformer =
-                    EntityToTinkarSchemaTransformer.getInstance();
-
-            try (FileOutputStream fos = new FileOutputStream(protobufFile);
-                 BufferedOutputStream bos = new BufferedOutputStream(fos);
-                 ZipOutputStream zos = new ZipOutputStream(bos)) {
-                // Create a single entry for all changes in this zip file
-                ZipEntry zipEntry = new ZipEntry("Entities");
-                zos.putNextEntry(zipEntry);
-                try {
-                    while (state.get() == STATE.RUNNING) {
-                        Entity entityToWrite = this.entitiesToWrite.take();
-                        if (!entityToWrite.equals(StampRecord.nonExistentStamp())) {
-                            // TODO: Need to also not write if the database is loading change sets.
-                            entityCount.increment();
-                            switch (entityToWrite) {
-                                case ConceptEntity ignored -> conceptsCount.increment();
-                                case SemanticEntity ignored -> semanticsCount.increment();
-                                case PatternEntity ignored -> patternsCount.increment();
-                                case StampEntity stampEntity -> {
-                                    stampsCount.increment();
-                                    // Store Module & Author Dependencies for Manifest
-                                    moduleList.add(stampEntity.module().publicId());
-                                    authorList.add(stampEntity.author().publicId());
-                                }
-                                default -> {
-                                    throw new IllegalStateException("Unexpected value: " + entityToWrite);
-                                }
-                            }
-                            // Transform and write data
-                            entityTransformer.transform(entityToWrite).writeDelimitedTo(zos);
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    // Expected and supported.
+    private void writeChanges() {
+        List<Request> batch = new ArrayList<>(BATCH_SIZE);
+        while (state.get() != STATE.STOPPED) {
+            try {
+                Request first = requests.poll(fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalMillis : IDLE_POLL_MILLIS,
+                        TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    requests.drainTo(batch, BATCH_SIZE - 1);
                 }
-                if (entityCount.sum() > 0) {
-                    LOG.info("Data zipEntry size: " + zipEntry.getSize());
-                    LOG.info("Data zipEntry compressed size: " + zipEntry.getCompressedSize());
-
-                    // Write Manifest File
-                    ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
-                    zos.putNextEntry(manifestEntry);
-                    zos.write(generateManifestContent(entityCount,
-                            conceptsCount,
-                            semanticsCount,
-                            patternsCount,
-                            stampsCount,
-                            moduleList,
-                            authorList).getBytes(StandardCharsets.UTF_8));
-                    zos.closeEntry();
-                    zos.flush();
-                } else {
-                    deleteZipFile.set(true);
+                if (failure != null) {
+                    // Keep failing requests, so no writer waits on a change that will not be written.
+                    batch.forEach(this::fail);
+                    continue;
                 }
-                // Cleanup
-                zos.finish();
-
-            } catch (IOException e) {
+                writeBatch(batch);
+                if (segment != null) {
+                    long now = System.currentTimeMillis();
+                    if (fsyncPolicy == FsyncPolicy.INTERVAL && !segment.forced() && now - lastForceMillis >= fsyncIntervalMillis) {
+                        force();
+                    }
+                    if (now - segment.createdMillis() >= segmentMillis) {
+                        sealSegment();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Requests are only ended by a stop checkpoint.
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Change set writer failed", e);
+                failure = e;
                 state.set(STATE.FAILED);
-                throw new RuntimeException(e);
+                batch.forEach(this::fail);
+            } finally {
+                batch.clear();
+            }
+        }
+        List<Request> unwritten = new ArrayList<>();
+        requests.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            LOG.warn("Change set writer stopped with " + unwritten.size() + " changes unwritten");
+            unwritten.forEach(this::reject);
+        }
+    }
+
+    private void writeBatch(List<Request> batch) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(batch.size());
+        List<CompletableFuture<Void>> committed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            if (request.entity() == null) {
+                append(records);
+                endCheckpoint(request);
+                if (request.stop()) {
+                    // Changes queued behind the stop are not written.
+                    batch.subList(i + 1, batch.size()).forEach(this::reject);
+                    break;
+                }
+            } else {
+                records.add(recordEncoder.apply(request.entity()));
+                if (request.done() != null) {
+                    committed.add(request.done());
+                }
             }
-            if (deleteZipFile.get()) {
-                protobufFile.delete();
+        }
+        append(records);
+        if (fsyncPolicy == FsyncPolicy.COMMIT && segment != null) {
+            force();
+        }
+        committed.forEach(done -> done.complete(null));
+        if (segment != null && segment.size() >= segmentBytes) {
+            sealSegment();
+        }
+    }
+
+    private void append(List<ByteBuffer> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (segment == null) {
+            segment = new ChangeSetSegment(segmentFolder, DateTimeUtil.nowWithZoneCompact().replace(':', '\uA789') +
+                    String.format(" %06d ChangeSet", ++segmentNumber));
+        }
+        segment.append(records);
+        records.clear();
+    }
+
+    private void force() throws IOException {
+        segment.force();
+        lastForceMillis = System.currentTimeMillis();
+    }
+
+    private void endCheckpoint(Request request) throws IOException {
+        CompletableFuture<Void> compacted = sealSegment();
+        if (request.stop()) {
+            state.set(STATE.STOPPED);
+        }
+        compacted.whenComplete((result, e) -> {
+            if (e == null) {
+                request.done().complete(null);
+            } else {
+                request.done().completeExceptionally(e);
             }
         });
     }
 
-    private String generateManifestContent(LongAdder entityCount,
-                                           LongAdder conceptsCount,
-                                           LongAdder semanticsCount,
-                                           LongAdder patternsCount,
-                                           LongAdder stampsCount,
-                                           Set<PublicId> moduleList,
-                                           Set<PublicId> authorList){
-        return ExportEntitiesToProtobufFile.generateManifestContent(entityCount.sum(),
-                conceptsCount.sum(),
-                semanticsCount.sum(),
-                patternsCount.sum(),
-                stampsCount.sum(),
-                moduleList,
-                authorList);
+    /**
+     * Seals the current segment, if any, and compacts it with any other sealed segments in the background.
+     */
+    private CompletableFuture<Void> sealSegment() throws IOException {
+        if (segment != null) {
+            segment.seal();
+            segment = null;
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                SegmentCompactor.compactAll(segmentFolder, changeSetFolder.toPath());
+            } catch (IOException e) {
+                LOG.error("Unable to compact change set segments in " + segmentFolder, e);
+                throw new UncheckedIOException(e);
+            }
+        }, compactor);
+    }
+
+    private void fail(Request request) {
+        if (request.done() != null) {
+            request.done().completeExceptionally(new IllegalStateException("Change set writer failed", failure));
+        }
     }
 
+    private void reject(Request request) {
+        if (request.done() != null) {
+            request.done().completeExceptionally(new IllegalStateException("Change set writer stopped"));
+        }
+    }
+
+    /**
+     * Seals the current segment and waits until every change written before the call has been compacted into a
+     * change set zip.
+     */
     @Override
     public void save() {
-        checkpoint(true);
-     }
+        submit(new Request(null, false, new CompletableFuture<>()));
+    }
 
     @Override
     public void shutdown() {
-        checkpoint(false);
-    }
-
-    private void checkpoint(boolean restart) {
-        switch (serviceThread.get()) {
-            case Thread thread -> thread.interrupt();
-            case null -> {}
-        }
-        if (restart) {
-            // start a new thread with a new file
-            startService();
+        if (state.compareAndSet(STATE.RUNNING, STATE.STOPPING)) {
+            enqueue(new Request(null, true, new CompletableFuture<>()));
         }
     }
 }
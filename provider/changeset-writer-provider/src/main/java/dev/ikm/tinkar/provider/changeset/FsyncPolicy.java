@@ -0,0 +1,20 @@
+package dev.ikm.tinkar.provider.changeset;
+
+/**
+ * When the change set log forces written changes to disk.
+ */
+enum FsyncPolicy {
+    /**
+     * Each batch of changes is forced before the writers of its changes return, so a change is durable once
+     * written. Writers that arrive while a batch is being forced share the next force.
+     */
+    COMMIT,
+    /**
+     * Written changes are forced at most an interval later. A crash may lose the changes of the last interval.
+     */
+    INTERVAL,
+    /**
+     * Changes are only forced when their segment is sealed, leaving the rest to the operating system.
+     */
+    NONE
+}
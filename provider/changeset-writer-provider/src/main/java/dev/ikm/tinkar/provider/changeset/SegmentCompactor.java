@@ -0,0 +1,159 @@
+package dev.ikm.tinkar.provider.changeset;
+
+import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.export.ExportEntitiesToProtobufFile;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites sealed change set log segments as change set zips: one "Entities" entry of delimited TinkarMsgs and a
+ * manifest, the same format {@link ExportEntitiesToProtobufFile} writes. Each zip is written under a temporary name,
+ * forced, and moved into place, and the move is forced before its segment is deleted, so a crash leaves either the
+ * segment or the complete zip, and compacting a segment again only rewrites the same zip. A sealed segment that does
+ * not read back to its full length is kept rather than compacted into a zip missing some of its changes.
+ */
+final class SegmentCompactor {
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentCompactor.class);
+
+    private SegmentCompactor() {
+    }
+
+    /**
+     * Compacts every sealed segment in the folder, oldest first. A segment that cannot be compacted is kept and
+     * does not hold up the others; the first failure is thrown once they are done.
+     */
+    static void compactAll(Path segmentFolder, Path changeSetFolder) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> sealedSegments = Files.newDirectoryStream(segmentFolder,
+                "*" + ChangeSetSegment.SEALED_EXTENSION)) {
+            sealedSegments.forEach(segments::add);
+        }
+        segments.sort(null);
+        IOException failure = null;
+        for (Path segment : segments) {
+            try {
+                compact(segment, changeSetFolder);
+            } catch (IOException e) {
+                LOG.error("Unable to compact change set segment " + segment, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static void compact(Path segment, Path changeSetFolder) throws IOException {
+        String fileName = segment.getFileName().toString();
+        String baseName = fileName.substring(0, fileName.length() - ChangeSetSegment.SEALED_EXTENSION.length());
+        Path zipFile = changeSetFolder.resolve(baseName + ".zip");
+        Path tempFile = changeSetFolder.resolve(baseName + ".zip.tmp");
+        long[] counts = new long[ChangeSetSegment.STAMP + 1];
+        long entityCount = 0;
+        MutableIntSet stampNids = IntSets.mutable.empty();
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream fos = Channels.newOutputStream(channel);
+             BufferedOutputStream bos = new BufferedOutputStream(fos);
+             ZipOutputStream zos = new ZipOutputStream(bos)) {
+            zos.putNextEntry(new ZipEntry("Entities"));
+            long validLength = ChangeSetSegment.forEachRecord(segment, (kind, nid, payload) -> {
+                counts[kind]++;
+                if (kind == ChangeSetSegment.STAMP) {
+                    stampNids.add(nid);
+                }
+                writeDelimited(zos, payload);
+            });
+            long segmentSize = Files.size(segment);
+            if (validLength != segmentSize) {
+                // Sealed segments were forced and truncated to their last record, so this is corruption.
+                throw new IOException("Sealed change set segment " + segment + " has an invalid record at " +
+                        validLength + " of " + segmentSize + " bytes; keeping the segment");
+            }
+            zos.closeEntry();
+
+            entityCount = counts[ChangeSetSegment.CONCEPT] + counts[ChangeSetSegment.SEMANTIC] +
+                    counts[ChangeSetSegment.PATTERN] + counts[ChangeSetSegment.STAMP];
+            if (entityCount > 0) {
+                Set<PublicId> moduleList = new HashSet<>();
+                Set<PublicId> authorList = new HashSet<>();
+                stampNids.forEach(stampNid -> {
+                    Optional<Entity<EntityVersion>> stamp = EntityService.get().getEntity(stampNid);
+                    if (stamp.isPresent() && stamp.get() instanceof StampEntity stampEntity) {
+                        moduleList.add(stampEntity.module().publicId());
+                        authorList.add(stampEntity.author().publicId());
+                    }
+                });
+                zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                zos.write(ExportEntitiesToProtobufFile.generateManifestContent(entityCount,
+                        counts[ChangeSetSegment.CONCEPT],
+                        counts[ChangeSetSegment.SEMANTIC],
+                        counts[ChangeSetSegment.PATTERN],
+                        counts[ChangeSetSegment.STAMP],
+                        moduleList,
+                        authorList).getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+            zos.finish();
+            zos.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        if (entityCount == 0) {
+            Files.delete(tempFile);
+            Files.delete(segment);
+            ChangeSetSegment.syncDirectory(segment.getParent());
+            return;
+        }
+        Files.move(tempFile, zipFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ChangeSetSegment.syncDirectory(changeSetFolder);
+        Files.delete(segment);
+        ChangeSetSegment.syncDirectory(segment.getParent());
+        LOG.info("Compacted change set segment into " + zipFile);
+    }
+
+    /**
+     * Writes the message with a varint length prefix, as protobuf's writeDelimitedTo does.
+     */
+    private static void writeDelimited(OutputStream out, byte[] message) throws IOException {
+        int length = message.length;
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(message);
+    }
+}
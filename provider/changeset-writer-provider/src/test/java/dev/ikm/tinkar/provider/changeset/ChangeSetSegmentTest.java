@@ -0,0 +1,79 @@
+package dev.ikm.tinkar.provider.changeset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSetSegmentTest {
+
+    @Test
+    void recoverTruncatesTornTail(@TempDir Path folder) throws IOException {
+        ByteBuffer first = ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 1, new byte[]{1, 2, 3});
+        ByteBuffer second = ChangeSetSegment.record(ChangeSetSegment.SEMANTIC, 2, new byte[]{4, 5});
+        ByteBuffer torn = ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 3, new byte[]{6, 7, 8, 9});
+        // A crash in the middle of the last record's write.
+        torn.limit(torn.limit() - 2);
+        long validLength = first.remaining() + second.remaining();
+        ChangeSetSegment segment = new ChangeSetSegment(folder, "segment");
+        segment.append(List.of(first, second, torn));
+        segment.force();
+
+        ChangeSetSegment.recover(folder);
+
+        Path sealed = folder.resolve("segment" + ChangeSetSegment.SEALED_EXTENSION);
+        assertFalse(Files.exists(folder.resolve("segment" + ChangeSetSegment.OPEN_EXTENSION)));
+        assertEquals(validLength, Files.size(sealed));
+        List<Integer> nids = new ArrayList<>();
+        assertEquals(validLength, ChangeSetSegment.forEachRecord(sealed, (kind, nid, payload) -> nids.add(nid)));
+        assertEquals(List.of(1, 2), nids);
+    }
+
+    @Test
+    void recoverDeletesSegmentWithoutValidRecords(@TempDir Path folder) throws IOException {
+        ByteBuffer torn = ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 1, new byte[]{1, 2, 3});
+        torn.limit(ChangeSetSegment.HEADER_SIZE - 1);
+        ChangeSetSegment segment = new ChangeSetSegment(folder, "segment");
+        segment.append(List.of(torn));
+        segment.force();
+
+        ChangeSetSegment.recover(folder);
+
+        assertFalse(Files.exists(folder.resolve("segment" + ChangeSetSegment.OPEN_EXTENSION)));
+        assertFalse(Files.exists(folder.resolve("segment" + ChangeSetSegment.SEALED_EXTENSION)));
+    }
+
+    @Test
+    void crcMismatchEndsRecords(@TempDir Path folder) throws IOException {
+        ByteBuffer first = ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 1, new byte[]{1, 2, 3});
+        ByteBuffer second = ChangeSetSegment.record(ChangeSetSegment.STAMP, 2, new byte[]{4, 5});
+        long firstLength = first.remaining();
+        ChangeSetSegment segment = new ChangeSetSegment(folder, "segment");
+        segment.append(List.of(first, second));
+        segment.seal();
+        Path sealed = folder.resolve("segment" + ChangeSetSegment.SEALED_EXTENSION);
+        flipLastByte(sealed);
+
+        List<Integer> nids = new ArrayList<>();
+        assertEquals(firstLength, ChangeSetSegment.forEachRecord(sealed, (kind, nid, payload) -> nids.add(nid)));
+        assertEquals(List.of(1), nids);
+    }
+
+    static void flipLastByte(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = raf.length() - 1;
+            raf.seek(position);
+            byte original = raf.readByte();
+            raf.seek(position);
+            raf.writeByte(original ^ 0xFF);
+        }
+    }
+}
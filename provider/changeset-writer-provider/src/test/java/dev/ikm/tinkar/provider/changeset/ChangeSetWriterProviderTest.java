@@ -0,0 +1,80 @@
+package dev.ikm.tinkar.provider.changeset;
+
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import org.eclipse.collections.api.factory.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSetWriterProviderTest {
+    private static final int WRITER_COUNT = 8;
+    private static final int WRITES_PER_WRITER = 50;
+
+    @Test
+    void commitWritersReturnOnceTheirBatchIsForced(@TempDir Path changeSetFolder) throws Exception {
+        ChangeSetWriterProvider provider = new ChangeSetWriterProvider(changeSetFolder.toFile(), 16,
+                FsyncPolicy.COMMIT, 200, Long.MAX_VALUE, TimeUnit.HOURS.toMillis(1),
+                entity -> ChangeSetSegment.record(ChangeSetSegment.CONCEPT, entity.nid(),
+                        SegmentCompactorTest.conceptMessage(new UUID(entity.mostSignificantBits(),
+                                entity.leastSignificantBits())).toByteArray()));
+        AtomicInteger nextNid = new AtomicInteger(1);
+        AtomicLong written = new AtomicLong();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            List<Thread> writers = new ArrayList<>();
+            for (int i = 0; i < WRITER_COUNT; i++) {
+                writers.add(Thread.ofPlatform().start(() -> {
+                    for (int j = 0; j < WRITES_PER_WRITER; j++) {
+                        UUID uuid = UUID.randomUUID();
+                        provider.writeToChangeSet(new ConceptRecord(uuid.getMostSignificantBits(),
+                                uuid.getLeastSignificantBits(), null, nextNid.getAndIncrement(),
+                                Lists.immutable.empty()), DataActivity.SYNCHRONIZABLE_EDIT);
+                        written.incrementAndGet();
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        });
+        long expected = (long) WRITER_COUNT * WRITES_PER_WRITER;
+        assertEquals(expected, written.get());
+        // Each writer returned after the force of its batch, so every change is in the open segment.
+        assertEquals(expected, recordsIn(changeSetFolder.resolve("segments"), ChangeSetSegment.OPEN_EXTENSION));
+
+        provider.shutdown();
+
+        assertEquals(0, recordsIn(changeSetFolder.resolve("segments"), ChangeSetSegment.OPEN_EXTENSION));
+        try (DirectoryStream<Path> zips = Files.newDirectoryStream(changeSetFolder, "*.zip")) {
+            long compacted = 0;
+            for (Path zip : zips) {
+                compacted += SegmentCompactorTest.readZip(zip, expected).size();
+            }
+            assertEquals(expected, compacted);
+        }
+    }
+
+    private static long recordsIn(Path segmentFolder, String extension) throws IOException {
+        AtomicLong records = new AtomicLong();
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(segmentFolder, "*" + extension)) {
+            for (Path segment : segments) {
+                ChangeSetSegment.forEachRecord(segment, (kind, nid, payload) -> records.incrementAndGet());
+            }
+        }
+        return records.get();
+    }
+}
@@ -0,0 +1,93 @@
+package dev.ikm.tinkar.provider.changeset;
+
+import dev.ikm.tinkar.schema.ConceptChronology;
+import dev.ikm.tinkar.schema.PublicId;
+import dev.ikm.tinkar.schema.TinkarMsg;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentCompactorTest {
+
+    @Test
+    void compactsSegmentIntoImportableZip(@TempDir Path changeSetFolder) throws IOException {
+        Path segmentFolder = Files.createDirectories(changeSetFolder.resolve("segments"));
+        List<TinkarMsg> messages = new ArrayList<>();
+        List<ByteBuffer> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            TinkarMsg message = conceptMessage(UUID.randomUUID());
+            messages.add(message);
+            records.add(ChangeSetSegment.record(ChangeSetSegment.CONCEPT, i + 1, message.toByteArray()));
+        }
+        ChangeSetSegment segment = new ChangeSetSegment(segmentFolder, "segment");
+        segment.append(records);
+        segment.seal();
+
+        SegmentCompactor.compactAll(segmentFolder, changeSetFolder);
+
+        assertFalse(Files.exists(segmentFolder.resolve("segment" + ChangeSetSegment.SEALED_EXTENSION)));
+        assertFalse(Files.exists(changeSetFolder.resolve("segment.zip.tmp")));
+        Path zip = changeSetFolder.resolve("segment.zip");
+        assertEquals(messages, readZip(zip, 3));
+    }
+
+    @Test
+    void corruptSealedSegmentIsKept(@TempDir Path changeSetFolder) throws IOException {
+        Path segmentFolder = Files.createDirectories(changeSetFolder.resolve("segments"));
+        ChangeSetSegment segment = new ChangeSetSegment(segmentFolder, "segment");
+        segment.append(List.of(
+                ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 1, conceptMessage(UUID.randomUUID()).toByteArray()),
+                ChangeSetSegment.record(ChangeSetSegment.CONCEPT, 2, conceptMessage(UUID.randomUUID()).toByteArray())));
+        segment.seal();
+        Path sealed = segmentFolder.resolve("segment" + ChangeSetSegment.SEALED_EXTENSION);
+        ChangeSetSegmentTest.flipLastByte(sealed);
+
+        assertThrows(IOException.class, () -> SegmentCompactor.compactAll(segmentFolder, changeSetFolder));
+
+        assertTrue(Files.exists(sealed));
+        assertFalse(Files.exists(changeSetFolder.resolve("segment.zip")));
+        assertFalse(Files.exists(changeSetFolder.resolve("segment.zip.tmp")));
+    }
+
+    static TinkarMsg conceptMessage(UUID uuid) {
+        return TinkarMsg.newBuilder()
+                .setConceptChronology(ConceptChronology.newBuilder()
+                        .setPublicId(PublicId.newBuilder().addUuids(uuid.toString()).build())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Reads a change set zip the way the protobuf importer does: the entity count from the manifest, and
+     * length-delimited messages from every other entry.
+     */
+    static List<TinkarMsg> readZip(Path zip, long expectedCount) throws IOException {
+        List<TinkarMsg> messages = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/MANIFEST.MF"))) {
+                Manifest manifest = new Manifest(in);
+                assertEquals(Long.toString(expectedCount), manifest.getMainAttributes().getValue("Total-Count"));
+            }
+            try (InputStream in = new BufferedInputStream(zipFile.getInputStream(zipFile.getEntry("Entities")))) {
+                TinkarMsg message;
+                while ((message = TinkarMsg.parseDelimitedFrom(in)) != null) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+}
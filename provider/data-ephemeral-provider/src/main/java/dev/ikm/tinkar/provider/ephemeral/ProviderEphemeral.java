@@ -16,14 +16,17 @@
 package dev.ikm.tinkar.provider.ephemeral;
 
 import dev.ikm.tinkar.collection.KeyType;
+import dev.ikm.tinkar.collection.NidRoaringSetMap;
 import dev.ikm.tinkar.collection.SpinedIntIntMapAtomic;
+import dev.ikm.tinkar.collection.SpinedNidBitSet;
+import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.*;
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
 import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.entity.ConceptEntity;
 import dev.ikm.tinkar.entity.PatternEntity;
 import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.StampComponentIndex;
 import dev.ikm.tinkar.entity.StampEntity;
 import dev.ikm.tinkar.provider.search.Indexer;
 import dev.ikm.tinkar.provider.search.Searcher;
@@ -39,7 +42,6 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
@@ -58,13 +60,14 @@ public class ProviderEphemeral implements PrimitiveDataService, NidGenerator {
      * Using "citing" instead of "referencing" to make the field names more distinct.
      */
     final ConcurrentHashMap<Integer, long[]> nidToCitingComponentsNidMap = ConcurrentHashMap.newMap();
-    final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Integer>> patternToElementNidsMap = ConcurrentHashMap.newMap();
+    final NidRoaringSetMap patternToElementNidsMap = new NidRoaringSetMap();
     final Indexer indexer;
     final Searcher searcher;
-    final ConcurrentHashSet<Integer> patternNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> conceptNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> semanticNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> stampNids = new ConcurrentHashSet();
+    final StampComponentIndex stampComponentIndex = new StampComponentIndex(this);
+    final SpinedNidBitSet patternNids = new SpinedNidBitSet();
+    final SpinedNidBitSet conceptNids = new SpinedNidBitSet();
+    final SpinedNidBitSet semanticNids = new SpinedNidBitSet();
+    final SpinedNidBitSet stampNids = new SpinedNidBitSet();
     private final ConcurrentHashMap<Integer, byte[]> nidComponentMap = ConcurrentHashMap.newMap();
     private final ConcurrentHashMap<UUID, Integer> uuidNidMap = new ConcurrentHashMap<>();
     private final AtomicInteger nextNid = new AtomicInteger(PrimitiveDataService.FIRST_NID);
@@ -165,7 +168,7 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
                     long citationLong = IntsInLong.ints2Long(nid, patternNid);
                     this.nidToCitingComponentsNidMap.merge(referencedComponentNid, new long[]{citationLong},
                             PrimitiveDataService::mergeCitations);
-                    this.patternToElementNidsMap.getIfAbsentPut(nid, () -> new ConcurrentSkipListSet<>()).add(nid);
+                    this.patternToElementNidsMap.add(patternNid, nid);
                 }
             }
         }
@@ -181,6 +184,7 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
         byte[] mergedBytes = nidComponentMap.merge(nid, value, PrimitiveDataService::merge);
         writeSequence.increment();
         indexer.index(sourceObject);
+        this.stampComponentIndex.index(sourceObject);
         return mergedBytes;
     }
 
@@ -189,33 +193,35 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return this.searcher.search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize,
+                                              IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        return this.searcher.search(query, maxResultSize, referencedComponentNids, patternNids);
+    }
+
     @Override
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
-        nidToPatternNidMap.forEach((nid, setNid) -> {
-            if (patternNid == setNid) {
-                procedure.accept(nid);
-            }
-        });
+        patternToElementNidsMap.forEach(patternNid, procedure);
     }
 
     @Override
     public void forEachPatternNid(IntProcedure procedure) {
-        this.patternNids.forEach(procedure::accept);
+        this.patternNids.forEach(procedure);
     }
 
     @Override
     public void forEachConceptNid(IntProcedure procedure) {
-        this.conceptNids.forEach(procedure::accept);
+        this.conceptNids.forEach(procedure);
     }
 
     @Override
     public void forEachStampNid(IntProcedure procedure) {
-        this.stampNids.forEach(procedure::accept);
+        this.stampNids.forEach(procedure);
     }
 
     @Override
     public void forEachSemanticNid(IntProcedure procedure) {
-        this.semanticNids.forEach(procedure::accept);
+        this.semanticNids.forEach(procedure);
     }
 
     @Override
@@ -229,6 +235,16 @@ public void forEachSemanticNidForComponent(int componentNid, IntProcedure proced
         }
     }
 
+    @Override
+    public void forEachStampNidInTimeRange(long fromEpochMillis, long toEpochMillis, IntProcedure procedure) {
+        this.stampComponentIndex.forEachStampNidInTimeRange(fromEpochMillis, toEpochMillis, procedure);
+    }
+
+    @Override
+    public void forEachComponentNidOfStamp(int stampNid, IntProcedure procedure) {
+        this.stampComponentIndex.forEachComponentNidOfStamp(stampNid, procedure);
+    }
+
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
         long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
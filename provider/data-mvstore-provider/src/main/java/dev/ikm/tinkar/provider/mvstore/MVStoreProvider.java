@@ -15,12 +15,14 @@
  */
 package dev.ikm.tinkar.provider.mvstore;
 
+import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.*;
 import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.StampComponentIndex;
 import dev.ikm.tinkar.provider.mvstore.internal.Get;
 import dev.ikm.tinkar.provider.mvstore.internal.Put;
 import dev.ikm.tinkar.provider.search.Indexer;
@@ -67,6 +69,7 @@ public class MVStoreProvider implements PrimitiveDataService, NidGenerator {
     final MVMap<Integer, int[]> patternToElementNidsMap;
     final Indexer indexer;
     final Searcher searcher;
+    final StampComponentIndex stampComponentIndex = new StampComponentIndex(this);
     final String name;
     protected LongAdder writeSequence = new LongAdder();
     ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Integer>> patternElementNidsMap = ConcurrentHashMap.newMap();
@@ -113,6 +116,8 @@ public MVStoreProvider() throws IOException {
         File indexDir = new File(configuredRoot, "lucene");
         this.indexer = new Indexer(indexDir.toPath());
         this.searcher = new Searcher();
+        this.indexer.reindexIfStale(procedure -> patternElementNidsMap.forEachValue(elementNids ->
+                elementNids.keySet().forEach(procedure::value)), this::getBytes);
     }
 
     public boolean addToElementSet(int patternNid, int elementNid) {
@@ -224,6 +229,7 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
         byte[] mergedBytes = nidToComponentMap.merge(nid, value, PrimitiveDataService::merge);
         writeSequence.increment();
         this.indexer.index(sourceObject);
+        this.stampComponentIndex.index(sourceObject);
         return mergedBytes;
     }
 
@@ -232,6 +238,12 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return this.searcher.search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize,
+                                              IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        return this.searcher.search(query, maxResultSize, referencedComponentNids, patternNids);
+    }
+
     @Override
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
         Set<Integer> elementNids = getElementNidsForPatternNid(patternNid);
@@ -286,6 +298,16 @@ public void forEachSemanticNidForComponent(int componentNid, IntProcedure proced
         }
     }
 
+    @Override
+    public void forEachStampNidInTimeRange(long fromEpochMillis, long toEpochMillis, IntProcedure procedure) {
+        this.stampComponentIndex.forEachStampNidInTimeRange(fromEpochMillis, toEpochMillis, procedure);
+    }
+
+    @Override
+    public void forEachComponentNidOfStamp(int stampNid, IntProcedure procedure) {
+        this.stampComponentIndex.forEachComponentNidOfStamp(stampNid, procedure);
+    }
+
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
         long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.provider.spinedarray;
 
+import dev.ikm.tinkar.collection.SpineFileUtil;
 
 import dev.ikm.tinkar.collection.store.ByteArrayArrayStore;
 import org.slf4j.Logger;
@@ -77,20 +78,22 @@ public void put(int spineIndex, AtomicReferenceArray<byte[][]> spine) {
         String spineKey = SPINE_PREFIX + spineIndex;
         File spineFile = new File(directory, spineKey);
         diskSemaphore.acquireUninterruptibly();
-        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
-            dos.writeInt(spine.length());
-            for (int i = 0; i < spine.length(); i++) {
-                byte[][] value = spine.get(i);
-                if (value == null) {
-                    dos.writeInt(0);
-                } else {
-                    dos.writeInt(value.length);
-                    for (byte[] valuePart : value) {
-                        dos.writeInt(valuePart.length);
-                        dos.write(valuePart);
+        try {
+            SpineFileUtil.writeAtomically(spineFile, dos -> {
+                dos.writeInt(spine.length());
+                for (int i = 0; i < spine.length(); i++) {
+                    byte[][] value = spine.get(i);
+                    if (value == null) {
+                        dos.writeInt(0);
+                    } else {
+                        dos.writeInt(value.length);
+                        for (byte[] valuePart : value) {
+                            dos.writeInt(valuePart.length);
+                            dos.write(valuePart);
+                        }
                     }
                 }
-            }
+            });
         } catch (IOException ex) {
             LOG.error(ex.getLocalizedMessage(), ex);
         } finally {
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.provider.spinedarray;
 
+import dev.ikm.tinkar.collection.SpineFileUtil;
 import dev.ikm.tinkar.collection.store.ByteArrayStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,17 +74,19 @@ public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
         String spineKey = SPINE_PREFIX + spineIndex;
         File spineFile = new File(directory, spineKey);
         diskSemaphore.acquireUninterruptibly();
-        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
-            dos.writeInt(spine.length());
-            for (int i = 0; i < spine.length(); i++) {
-                byte[] value = spine.get(i);
-                if (value == null) {
-                    dos.writeInt(0);
-                } else {
-                    dos.writeInt(value.length);
-                    dos.write(value);
+        try {
+            SpineFileUtil.writeAtomically(spineFile, dos -> {
+                dos.writeInt(spine.length());
+                for (int i = 0; i < spine.length(); i++) {
+                    byte[] value = spine.get(i);
+                    if (value == null) {
+                        dos.writeInt(0);
+                    } else {
+                        dos.writeInt(value.length);
+                        dos.write(value);
+                    }
                 }
-            }
+            });
         } catch (IOException ex) {
             LOG.error(ex.getLocalizedMessage(), ex);
         } finally {
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.collection.SpineFileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * The last completed checkpoint of the spined array provider. Written atomically after every spine and index of
+ * the checkpoint is on disk, so the write-ahead log generation it names is the first one that must be replayed.
+ *
+ * @param generation     incremented by each checkpoint.
+ * @param walGeneration  first write-ahead log generation not covered by the checkpoint.
+ * @param checkpointTime epoch milliseconds when the checkpoint completed.
+ */
+public record CheckpointManifest(long generation, long walGeneration, long checkpointTime) {
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointManifest.class);
+    public static final String FILE_NAME = "manifest";
+    static final int MAGIC = 0x534D4E46; // "SMNF"
+    static final int FORMAT_VERSION = 1;
+    public static final CheckpointManifest EMPTY = new CheckpointManifest(0, 0, 0);
+
+    /**
+     * @return the manifest, or {@link #EMPTY} if there is none yet or it cannot be read.
+     */
+    public static CheckpointManifest read(File directory) {
+        File manifestFile = new File(directory, FILE_NAME);
+        if (!manifestFile.exists()) {
+            return EMPTY;
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)))) {
+            int magic = dis.readInt();
+            int formatVersion = dis.readInt();
+            long generation = dis.readLong();
+            long walGeneration = dis.readLong();
+            long checkpointTime = dis.readLong();
+            long crc = dis.readLong();
+            CheckpointManifest manifest = new CheckpointManifest(generation, walGeneration, checkpointTime);
+            if (magic != MAGIC || formatVersion != FORMAT_VERSION || crc != manifest.checksum()) {
+                LOG.warn("Ignoring unreadable checkpoint manifest: " + manifestFile.getAbsolutePath());
+                return EMPTY;
+            }
+            return manifest;
+        } catch (IOException ex) {
+            LOG.warn("Ignoring unreadable checkpoint manifest: " + manifestFile.getAbsolutePath(), ex);
+            return EMPTY;
+        }
+    }
+
+    public CheckpointManifest next(long walGeneration) {
+        return new CheckpointManifest(generation + 1, walGeneration, System.currentTimeMillis());
+    }
+
+    public void write(File directory) throws IOException {
+        SpineFileUtil.writeAtomically(new File(directory, FILE_NAME), dos -> {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeLong(generation);
+            dos.writeLong(walGeneration);
+            dos.writeLong(checkpointTime);
+            dos.writeLong(checksum());
+        });
+    }
+
+    private long checksum() {
+        CRC32 crc32 = new CRC32();
+        crc32.update(ByteBuffer.allocate(24).putLong(generation).putLong(walGeneration).putLong(checkpointTime).flip());
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.collection.NidRoaringSetMap;
+import dev.ikm.tinkar.collection.SpinedNidBitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists the pattern, concept, semantic, and stamp nid sets, and the pattern to semantic nids map, that the
+ * spined array provider would otherwise rebuild by scanning every stored entity on startup. The file ends with a
+ * CRC32 of its contents; a missing or mismatched checksum causes {@link #read()} to return false so the caller
+ * can fall back to the full scan.
+ */
+public class ComponentNidIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(ComponentNidIndex.class);
+    public static final String INDEX_FILE_NAME = "componentNidIndex";
+    static final int MAGIC = 0x434E4958; // "CNIX"
+    static final int FORMAT_VERSION = 2;
+
+    private final File indexFile;
+    private final SpinedNidBitSet patternNids;
+    private final SpinedNidBitSet conceptNids;
+    private final SpinedNidBitSet semanticNids;
+    private final SpinedNidBitSet stampNids;
+    private final NidRoaringSetMap patternElementNidsMap;
+
+    public ComponentNidIndex(File directory,
+                             SpinedNidBitSet patternNids,
+                             SpinedNidBitSet conceptNids,
+                             SpinedNidBitSet semanticNids,
+                             SpinedNidBitSet stampNids,
+                             NidRoaringSetMap patternElementNidsMap) {
+        this.indexFile = new File(directory, INDEX_FILE_NAME);
+        this.patternNids = patternNids;
+        this.conceptNids = conceptNids;
+        this.semanticNids = semanticNids;
+        this.stampNids = stampNids;
+        this.patternElementNidsMap = patternElementNidsMap;
+    }
+
+    /**
+     * @return true if the sets were read and the checksum matched. On false, the sets are left empty.
+     */
+    public boolean read() {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        CRC32 crc32 = new CRC32();
+        // The checked stream sits outside the buffer so the checksum only covers bytes actually consumed.
+        try (DataInputStream dis = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)), crc32))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                LOG.warn("Unrecognized component nid index: " + indexFile.getAbsolutePath());
+                return false;
+            }
+            patternNids.read(dis);
+            conceptNids.read(dis);
+            semanticNids.read(dis);
+            stampNids.read(dis);
+            patternElementNidsMap.read(dis);
+            long computedChecksum = crc32.getValue();
+            long storedChecksum = dis.readLong();
+            if (computedChecksum != storedChecksum) {
+                LOG.warn("Component nid index checksum mismatch: " + indexFile.getAbsolutePath());
+                clear();
+                return false;
+            }
+            return true;
+        } catch (IOException ex) {
+            LOG.warn("Unable to read component nid index: " + ex.getLocalizedMessage());
+            clear();
+            return false;
+        }
+    }
+
+    public void write() throws IOException {
+        File tempFile = new File(indexFile.getParentFile(), INDEX_FILE_NAME + ".tmp");
+        CRC32 crc32 = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fos, crc32)));
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            patternNids.write(dos);
+            conceptNids.write(dos);
+            semanticNids.write(dos);
+            stampNids.write(dos);
+            patternElementNidsMap.write(dos);
+            dos.flush();
+            dos.writeLong(crc32.getValue());
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the persisted index, so a crash before the next write forces a rescan instead of trusting
+     * stale sets.
+     */
+    public void invalidate() {
+        indexFile.delete();
+    }
+
+    private void clear() {
+        patternNids.clear();
+        conceptNids.clear();
+        semanticNids.clear();
+        stampNids.clear();
+        patternElementNidsMap.clear();
+    }
+}
@@ -69,19 +69,21 @@ public void put(int spineIndex, AtomicReferenceArray<int[]> spine) {
         String spineKey = SpineFileUtil.SPINE_PREFIX + spineIndex;
         File spineFile = new File(directory, spineKey);
         diskSemaphore.acquireUninterruptibly();
-        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
-            dos.writeInt(spine.length());
-            for (int i = 0; i < spine.length(); i++) {
-                int[] value = spine.get(i);
-                if (value == null) {
-                    dos.writeInt(0);
-                } else {
-                    dos.writeInt(value.length);
-                    for (int valueElement : value) {
-                        dos.writeInt(valueElement);
+        try {
+            SpineFileUtil.writeAtomically(spineFile, dos -> {
+                dos.writeInt(spine.length());
+                for (int i = 0; i < spine.length(); i++) {
+                    int[] value = spine.get(i);
+                    if (value == null) {
+                        dos.writeInt(0);
+                    } else {
+                        dos.writeInt(value.length);
+                        for (int valueElement : value) {
+                            dos.writeInt(valueElement);
+                        }
                     }
                 }
-            }
+            });
         } catch (IOException ex) {
             LOG.error(ex.getLocalizedMessage(), ex);
             throw new RuntimeException(ex);
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.collection.SpineFileUtil;
+import dev.ikm.tinkar.collection.store.ByteArrayStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static dev.ikm.tinkar.collection.SpineFileUtil.SPINE_PREFIX;
+
+/**
+ * Byte array spine store that memory maps each spine file, so a single element can be read by offset without
+ * reading or allocating the rest of its spine, and reads need no lock.
+ * <p>
+ * Spine file layout: magic (int), element count (int), element count + 1 payload offsets (int), followed by the
+ * packed payload. Element i occupies [offset[i], offset[i + 1]) of the payload; an empty range is a null
+ * element. Spine files in the original {@link ByteArrayFileStore} layout are converted the first time they
+ * are read.
+ * <p>
+ * Spines are written with {@link SpineFileUtil#writeAtomically}, so readers holding the previous mapping
+ * continue to see a consistent, if older, spine.
+ */
+public class MappedByteArrayFileStore extends SpinedArrayFileStore implements ByteArrayStore {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedByteArrayFileStore.class);
+    static final int MAGIC = 0x4D535031; // "MSP1"
+
+    private final ConcurrentHashMap<Integer, MappedSpine> mappedSpines = new ConcurrentHashMap<>();
+
+    public MappedByteArrayFileStore(File directory) {
+        super(directory);
+    }
+
+    public MappedByteArrayFileStore(File directory, Semaphore diskSemaphore) {
+        super(directory, diskSemaphore);
+    }
+
+    @Override
+    public boolean supportsElementReads() {
+        return true;
+    }
+
+    @Override
+    public byte[] getElement(int spineIndex, int indexInSpine) {
+        MappedSpine mappedSpine = mappedSpine(spineIndex);
+        if (mappedSpine == null) {
+            return null;
+        }
+        return mappedSpine.element(indexInSpine);
+    }
+
+    @Override
+    public Optional<AtomicReferenceArray<byte[]>> get(int spineIndex) {
+        MappedSpine mappedSpine = mappedSpine(spineIndex);
+        if (mappedSpine == null) {
+            return Optional.empty();
+        }
+        byte[][] spineArray = new byte[mappedSpine.elementCount()][];
+        for (int i = 0; i < spineArray.length; i++) {
+            spineArray[i] = mappedSpine.element(i);
+        }
+        return Optional.of(new AtomicReferenceArray<>(spineArray));
+    }
+
+    @Override
+    public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+        try {
+            writeSpineFile(spineIndex, spine);
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+        } finally {
+            // Remap on next read; readers holding the old mapping still see the replaced file.
+            mappedSpines.remove(spineIndex);
+        }
+    }
+
+    private MappedSpine mappedSpine(int spineIndex) {
+        MappedSpine mappedSpine = mappedSpines.get(spineIndex);
+        if (mappedSpine == null) {
+            mappedSpine = mappedSpines.computeIfAbsent(spineIndex, this::mapSpine);
+        }
+        return mappedSpine;
+    }
+
+    private File spineFile(int spineIndex) {
+        return new File(directory, SPINE_PREFIX + spineIndex);
+    }
+
+    private MappedSpine mapSpine(int spineIndex) {
+        File spineFile = spineFile(spineIndex);
+        if (!spineFile.exists()) {
+            return null;
+        }
+        try {
+            MappedSpine mappedSpine = MappedSpine.map(spineFile);
+            if (mappedSpine == null) {
+                LOG.info("Converting spine file to mapped layout: " + spineFile.getName());
+                writeSpineFile(spineIndex, readLegacySpine(spineFile));
+                mappedSpine = MappedSpine.map(spineFile);
+            }
+            return mappedSpine;
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+            return null;
+        }
+    }
+
+    private AtomicReferenceArray<byte[]> readLegacySpine(File spineFile) throws IOException {
+        diskSemaphore.acquireUninterruptibly();
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(spineFile)))) {
+            int arraySize = dis.readInt();
+            byte[][] spineArray = new byte[arraySize][];
+            for (int i = 0; i < arraySize; i++) {
+                int valueSize = dis.readInt();
+                if (valueSize != 0) {
+                    byte[] value = new byte[valueSize];
+                    dis.readFully(value);
+                    spineArray[i] = value;
+                }
+            }
+            return new AtomicReferenceArray<>(spineArray);
+        } finally {
+            diskSemaphore.release();
+        }
+    }
+
+    private void writeSpineFile(int spineIndex, AtomicReferenceArray<byte[]> spine) throws IOException {
+        int elementCount = spine.length();
+        byte[][] values = new byte[elementCount][];
+        int[] offsets = new int[elementCount + 1];
+        long payloadSize = 0;
+        for (int i = 0; i < elementCount; i++) {
+            values[i] = spine.get(i);
+            offsets[i] = (int) payloadSize;
+            if (values[i] != null) {
+                payloadSize += values[i].length;
+            }
+            if (payloadSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Spine " + spineIndex + " payload exceeds 2 GB");
+            }
+        }
+        offsets[elementCount] = (int) payloadSize;
+
+        diskSemaphore.acquireUninterruptibly();
+        try {
+            SpineFileUtil.writeAtomically(spineFile(spineIndex), dos -> {
+                dos.writeInt(MAGIC);
+                dos.writeInt(elementCount);
+                for (int offset : offsets) {
+                    dos.writeInt(offset);
+                }
+                for (byte[] value : values) {
+                    if (value != null) {
+                        dos.write(value);
+                    }
+                }
+            });
+        } finally {
+            diskSemaphore.release();
+        }
+    }
+
+    private record MappedSpine(MappedByteBuffer buffer, int elementCount) {
+        private static final int OFFSETS_START = 8;
+
+        /**
+         * @return the mapped spine, or null if the file is not in the mapped layout.
+         */
+        static MappedSpine map(File spineFile) throws IOException {
+            try (FileChannel channel = FileChannel.open(spineFile.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() < OFFSETS_START) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC) {
+                    return null;
+                }
+                return new MappedSpine(buffer, buffer.getInt(4));
+            }
+        }
+
+        int payloadStart() {
+            return OFFSETS_START + 4 * (elementCount + 1);
+        }
+
+        byte[] element(int indexInSpine) {
+            if (indexInSpine >= elementCount) {
+                return null;
+            }
+            int start = buffer.getInt(OFFSETS_START + 4 * indexInSpine);
+            int end = buffer.getInt(OFFSETS_START + 4 * (indexInSpine + 1));
+            if (start == end) {
+                return null;
+            }
+            byte[] value = new byte[end - start];
+            buffer.get(payloadStart() + start, value);
+            return value;
+        }
+    }
+}
@@ -16,13 +16,16 @@
 package dev.ikm.tinkar.provider.spinedarray;
 
 import dev.ikm.tinkar.collection.KeyType;
+import dev.ikm.tinkar.collection.NidRoaringSetMap;
+import dev.ikm.tinkar.collection.SpineFileUtil;
 import dev.ikm.tinkar.collection.SpinedByteArrayMap;
 import dev.ikm.tinkar.collection.SpinedIntIntMap;
 import dev.ikm.tinkar.collection.SpinedIntLongArrayMap;
+import dev.ikm.tinkar.collection.SpinedNidBitSet;
 import dev.ikm.tinkar.common.alert.AlertStreams;
+import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.*;
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
 import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
@@ -42,27 +45,31 @@
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
-import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.api.list.primitive.MutableLongList;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.primitive.IntSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
-import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
 import org.eclipse.collections.impl.factory.primitive.LongLists;
-import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ServiceLoader;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.ObjIntConsumer;
 
 /**
@@ -81,12 +88,24 @@ public class SpinedArrayProvider implements PrimitiveDataService, NidGenerator,
     protected final CountDownLatch uuidsLoadedLatch = new CountDownLatch(1);
     final AtomicInteger nextNid = new AtomicInteger(PrimitiveDataService.FIRST_NID);
 
-    final ConcurrentHashMap<UUID, Integer> uuidToNidMap = ConcurrentHashMap.newMap();
-    final ConcurrentHashSet<Integer> patternNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> conceptNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> semanticNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> stampNids = new ConcurrentHashSet();
-    final ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap = ConcurrentHashMap.newMap();
+    final SpinedNidBitSet patternNids = new SpinedNidBitSet();
+    final SpinedNidBitSet conceptNids = new SpinedNidBitSet();
+    final SpinedNidBitSet semanticNids = new SpinedNidBitSet();
+    final SpinedNidBitSet stampNids = new SpinedNidBitSet();
+    final NidRoaringSetMap patternElementNidsMap = new NidRoaringSetMap();
+
+    final UuidNidIndex uuidNidIndex;
+    final ComponentNidIndex componentNidIndex;
+    final WriteAheadLog writeAheadLog;
+    /**
+     * Held for reading while a write is logged and applied, and for writing while the log rotates, so a checkpoint
+     * never separates a logged write from its application to the maps.
+     */
+    final ReentrantReadWriteLock walRotationLock = new ReentrantReadWriteLock();
+    final ReentrantLock checkpointLock = new ReentrantLock();
+    final File configuredRoot;
+    CheckpointManifest checkpointManifest;
+    ScheduledFuture<?> checkpointTask;
 
     final SpinedByteArrayMap entityToBytesMap;
     final SpinedIntIntMap nidToPatternNidMap;
@@ -101,6 +120,7 @@ public class SpinedArrayProvider implements PrimitiveDataService, NidGenerator,
     final File nextNidKeyFile;
     final Indexer indexer;
     final Searcher searcher;
+    final StampComponentIndex stampComponentIndex = new StampComponentIndex(this);
     final String name;
     final ImmutableList<ChangeSetWriterService> changeSetWriterServices;
 
@@ -108,6 +128,7 @@ public SpinedArrayProvider() throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Opening SpinedArrayProvider");
         File configuredRoot = ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT, defaultDataDirectory);
+        this.configuredRoot = configuredRoot;
         name = configuredRoot.getName();
         configuredRoot.mkdirs();
         File indexDir = new File(configuredRoot, "lucene");
@@ -125,7 +146,8 @@ public SpinedArrayProvider() throws IOException {
         this.nidToCitingComponentNidMapDirectory.mkdirs();
         this.nextNidKeyFile = new File(configuredRoot, "nextNidKeyFile");
 
-        this.entityToBytesMap = new SpinedByteArrayMap(new ByteArrayFileStore(nidToByteArrayMapDirectory));
+        this.entityToBytesMap = new SpinedByteArrayMap(new MappedByteArrayFileStore(nidToByteArrayMapDirectory));
+        this.entityToBytesMap.setResidentByteBudget(ServiceProperties.get(ServiceKeys.SPINE_CACHE_BYTE_BUDGET, 0L));
         this.nidToPatternNidMap = new SpinedIntIntMap(KeyType.NID_KEY);
         this.nidToPatternNidMap.read(this.nidToPatternNidMapDirectory);
         this.nidToCitingComponentsNidMap = new SpinedIntLongArrayMap(new IntLongArrayFileStore(nidToCitingComponentNidMapDirectory));
@@ -134,23 +156,61 @@ public SpinedArrayProvider() throws IOException {
             String nextNidString = Files.readString(this.nextNidKeyFile.toPath());
             nextNid.set(Integer.valueOf(nextNidString));
         }
-        TinkExecutor.threadPool().execute(() -> {
-            Stopwatch uuidNidMapFromEntitiesStopwatch = new Stopwatch();
-            LOG.info("Starting UUID strategy 2");
-            UuidNidCollector uuidNidCollector = new UuidNidCollector(uuidToNidMap,
-                    patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
-            try {
-                this.entityToBytesMap.forEachParallel(uuidNidCollector);
-                this.uuidsLoadedLatch.countDown();
-            } catch (ExecutionException | InterruptedException e) {
-                LOG.error(e.getLocalizedMessage(), e);
-            } finally {
-                uuidNidMapFromEntitiesStopwatch.stop();
-                LOG.info("Finished UUID strategy 2 in: " + uuidNidMapFromEntitiesStopwatch.durationString());
-                LOG.info(uuidNidCollector.report());
-            }
+
+        this.uuidNidIndex = new UuidNidIndex(configuredRoot);
+        this.componentNidIndex = new ComponentNidIndex(configuredRoot,
+                patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
+        boolean indexesValid = this.uuidNidIndex.open() && this.componentNidIndex.read();
+        if (!indexesValid) {
+            this.uuidNidIndex.reset();
+        }
+
+        // Writes after the last checkpoint are replayed before the indexes are used or rebuilt.
+        this.checkpointManifest = CheckpointManifest.read(configuredRoot);
+        this.writeAheadLog = new WriteAheadLog(new File(configuredRoot, "wal"),
+                WriteAheadLog.SyncPolicy.valueOf(ServiceProperties.get(ServiceKeys.WRITE_AHEAD_LOG_SYNC,
+                        WriteAheadLog.SyncPolicy.INTERVAL.name())),
+                WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS, this.uuidNidIndex::flushLog);
+        UuidNidCollector replayCollector = new UuidNidCollector(this.uuidNidIndex.recentAssignments(),
+                patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
+        MutableIntSet replayedNids = IntSets.mutable.empty();
+        this.writeAheadLog.open(this.checkpointManifest.walGeneration(),
+                (type, nid, patternNid, referencedComponentNid, bytes) -> replayWriteAheadLogRecord(replayCollector,
+                        replayedNids, type, nid, patternNid, referencedComponentNid, bytes));
+        // Lucene commits only at checkpoints, so documents of replayed semantics may have been lost with the crash.
+        replayedNids.forEach(nid -> this.indexer.index(EntityRecordFactory.make(this.entityToBytesMap.get(nid))));
+        Duration checkpointInterval = ServiceProperties.get(ServiceKeys.CHECKPOINT_INTERVAL, null);
+        if (checkpointInterval != null) {
+            this.checkpointTask = TinkExecutor.scheduled().scheduleWithFixedDelay(this::save,
+                    checkpointInterval.toMillis(), checkpointInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        if (indexesValid) {
+            // Assignments replayed from the log may be newer than the saved nextNid.
+            this.uuidNidIndex.recentAssignments().forEachValue(nid -> nextNid.accumulateAndGet(nid + 1, Math::max));
+            LOG.info("Opened UUID to nid index with " + this.uuidNidIndex.size() + " entries");
+            this.uuidsLoadedLatch.countDown();
             Thread.ofVirtual().start(this::listAndCancelUncommittedStamps);
-        });
+        } else {
+            // Repair path: rebuild the indexes by scanning every stored entity. Written on the next save.
+            TinkExecutor.threadPool().execute(() -> {
+                Stopwatch uuidNidMapFromEntitiesStopwatch = new Stopwatch();
+                LOG.info("Starting UUID strategy 2");
+                UuidNidCollector uuidNidCollector = new UuidNidCollector(this.uuidNidIndex.recentAssignments(),
+                        patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
+                try {
+                    this.entityToBytesMap.forEachParallel(uuidNidCollector);
+                    this.uuidsLoadedLatch.countDown();
+                } catch (ExecutionException | InterruptedException e) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                } finally {
+                    uuidNidMapFromEntitiesStopwatch.stop();
+                    LOG.info("Finished UUID strategy 2 in: " + uuidNidMapFromEntitiesStopwatch.durationString());
+                    LOG.info(uuidNidCollector.report());
+                }
+                Thread.ofVirtual().start(this::listAndCancelUncommittedStamps);
+            });
+        }
 
         ServiceLoader<ChangeSetWriterService> changeSetServiceLoader = PluggableService.load(ChangeSetWriterService.class);
 
@@ -159,12 +219,50 @@ public SpinedArrayProvider() throws IOException {
             changeSetWriters.add(changeSetProvider.get());
         });
         this.changeSetWriterServices = changeSetWriters.toImmutable();
+        this.indexer.reindexIfStale(this::forEachSemanticNid, this::getBytes);
 
         stopwatch.stop();
         LOG.info("Opened SpinedArrayProvider in: " + stopwatch.durationString());
 
     }
 
+    private void replayWriteAheadLogRecord(UuidNidCollector replayCollector, MutableIntSet replayedNids, byte type,
+                                           int nid, int patternNid, int referencedComponentNid, byte[] bytes) {
+        nextNid.accumulateAndGet(nid + 1, Math::max);
+        byte[] storedBytes;
+        if (type == WriteAheadLog.ERASE) {
+            eraseFromMaps(nid);
+            replayedNids.remove(nid);
+            return;
+        }
+        if (type == WriteAheadLog.MERGE) {
+            if (!this.entityToBytesMap.containsKey(nid)) {
+                indexNewComponent(nid, patternNid, referencedComponentNid);
+            }
+            storedBytes = this.entityToBytesMap.accumulateAndGet(nid, bytes, PrimitiveDataService::merge);
+        } else {
+            this.entityToBytesMap.put(nid, bytes);
+            storedBytes = bytes;
+        }
+        if (storedBytes != null) {
+            // Restores the component sets and UUID assignments of the replayed entity.
+            replayCollector.accept(storedBytes, nid);
+            replayedNids.add(nid);
+        } else {
+            replayedNids.remove(nid);
+        }
+    }
+
+    private void indexNewComponent(int nid, int patternNid, int referencedComponentNid) {
+        this.nidToPatternNidMap.put(nid, patternNid);
+        if (patternNid != Integer.MAX_VALUE) {
+            long citationLong = IntsInLong.ints2Long(nid, patternNid);
+            this.nidToCitingComponentsNidMap.accumulateAndGet(referencedComponentNid, new long[]{citationLong},
+                    PrimitiveDataService::mergeCitations);
+            addToPatternElementSet(patternNid, nid);
+        }
+    }
+
     @Override
     public boolean hasUuid(UUID uuid) {
         try {
@@ -172,12 +270,12 @@ public boolean hasUuid(UUID uuid) {
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-        return uuidToNidMap.containsKey(uuid);
+        return uuidNidIndex.containsKey(uuid);
     }
 
     private void listAndCancelUncommittedStamps() {
         LOG.debug("Searching for canceled stamps in set of size " + stampNids.size());
-        int[] stampNidArray = stampNids.stream().sorted().mapToInt(value -> (int) value).toArray();
+        int[] stampNidArray = stampNids.toArray();
         for (int stampNid : stampNidArray) {
             StampRecord stamp = Entity.getStamp(stampNid);
             if (stamp.lastVersion() == null) {
@@ -203,7 +301,7 @@ private void cancelUncommittedStamp(int stampNid, StampRecord stamp) {
                 .without(lastVersion)
                 .with(canceledVersion)
                 .build().getBytes();
-        this.entityToBytesMap.put(stampNid, stampBytes);
+        put(stampNid, stampBytes);
     }
 
     @Override
@@ -217,9 +315,14 @@ public void close() {
         LOG.info("Closing SpinedArrayProvider");
         this.changeSetWriterServices.forEach(changeSetWriter -> changeSetWriter.shutdown());
         try {
-            save();
+            if (checkpointTask != null) {
+                checkpointTask.cancel(false);
+            }
             listAndCancelUncommittedStamps();
+            save();
+            writeAheadLog.close();
             entityToBytesMap.close();
+            uuidNidIndex.close();
             SpinedArrayProvider.singleton = null;
             this.changeSetWriterServices.forEach(ChangeSetWriterService::shutdown);
             this.indexer.close();
@@ -231,20 +334,46 @@ public void close() {
         }
     }
 
+    /**
+     * Checkpoints the store: rotates the write-ahead log, atomically rewrites each changed spine and index, records
+     * the checkpoint in the manifest, then drops the log segments it covers. Writers are blocked only while the log
+     * rotates, so checkpoints may run in the background.
+     */
     public void save() {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Saving SpinedArrayProvider");
+        checkpointLock.lock();
         try {
-            Files.writeString(this.nextNidKeyFile.toPath(), Integer.toString(nextNid.get()));
+            // A crash before the indexes are rewritten must force a rescan rather than trust stale sets.
+            this.componentNidIndex.invalidate();
+            long walGeneration;
+            walRotationLock.writeLock().lock();
+            try {
+                walGeneration = this.writeAheadLog.rotate();
+            } finally {
+                walRotationLock.writeLock().unlock();
+            }
+            this.uuidNidIndex.syncLog();
+            String nextNidString = Integer.toString(nextNid.get());
+            SpineFileUtil.writeAtomically(this.nextNidKeyFile,
+                    dos -> dos.write(nextNidString.getBytes(StandardCharsets.UTF_8)));
             nidToPatternNidMap.write(this.nidToPatternNidMapDirectory);
             this.entityToBytesMap.write();
             this.nidToCitingComponentsNidMap.write();
+            this.uuidNidIndex.write();
+            this.componentNidIndex.write();
+            CheckpointManifest nextManifest = this.checkpointManifest.next(walGeneration);
+            nextManifest.write(this.configuredRoot);
+            this.checkpointManifest = nextManifest;
+            this.writeAheadLog.deleteSegmentsBefore(walGeneration);
             this.indexer.commit();
         } catch (IOException e) {
             LOG.error(e.getLocalizedMessage(), e);
         } finally {
+            checkpointLock.unlock();
             stopwatch.stop();
             LOG.info("Save SpinedArrayProvider in: " + stopwatch.durationString());
+            LOG.info("Entity spine cache: " + this.entityToBytesMap.spineCacheMetrics());
         }
     }
 
@@ -253,14 +382,14 @@ public int nidForUuids(UUID... uuids) {
         try {
             this.uuidsLoadedLatch.await();
             if (uuids.length == 1) {
-                return uuidToNidMap.computeIfAbsent(uuids[0], uuidKey -> newNid());
+                return uuidNidIndex.getIfAbsentPut(uuids[0], this::newNid);
             }
             int nid = Integer.MAX_VALUE;
             for (UUID uuid : uuids) {
                 if (nid == Integer.MAX_VALUE) {
-                    nid = uuidToNidMap.computeIfAbsent(uuids[0], uuidKey -> newNid());
+                    nid = uuidNidIndex.getIfAbsentPut(uuids[0], this::newNid);
                 } else {
-                    uuidToNidMap.put(uuid, nid);
+                    uuidNidIndex.put(uuid, nid);
                 }
             }
             if (nid == Integer.MIN_VALUE) {
@@ -283,14 +412,14 @@ public int nidForUuids(ImmutableList<UUID> uuidList) {
         try {
             this.uuidsLoadedLatch.await();
             if (uuidList.size() == 1) {
-                return uuidToNidMap.computeIfAbsent(uuidList.get(0), uuidKey -> newNid());
+                return uuidNidIndex.getIfAbsentPut(uuidList.get(0), this::newNid);
             }
             int nid = Integer.MAX_VALUE;
             for (UUID uuid : uuidList) {
                 if (nid == Integer.MAX_VALUE) {
-                    nid = uuidToNidMap.computeIfAbsent(uuid, uuidKey -> newNid());
+                    nid = uuidNidIndex.getIfAbsentPut(uuid, this::newNid);
                 } else {
-                    uuidToNidMap.put(uuid, nid);
+                    uuidNidIndex.put(uuid, nid);
                 }
             }
             if (nid == Integer.MIN_VALUE) {
@@ -310,7 +439,7 @@ public boolean hasPublicId(PublicId publicId) {
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-        return publicId.asUuidList().stream().anyMatch(uuidToNidMap::containsKey);
+        return publicId.asUuidList().stream().anyMatch(uuidNidIndex::containsKey);
     }
 
     @Override
@@ -347,35 +476,37 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
             LOG.error("NID should not be Integer.MIN_VALUE");
             throw new IllegalStateException("NID should not be Integer.MIN_VALUE");
         }
-        if (!this.entityToBytesMap.containsKey(nid)) {
-            this.nidToPatternNidMap.put(nid, patternNid);
-            if (patternNid != Integer.MAX_VALUE) {
-                long citationLong = IntsInLong.ints2Long(nid, patternNid);
-                this.nidToCitingComponentsNidMap.accumulateAndGet(referencedComponentNid, new long[]{citationLong},
-                        PrimitiveDataService::mergeCitations);
-                addToPatternElementSet(patternNid, nid);
-            }
-            if (sourceObject instanceof ConceptEntity concept) {
-                this.conceptNids.add(concept.nid());
-            } else if (sourceObject instanceof SemanticEntity semanticEntity) {
-                this.semanticNids.add(semanticEntity.nid());
-            } else if (sourceObject instanceof PatternEntity patternEntity) {
-                this.patternNids.add(patternEntity.nid());
-            } else if (sourceObject instanceof StampEntity stampEntity) {
-                this.stampNids.add(stampEntity.nid());
+        long walSequence;
+        byte[] mergedBytes;
+        walRotationLock.readLock().lock();
+        try {
+            walSequence = this.writeAheadLog.append(WriteAheadLog.MERGE, nid, patternNid, referencedComponentNid, value);
+            if (!this.entityToBytesMap.containsKey(nid)) {
+                indexNewComponent(nid, patternNid, referencedComponentNid);
+                if (sourceObject instanceof ConceptEntity concept) {
+                    this.conceptNids.add(concept.nid());
+                } else if (sourceObject instanceof SemanticEntity semanticEntity) {
+                    this.semanticNids.add(semanticEntity.nid());
+                } else if (sourceObject instanceof PatternEntity patternEntity) {
+                    this.patternNids.add(patternEntity.nid());
+                } else if (sourceObject instanceof StampEntity stampEntity) {
+                    this.stampNids.add(stampEntity.nid());
+                }
             }
+            mergedBytes = this.entityToBytesMap.accumulateAndGet(nid, value, PrimitiveDataService::merge);
+        } finally {
+            walRotationLock.readLock().unlock();
         }
-        byte[] mergedBytes = this.entityToBytesMap.accumulateAndGet(nid, value, PrimitiveDataService::merge);
+        this.writeAheadLog.awaitDurable(walSequence);
         this.writeSequence.increment();
         this.changeSetWriterServices.forEach(writerService -> writerService.writeToChangeSet((Entity) sourceObject, activity));
         this.indexer.index(sourceObject);
+        this.stampComponentIndex.index(sourceObject);
         return mergedBytes;
     }
 
     public boolean addToPatternElementSet(int patternNid, int elementNid) {
-
-        return patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentHashSet())
-                .add(elementNid);
+        return patternElementNidsMap.add(patternNid, elementNid);
     }
 
     @Override
@@ -383,36 +514,31 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return this.searcher.search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize,
+                                              IntIdSet referencedComponentNids, IntIdSet patternNids) throws Exception {
+        return this.searcher.search(query, maxResultSize, referencedComponentNids, patternNids);
+    }
+
     public int[] semanticNidsOfPattern(int patternNid) {
-        IntSet elementNids = getElementNidsForPatternNid(patternNid);
-        if (elementNids.notEmpty()) {
-            MutableIntList elementNidList = IntLists.mutable.withInitialCapacity(elementNids.size());
-            elementNids.forEach(integer -> elementNidList.add(integer));
-            return elementNidList.toArray();
-        }
-        return new int[0];
+        return patternElementNidsMap.toArray(patternNid);
     }
 
     public IntSet getElementNidsForPatternNid(int patternNid) {
-        if (patternElementNidsMap.containsKey(patternNid)) {
-            return IntSets.immutable.ofAll(patternElementNidsMap.get(patternNid).stream().mapToInt(value -> (int) value));
-        }
-        return IntSets.immutable.empty();
+        return IntSets.immutable.of(patternElementNidsMap.toArray(patternNid));
     }
 
     @Override
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
-        IntSet elementNids;
-        if (LOG.isTraceEnabled()) {
-            Stopwatch sw = new Stopwatch();
-            elementNids = getElementNidsForPatternNid(patternNid);
-            LOG.atTrace().log("getElementNidsForPatternNid " + PrimitiveData.text(patternNid) +
-                    " time: " + sw.durationString());
-        } else {
-            elementNids = getElementNidsForPatternNid(patternNid);
-        }
-        if (elementNids.notEmpty()) {
-            elementNids.forEach(procedure);
+        if (patternElementNidsMap.size(patternNid) > 0) {
+            if (LOG.isTraceEnabled()) {
+                Stopwatch sw = new Stopwatch();
+                patternElementNidsMap.forEach(patternNid, procedure);
+                LOG.atTrace().log("forEachSemanticNidOfPattern " + PrimitiveData.text(patternNid) +
+                        " time: " + sw.durationString());
+            } else {
+                patternElementNidsMap.forEach(patternNid, procedure);
+            }
         } else {
             Entity entity = Entity.getFast(patternNid);
             if (entity instanceof PatternEntity == false) {
@@ -426,7 +552,7 @@ public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure)
     public void forEachPatternNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.patternNids.forEach(patternNid -> procedure.accept(patternNid));
+            this.patternNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -437,7 +563,7 @@ public void forEachPatternNid(IntProcedure procedure) {
     public void forEachConceptNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.conceptNids.forEach(conceptNid -> procedure.accept(conceptNid));
+            this.conceptNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -448,7 +574,7 @@ public void forEachConceptNid(IntProcedure procedure) {
     public void forEachStampNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.stampNids.forEach(stampNid -> procedure.accept(stampNid));
+            this.stampNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -459,7 +585,7 @@ public void forEachStampNid(IntProcedure procedure) {
     public void forEachSemanticNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.semanticNids.forEach(semanticNid -> procedure.accept(semanticNid));
+            this.semanticNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -477,6 +603,16 @@ public void forEachSemanticNidForComponent(int componentNid, IntProcedure proced
         }
     }
 
+    @Override
+    public void forEachStampNidInTimeRange(long fromEpochMillis, long toEpochMillis, IntProcedure procedure) {
+        this.stampComponentIndex.forEachStampNidInTimeRange(fromEpochMillis, toEpochMillis, procedure);
+    }
+
+    @Override
+    public void forEachComponentNidOfStamp(int stampNid, IntProcedure procedure) {
+        this.stampComponentIndex.forEachComponentNidOfStamp(stampNid, procedure);
+    }
+
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
         long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
@@ -498,6 +634,23 @@ public String name() {
 
     @Override
     public void erase(int nid) {
+        long walSequence;
+        walRotationLock.readLock().lock();
+        try {
+            walSequence = this.writeAheadLog.append(WriteAheadLog.ERASE, nid, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    null);
+            eraseFromMaps(nid);
+        } finally {
+            walRotationLock.readLock().unlock();
+        }
+        this.writeAheadLog.awaitDurable(walSequence);
+    }
+
+    private void eraseFromMaps(int nid) {
+        int patternNid = this.nidToPatternNidMap.get(nid);
+        if (patternNid != Integer.MAX_VALUE) {
+            this.patternElementNidsMap.remove(patternNid, nid);
+        }
         this.entityToBytesMap.put(nid, null);
         this.nidToPatternNidMap.put(nid, Integer.MAX_VALUE);
         this.nidToCitingComponentsNidMap.put(nid, null);
@@ -631,6 +784,15 @@ ImmutableList<UUID> getUuidsFromBytes(ByteBuf readBuf) {
 
     @Override
     public void put(int nid, byte[] bytesToOverwrite) {
-        this.entityToBytesMap.put(nid, bytesToOverwrite);
+        long walSequence;
+        walRotationLock.readLock().lock();
+        try {
+            walSequence = this.writeAheadLog.append(WriteAheadLog.PUT, nid, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    bytesToOverwrite);
+            this.entityToBytesMap.put(nid, bytesToOverwrite);
+        } finally {
+            walRotationLock.readLock().unlock();
+        }
+        this.writeAheadLog.awaitDurable(walSequence);
     }
 }
@@ -15,8 +15,9 @@
  */
 package dev.ikm.tinkar.provider.spinedarray;
 
+import dev.ikm.tinkar.collection.NidRoaringSetMap;
+import dev.ikm.tinkar.collection.SpinedNidBitSet;
 import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.component.FieldDataType;
 import dev.ikm.tinkar.entity.EntityRecordFactory;
@@ -30,11 +31,11 @@
 public class UuidNidCollector implements ObjIntConsumer<byte[]> {
     private static final Logger LOG = LoggerFactory.getLogger(UuidNidCollector.class);
     final ConcurrentHashMap<UUID, Integer> uuidToNidMap;
-    final ConcurrentHashSet<Integer> patternNids;
-    final ConcurrentHashSet<Integer> conceptNids;
-    final ConcurrentHashSet<Integer> semanticNids;
-    final ConcurrentHashSet<Integer> stampNids;
-    final ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap;
+    final SpinedNidBitSet patternNids;
+    final SpinedNidBitSet conceptNids;
+    final SpinedNidBitSet semanticNids;
+    final SpinedNidBitSet stampNids;
+    final NidRoaringSetMap patternElementNidsMap;
 
 
     AtomicInteger totalCount = new AtomicInteger();
@@ -46,11 +47,11 @@ public class UuidNidCollector implements ObjIntConsumer<byte[]> {
     Stopwatch stopwatch = new Stopwatch();
 
     public UuidNidCollector(ConcurrentHashMap<UUID, Integer> uuidToNidMap,
-                            ConcurrentHashSet<Integer> patternNids,
-                            ConcurrentHashSet<Integer> conceptNids,
-                            ConcurrentHashSet<Integer> semanticNids,
-                            ConcurrentHashSet<Integer> stampNids,
-                            ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap) {
+                            SpinedNidBitSet patternNids,
+                            SpinedNidBitSet conceptNids,
+                            SpinedNidBitSet semanticNids,
+                            SpinedNidBitSet stampNids,
+                            NidRoaringSetMap patternElementNidsMap) {
         this.uuidToNidMap = uuidToNidMap;
         this.patternNids = patternNids;
         this.conceptNids = conceptNids;
@@ -97,7 +98,7 @@ public void accept(byte[] bytes, int nid) {
                 totalCount.incrementAndGet();
         }
         if (typeToProcess == true) {
-            EntityRecordFactory.collectUuids(bytes, patternElementNidsMap, uuidToNidMap);
+            EntityRecordFactory.collectUuids(bytes, patternElementNidsMap::add, uuidToNidMap);
             /*
             Entity<?> entity = EntityRecordFactory.make(bytes);
             if (entity instanceof SemanticEntity semanticEntity) {
@@ -0,0 +1,479 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.collection.SpineFileUtil;
+import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent UUID to nid index for the spined array provider.
+ * <p>
+ * The index is a sorted table of (most significant bits, least significant bits, nid) entries that is memory
+ * mapped when the store is opened, so lookups are a binary search over the mapped file instead of a
+ * rescan of every stored entity. Assignments made since the table was written are kept in memory and appended
+ * to a log file, which is replayed on open. {@link #write()} merges the recent assignments into a new table,
+ * swaps it in with an atomic rename, and truncates the log.
+ * <p>
+ * Table file layout: magic (int), format version (int), entry count (long), CRC32 of the entries (long),
+ * followed by {@code entryCount} entries of {@link #ENTRY_SIZE} bytes sorted by unsigned msb, then unsigned lsb.
+ */
+public class UuidNidIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(UuidNidIndex.class);
+    public static final String INDEX_FILE_NAME = "uuidNidIndex";
+    public static final String LOG_FILE_NAME = "uuidNidIndex.log";
+    static final int MAGIC = 0x554E4958; // "UNIX"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    static final int ENTRY_SIZE = 8 + 8 + 4;
+    /**
+     * Entries per mapped region, keeps each MappedByteBuffer well below the 2 GB limit.
+     */
+    static final int ENTRIES_PER_REGION = 1 << 26;
+    /**
+     * Locks striped by uuid, so each absent uuid is assigned and logged exactly once.
+     */
+    private static final int ASSIGNMENT_STRIPES = 64;
+
+    private final File indexFile;
+    private final File logFile;
+    private final ConcurrentHashMap<UUID, Integer> recentAssignments = ConcurrentHashMap.newMap();
+    private final Object logLock = new Object();
+    private final Object[] assignmentLocks = new Object[ASSIGNMENT_STRIPES];
+    private volatile MappedTable table = MappedTable.EMPTY;
+    private FileOutputStream logFileStream;
+    private DataOutputStream logStream;
+
+    public UuidNidIndex(File directory) {
+        this.indexFile = new File(directory, INDEX_FILE_NAME);
+        this.logFile = new File(directory, LOG_FILE_NAME);
+        for (int i = 0; i < assignmentLocks.length; i++) {
+            assignmentLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Maps the sorted table and replays the assignment log.
+     *
+     * @return true if a valid index was found, false if the index is missing or corrupt and the caller must
+     * rebuild it from the stored entities.
+     */
+    public boolean open() {
+        if (!indexFile.exists()) {
+            LOG.info("No UUID to nid index at: " + indexFile.getAbsolutePath());
+            openLog(false);
+            return false;
+        }
+        try {
+            MappedTable mappedTable = MappedTable.map(indexFile);
+            if (mappedTable == null) {
+                LOG.warn("UUID to nid index failed validation: " + indexFile.getAbsolutePath());
+                openLog(false);
+                return false;
+            }
+            this.table = mappedTable;
+            replayLog();
+            openLog(true);
+            return true;
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+            openLog(false);
+            return false;
+        }
+    }
+
+    /**
+     * Discards the mapped table and any recent assignments, used before rebuilding the index with a full rescan.
+     * The next {@link #write()} will produce a complete table from the rebuilt assignments.
+     */
+    public void reset() {
+        this.table = MappedTable.EMPTY;
+        this.recentAssignments.clear();
+    }
+
+    /**
+     * The map of assignments not yet written to the sorted table. Exposed so the full rescan can populate it
+     * directly.
+     */
+    public ConcurrentHashMap<UUID, Integer> recentAssignments() {
+        return recentAssignments;
+    }
+
+    public boolean containsKey(UUID uuid) {
+        return get(uuid) != Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return the nid for the uuid, or Integer.MIN_VALUE if the uuid has no nid. A recent assignment takes
+     * precedence over the table, as it does when the two are merged by {@link #write()}.
+     */
+    public int get(UUID uuid) {
+        Integer recentNid = recentAssignments.get(uuid);
+        if (recentNid != null) {
+            return recentNid;
+        }
+        return table.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns the nid of the uuid, assigning it one from the supplier if it has none. The supplier is called at
+     * most once per absent uuid, even when threads race to assign the same uuid, so no nid is assigned and
+     * logged only to lose the race.
+     */
+    public int getIfAbsentPut(UUID uuid, IntSupplier nidSupplier) {
+        int nid = get(uuid);
+        if (nid != Integer.MIN_VALUE) {
+            return nid;
+        }
+        synchronized (assignmentLock(uuid)) {
+            // Another thread may have assigned it since, and a write may have merged that into the table.
+            nid = get(uuid);
+            if (nid != Integer.MIN_VALUE) {
+                return nid;
+            }
+            int newNid = nidSupplier.getAsInt();
+            recentAssignments.put(uuid, newNid);
+            appendToLog(uuid, newNid);
+            return newNid;
+        }
+    }
+
+    public void put(UUID uuid, int nid) {
+        if (get(uuid) == nid) {
+            return;
+        }
+        synchronized (assignmentLock(uuid)) {
+            Integer priorNid = recentAssignments.put(uuid, nid);
+            if (priorNid == null || priorNid != nid) {
+                appendToLog(uuid, nid);
+            }
+        }
+    }
+
+    private Object assignmentLock(UUID uuid) {
+        return assignmentLocks[(uuid.hashCode() & Integer.MAX_VALUE) % ASSIGNMENT_STRIPES];
+    }
+
+    public long size() {
+        return table.entryCount + recentAssignments.size();
+    }
+
+    private void appendToLog(UUID uuid, int nid) {
+        synchronized (logLock) {
+            if (logStream == null) {
+                return;
+            }
+            try {
+                logStream.writeLong(uuid.getMostSignificantBits());
+                logStream.writeLong(uuid.getLeastSignificantBits());
+                logStream.writeInt(nid);
+            } catch (IOException ex) {
+                LOG.error(ex.getLocalizedMessage(), ex);
+            }
+        }
+    }
+
+    private void openLog(boolean append) {
+        synchronized (logLock) {
+            try {
+                logFile.getParentFile().mkdirs();
+                logFileStream = new FileOutputStream(logFile, append);
+                logStream = new DataOutputStream(new BufferedOutputStream(logFileStream));
+            } catch (IOException ex) {
+                LOG.error(ex.getLocalizedMessage(), ex);
+            }
+        }
+    }
+
+    private void replayLog() throws IOException {
+        if (!logFile.exists()) {
+            return;
+        }
+        long completeRecords = logFile.length() / ENTRY_SIZE;
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            for (long i = 0; i < completeRecords; i++) {
+                UUID uuid = new UUID(dis.readLong(), dis.readLong());
+                recentAssignments.put(uuid, dis.readInt());
+            }
+        }
+        if (logFile.length() != completeRecords * ENTRY_SIZE) {
+            // Drop a record torn by a crash so later appends stay aligned.
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.setLength(completeRecords * ENTRY_SIZE);
+            }
+        }
+        if (completeRecords > 0) {
+            LOG.info("Replayed " + completeRecords + " UUID assignments from: " + logFile.getName());
+        }
+    }
+
+    /**
+     * Flushes the assignment log without rewriting the sorted table.
+     */
+    public void flushLog() {
+        synchronized (logLock) {
+            if (logStream != null) {
+                try {
+                    logStream.flush();
+                } catch (IOException ex) {
+                    LOG.error(ex.getLocalizedMessage(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes the assignment log and forces it to disk, for checkpoints that are about to discard the other
+     * records of these assignments.
+     */
+    public void syncLog() throws IOException {
+        synchronized (logLock) {
+            if (logStream != null) {
+                logStream.flush();
+                logFileStream.getFD().sync();
+            }
+        }
+    }
+
+    /**
+     * Merges the recent assignments into a new sorted table, atomically replaces the table file, remaps it, and
+     * truncates the assignment log. Does nothing if there are no recent assignments and the table already exists.
+     */
+    public void write() throws IOException {
+        synchronized (logLock) {
+            if (recentAssignments.isEmpty() && indexFile.exists()) {
+                syncLog();
+                return;
+            }
+            long[][] recent = sortedRecentAssignments();
+            MappedTable oldTable = this.table;
+            File tempFile = new File(indexFile.getParentFile(), INDEX_FILE_NAME + ".tmp");
+            CRC32 crc32 = new CRC32();
+            long entryCount = 0;
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(ENTRY_SIZE * 8192);
+                channel.position(HEADER_SIZE);
+                int oldIndex = 0;
+                int recentIndex = 0;
+                long oldCount = oldTable.entryCount;
+                while (oldIndex < oldCount || recentIndex < recent.length) {
+                    long msb;
+                    long lsb;
+                    int nid;
+                    int order;
+                    if (oldIndex >= oldCount) {
+                        order = 1;
+                    } else if (recentIndex >= recent.length) {
+                        order = -1;
+                    } else {
+                        order = compare(oldTable.msb(oldIndex), oldTable.lsb(oldIndex),
+                                recent[recentIndex][0], recent[recentIndex][1]);
+                    }
+                    if (order < 0) {
+                        msb = oldTable.msb(oldIndex);
+                        lsb = oldTable.lsb(oldIndex);
+                        nid = oldTable.nid(oldIndex);
+                        oldIndex++;
+                    } else {
+                        // Recent assignments take precedence over the table for the same uuid.
+                        msb = recent[recentIndex][0];
+                        lsb = recent[recentIndex][1];
+                        nid = (int) recent[recentIndex][2];
+                        recentIndex++;
+                        if (order == 0) {
+                            oldIndex++;
+                        }
+                    }
+                    if (buffer.remaining() < ENTRY_SIZE) {
+                        drain(buffer, channel, crc32);
+                    }
+                    buffer.putLong(msb).putLong(lsb).putInt(nid);
+                    entryCount++;
+                }
+                drain(buffer, channel, crc32);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(entryCount).putLong(crc32.getValue()).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            SpineFileUtil.syncDirectory(indexFile.getParentFile());
+            MappedTable newTable = MappedTable.map(indexFile);
+            if (newTable == null) {
+                throw new IOException("Newly written UUID to nid index failed validation: " + indexFile);
+            }
+            this.table = newTable;
+            // Anything assigned concurrently with the write is still in the log and in the recent map.
+            for (long[] entry : recent) {
+                recentAssignments.remove(new UUID(entry[0], entry[1]), (int) entry[2]);
+            }
+            if (logStream != null) {
+                logStream.close();
+            }
+            logFileStream = new FileOutputStream(logFile, false);
+            logStream = new DataOutputStream(new BufferedOutputStream(logFileStream));
+            for (Map.Entry<UUID, Integer> entry : recentAssignments.entrySet()) {
+                logStream.writeLong(entry.getKey().getMostSignificantBits());
+                logStream.writeLong(entry.getKey().getLeastSignificantBits());
+                logStream.writeInt(entry.getValue());
+            }
+            logStream.flush();
+            logFileStream.getFD().sync();
+            LOG.info("Wrote UUID to nid index with " + entryCount + " entries");
+        }
+    }
+
+    public void close() {
+        synchronized (logLock) {
+            if (logStream != null) {
+                try {
+                    logStream.close();
+                } catch (IOException ex) {
+                    LOG.error(ex.getLocalizedMessage(), ex);
+                }
+                logStream = null;
+                logFileStream = null;
+            }
+        }
+        this.table = MappedTable.EMPTY;
+    }
+
+    private long[][] sortedRecentAssignments() {
+        long[][] recent = new long[recentAssignments.size()][];
+        int i = 0;
+        for (Map.Entry<UUID, Integer> entry : recentAssignments.entrySet()) {
+            if (i == recent.length) {
+                break;
+            }
+            recent[i++] = new long[]{entry.getKey().getMostSignificantBits(),
+                    entry.getKey().getLeastSignificantBits(), entry.getValue()};
+        }
+        if (i < recent.length) {
+            recent = Arrays.copyOf(recent, i);
+        }
+        Arrays.parallelSort(recent, (a, b) -> compare(a[0], a[1], b[0], b[1]));
+        return recent;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel, CRC32 crc32) throws IOException {
+        buffer.flip();
+        crc32.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static int compare(long msb1, long lsb1, long msb2, long lsb2) {
+        int msbCompare = Long.compareUnsigned(msb1, msb2);
+        if (msbCompare != 0) {
+            return msbCompare;
+        }
+        return Long.compareUnsigned(lsb1, lsb2);
+    }
+
+    private static final class MappedTable {
+        static final MappedTable EMPTY = new MappedTable(new MappedByteBuffer[0], 0);
+        final MappedByteBuffer[] regions;
+        final long entryCount;
+
+        private MappedTable(MappedByteBuffer[] regions, long entryCount) {
+            this.regions = regions;
+            this.entryCount = entryCount;
+        }
+
+        /**
+         * @return the mapped table, or null if the header or checksum does not match the file contents.
+         */
+        static MappedTable map(File indexFile) throws IOException {
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_SIZE) {
+                    return null;
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                    return null;
+                }
+                long entryCount = header.getLong();
+                long checksum = header.getLong();
+                if (entryCount < 0 || channel.size() != HEADER_SIZE + entryCount * ENTRY_SIZE) {
+                    return null;
+                }
+                int regionCount = (int) ((entryCount + ENTRIES_PER_REGION - 1) / ENTRIES_PER_REGION);
+                MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+                CRC32 crc32 = new CRC32();
+                for (int regionIndex = 0; regionIndex < regionCount; regionIndex++) {
+                    long firstEntry = (long) regionIndex * ENTRIES_PER_REGION;
+                    long regionEntries = Math.min(ENTRIES_PER_REGION, entryCount - firstEntry);
+                    regions[regionIndex] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            HEADER_SIZE + firstEntry * ENTRY_SIZE, regionEntries * ENTRY_SIZE);
+                    crc32.update(regions[regionIndex].duplicate());
+                }
+                if (crc32.getValue() != checksum) {
+                    return null;
+                }
+                return new MappedTable(regions, entryCount);
+            }
+        }
+
+        long msb(long index) {
+            return regions[(int) (index / ENTRIES_PER_REGION)].getLong((int) (index % ENTRIES_PER_REGION) * ENTRY_SIZE);
+        }
+
+        long lsb(long index) {
+            return regions[(int) (index / ENTRIES_PER_REGION)].getLong((int) (index % ENTRIES_PER_REGION) * ENTRY_SIZE + 8);
+        }
+
+        int nid(long index) {
+            return regions[(int) (index / ENTRIES_PER_REGION)].getInt((int) (index % ENTRIES_PER_REGION) * ENTRY_SIZE + 16);
+        }
+
+        int find(long msb, long lsb) {
+            long low = 0;
+            long high = entryCount - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                int order = compare(msb(mid), lsb(mid), msb, lsb);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return nid(mid);
+                }
+            }
+            return Integer.MIN_VALUE;
+        }
+    }
+}
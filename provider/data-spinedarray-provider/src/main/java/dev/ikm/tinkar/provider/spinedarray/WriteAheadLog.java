@@ -0,0 +1,472 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.collection.SpineFileUtil;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.thread.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the entity writes made since the last checkpoint of the spined array provider, so writes
+ * that have not yet reached the spine files survive a crash and are replayed on open.
+ * <p>
+ * The log is a sequence of segment files, one per generation. A checkpoint rotates to a new generation before it
+ * flushes the spines, and deletes the older segments once its manifest is written. Each record is an int payload
+ * length, the payload, and a CRC32 of the payload; the payload is the record type, nid, pattern nid, referenced
+ * component nid, and the entity bytes preceded by their length (-1 for null). Replay stops at the first torn or
+ * corrupt record and truncates the segment there.
+ * <p>
+ * Appends are buffered. Depending on the {@link SyncPolicy}, the buffer is written and forced by a periodic
+ * flush, or each writer waits in {@link #awaitDurable(long)} until its record is forced. Writers waiting at the
+ * same time share a single force (group commit).
+ * <p>
+ * The segment channel is only written, forced and closed on the log's own thread. A thread interrupted inside
+ * {@link FileChannel} I/O closes the channel for every thread, so an interrupted writer would otherwise fail every
+ * later write until restart. Writers wait for the log thread without responding to interrupts, and keep their
+ * interrupt status.
+ */
+public class WriteAheadLog {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteAheadLog.class);
+    public static final String SEGMENT_PREFIX = "wal-";
+    public static final String SEGMENT_SUFFIX = ".log";
+    public static final byte MERGE = 1;
+    public static final byte PUT = 2;
+    public static final byte ERASE = 3;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int RECORD_HEADER_SIZE = 17;
+
+    public enum SyncPolicy {
+        /**
+         * Records are written to the operating system at each flush interval but never forced. Survives a
+         * process crash, not a power loss.
+         */
+        NONE,
+        /**
+         * Records are written and forced at each flush interval; at most one interval of writes is at risk.
+         */
+        INTERVAL,
+        /**
+         * Each write returns only after its record is forced.
+         */
+        COMMIT
+    }
+
+    @FunctionalInterface
+    public interface RecordProcessor {
+        void process(byte type, int nid, int patternNid, int referencedComponentNid, byte[] bytes);
+    }
+
+    @FunctionalInterface
+    private interface ChannelTask {
+        void run() throws IOException;
+    }
+
+    private final File directory;
+    private final SyncPolicy syncPolicy;
+    private final long flushIntervalMillis;
+    private final Runnable beforeSync;
+    // Lock order: syncLock before appendLock.
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc32 = new CRC32();
+    private final AtomicLong durableSequence = new AtomicLong();
+    private final ExecutorService logThread = Executors.newSingleThreadExecutor(
+            new NamedThreadFactory("Write-ahead-log-thread", true));
+    private FileChannel channel;
+    private long generation;
+    private long appendedSequence;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * @param beforeSync run before each force, to flush state the log depends on, such as UUID assignments.
+     */
+    public WriteAheadLog(File directory, SyncPolicy syncPolicy, long flushIntervalMillis, Runnable beforeSync) {
+        this.directory = directory;
+        this.syncPolicy = syncPolicy;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.beforeSync = beforeSync;
+    }
+
+    /**
+     * Replays the segments of the given generation and later, then starts a new segment for appends.
+     *
+     * @return the number of records replayed.
+     */
+    public long open(long fromGeneration, RecordProcessor processor) throws IOException {
+        directory.mkdirs();
+        long replayed = 0;
+        long lastGeneration = fromGeneration - 1;
+        for (long segmentGeneration : segmentGenerations()) {
+            lastGeneration = Math.max(lastGeneration, segmentGeneration);
+            if (segmentGeneration >= fromGeneration) {
+                replayed += replaySegment(segmentFile(segmentGeneration), processor);
+            }
+        }
+        appendLock.lock();
+        try {
+            this.generation = lastGeneration + 1;
+            onLogThread(() -> this.channel = openSegment(this.generation));
+        } finally {
+            appendLock.unlock();
+        }
+        if (syncPolicy != SyncPolicy.COMMIT) {
+            flushTask = TinkExecutor.scheduled().scheduleWithFixedDelay(this::periodicFlush,
+                    flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (replayed > 0) {
+            LOG.info("Replayed " + replayed + " write-ahead log records from generation " + fromGeneration);
+        }
+        return replayed;
+    }
+
+    /**
+     * Appends a record. The record is durable once {@link #awaitDurable(long)} returns for the returned sequence
+     * under {@link SyncPolicy#COMMIT}, or after the next flush interval otherwise.
+     *
+     * @return the sequence of the record.
+     */
+    public long append(byte type, int nid, int patternNid, int referencedComponentNid, byte[] bytes) {
+        int payloadLength = RECORD_HEADER_SIZE + (bytes == null ? 0 : bytes.length);
+        int recordLength = payloadLength + 8;
+        appendLock.lock();
+        try {
+            if (buffer.remaining() < recordLength) {
+                flushBuffer();
+            }
+            if (recordLength > buffer.capacity()) {
+                ByteBuffer recordBuffer = ByteBuffer.allocate(recordLength);
+                writeRecord(recordBuffer, payloadLength, type, nid, patternNid, referencedComponentNid, bytes);
+                recordBuffer.flip();
+                onLogThread(() -> {
+                    while (recordBuffer.hasRemaining()) {
+                        channel.write(recordBuffer);
+                    }
+                });
+            } else {
+                writeRecord(buffer, payloadLength, type, nid, patternNid, referencedComponentNid, bytes);
+            }
+            return ++appendedSequence;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Under {@link SyncPolicy#COMMIT}, waits until the record with the given sequence is forced to disk. Returns
+     * immediately under other policies.
+     */
+    public void awaitDurable(long sequence) {
+        if (syncPolicy == SyncPolicy.COMMIT) {
+            sync(sequence);
+        }
+    }
+
+    /**
+     * Writes and forces all appended records to disk.
+     */
+    public void sync() {
+        long sequence;
+        appendLock.lock();
+        try {
+            sequence = appendedSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        sync(sequence);
+    }
+
+    private void sync(long sequence) {
+        if (durableSequence.get() >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // A force by another writer while this one waited may already cover the sequence.
+            if (durableSequence.get() >= sequence) {
+                return;
+            }
+            beforeSync.run();
+            long target;
+            FileChannel syncChannel;
+            appendLock.lock();
+            try {
+                flushBuffer();
+                target = appendedSequence;
+                syncChannel = channel;
+            } finally {
+                appendLock.unlock();
+            }
+            onLogThread(() -> syncChannel.force(false));
+            durableSequence.accumulateAndGet(target, Math::max);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void periodicFlush() {
+        try {
+            if (syncPolicy == SyncPolicy.INTERVAL) {
+                sync();
+            } else {
+                appendLock.lock();
+                try {
+                    flushBuffer();
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+        } catch (Throwable ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    /**
+     * Forces the current segment and starts a new generation. Records appended before this call are in older
+     * generations; records appended after it are in the returned generation.
+     */
+    public long rotate() throws IOException {
+        syncLock.lock();
+        try {
+            beforeSync.run();
+            appendLock.lock();
+            try {
+                flushBuffer();
+                onLogThread(() -> {
+                    channel.force(false);
+                    channel.close();
+                    channel = openSegment(generation + 1);
+                });
+                durableSequence.accumulateAndGet(appendedSequence, Math::max);
+                generation++;
+                return generation;
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments older than the given generation, once a checkpoint no longer needs them.
+     */
+    public void deleteSegmentsBefore(long firstRetainedGeneration) {
+        boolean deleted = false;
+        for (long segmentGeneration : segmentGenerations()) {
+            if (segmentGeneration < firstRetainedGeneration) {
+                File segmentFile = segmentFile(segmentGeneration);
+                if (segmentFile.delete()) {
+                    deleted = true;
+                } else {
+                    LOG.warn("Unable to delete write-ahead log segment: " + segmentFile.getAbsolutePath());
+                }
+            }
+        }
+        if (deleted) {
+            try {
+                SpineFileUtil.syncDirectory(directory);
+            } catch (IOException e) {
+                LOG.warn("Unable to sync write-ahead log directory: " + directory.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        syncLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (channel != null) {
+                    flushBuffer();
+                    onLogThread(() -> {
+                        channel.force(false);
+                        channel.close();
+                        channel = null;
+                    });
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+        } finally {
+            syncLock.unlock();
+            logThread.shutdown();
+        }
+    }
+
+    private void writeRecord(ByteBuffer target, int payloadLength, byte type, int nid, int patternNid,
+                             int referencedComponentNid, byte[] bytes) {
+        target.putInt(payloadLength);
+        int payloadStart = target.position();
+        target.put(type);
+        target.putInt(nid);
+        target.putInt(patternNid);
+        target.putInt(referencedComponentNid);
+        if (bytes == null) {
+            target.putInt(-1);
+        } else {
+            target.putInt(bytes.length);
+            target.put(bytes);
+        }
+        crc32.reset();
+        crc32.update(target.array(), target.arrayOffset() + payloadStart, payloadLength);
+        target.putInt((int) crc32.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            onLogThread(() -> {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            });
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Runs the task on the log thread and waits for it, ignoring interrupts until it is done and then restoring
+     * the interrupt status of the calling thread.
+     */
+    private void onLogThread(ChannelTask task) throws IOException {
+        Future<?> future = logThread.submit(() -> {
+            task.run();
+            return null;
+        });
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private long replaySegment(File segmentFile, RecordProcessor processor) throws IOException {
+        long fileLength = segmentFile.length();
+        long validLength = 0;
+        long replayed = 0;
+        CRC32 replayCrc = new CRC32();
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile)))) {
+            while (fileLength - validLength >= 8) {
+                int payloadLength = dis.readInt();
+                if (payloadLength < RECORD_HEADER_SIZE || payloadLength > fileLength - validLength - 8) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                dis.readFully(payload);
+                int crc = dis.readInt();
+                replayCrc.reset();
+                replayCrc.update(payload);
+                if ((int) replayCrc.getValue() != crc) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte type = record.get();
+                int nid = record.getInt();
+                int patternNid = record.getInt();
+                int referencedComponentNid = record.getInt();
+                int byteCount = record.getInt();
+                byte[] bytes = null;
+                if (byteCount >= 0) {
+                    bytes = Arrays.copyOfRange(payload, record.position(), record.position() + byteCount);
+                }
+                processor.process(type, nid, patternNid, referencedComponentNid, bytes);
+                validLength += payloadLength + 8;
+                replayed++;
+            }
+        }
+        if (validLength < fileLength) {
+            LOG.warn("Truncating torn write-ahead log segment " + segmentFile.getName() + " at " + validLength +
+                    " of " + fileLength + " bytes");
+            try (RandomAccessFile raf = new RandomAccessFile(segmentFile, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return replayed;
+    }
+
+    private FileChannel openSegment(long segmentGeneration) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentFile(segmentGeneration).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Forcing the segment does not persist its directory entry; a new segment must survive a crash too.
+        SpineFileUtil.syncDirectory(directory);
+        return segmentChannel;
+    }
+
+    private File segmentFile(long segmentGeneration) {
+        return new File(directory, SEGMENT_PREFIX + String.format("%016d", segmentGeneration) + SEGMENT_SUFFIX);
+    }
+
+    private long[] segmentGenerations() {
+        File[] segmentFiles = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) &&
+                name.endsWith(SEGMENT_SUFFIX));
+        if (segmentFiles == null) {
+            return new long[0];
+        }
+        long[] generations = new long[segmentFiles.length];
+        for (int i = 0; i < segmentFiles.length; i++) {
+            String name = segmentFiles[i].getName();
+            generations[i] = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(generations);
+        return generations;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedByteArrayFileStoreTest {
+
+    private static AtomicReferenceArray<byte[]> testSpine() {
+        AtomicReferenceArray<byte[]> spine = new AtomicReferenceArray<>(16);
+        spine.set(0, new byte[]{1, 2, 3});
+        spine.set(5, new byte[]{4});
+        spine.set(15, new byte[]{5, 6});
+        return spine;
+    }
+
+    @Test
+    void elementReadsMatchSpine(@TempDir File directory) {
+        MappedByteArrayFileStore store = new MappedByteArrayFileStore(directory);
+        store.put(0, testSpine());
+        assertArrayEquals(new byte[]{1, 2, 3}, store.getElement(0, 0));
+        assertArrayEquals(new byte[]{4}, store.getElement(0, 5));
+        assertArrayEquals(new byte[]{5, 6}, store.getElement(0, 15));
+        assertNull(store.getElement(0, 1));
+        assertNull(store.getElement(1, 0));
+
+        AtomicReferenceArray<byte[]> replacement = testSpine();
+        replacement.set(1, new byte[]{7});
+        store.put(0, replacement);
+        assertArrayEquals(new byte[]{7}, store.getElement(0, 1));
+        AtomicReferenceArray<byte[]> read = store.get(0).orElseThrow();
+        assertEquals(16, read.length());
+        assertArrayEquals(new byte[]{5, 6}, read.get(15));
+    }
+
+    @Test
+    void legacySpineIsConverted(@TempDir File directory) {
+        new ByteArrayFileStore(directory).put(0, testSpine());
+        MappedByteArrayFileStore store = new MappedByteArrayFileStore(directory);
+        assertArrayEquals(new byte[]{4}, store.getElement(0, 5));
+        assertArrayEquals(new byte[]{1, 2, 3}, new MappedByteArrayFileStore(directory).getElement(0, 0));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidNidIndexTest {
+
+    @Test
+    void writeThenReopen(@TempDir File directory) throws IOException {
+        AtomicInteger nextNid = new AtomicInteger(Integer.MIN_VALUE + 1);
+        UUID[] uuids = new UUID[1000];
+        int[] nids = new int[uuids.length];
+        UuidNidIndex index = new UuidNidIndex(directory);
+        assertFalse(index.open());
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = UUID.randomUUID();
+            nids[i] = index.getIfAbsentPut(uuids[i], nextNid::getAndIncrement);
+        }
+        index.write();
+        UUID afterWrite = UUID.randomUUID();
+        int afterWriteNid = index.getIfAbsentPut(afterWrite, nextNid::getAndIncrement);
+        index.flushLog();
+        index.close();
+
+        UuidNidIndex reopened = new UuidNidIndex(directory);
+        assertTrue(reopened.open());
+        for (int i = 0; i < uuids.length; i++) {
+            assertEquals(nids[i], reopened.get(uuids[i]));
+        }
+        // Assignments after the last write are recovered from the log.
+        assertEquals(afterWriteNid, reopened.get(afterWrite));
+        assertFalse(reopened.containsKey(UUID.randomUUID()));
+        reopened.close();
+    }
+
+    @Test
+    void recentAssignmentTakesPrecedenceOverTable(@TempDir File directory) throws IOException {
+        UUID uuid = UUID.randomUUID();
+        UuidNidIndex index = new UuidNidIndex(directory);
+        index.open();
+        index.put(uuid, 1);
+        index.write();
+        // Remapped after the table was written, as a rebuild from the stored entities may do.
+        index.put(uuid, 2);
+        assertEquals(2, index.get(uuid));
+        assertEquals(2, index.getIfAbsentPut(uuid, () -> fail("uuid already has a nid")));
+        index.put(uuid, 1);
+        assertEquals(1, index.get(uuid));
+        index.flushLog();
+        index.close();
+
+        UuidNidIndex reopened = new UuidNidIndex(directory);
+        assertTrue(reopened.open());
+        assertEquals(1, reopened.get(uuid));
+        reopened.write();
+        assertEquals(1, reopened.get(uuid));
+        reopened.close();
+    }
+
+    @Test
+    void corruptIndexIsRejected(@TempDir File directory) throws IOException {
+        UuidNidIndex index = new UuidNidIndex(directory);
+        index.open();
+        index.put(UUID.randomUUID(), 1);
+        index.put(UUID.randomUUID(), 2);
+        index.write();
+        index.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, UuidNidIndex.INDEX_FILE_NAME), "rw")) {
+            long position = UuidNidIndex.HEADER_SIZE + 3;
+            raf.seek(position);
+            byte original = raf.readByte();
+            raf.seek(position);
+            raf.writeByte(original ^ 0xFF);
+        }
+        assertFalse(new UuidNidIndex(directory).open());
+    }
+
+    @Test
+    void racingAssignmentsLogOneNid(@TempDir File directory) throws Exception {
+        AtomicInteger suppliedNids = new AtomicInteger(Integer.MIN_VALUE + 1);
+        UuidNidIndex index = new UuidNidIndex(directory);
+        index.open();
+        UUID uuid = UUID.randomUUID();
+        int threadCount = 16;
+        int[] nids = new int[threadCount];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int threadIndex = i;
+            threads[i] = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                nids[threadIndex] = index.getIfAbsentPut(uuid, suppliedNids::getAndIncrement);
+            });
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int nid : nids) {
+            assertEquals(Integer.MIN_VALUE + 1, nid);
+        }
+        assertEquals(Integer.MIN_VALUE + 2, suppliedNids.get());
+        index.syncLog();
+        assertEquals(UuidNidIndex.ENTRY_SIZE, new File(directory, UuidNidIndex.LOG_FILE_NAME).length());
+        index.close();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private record LoggedRecord(byte type, int nid, byte[] bytes) {
+    }
+
+    private static List<LoggedRecord> replay(File directory, long fromGeneration) throws IOException {
+        List<LoggedRecord> records = new ArrayList<>();
+        WriteAheadLog log = new WriteAheadLog(directory, WriteAheadLog.SyncPolicy.COMMIT, 0, () -> {});
+        log.open(fromGeneration, (type, nid, patternNid, referencedComponentNid, bytes) ->
+                records.add(new LoggedRecord(type, nid, bytes)));
+        log.close();
+        return records;
+    }
+
+    @Test
+    void recordsAfterRotationAreReplayed(@TempDir File directory) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, WriteAheadLog.SyncPolicy.COMMIT, 0, () -> {});
+        log.open(0, (type, nid, patternNid, referencedComponentNid, bytes) -> fail("empty log replayed"));
+        log.awaitDurable(log.append(WriteAheadLog.MERGE, 1, 2, 3, new byte[]{1, 2, 3}));
+        long generation = log.rotate();
+        log.awaitDurable(log.append(WriteAheadLog.PUT, 4, Integer.MAX_VALUE, Integer.MAX_VALUE, null));
+        log.awaitDurable(log.append(WriteAheadLog.MERGE, 5, 6, 7, new byte[100_000]));
+        log.deleteSegmentsBefore(generation);
+        log.close();
+
+        List<LoggedRecord> records = replay(directory, generation);
+        assertEquals(2, records.size());
+        assertEquals(WriteAheadLog.PUT, records.get(0).type());
+        assertNull(records.get(0).bytes());
+        assertEquals(5, records.get(1).nid());
+        assertEquals(100_000, records.get(1).bytes().length);
+    }
+
+    @Test
+    void interruptedWriterDoesNotCloseTheLog(@TempDir File directory) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, WriteAheadLog.SyncPolicy.COMMIT, 0, () -> {});
+        log.open(0, (type, nid, patternNid, referencedComponentNid, bytes) -> {});
+        Thread.currentThread().interrupt();
+        try {
+            log.awaitDurable(log.append(WriteAheadLog.MERGE, 1, 2, 3, new byte[100_000]));
+            log.awaitDurable(log.append(WriteAheadLog.ERASE, 1, Integer.MAX_VALUE, Integer.MAX_VALUE, null));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        log.awaitDurable(log.append(WriteAheadLog.MERGE, 2, 2, 3, new byte[]{2}));
+        log.close();
+
+        List<LoggedRecord> records = replay(directory, 0);
+        assertEquals(3, records.size());
+        assertEquals(WriteAheadLog.ERASE, records.get(1).type());
+        assertEquals(2, records.get(2).nid());
+    }
+
+    @Test
+    void tornRecordIsTruncated(@TempDir File directory) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, WriteAheadLog.SyncPolicy.COMMIT, 0, () -> {});
+        log.open(0, (type, nid, patternNid, referencedComponentNid, bytes) -> {});
+        log.append(WriteAheadLog.MERGE, 1, 2, 3, new byte[]{1});
+        log.append(WriteAheadLog.MERGE, 2, 2, 3, new byte[]{2});
+        log.close();
+
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(WriteAheadLog.SEGMENT_PREFIX));
+        assertEquals(1, segments.length);
+        try (RandomAccessFile raf = new RandomAccessFile(segments[0], "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        List<LoggedRecord> records = replay(directory, 0);
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).nid());
+    }
+}
@@ -19,15 +19,14 @@
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
 import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.entity.EntityService;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncHttpClient;
 import io.activej.http.HttpRequest;
-import io.activej.http.WebSocket;
-import io.activej.http.WebSocket.Message;
 import io.activej.inject.annotation.Inject;
 import io.activej.inject.annotation.Provides;
 import io.activej.inject.module.Module;
@@ -40,30 +39,53 @@
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Future;
 import java.util.function.ObjIntConsumer;
 
+/**
+ * Data service that forwards each operation to a {@code DataProviderWebsocketServer} over one multiplexed
+ * websocket, so concurrent callers do not wait for each other's round trips. Batch methods fetch many entities
+ * or nids in one round trip, and iterations are streamed.
+ * <p>
+ * Entity bytes and semantic index results are kept in a near cache, which the server keeps coherent by pushing the
+ * nids of changed entities. After a reconnect the client resumes the push stream from the last change it saw,
+ * and only clears the cache if the server no longer has every change since.
+ */
 public class DataProviderWebsocketClient
         extends Launcher
         implements PrimitiveDataService {
     private static final Logger LOG = LoggerFactory.getLogger(DataProviderWebsocketClient.class);
-    private static final Integer wsKey = Integer.valueOf(1);
+    private static final int GET_BYTES_BATCH_SIZE = 1024;
+    private static final long DEFAULT_NEAR_CACHE_BYTE_BUDGET = 64L * 1024 * 1024;
     private final URI uri;
+    private final NearCache nearCache = new NearCache(
+            ServiceProperties.get(ServiceKeys.REMOTE_NEAR_CACHE_BYTE_BUDGET, DEFAULT_NEAR_CACHE_BYTE_BUDGET));
     @Inject
     AsyncHttpClient httpClient;
     @Inject
     Eventloop eventloop;
-    ConcurrentHashMap<Integer, WebSocket> wsMap = new ConcurrentHashMap<>();
+    private volatile MultiplexedWebSocket webSocket;
 
     public DataProviderWebsocketClient(URI uri) {
         this.uri = uri;
     }
 
+    /**
+     * A client that connects from an event loop the caller runs, rather than one injected when it is launched.
+     */
+    public DataProviderWebsocketClient(URI uri, Eventloop eventloop) {
+        this.uri = uri;
+        this.eventloop = eventloop;
+        this.httpClient = AsyncHttpClient.create(eventloop);
+    }
+
     public static void main(String[] args) throws Exception {
         DataProviderWebsocketClient client = new DataProviderWebsocketClient(new URI("ws://127.0.0.1:8080/"));
         client.launch(args);
@@ -85,45 +107,24 @@ protected Module getModule() {
     }
 
     @Override
-    protected void run() throws ExecutionException, InterruptedException {
-        String url = args.length != 0 ? args[0] : "ws://127.0.0.1:8080/";
-        LOG.info("\nWeb Socket request: " + url);
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            getEntity(url, PrimitiveDataService.FIRST_NID);
-        });
-        future.get();
-        future = eventloop.submit(() -> {
-            getEntity(url, PrimitiveDataService.FIRST_NID + 1);
-        });
-        future.get();
-    }
-
-    private void getEntity(String url, int nid) {
-        LOG.info("Sending nid: " + nid);
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.GET_BYTES.token);
-        buf.writeInt(nid);
-        httpClient.webSocketRequest(HttpRequest.get(url))
-                .then(webSocket -> webSocket.writeMessage(Message.binary(buf))
-                        .then(webSocket::readMessage)
-                        .whenResult(message -> {
-                            ByteBuf readBuf = message.getBuf();
-                            int length = readBuf.readInt();
-                            byte[] readData = new byte[length];
-                            readBuf.read(readData);
-                            LOG.info("Received: " + EntityService.get().unmarshalChronology(readData));
-                        })
-                        .whenComplete(webSocket::close));
+    protected void run() {
+        byte[][] entities = getBytes(new int[]{PrimitiveDataService.FIRST_NID, PrimitiveDataService.FIRST_NID + 1});
+        for (int i = 0; i < entities.length; i++) {
+            LOG.info("Received " + (entities[i] == null ? "null" : entities[i].length + " bytes") +
+                    " for nid: " + (PrimitiveDataService.FIRST_NID + i));
+        }
     }
 
     @Override
     public long writeSequence() {
-        throw new UnsupportedOperationException();
+        return webSocket().request(RemoteOperations.WRITE_SEQUENCE, 0, out -> {
+        }).readLong();
     }
 
     @Override
     public void close() {
-        WebSocket ws = wsMap.remove(wsKey);
+        MultiplexedWebSocket ws = webSocket;
+        webSocket = null;
         if (ws != null) {
             ws.close();
         }
@@ -131,123 +132,251 @@ public void close() {
 
     @Override
     public int nidForUuids(UUID... uuids) {
-        try {
-            return nidForLongArray(UuidUtil.asArray(uuids));
-        } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        return nidForLongArray(UuidUtil.asArray(uuids));
     }
 
     @Override
     public int nidForUuids(ImmutableList<UUID> uuidList) {
-        try {
-            return nidForLongArray(UuidUtil.asArray(uuidList));
-        } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException(e);
+        return nidForLongArray(UuidUtil.asArray(uuidList));
+    }
+
+    /**
+     * @return the nid of each set of UUIDs, in one round trip.
+     */
+    public int[] nidsForUuids(List<UUID[]> uuidSets) {
+        List<long[]> uuidParts = new ArrayList<>(uuidSets.size());
+        int payloadSize = 4;
+        for (UUID[] uuids : uuidSets) {
+            long[] parts = UuidUtil.asArray(uuids);
+            uuidParts.add(parts);
+            payloadSize += 4 + parts.length * 8;
         }
+        return readNids(webSocket().request(RemoteOperations.NID_FOR_UUIDS_MANY, payloadSize, out -> {
+            out.writeInt(uuidParts.size());
+            uuidParts.forEach(parts -> writeLongs(out, parts));
+        }));
     }
 
     @Override
     public boolean hasUuid(UUID uuid) {
-        throw new UnsupportedOperationException();
+        return webSocket().request(RemoteOperations.HAS_UUID, 16, out -> {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }).readBoolean();
     }
 
     @Override
     public boolean hasPublicId(PublicId publicId) {
-        throw new UnsupportedOperationException();
+        long[] parts = UuidUtil.asArray(publicId.asUuidArray());
+        return webSocket().request(RemoteOperations.HAS_PUBLIC_ID, 4 + parts.length * 8,
+                out -> writeLongs(out, parts)).readBoolean();
     }
 
     @Override
     public void forEach(ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        webSocket().stream(RemoteOperations.FOR_EACH_ENTITY, 0, out -> {
+        }, chunk -> {
+            int count = chunk.readInt();
+            for (int i = 0; i < count; i++) {
+                int nid = chunk.readInt();
+                action.accept(readBytes(chunk), nid);
+            }
+        });
     }
 
     @Override
     public void forEachParallel(ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        List<Future<?>> futures = new ArrayList<>();
+        webSocket().stream(RemoteOperations.FOR_EACH_ENTITY, 0, out -> {
+        }, chunk -> futures.add(TinkExecutor.threadPool().submit(() -> {
+            int count = chunk.readInt();
+            for (int i = 0; i < count; i++) {
+                int nid = chunk.readInt();
+                action.accept(readBytes(chunk), nid);
+            }
+        })));
+        awaitAll(futures);
     }
 
     @Override
     public void forEachParallel(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        List<Future<?>> futures = new ArrayList<>();
+        int[] nidArray = nids.toArray();
+        for (int start = 0; start < nidArray.length; start += GET_BYTES_BATCH_SIZE) {
+            int[] batch = Arrays.copyOfRange(nidArray, start, Math.min(nidArray.length, start + GET_BYTES_BATCH_SIZE));
+            byte[][] entities = getBytes(batch);
+            futures.add(TinkExecutor.threadPool().submit(() -> {
+                for (int i = 0; i < batch.length; i++) {
+                    action.accept(entities[i], batch[i]);
+                }
+            }));
+        }
+        awaitAll(futures);
     }
 
-    @Override
-    public byte[] getBytes(int nid) {
-
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.GET_BYTES.token);
-        buf.writeInt(nid);
-        AtomicReference<byte[]> readDataReference = new AtomicReference<>();
-        final WebSocket ws = webSocket();
-
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            ws.writeMessage(Message.binary(buf))
-                    .then(ws::readMessage)
-                    .whenResult(message -> {
-                        ByteBuf readBuf = message.getBuf();
-                        int length = readBuf.readInt();
-                        byte[] readData = new byte[length];
-                        readBuf.read(readData);
-                        readDataReference.set(readData);
-                        LOG.info("Received: " + EntityService.get().unmarshalChronology(readData));
-
-                    });
-        });
-
+    private static void awaitAll(List<Future<?>> futures) {
         try {
-            future.get();
-        } catch (Exception e) {
-            e.printStackTrace();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
+    }
 
-        return readDataReference.get();
+    @Override
+    public byte[] getBytes(int nid) {
+        MultiplexedWebSocket ws = webSocket();
+        byte[] cached = nearCache.bytes(ws, nid);
+        if (cached != null) {
+            return cached;
+        }
+        long loadStamp = nearCache.loadStamp(nid);
+        byte[] bytes = readBytes(ws.request(RemoteOperations.GET_BYTES, 4, out -> out.writeInt(nid)));
+        nearCache.putBytes(ws, loadStamp, nid, bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the bytes of each nid, or null for nids without an entity, in one round trip.
+     */
+    public byte[][] getBytes(int[] nids) {
+        MultiplexedWebSocket ws = webSocket();
+        byte[][] entities = new byte[nids.length][];
+        int[] missIndexes = new int[nids.length];
+        int missCount = 0;
+        for (int i = 0; i < nids.length; i++) {
+            entities[i] = nearCache.bytes(ws, nids[i]);
+            if (entities[i] == null) {
+                missIndexes[missCount++] = i;
+            }
+        }
+        if (missCount == 0) {
+            return entities;
+        }
+        int[] missNids = new int[missCount];
+        long[] loadStamps = new long[missCount];
+        for (int i = 0; i < missCount; i++) {
+            missNids[i] = nids[missIndexes[i]];
+            loadStamps[i] = nearCache.loadStamp(missNids[i]);
+        }
+        ByteBuf result = ws.request(RemoteOperations.GET_BYTES_MANY, 4 + missNids.length * 4,
+                out -> writeNids(out, missNids));
+        result.readInt();
+        for (int i = 0; i < missCount; i++) {
+            byte[] bytes = readBytes(result);
+            entities[missIndexes[i]] = bytes;
+            nearCache.putBytes(ws, loadStamps[i], missNids[i], bytes);
+        }
+        return entities;
     }
 
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity) {
-        throw new UnsupportedOperationException();
+        // The server pushes the invalidation of the merged nids before the result, so it is applied by the time
+        // this returns.
+        return readBytes(webSocket().request(RemoteOperations.MERGE, 17 + value.length, out -> {
+            out.writeInt(nid);
+            out.writeInt(patternNid);
+            out.writeInt(referencedComponentNid);
+            out.writeByte((byte) activity.ordinal());
+            out.writeInt(value.length);
+            out.write(value);
+        }));
     }
 
     @Override
     public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception {
-        throw new UnsupportedOperationException();
+        byte[] queryBytes = query.getBytes(StandardCharsets.UTF_8);
+        ByteBuf result = webSocket().request(RemoteOperations.SEARCH, 8 + queryBytes.length, out -> {
+            out.writeInt(maxResultSize);
+            out.writeInt(queryBytes.length);
+            out.write(queryBytes);
+        });
+        PrimitiveDataSearchResult[] results = new PrimitiveDataSearchResult[result.readInt()];
+        for (int i = 0; i < results.length; i++) {
+            int nid = result.readInt();
+            int rcNid = result.readInt();
+            int patternNid = result.readInt();
+            int fieldIndex = result.readInt();
+            float score = result.readFloat();
+            byte[] highlightedString = readBytes(result);
+            results[i] = new PrimitiveDataSearchResult(nid, rcNid, patternNid, fieldIndex, score,
+                    highlightedString == null ? null : new String(highlightedString, StandardCharsets.UTF_8));
+        }
+        return results;
     }
 
     @Override
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID_OF_PATTERN, patternNid, procedure);
     }
 
     @Override
     public void forEachPatternNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_PATTERN_NID, procedure);
     }
 
     @Override
     public void forEachConceptNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_CONCEPT_NID, procedure);
     }
 
     @Override
     public void forEachStampNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_STAMP_NID, procedure);
     }
 
     @Override
     public void forEachSemanticNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID, procedure);
+    }
+
+    @Override
+    public int[] semanticNidsForComponent(int componentNid) {
+        MultiplexedWebSocket ws = webSocket();
+        int[] cached = nearCache.semanticNids(ws, componentNid);
+        if (cached != null) {
+            return cached;
+        }
+        long loadStamp = nearCache.loadStamp(componentNid);
+        int[] semanticNids = readNids(ws.request(RemoteOperations.SEMANTIC_NIDS_FOR_COMPONENT, 4,
+                out -> out.writeInt(componentNid)));
+        nearCache.putSemanticNids(ws, loadStamp, componentNid, semanticNids);
+        return semanticNids;
     }
 
     @Override
     public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        for (int semanticNid : semanticNidsForComponent(componentNid)) {
+            procedure.value(semanticNid);
+        }
+    }
+
+    @Override
+    public int[] semanticNidsForComponentOfPattern(int componentNid, int patternNid) {
+        MultiplexedWebSocket ws = webSocket();
+        int[] cached = nearCache.semanticNidsOfPattern(ws, componentNid, patternNid);
+        if (cached != null) {
+            return cached;
+        }
+        long loadStamp = nearCache.loadStamp(componentNid);
+        int[] semanticNids = readNids(ws.request(RemoteOperations.SEMANTIC_NIDS_FOR_COMPONENT_OF_PATTERN, 8, out -> {
+            out.writeInt(componentNid);
+            out.writeInt(patternNid);
+        }));
+        nearCache.putSemanticNidsOfPattern(ws, loadStamp, componentNid, patternNid, semanticNids);
+        return semanticNids;
     }
 
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        for (int semanticNid : semanticNidsForComponentOfPattern(componentNid, patternNid)) {
+            procedure.value(semanticNid);
+        }
     }
 
     @Override
@@ -255,37 +384,111 @@ public String name() {
         return uri.toString();
     }
 
-    private int nidForLongArray(long[] uuidParts) throws ExecutionException, InterruptedException {
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.NID_FOR_UUIDS.token);
-        buf.writeInt(uuidParts.length);
-        for (long part : uuidParts) {
-            buf.writeLong(part);
+    private void streamNids(RemoteOperations operation, IntProcedure procedure) {
+        webSocket().stream(operation, 0, out -> {
+        }, chunk -> forEachNid(chunk, procedure));
+    }
+
+    private void streamNids(RemoteOperations operation, int argument, IntProcedure procedure) {
+        webSocket().stream(operation, 4, out -> out.writeInt(argument), chunk -> forEachNid(chunk, procedure));
+    }
+
+    private static void forEachNid(ByteBuf chunk, IntProcedure procedure) {
+        int count = chunk.readInt();
+        for (int i = 0; i < count; i++) {
+            procedure.value(chunk.readInt());
+        }
+    }
+
+    private int nidForLongArray(long[] uuidParts) {
+        return webSocket().request(RemoteOperations.NID_FOR_UUIDS, 4 + uuidParts.length * 8,
+                out -> writeLongs(out, uuidParts)).readInt();
+    }
+
+    private static int[] readNids(ByteBuf in) {
+        int[] nids = new int[in.readInt()];
+        for (int i = 0; i < nids.length; i++) {
+            nids[i] = in.readInt();
+        }
+        return nids;
+    }
+
+    private static void writeNids(ByteBuf out, int[] nids) {
+        out.writeInt(nids.length);
+        for (int nid : nids) {
+            out.writeInt(nid);
         }
-        AtomicInteger nid = new AtomicInteger();
-        final WebSocket ws = webSocket();
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            ws.writeMessage(Message.binary(buf))
-                    .then(ws::readMessage)
-                    .whenResult(message -> {
-                        ByteBuf readBuf = message.getBuf();
-                        nid.set(readBuf.readInt());
-                    });
-        });
-        future.get();
-        return nid.get();
     }
 
-    WebSocket webSocket() {
-        return wsMap.computeIfAbsent(wsKey, (Integer key) ->
-                {
+    private static void writeLongs(ByteBuf out, long[] longs) {
+        out.writeInt(longs.length);
+        for (long value : longs) {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Byte arrays are sent with an int length, -1 for null.
+     */
+    private static byte[] readBytes(ByteBuf in) {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.read(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the open connection, connecting and resuming the invalidation stream first if there is none.
+     */
+    MultiplexedWebSocket webSocket() {
+        MultiplexedWebSocket ws = webSocket;
+        if (ws == null || ws.isClosed()) {
+            synchronized (this) {
+                ws = webSocket;
+                if (ws == null || ws.isClosed()) {
+                    CompletableFuture<MultiplexedWebSocket> connected = new CompletableFuture<>();
+                    eventloop.execute(() -> httpClient.webSocketRequest(HttpRequest.get(uri.toString()))
+                            .whenComplete((socket, e) -> {
+                                if (e != null) {
+                                    connected.completeExceptionally(e);
+                                } else {
+                                    connected.complete(new MultiplexedWebSocket(socket, eventloop, nearCache::invalidate));
+                                }
+                            }));
                     try {
-                        return httpClient.webSocketRequest(HttpRequest.get(uri.toString())).toCompletableFuture().get();
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                        ws = connected.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
                         throw new RuntimeException(e);
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException("Unable to connect to " + uri, e.getCause());
                     }
+                    if (nearCache.enabled()) {
+                        subscribeInvalidations(ws);
+                    }
+                    webSocket = ws;
                 }
-        );
+            }
+        }
+        return ws;
+    }
+
+    private void subscribeInvalidations(MultiplexedWebSocket ws) {
+        long epoch = nearCache.epoch();
+        long lastSequence = nearCache.lastSequence();
+        ByteBuf result = ws.request(RemoteOperations.SUBSCRIBE_INVALIDATIONS, 16, out -> {
+            out.writeLong(epoch);
+            out.writeLong(lastSequence);
+        });
+        long serverEpoch = result.readLong();
+        long serverSequence = result.readLong();
+        boolean reset = result.readBoolean();
+        if (reset && lastSequence >= 0) {
+            LOG.info("Cleared near cache: " + uri + " no longer has the changes since " + lastSequence);
+        }
+        nearCache.synchronize(ws, serverEpoch, serverSequence, reset);
     }
 }
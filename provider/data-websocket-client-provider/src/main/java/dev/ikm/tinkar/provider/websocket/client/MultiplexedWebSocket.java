@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.client;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteResponses;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.WebSocket;
+import io.activej.http.WebSocket.Message;
+import io.activej.promise.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One websocket shared by any number of concurrent requests. Each request is tagged with an id, and a reader on
+ * the event loop routes each response to the queue of its request, where the requesting thread takes it. Callers
+ * consume streamed responses on their own thread, so they may make further requests while consuming them.
+ * Each consumed partial response returns a credit to the server, which streams no further ahead than
+ * {@link RemoteOperations#STREAM_WINDOW} partial responses, so the queue of a request is bounded. Partial responses
+ * of a request the caller has abandoned are credited as they are dropped, so the server finishes the stream.
+ * Invalidations pushed by the server are passed to a consumer on the event loop as they arrive.
+ */
+class MultiplexedWebSocket {
+    private static final Logger LOG = LoggerFactory.getLogger(MultiplexedWebSocket.class);
+    // Operation or response token and request id.
+    private static final int HEADER_SIZE = 5;
+    // A stream's window of partial responses, its RESULT or ERROR, and the ERROR of a close.
+    private static final int RESPONSE_QUEUE_CAPACITY = RemoteOperations.STREAM_WINDOW + 2;
+
+    record Response(RemoteResponses kind, ByteBuf payload) {
+    }
+
+    private final WebSocket webSocket;
+    private final Eventloop eventloop;
+    private final Consumer<ByteBuf> invalidationConsumer;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, BlockingQueue<Response>> pending = new ConcurrentHashMap<>();
+    // Only used on the event loop.
+    private Promise<Void> lastWrite = Promise.complete();
+    private volatile String closedReason = null;
+
+    MultiplexedWebSocket(WebSocket webSocket, Eventloop eventloop, Consumer<ByteBuf> invalidationConsumer) {
+        this.webSocket = webSocket;
+        this.eventloop = eventloop;
+        this.invalidationConsumer = invalidationConsumer;
+        eventloop.execute(this::readNext);
+    }
+
+    /**
+     * Sends a request and returns its result. The caller reads the result's arguments from the payload.
+     *
+     * @param payloadSize   bytes the payload writer writes.
+     * @param payloadWriter writes the request's arguments.
+     */
+    ByteBuf request(RemoteOperations operation, int payloadSize, Consumer<ByteBuf> payloadWriter) {
+        return stream(operation, payloadSize, payloadWriter, partial -> {
+            throw new IllegalStateException("Unexpected partial response to " + operation);
+        });
+    }
+
+    /**
+     * Sends a request, and passes each partial response to the consumer on the calling thread before returning
+     * the final result.
+     */
+    ByteBuf stream(RemoteOperations operation, int payloadSize, Consumer<ByteBuf> payloadWriter,
+                   Consumer<ByteBuf> partialConsumer) {
+        int requestId = nextRequestId.incrementAndGet();
+        BlockingQueue<Response> responses = new ArrayBlockingQueue<>(RESPONSE_QUEUE_CAPACITY);
+        pending.put(requestId, responses);
+        try {
+            ByteBuf request = ByteBufPool.allocate(HEADER_SIZE + payloadSize);
+            request.writeByte(operation.token);
+            request.writeInt(requestId);
+            payloadWriter.accept(request);
+            eventloop.execute(() -> write(request));
+            while (true) {
+                if (closedReason != null && responses.isEmpty()) {
+                    throw new IllegalStateException("Websocket closed: " + closedReason);
+                }
+                Response response = responses.take();
+                switch (response.kind()) {
+                    case PARTIAL -> {
+                        partialConsumer.accept(response.payload());
+                        eventloop.execute(() -> write(credit(requestId)));
+                    }
+                    case RESULT -> {
+                        return response.payload();
+                    }
+                    case ERROR -> {
+                        byte[] message = new byte[response.payload().readInt()];
+                        response.payload().read(message);
+                        throw new IllegalStateException(operation + " failed on server: " +
+                                new String(message, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            pending.remove(requestId);
+        }
+    }
+
+    private void readNext() {
+        webSocket.readMessage()
+                .whenComplete((message, e) -> {
+                    if (e != null || message == null) {
+                        close(e == null ? "end of stream" : e.toString());
+                        return;
+                    }
+                    ByteBuf buf = ByteBuf.wrapForReading(message.getBuf().asArray());
+                    RemoteResponses kind = RemoteResponses.fromToken(buf.readByte());
+                    int requestId = buf.readInt();
+                    BlockingQueue<Response> responses = pending.get(requestId);
+                    if (kind == RemoteResponses.INVALIDATE) {
+                        invalidationConsumer.accept(buf);
+                    } else if (responses == null) {
+                        LOG.warn("Dropping " + kind + " for unknown request " + requestId);
+                        if (kind == RemoteResponses.PARTIAL) {
+                            write(credit(requestId));
+                        }
+                    } else if (!responses.offer(new Response(kind, buf))) {
+                        close("server sent more than " + RemoteOperations.STREAM_WINDOW +
+                                " unconsumed partial responses to request " + requestId);
+                        webSocket.close();
+                        return;
+                    }
+                    readNext();
+                });
+    }
+
+    /**
+     * Only called on the event loop.
+     */
+    private void write(ByteBuf message) {
+        lastWrite = lastWrite.then(() -> webSocket.writeMessage(Message.binary(message)));
+    }
+
+    private static ByteBuf credit(int requestId) {
+        ByteBuf credit = ByteBufPool.allocate(HEADER_SIZE);
+        credit.writeByte(RemoteOperations.STREAM_CREDIT.token);
+        credit.writeInt(requestId);
+        return credit;
+    }
+
+    boolean isClosed() {
+        return closedReason != null;
+    }
+
+    void close() {
+        eventloop.execute(() -> {
+            close("closed by client");
+            webSocket.close();
+        });
+    }
+
+    private void close(String reason) {
+        closedReason = reason;
+        // Wake each waiting request with an error, since no response will arrive.
+        byte[] message = reason.getBytes(StandardCharsets.UTF_8);
+        pending.values().forEach(responses -> {
+            ByteBuf payload = ByteBufPool.allocate(4 + message.length);
+            payload.writeInt(message.length);
+            payload.write(message);
+            // A full queue already ends with the request's last response; the caller then sees the close.
+            responses.offer(new Response(RemoteResponses.ERROR, payload));
+        });
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.activej.bytebuf.ByteBuf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * Entity bytes and semantic index results read from a remote data service, kept until the server reports a change
+ * to the entity or the cache runs out of budget. Entries are only used while the cache is synchronized with the
+ * invalidation stream of the connection it was filled from. The epoch and sequence of the last change received
+ * let a new connection resume the stream, so the cache survives a reconnect.
+ * <p>
+ * A load that races with an invalidation must not leave the old value behind, so callers take a load stamp of the
+ * nid before sending a request, and the result is only cached if the nid has not been invalidated since. Stamps are
+ * counted per stripe of nids, so a steady stream of changes to other entities does not keep every load from being
+ * cached; nids sharing a stripe only cost a skipped put.
+ */
+class NearCache {
+    private static final int ENTRY_OVERHEAD = 32;
+    private static final int STRIPES = 1 << 12;
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    /**
+     * What is cached for one nid. Null fields are not cached.
+     *
+     * @param semanticNidsOfPattern semantics of the nid as referenced component, by pattern nid.
+     */
+    private record Entry(byte[] bytes, int[] semanticNids, Map<Integer, int[]> semanticNidsOfPattern) {
+        static final Entry EMPTY = new Entry(null, null, Map.of());
+
+        int weight() {
+            int weight = ENTRY_OVERHEAD;
+            if (bytes != null) {
+                weight += bytes.length;
+            }
+            if (semanticNids != null) {
+                weight += semanticNids.length * 4;
+            }
+            for (int[] nids : semanticNidsOfPattern.values()) {
+                weight += 8 + nids.length * 4;
+            }
+            return weight;
+        }
+    }
+
+    private final boolean enabled;
+    private final Cache<Integer, Entry> cache;
+    // Invalidations of the nids of each stripe.
+    private final AtomicLongArray invalidationCounts = new AtomicLongArray(STRIPES);
+    private volatile MultiplexedWebSocket synchronizedWith;
+    // Guarded by this.
+    private long epoch = 0;
+    private long lastSequence = -1;
+
+    NearCache(long byteBudget) {
+        this.enabled = byteBudget > 0;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(byteBudget)
+                .weigher((Integer nid, Entry entry) -> entry.weight())
+                .build();
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Starts using the cache with a connection whose invalidation subscription has been acknowledged.
+     *
+     * @param reset true if the server could not send every change since the last sequence, so nothing cached
+     *              may be trusted.
+     */
+    void synchronize(MultiplexedWebSocket webSocket, long epoch, long sequence, boolean reset) {
+        synchronized (this) {
+            if (reset) {
+                for (int i = 0; i < STRIPES; i++) {
+                    invalidationCounts.incrementAndGet(i);
+                }
+                cache.invalidateAll();
+                this.lastSequence = sequence;
+            } else {
+                this.lastSequence = Math.max(this.lastSequence, sequence);
+            }
+            this.epoch = epoch;
+        }
+        this.synchronizedWith = webSocket;
+    }
+
+    /**
+     * Applies an invalidation message pushed by the server: the sequence of the last change, then the changed
+     * nids.
+     */
+    void invalidate(ByteBuf payload) {
+        long sequence = payload.readLong();
+        int count = payload.readInt();
+        for (int i = 0; i < count; i++) {
+            int nid = payload.readInt();
+            invalidationCounts.incrementAndGet(stripe(nid));
+            cache.invalidate(nid);
+        }
+        synchronized (this) {
+            lastSequence = Math.max(lastSequence, sequence);
+        }
+    }
+
+    long loadStamp(int nid) {
+        return invalidationCounts.get(stripe(nid));
+    }
+
+    private static int stripe(int nid) {
+        return (nid ^ (nid >>> 16)) & STRIPE_MASK;
+    }
+
+    byte[] bytes(MultiplexedWebSocket webSocket, int nid) {
+        Entry entry = entry(webSocket, nid);
+        return entry == null ? null : entry.bytes();
+    }
+
+    int[] semanticNids(MultiplexedWebSocket webSocket, int componentNid) {
+        Entry entry = entry(webSocket, componentNid);
+        return entry == null || entry.semanticNids() == null ? null : entry.semanticNids().clone();
+    }
+
+    int[] semanticNidsOfPattern(MultiplexedWebSocket webSocket, int componentNid, int patternNid) {
+        Entry entry = entry(webSocket, componentNid);
+        if (entry == null) {
+            return null;
+        }
+        int[] nids = entry.semanticNidsOfPattern().get(patternNid);
+        return nids == null ? null : nids.clone();
+    }
+
+    void putBytes(MultiplexedWebSocket webSocket, long loadStamp, int nid, byte[] bytes) {
+        if (bytes != null) {
+            update(webSocket, loadStamp, nid,
+                    entry -> new Entry(bytes, entry.semanticNids(), entry.semanticNidsOfPattern()));
+        }
+    }
+
+    void putSemanticNids(MultiplexedWebSocket webSocket, long loadStamp, int componentNid, int[] semanticNids) {
+        int[] cached = semanticNids.clone();
+        update(webSocket, loadStamp, componentNid,
+                entry -> new Entry(entry.bytes(), cached, entry.semanticNidsOfPattern()));
+    }
+
+    void putSemanticNidsOfPattern(MultiplexedWebSocket webSocket, long loadStamp, int componentNid, int patternNid,
+                                  int[] semanticNids) {
+        int[] cached = semanticNids.clone();
+        update(webSocket, loadStamp, componentNid, entry -> {
+            Map<Integer, int[]> semanticNidsOfPattern = new HashMap<>(entry.semanticNidsOfPattern());
+            semanticNidsOfPattern.put(patternNid, cached);
+            return new Entry(entry.bytes(), entry.semanticNids(), Map.copyOf(semanticNidsOfPattern));
+        });
+    }
+
+    private Entry entry(MultiplexedWebSocket webSocket, int nid) {
+        if (!enabled || webSocket != synchronizedWith) {
+            return null;
+        }
+        return cache.getIfPresent(nid);
+    }
+
+    private void update(MultiplexedWebSocket webSocket, long loadStamp, int nid, UnaryOperator<Entry> updater) {
+        if (!enabled || webSocket != synchronizedWith) {
+            return;
+        }
+        // An invalidation increments the count of the nid's stripe before it removes the entry, and the removal
+        // waits for this compute, so either the stamp no longer matches or the stale value is removed after it is
+        // stored.
+        cache.asMap().compute(nid, (key, entry) -> {
+            if (invalidationCounts.get(stripe(nid)) != loadStamp) {
+                return entry;
+            }
+            return updater.apply(entry == null ? Entry.EMPTY : entry);
+        });
+    }
+}
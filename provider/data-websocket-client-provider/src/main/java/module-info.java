@@ -45,6 +45,7 @@
             with WebsocketServiceController;
 
     uses EntityService;
+    exports dev.ikm.tinkar.provider.websocket.client;
     opens dev.ikm.tinkar.provider.websocket.client
             to io.activej.inject;
 }
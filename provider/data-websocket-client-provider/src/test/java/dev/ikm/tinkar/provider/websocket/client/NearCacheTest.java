@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.client;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.eventloop.Eventloop;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NearCacheTest {
+    private static final long BYTE_BUDGET = 1 << 20;
+    private static final int NID = 42;
+
+    private NearCache nearCache;
+    private MultiplexedWebSocket webSocket;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new NearCache(BYTE_BUDGET);
+        webSocket = unconnectedWebSocket();
+        nearCache.synchronize(webSocket, 7, 0, true);
+    }
+
+    /**
+     * A connection whose event loop never runs, so it only serves as the identity the cache is synchronized with.
+     */
+    private static MultiplexedWebSocket unconnectedWebSocket() {
+        return new MultiplexedWebSocket(null, Eventloop.create(), payload -> {
+        });
+    }
+
+    private static ByteBuf invalidation(long sequence, int... nids) {
+        ByteBuf payload = ByteBufPool.allocate(12 + nids.length * 4);
+        payload.writeLong(sequence);
+        payload.writeInt(nids.length);
+        for (int nid : nids) {
+            payload.writeInt(nid);
+        }
+        return payload;
+    }
+
+    @Test
+    void loadWithoutInvalidationIsCached() {
+        long loadStamp = nearCache.loadStamp(NID);
+        nearCache.putBytes(webSocket, loadStamp, NID, new byte[]{1});
+
+        assertArrayEquals(new byte[]{1}, nearCache.bytes(webSocket, NID));
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        long loadStamp = nearCache.loadStamp(NID);
+        // The server's change arrives while the load is in flight, after the old value was read.
+        nearCache.invalidate(invalidation(1, NID));
+        nearCache.putBytes(webSocket, loadStamp, NID, new byte[]{1});
+
+        assertNull(nearCache.bytes(webSocket, NID));
+        assertEquals(1, nearCache.lastSequence());
+    }
+
+    @Test
+    void invalidationOfOtherNidsDoesNotBlockLoad() {
+        long loadStamp = nearCache.loadStamp(NID);
+        // Changes to other entities arrive while the load is in flight.
+        nearCache.invalidate(invalidation(1, NID + 1, NID + 2, NID + 3));
+        nearCache.putBytes(webSocket, loadStamp, NID, new byte[]{1});
+
+        assertArrayEquals(new byte[]{1}, nearCache.bytes(webSocket, NID));
+    }
+
+    @Test
+    void invalidationRemovesCachedEntry() {
+        nearCache.putBytes(webSocket, nearCache.loadStamp(NID), NID, new byte[]{1});
+        nearCache.putSemanticNids(webSocket, nearCache.loadStamp(NID), NID, new int[]{3, 4});
+
+        nearCache.invalidate(invalidation(1, NID));
+
+        assertNull(nearCache.bytes(webSocket, NID));
+        assertNull(nearCache.semanticNids(webSocket, NID));
+    }
+
+    @Test
+    void loadsRacingWritesNeverLeaveStaleBytes() throws InterruptedException {
+        // The server's current bytes for the nid. Each write changes them, then pushes an invalidation.
+        AtomicReference<byte[]> serverBytes = new AtomicReference<>(new byte[]{0});
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> loaders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            loaders.add(Thread.ofPlatform().start(() -> {
+                while (writing.get()) {
+                    if (nearCache.bytes(webSocket, NID) == null) {
+                        long loadStamp = nearCache.loadStamp(NID);
+                        byte[] loaded = serverBytes.get();
+                        Thread.yield();
+                        nearCache.putBytes(webSocket, loadStamp, NID, loaded);
+                    }
+                }
+            }));
+        }
+        for (int sequence = 1; sequence <= 10_000; sequence++) {
+            serverBytes.set(new byte[]{(byte) sequence, (byte) (sequence >> 8)});
+            nearCache.invalidate(invalidation(sequence, NID));
+        }
+        writing.set(false);
+        for (Thread loader : loaders) {
+            loader.join();
+        }
+
+        byte[] cached = nearCache.bytes(webSocket, NID);
+        if (cached != null) {
+            assertArrayEquals(serverBytes.get(), cached);
+        }
+    }
+
+    @Test
+    void resubscribeWithReplayKeepsEntries() {
+        nearCache.putBytes(webSocket, nearCache.loadStamp(NID), NID, new byte[]{1});
+        nearCache.invalidate(invalidation(5, NID + 1));
+
+        MultiplexedWebSocket reconnected = unconnectedWebSocket();
+        // Entries are not served through a connection until its subscription is acknowledged.
+        assertNull(nearCache.bytes(reconnected, NID));
+        assertEquals(5, nearCache.lastSequence());
+        // The server replayed the changes after 5 before acknowledging with sequence 8.
+        nearCache.invalidate(invalidation(8, NID + 2));
+        nearCache.synchronize(reconnected, 7, 8, false);
+
+        assertArrayEquals(new byte[]{1}, nearCache.bytes(reconnected, NID));
+        assertNull(nearCache.bytes(webSocket, NID));
+        assertEquals(8, nearCache.lastSequence());
+        assertEquals(7, nearCache.epoch());
+    }
+
+    @Test
+    void resubscribeWithResetClearsEntries() {
+        nearCache.putBytes(webSocket, nearCache.loadStamp(NID), NID, new byte[]{1});
+        long loadStamp = nearCache.loadStamp(NID);
+
+        MultiplexedWebSocket reconnected = unconnectedWebSocket();
+        // A restarted server has a new epoch and cannot replay the changes the cache missed.
+        nearCache.synchronize(reconnected, 11, 3, true);
+
+        assertNull(nearCache.bytes(reconnected, NID));
+        assertEquals(3, nearCache.lastSequence());
+        assertEquals(11, nearCache.epoch());
+        // A load started before the reset is not cached either.
+        nearCache.putBytes(reconnected, loadStamp, NID, new byte[]{1});
+        assertNull(nearCache.bytes(reconnected, NID));
+    }
+
+    @Test
+    void disabledCacheKeepsNothing() {
+        NearCache disabled = new NearCache(0);
+        disabled.synchronize(webSocket, 7, 0, true);
+        disabled.putBytes(webSocket, disabled.loadStamp(NID), NID, new byte[]{1});
+
+        assertNull(disabled.bytes(webSocket, NID));
+    }
+}
@@ -17,27 +17,40 @@
 
 import dev.ikm.tinkar.common.service.PluggableService;
 import dev.ikm.tinkar.common.service.PrimitiveDataService;
-import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.entity.EntityService;
+import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncServlet;
 import io.activej.http.RoutingServlet;
-import io.activej.http.WebSocket.Message;
 import io.activej.inject.annotation.Provides;
 import io.activej.launchers.http.MultithreadedHttpServerLauncher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ServiceLoader;
-import java.util.concurrent.atomic.AtomicInteger;
-
+/**
+ * Serves a data service to {@link PrimitiveDataService.RemoteOperations} clients over websockets. Each connection
+ * may have many requests in flight; they are executed on the worker pool. Clients that subscribe are pushed the
+ * nids of changed entities, so they can keep a cache of what they have read.
+ */
 public class DataProviderWebsocketServer extends MultithreadedHttpServerLauncher {
     private static final Logger LOG = LoggerFactory.getLogger(DataProviderWebsocketServer.class);
-    private final ServiceLoader<PrimitiveDataService> serviceLoader;
+    private static final int DEFAULT_INVALIDATION_LOG_CAPACITY = 65_536;
     private final PrimitiveDataService dataService;
+    // Held here because the entity service only keeps a weak reference to its subscribers.
+    private final InvalidationLog invalidationLog = new InvalidationLog(
+            ServiceProperties.get(ServiceKeys.REMOTE_INVALIDATION_LOG_CAPACITY, DEFAULT_INVALIDATION_LOG_CAPACITY));
 
     public DataProviderWebsocketServer() {
-        this.serviceLoader = PluggableService.load(PrimitiveDataService.class);
-        this.dataService = this.serviceLoader.findFirst().get();
+        this(PluggableService.load(PrimitiveDataService.class).findFirst().get());
+    }
+
+    /**
+     * Serves the given data service, such as one running in the same process as a test client.
+     */
+    public DataProviderWebsocketServer(PrimitiveDataService dataService) {
+        this.dataService = dataService;
     }
 
     public static void main(String[] args) throws Exception {
@@ -45,24 +58,19 @@ public static void main(String[] args) throws Exception {
         server.launch(args);
     }
 
+    /**
+     * @return the servlet answering websocket clients at "/", which an application can also mount on an
+     * {@code AsyncHttpServer} of its own, as an in-process test does.
+     */
     @Provides
-    AsyncServlet servlet() {
-        AtomicInteger nid = new AtomicInteger();
+    public AsyncServlet servlet() {
+        // Changes written through the entity service in this process; remote merges are recorded by the handler.
+        EntityService.get().addSubscriberWithWeakReference(invalidationLog);
+        RemoteRequestHandler handler = new RemoteRequestHandler(dataService, invalidationLog);
         return RoutingServlet.create()
-                .mapWebSocket("/", webSocket -> webSocket.readMessage()
-                        .whenResult(message -> {
-                            ByteBuf buf = message.getBuf();
-                            PrimitiveDataService.RemoteOperations operation = PrimitiveDataService.RemoteOperations.fromToken(buf.readByte());
-                            nid.set(buf.readInt());
-                            LOG.info("Received: " + operation + " for: " + nid);
-                        })
-                        .then(() -> {
-
-                            byte[] data = dataService.getBytes(nid.get());
-                            ByteBuf buf = ByteBufPool.allocate(data.length);
-                            buf.writeInt(data.length);
-                            buf.write(data);
-                            return webSocket.writeMessage(Message.binary(buf));
-                        }));
+                .mapWebSocket("/", webSocket -> {
+                    LOG.info("Websocket connected to " + dataService.name());
+                    new WebSocketSession(webSocket, Eventloop.getCurrentEventloop(), TinkExecutor.threadPool(), handler).start();
+                });
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteResponses;
+import dev.ikm.tinkar.common.util.broadcast.IntSetSubscriber;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.set.primitive.IntSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * The nids of recent changes to the served data, numbered in the order they are recorded. Each change is pushed
+ * to the subscribed connections as an {@link RemoteResponses#INVALIDATE} message, and a reconnecting client is
+ * sent the changes after the last one it saw, as long as the log still holds them. Otherwise the client is told
+ * to clear its cache.
+ * <p>
+ * The epoch is chosen when the log is created, so sequence numbers seen from an earlier server process are never
+ * taken for current ones.
+ */
+class InvalidationLog implements IntSetSubscriber {
+    // Response token and request id.
+    private static final int HEADER_SIZE = 5;
+
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final int[] nids;
+    // Sink of each subscribed connection, and the id of its subscription request.
+    private final Map<Consumer<ByteBuf>, Integer> subscribers = new HashMap<>();
+    // Sequence of the last recorded change; the log holds the changes after sequence - nids.length.
+    private long sequence = 0;
+
+    InvalidationLog(int capacity) {
+        this.nids = new int[capacity];
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        record(nid);
+    }
+
+    @Override
+    public void onNextAll(IntSet items) {
+        record(items.toArray());
+    }
+
+    /**
+     * Records the changed nids and pushes them to each subscriber.
+     */
+    synchronized void record(int... changedNids) {
+        if (changedNids.length == 0) {
+            return;
+        }
+        for (int nid : changedNids) {
+            sequence++;
+            nids[slot(sequence)] = nid;
+        }
+        // Pushed while holding the lock, so each connection receives changes in sequence order.
+        subscribers.forEach((sink, requestId) -> sink.accept(invalidateMessage(requestId, sequence, changedNids)));
+    }
+
+    /**
+     * Handles a {@link RemoteOperations#SUBSCRIBE_INVALIDATIONS} request. The changes the client has missed, if
+     * the log still holds them, are sent before the result: the log's epoch and sequence, and whether the client
+     * must clear its cache.
+     */
+    synchronized void subscribe(Consumer<ByteBuf> sink, int requestId, long clientEpoch, long lastSeenSequence) {
+        subscribers.put(sink, requestId);
+        boolean caughtUp = clientEpoch == epoch && lastSeenSequence <= sequence &&
+                sequence - lastSeenSequence <= nids.length;
+        if (caughtUp && lastSeenSequence < sequence) {
+            int[] missed = new int[(int) (sequence - lastSeenSequence)];
+            for (int i = 0; i < missed.length; i++) {
+                missed[i] = nids[slot(lastSeenSequence + 1 + i)];
+            }
+            sink.accept(invalidateMessage(requestId, sequence, missed));
+        }
+        ByteBuf out = ByteBufPool.allocate(HEADER_SIZE + 17);
+        out.writeByte(RemoteResponses.RESULT.token);
+        out.writeInt(requestId);
+        out.writeLong(epoch);
+        out.writeLong(sequence);
+        out.writeBoolean(!caughtUp);
+        sink.accept(out);
+    }
+
+    synchronized void unsubscribe(Consumer<ByteBuf> sink) {
+        subscribers.remove(sink);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % nids.length);
+    }
+
+    /**
+     * The sequence of the last change, then the changed nids.
+     */
+    private static ByteBuf invalidateMessage(int requestId, long lastSequence, int[] changedNids) {
+        ByteBuf out = ByteBufPool.allocate(HEADER_SIZE + 12 + changedNids.length * 4);
+        out.writeByte(RemoteResponses.INVALIDATE.token);
+        out.writeInt(requestId);
+        out.writeLong(lastSequence);
+        out.writeInt(changedNids.length);
+        for (int nid : changedNids) {
+            out.writeInt(nid);
+        }
+        return out;
+    }
+}
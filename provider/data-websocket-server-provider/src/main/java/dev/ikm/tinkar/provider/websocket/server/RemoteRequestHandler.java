@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteResponses;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import dev.ikm.tinkar.entity.EntityService;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Executes one {@link RemoteOperations} request against a data service, and passes the response messages to a
+ * sink in order. Streamed results are sent in chunks, so the client can start on them while the server is still
+ * iterating, and no more than {@link RemoteOperations#STREAM_WINDOW} chunks ahead of the ones it has consumed.
+ */
+class RemoteRequestHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteRequestHandler.class);
+    private static final int NIDS_PER_CHUNK = 4096;
+    private static final int BYTES_PER_CHUNK = 1 << 20;
+    // Response token and request id.
+    private static final int HEADER_SIZE = 5;
+
+    private final PrimitiveDataService dataService;
+    private final InvalidationLog invalidationLog;
+
+    RemoteRequestHandler(PrimitiveDataService dataService, InvalidationLog invalidationLog) {
+        this.dataService = dataService;
+        this.invalidationLog = invalidationLog;
+    }
+
+    /**
+     * Ends the invalidation subscription, if any, of a connection that has closed.
+     */
+    void closed(Consumer<ByteBuf> sink) {
+        invalidationLog.unsubscribe(sink);
+    }
+
+    void handle(byte[] request, Consumer<ByteBuf> sink, StreamCredits credits) {
+        ByteBuf in = ByteBuf.wrapForReading(request);
+        RemoteOperations operation = RemoteOperations.fromToken(in.readByte());
+        int requestId = in.readInt();
+        try {
+            switch (operation) {
+                case NID_FOR_UUIDS -> {
+                    int nid = dataService.nidForUuids(UuidUtil.toArray(readLongs(in)));
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, 4);
+                    out.writeInt(nid);
+                    sink.accept(out);
+                }
+                case GET_BYTES -> {
+                    byte[] bytes = dataService.getBytes(in.readInt());
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, sizeOf(bytes));
+                    writeBytes(out, bytes);
+                    sink.accept(out);
+                }
+                case MERGE -> {
+                    int nid = in.readInt();
+                    int patternNid = in.readInt();
+                    int referencedComponentNid = in.readInt();
+                    DataActivity activity = DataActivity.values()[in.readByte()];
+                    byte[] value = readBytes(in);
+                    // Providers index the source object, so it is decoded here rather than sent.
+                    Object sourceObject = EntityService.get().unmarshalChronology(value);
+                    byte[] merged = dataService.merge(nid, patternNid, referencedComponentNid, value, sourceObject, activity);
+                    // A new semantic changes the semantic index results of its referenced component.
+                    if (referencedComponentNid == Integer.MAX_VALUE) {
+                        invalidationLog.record(nid);
+                    } else {
+                        invalidationLog.record(nid, referencedComponentNid);
+                    }
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, sizeOf(merged));
+                    writeBytes(out, merged);
+                    sink.accept(out);
+                }
+                case GET_BYTES_MANY -> {
+                    int count = in.readInt();
+                    byte[][] results = new byte[count][];
+                    int size = 4;
+                    for (int i = 0; i < count; i++) {
+                        results[i] = dataService.getBytes(in.readInt());
+                        size += sizeOf(results[i]);
+                    }
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, size);
+                    out.writeInt(count);
+                    for (byte[] bytes : results) {
+                        writeBytes(out, bytes);
+                    }
+                    sink.accept(out);
+                }
+                case NID_FOR_UUIDS_MANY -> {
+                    int count = in.readInt();
+                    int[] nids = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        nids[i] = dataService.nidForUuids(UuidUtil.toArray(readLongs(in)));
+                    }
+                    sink.accept(nidsMessage(RemoteResponses.RESULT, requestId, nids));
+                }
+                case SEMANTIC_NIDS_FOR_COMPONENT -> sink.accept(nidsMessage(RemoteResponses.RESULT, requestId,
+                        dataService.semanticNidsForComponent(in.readInt())));
+                case SEMANTIC_NIDS_FOR_COMPONENT_OF_PATTERN -> {
+                    int componentNid = in.readInt();
+                    int patternNid = in.readInt();
+                    sink.accept(nidsMessage(RemoteResponses.RESULT, requestId,
+                            dataService.semanticNidsForComponentOfPattern(componentNid, patternNid)));
+                }
+                case FOR_EACH_SEMANTIC_NID_OF_PATTERN -> {
+                    int patternNid = in.readInt();
+                    streamNids(requestId, sink, credits,
+                            procedure -> dataService.forEachSemanticNidOfPattern(patternNid, procedure));
+                }
+                case FOR_EACH_CONCEPT_NID -> streamNids(requestId, sink, credits, dataService::forEachConceptNid);
+                case FOR_EACH_SEMANTIC_NID -> streamNids(requestId, sink, credits, dataService::forEachSemanticNid);
+                case FOR_EACH_PATTERN_NID -> streamNids(requestId, sink, credits, dataService::forEachPatternNid);
+                case FOR_EACH_STAMP_NID -> streamNids(requestId, sink, credits, dataService::forEachStampNid);
+                case FOR_EACH_ENTITY -> streamEntities(requestId, sink, credits);
+                case HAS_UUID -> {
+                    boolean hasUuid = dataService.hasUuid(new UUID(in.readLong(), in.readLong()));
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, 1);
+                    out.writeBoolean(hasUuid);
+                    sink.accept(out);
+                }
+                case HAS_PUBLIC_ID -> {
+                    boolean hasPublicId = dataService.hasPublicId(PublicIds.of(readLongs(in)));
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, 1);
+                    out.writeBoolean(hasPublicId);
+                    sink.accept(out);
+                }
+                case SEARCH -> {
+                    int maxResultSize = in.readInt();
+                    String query = new String(readBytes(in), StandardCharsets.UTF_8);
+                    sink.accept(searchMessage(requestId, dataService.search(query, maxResultSize)));
+                }
+                case WRITE_SEQUENCE -> {
+                    ByteBuf out = header(RemoteResponses.RESULT, requestId, 8);
+                    out.writeLong(dataService.writeSequence());
+                    sink.accept(out);
+                }
+                case SUBSCRIBE_INVALIDATIONS -> invalidationLog.subscribe(sink, requestId, in.readLong(), in.readLong());
+            }
+        } catch (Throwable t) {
+            LOG.error("Exception handling " + operation + " request " + requestId, t);
+            byte[] message = String.valueOf(t).getBytes(StandardCharsets.UTF_8);
+            ByteBuf out = header(RemoteResponses.ERROR, requestId, sizeOf(message));
+            writeBytes(out, message);
+            sink.accept(out);
+        }
+    }
+
+    private void streamNids(int requestId, Consumer<ByteBuf> sink, StreamCredits credits,
+                            Consumer<IntProcedure> iteration) {
+        MutableIntList chunk = IntLists.mutable.withInitialCapacity(NIDS_PER_CHUNK);
+        credits.open(requestId);
+        try {
+            iteration.accept(nid -> {
+                chunk.add(nid);
+                if (chunk.size() == NIDS_PER_CHUNK) {
+                    awaitCredit(requestId, credits);
+                    sink.accept(nidsMessage(RemoteResponses.PARTIAL, requestId, chunk.toArray()));
+                    chunk.clear();
+                }
+            });
+            if (chunk.notEmpty()) {
+                awaitCredit(requestId, credits);
+                sink.accept(nidsMessage(RemoteResponses.PARTIAL, requestId, chunk.toArray()));
+            }
+        } finally {
+            credits.end(requestId);
+        }
+        sink.accept(header(RemoteResponses.RESULT, requestId, 0));
+    }
+
+    private void streamEntities(int requestId, Consumer<ByteBuf> sink, StreamCredits credits) {
+        List<byte[]> chunk = new ArrayList<>();
+        MutableIntList chunkNids = IntLists.mutable.empty();
+        int[] chunkSize = new int[]{4};
+        credits.open(requestId);
+        try {
+            dataService.forEach((bytes, nid) -> {
+                chunk.add(bytes);
+                chunkNids.add(nid);
+                chunkSize[0] += 4 + sizeOf(bytes);
+                if (chunkSize[0] >= BYTES_PER_CHUNK) {
+                    awaitCredit(requestId, credits);
+                    sink.accept(entitiesMessage(requestId, chunkNids, chunk, chunkSize[0]));
+                    chunk.clear();
+                    chunkNids.clear();
+                    chunkSize[0] = 4;
+                }
+            });
+            if (!chunk.isEmpty()) {
+                awaitCredit(requestId, credits);
+                sink.accept(entitiesMessage(requestId, chunkNids, chunk, chunkSize[0]));
+            }
+        } finally {
+            credits.end(requestId);
+        }
+        sink.accept(header(RemoteResponses.RESULT, requestId, 0));
+    }
+
+    /**
+     * Waits until the client has credit for another partial response. Called from inside the provider's
+     * iteration, so an interrupt is rethrown unchecked to end the iteration.
+     */
+    private static void awaitCredit(int requestId, StreamCredits credits) {
+        try {
+            credits.acquire(requestId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during stream " + requestId, e);
+        }
+    }
+
+    private static ByteBuf entitiesMessage(int requestId, MutableIntList nids, List<byte[]> entities, int size) {
+        ByteBuf out = header(RemoteResponses.PARTIAL, requestId, size);
+        out.writeInt(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            out.writeInt(nids.get(i));
+            writeBytes(out, entities.get(i));
+        }
+        return out;
+    }
+
+    private static ByteBuf searchMessage(int requestId, PrimitiveDataSearchResult[] results) {
+        byte[][] highlights = new byte[results.length][];
+        int size = 4;
+        for (int i = 0; i < results.length; i++) {
+            String highlightedString = results[i].highlightedString();
+            highlights[i] = highlightedString == null ? null : highlightedString.getBytes(StandardCharsets.UTF_8);
+            size += 20 + sizeOf(highlights[i]);
+        }
+        ByteBuf out = header(RemoteResponses.RESULT, requestId, size);
+        out.writeInt(results.length);
+        for (int i = 0; i < results.length; i++) {
+            PrimitiveDataSearchResult result = results[i];
+            out.writeInt(result.nid());
+            out.writeInt(result.rcNid());
+            out.writeInt(result.patternNid());
+            out.writeInt(result.fieldIndex());
+            out.writeFloat(result.score());
+            writeBytes(out, highlights[i]);
+        }
+        return out;
+    }
+
+    private static ByteBuf nidsMessage(RemoteResponses kind, int requestId, int[] nids) {
+        ByteBuf out = header(kind, requestId, 4 + nids.length * 4);
+        out.writeInt(nids.length);
+        for (int nid : nids) {
+            out.writeInt(nid);
+        }
+        return out;
+    }
+
+    private static ByteBuf header(RemoteResponses kind, int requestId, int payloadSize) {
+        ByteBuf out = ByteBufPool.allocate(HEADER_SIZE + payloadSize);
+        out.writeByte(kind.token);
+        out.writeInt(requestId);
+        return out;
+    }
+
+    private static long[] readLongs(ByteBuf in) {
+        long[] longs = new long[in.readInt()];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = in.readLong();
+        }
+        return longs;
+    }
+
+    /**
+     * Byte arrays are sent with an int length, -1 for null.
+     */
+    private static int sizeOf(byte[] bytes) {
+        return bytes == null ? 4 : 4 + bytes.length;
+    }
+
+    private static void writeBytes(ByteBuf out, byte[] bytes) {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuf in) {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.read(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flow control for the streamed responses of one connection. A stream starts with
+ * {@link RemoteOperations#STREAM_WINDOW} credits and spends one for each partial response it sends; the client
+ * returns one with a {@link RemoteOperations#STREAM_CREDIT} message for each partial response it has consumed. A
+ * worker streaming to a slow client waits for credit, rather than buffering its whole iteration in the
+ * connection's write queue.
+ */
+class StreamCredits {
+    private static final long CLOSED_CHECK_MILLIS = 100;
+
+    private final ConcurrentHashMap<Integer, Semaphore> credits = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    void open(int requestId) {
+        credits.put(requestId, new Semaphore(RemoteOperations.STREAM_WINDOW));
+    }
+
+    void end(int requestId) {
+        credits.remove(requestId);
+    }
+
+    /**
+     * Called on the event loop when the client returns a credit. Credits for a stream that has ended are ignored.
+     */
+    void grant(int requestId) {
+        Semaphore semaphore = credits.get(requestId);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Waits until the stream may send another partial response.
+     *
+     * @throws IllegalStateException if the connection closes while waiting
+     */
+    void acquire(int requestId) throws InterruptedException {
+        Semaphore semaphore = credits.get(requestId);
+        while (!semaphore.tryAcquire(CLOSED_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                throw new IllegalStateException("Connection closed during stream " + requestId);
+            }
+        }
+    }
+
+    /**
+     * Ends every stream of a closed connection. Workers waiting for credit give up at their next check.
+     */
+    void close() {
+        closed = true;
+    }
+}
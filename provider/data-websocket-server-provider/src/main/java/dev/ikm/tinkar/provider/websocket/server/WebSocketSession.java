@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.WebSocket;
+import io.activej.http.WebSocket.Message;
+import io.activej.promise.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Serves the requests of one websocket connection. Each request is read on the event loop and executed on the
+ * worker pool, so a slow request does not hold up the ones behind it. Responses are written in the order they are
+ * produced, which keeps the messages of a streamed response in order. Credits the client returns for streamed
+ * responses are taken on the event loop, since the workers they release may occupy the whole pool.
+ */
+class WebSocketSession {
+    private static final Logger LOG = LoggerFactory.getLogger(WebSocketSession.class);
+
+    private final WebSocket webSocket;
+    private final Eventloop eventloop;
+    private final Executor workers;
+    private final RemoteRequestHandler handler;
+    // One instance, so the handler can recognize the connection when it closes.
+    private final Consumer<ByteBuf> sink = this::send;
+    private final StreamCredits credits = new StreamCredits();
+    // Only used on the event loop.
+    private Promise<Void> lastWrite = Promise.complete();
+
+    WebSocketSession(WebSocket webSocket, Eventloop eventloop, Executor workers, RemoteRequestHandler handler) {
+        this.webSocket = webSocket;
+        this.eventloop = eventloop;
+        this.workers = workers;
+        this.handler = handler;
+    }
+
+    void start() {
+        readNext();
+    }
+
+    private void readNext() {
+        webSocket.readMessage()
+                .whenComplete((message, e) -> {
+                    if (e != null || message == null) {
+                        if (e != null) {
+                            LOG.info("Websocket closed: " + e);
+                        }
+                        handler.closed(sink);
+                        credits.close();
+                        webSocket.close();
+                        return;
+                    }
+                    byte[] request = message.getBuf().asArray();
+                    if (request[0] == RemoteOperations.STREAM_CREDIT.token) {
+                        ByteBuf in = ByteBuf.wrapForReading(request);
+                        in.readByte();
+                        credits.grant(in.readInt());
+                    } else {
+                        workers.execute(() -> handler.handle(request, sink, credits));
+                    }
+                    readNext();
+                });
+    }
+
+    private void send(ByteBuf response) {
+        eventloop.execute(() -> lastWrite = lastWrite.then(() -> webSocket.writeMessage(Message.binary(response))));
+    }
+}
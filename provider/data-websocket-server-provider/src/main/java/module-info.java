@@ -26,6 +26,9 @@
 module dev.ikm.tinkar.provider.websocket.server {
     requires org.slf4j;
     requires dev.ikm.jpms.activej.bytebuf;
+    requires dev.ikm.jpms.eclipse.collections;
+    requires dev.ikm.jpms.eclipse.collections.api;
+    requires io.activej.eventloop;
     requires io.activej.http;
     requires io.activej.inject;
     requires io.activej.launchers.http;
@@ -35,6 +38,7 @@
     requires dev.ikm.tinkar.component;
     requires dev.ikm.tinkar.entity;
     uses PrimitiveDataService;
+    exports dev.ikm.tinkar.provider.websocket.server;
     opens dev.ikm.tinkar.provider.websocket.server
             to io.activej.inject;
 }
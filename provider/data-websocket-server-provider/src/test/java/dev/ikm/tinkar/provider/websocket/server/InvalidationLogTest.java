@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteResponses;
+import io.activej.bytebuf.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvalidationLogTest {
+    private static final int CAPACITY = 4;
+
+    /**
+     * Collects the messages sent to one connection.
+     */
+    private static class Sink implements Consumer<ByteBuf> {
+        final List<ByteBuf> messages = new ArrayList<>();
+
+        @Override
+        public void accept(ByteBuf message) {
+            messages.add(message);
+        }
+
+        ByteBuf next(RemoteResponses expectedKind, int expectedRequestId) {
+            ByteBuf message = messages.remove(0);
+            assertEquals(expectedKind, RemoteResponses.fromToken(message.readByte()));
+            assertEquals(expectedRequestId, message.readInt());
+            return message;
+        }
+    }
+
+    private record Acknowledgement(long epoch, long sequence, boolean reset) {
+        static Acknowledgement read(ByteBuf message) {
+            return new Acknowledgement(message.readLong(), message.readLong(), message.readBoolean());
+        }
+    }
+
+    private static int[] invalidatedNids(ByteBuf message, long expectedSequence) {
+        assertEquals(expectedSequence, message.readLong());
+        int[] nids = new int[message.readInt()];
+        for (int i = 0; i < nids.length; i++) {
+            nids[i] = message.readInt();
+        }
+        return nids;
+    }
+
+    /**
+     * Subscribes as a client that has never connected, and returns the server's epoch.
+     */
+    private static long firstSubscription(InvalidationLog log, Sink sink, int requestId) {
+        log.subscribe(sink, requestId, 0, -1);
+        Acknowledgement acknowledgement = Acknowledgement.read(sink.next(RemoteResponses.RESULT, requestId));
+        assertTrue(acknowledgement.reset());
+        return acknowledgement.epoch();
+    }
+
+    @Test
+    void changesArePushedToSubscribers() {
+        InvalidationLog log = new InvalidationLog(CAPACITY);
+        Sink sink = new Sink();
+        firstSubscription(log, sink, 1);
+
+        log.record(10, 11);
+
+        assertArrayEquals(new int[]{10, 11}, invalidatedNids(sink.next(RemoteResponses.INVALIDATE, 1), 2));
+        assertTrue(sink.messages.isEmpty());
+    }
+
+    @Test
+    void resubscribeReplaysMissedChanges() {
+        InvalidationLog log = new InvalidationLog(CAPACITY);
+        Sink first = new Sink();
+        long epoch = firstSubscription(log, first, 1);
+        log.record(10);
+        log.unsubscribe(first);
+        // Changes made while the client is disconnected.
+        log.record(11, 12);
+
+        Sink reconnected = new Sink();
+        log.subscribe(reconnected, 5, epoch, 1);
+
+        assertArrayEquals(new int[]{11, 12}, invalidatedNids(reconnected.next(RemoteResponses.INVALIDATE, 5), 3));
+        Acknowledgement acknowledgement = Acknowledgement.read(reconnected.next(RemoteResponses.RESULT, 5));
+        assertEquals(new Acknowledgement(epoch, 3, false), acknowledgement);
+        assertEquals(1, first.messages.size());
+    }
+
+    @Test
+    void resubscribeWithNothingMissedSendsOnlyTheAcknowledgement() {
+        InvalidationLog log = new InvalidationLog(CAPACITY);
+        Sink sink = new Sink();
+        long epoch = firstSubscription(log, sink, 1);
+        log.record(10);
+        sink.messages.clear();
+
+        log.subscribe(sink, 2, epoch, 1);
+
+        assertEquals(new Acknowledgement(epoch, 1, false), Acknowledgement.read(sink.next(RemoteResponses.RESULT, 2)));
+        assertTrue(sink.messages.isEmpty());
+    }
+
+    @Test
+    void resubscribeAfterTheLogWrappedResets() {
+        InvalidationLog log = new InvalidationLog(CAPACITY);
+        Sink first = new Sink();
+        long epoch = firstSubscription(log, first, 1);
+        log.record(10);
+        log.unsubscribe(first);
+        // More changes than the log holds.
+        log.record(11, 12, 13, 14, 15);
+
+        Sink reconnected = new Sink();
+        log.subscribe(reconnected, 2, epoch, 1);
+
+        assertEquals(new Acknowledgement(epoch, 6, true), Acknowledgement.read(reconnected.next(RemoteResponses.RESULT, 2)));
+        assertTrue(reconnected.messages.isEmpty());
+    }
+
+    @Test
+    void resubscribeAtTheEdgeOfTheLogReplays() {
+        InvalidationLog log = new InvalidationLog(CAPACITY);
+        Sink first = new Sink();
+        long epoch = firstSubscription(log, first, 1);
+        log.record(10);
+        log.unsubscribe(first);
+        log.record(11, 12, 13, 14);
+
+        Sink reconnected = new Sink();
+        log.subscribe(reconnected, 2, epoch, 1);
+
+        assertArrayEquals(new int[]{11, 12, 13, 14}, invalidatedNids(reconnected.next(RemoteResponses.INVALIDATE, 2), 5));
+        assertFalse(Acknowledgement.read(reconnected.next(RemoteResponses.RESULT, 2)).reset());
+    }
+
+    @Test
+    void resubscribeFromAnotherServerResets() {
+        InvalidationLog restarted = new InvalidationLog(CAPACITY);
+        Sink sink = new Sink();
+        long epoch = firstSubscription(restarted, sink, 1);
+        restarted.record(10, 11);
+        sink.messages.clear();
+
+        // The client's epoch and sequence came from a server process that has since been replaced.
+        restarted.subscribe(sink, 2, epoch + 1, 1);
+
+        assertEquals(new Acknowledgement(epoch, 2, true), Acknowledgement.read(sink.next(RemoteResponses.RESULT, 2)));
+        assertTrue(sink.messages.isEmpty());
+    }
+}
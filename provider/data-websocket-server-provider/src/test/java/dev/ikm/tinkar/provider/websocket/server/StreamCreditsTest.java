@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteResponses;
+import io.activej.bytebuf.ByteBuf;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class StreamCreditsTest {
+    // Nids of ten full chunks and a partial one.
+    private static final int NID_COUNT = 10 * 4096 + 7;
+    private static final int REQUEST_ID = 42;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * A data service whose only operation is iterating over NID_COUNT concept nids.
+     */
+    private static PrimitiveDataService conceptNids() {
+        return (PrimitiveDataService) Proxy.newProxyInstance(StreamCreditsTest.class.getClassLoader(),
+                new Class<?>[]{PrimitiveDataService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("forEachConceptNid")) {
+                        IntProcedure procedure = (IntProcedure) args[0];
+                        for (int nid = 1; nid <= NID_COUNT; nid++) {
+                            procedure.value(nid);
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static byte[] forEachConceptNidRequest() {
+        ByteBuf request = ByteBuf.wrapForWriting(new byte[5]);
+        request.writeByte(RemoteOperations.FOR_EACH_CONCEPT_NID.token);
+        request.writeInt(REQUEST_ID);
+        return request.getArray();
+    }
+
+    private static Thread stream(StreamCredits credits, BlockingQueue<ByteBuf> sent) {
+        RemoteRequestHandler handler = new RemoteRequestHandler(conceptNids(), new InvalidationLog(16));
+        Thread worker = new Thread(() -> handler.handle(forEachConceptNidRequest(), sent::add, credits));
+        worker.start();
+        return worker;
+    }
+
+    private static RemoteResponses kind(ByteBuf message) {
+        RemoteResponses kind = RemoteResponses.fromToken(message.readByte());
+        assertEquals(REQUEST_ID, message.readInt());
+        return kind;
+    }
+
+    @Test
+    void streamWaitsForCredit() {
+        StreamCredits credits = new StreamCredits();
+        BlockingQueue<ByteBuf> sent = new LinkedBlockingQueue<>();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Thread worker = stream(credits, sent);
+            int nids = 0;
+            for (int i = 0; i < RemoteOperations.STREAM_WINDOW; i++) {
+                ByteBuf partial = sent.take();
+                assertEquals(RemoteResponses.PARTIAL, kind(partial));
+                nids += partial.readInt();
+            }
+            // The window is spent, so nothing more is sent until a partial response is credited.
+            assertNull(sent.poll(300, TimeUnit.MILLISECONDS));
+            credits.grant(REQUEST_ID);
+            ByteBuf partial = sent.take();
+            assertEquals(RemoteResponses.PARTIAL, kind(partial));
+            nids += partial.readInt();
+
+            // Credit each one as it is consumed, as the client does, until the stream ends.
+            while (true) {
+                credits.grant(REQUEST_ID);
+                ByteBuf message = sent.take();
+                RemoteResponses kind = kind(message);
+                if (kind == RemoteResponses.RESULT) {
+                    break;
+                }
+                assertEquals(RemoteResponses.PARTIAL, kind);
+                nids += message.readInt();
+            }
+            assertEquals(NID_COUNT, nids);
+            worker.join();
+        });
+    }
+
+    @Test
+    void closeEndsStreamWaitingForCredit() {
+        StreamCredits credits = new StreamCredits();
+        BlockingQueue<ByteBuf> sent = new LinkedBlockingQueue<>();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Thread worker = stream(credits, sent);
+            for (int i = 0; i < RemoteOperations.STREAM_WINDOW; i++) {
+                assertEquals(RemoteResponses.PARTIAL, kind(sent.take()));
+            }
+            credits.close();
+            worker.join();
+            ByteBuf error = sent.poll();
+            assertNotNull(error);
+            assertEquals(RemoteResponses.ERROR, kind(error));
+        });
+    }
+}
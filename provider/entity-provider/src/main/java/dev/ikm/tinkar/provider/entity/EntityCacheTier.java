@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.entity.EntityCacheMetrics;
+
+/**
+ * One cache of the {@link EntityProvider}, keyed by nid. Callers look up with {@link #getIfPresent(int)}, and on
+ * a miss take the {@link #writeVersion(int)}, read the data store, {@link #recordMiss()} and
+ * {@link #putLoaded(int, Object, int, long)} what they read, so a lookup in a tier that cannot hold the nid does
+ * not count as a miss. Writers use {@link #put(int, Object, int)}, which wins over any load in flight.
+ */
+interface EntityCacheTier<T> {
+
+    T getIfPresent(int nid);
+
+    /**
+     * Looks up without counting a hit or affecting eviction order.
+     */
+    T peek(int nid);
+
+    /**
+     * Caches a written value, replacing whatever a concurrent load read before the write.
+     *
+     * @param weight serialized size of the value in bytes.
+     */
+    void put(int nid, T value, int weight);
+
+    /**
+     * Caches a value read from the data store, unless the nid was written or invalidated since
+     * {@link #writeVersion(int)} returned the given version. The check and the put are atomic with respect to
+     * {@link #put(int, Object, int)} and {@link #invalidate(int)} of the same nid.
+     *
+     * @param weight serialized size of the value in bytes.
+     */
+    void putLoaded(int nid, T value, int weight, long writeVersion);
+
+    /**
+     * @return the version to pass to {@link #putLoaded(int, Object, int, long)}, taken before reading the store.
+     */
+    long writeVersion(int nid);
+
+    void recordMiss();
+
+    void invalidate(int nid);
+
+    void invalidateAll();
+
+    EntityCacheMetrics metrics();
+}
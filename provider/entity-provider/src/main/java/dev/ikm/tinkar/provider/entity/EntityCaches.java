@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityCacheMetrics;
+import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.StampEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * The cache tiers of the {@link EntityProvider}: one per entity type, each with its own byte budget, and one for
+ * component descriptions. Budgets are read from {@link ServiceProperties} when the tiers are created, which is
+ * on first use after each cache reset, so they can be set along with the data store location.
+ */
+final class EntityCaches {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityCaches.class);
+
+    private static final long DEFAULT_CONCEPT_BUDGET = 16L * 1024 * 1024;
+    private static final long DEFAULT_SEMANTIC_BUDGET = 64L * 1024 * 1024;
+    private static final long DEFAULT_PATTERN_BUDGET = 4L * 1024 * 1024;
+    private static final long DEFAULT_STAMP_BUDGET = 16L * 1024 * 1024;
+    private static final long DEFAULT_STRING_BUDGET = 4L * 1024 * 1024;
+    // Estimated heap size of a String beyond its characters.
+    private static final int STRING_OVERHEAD = 40;
+
+    final EntityCacheTier<String> strings;
+    final EntityCacheTier<Entity> concepts;
+    final EntityCacheTier<Entity> semantics;
+    final EntityCacheTier<Entity> patterns;
+    final EntityCacheTier<StampEntity> stamps;
+
+    // Shared by the tiers, since a load by nid cannot tell which tier a concurrent write of the nid goes to.
+    private final WriteVersions writeVersions = new WriteVersions();
+
+    EntityCaches() {
+        this.strings = new WeightedCacheTier<>("strings",
+                ServiceProperties.get(ServiceKeys.STRING_CACHE_BYTE_BUDGET, DEFAULT_STRING_BUDGET), writeVersions);
+        this.concepts = new WeightedCacheTier<>("concepts",
+                ServiceProperties.get(ServiceKeys.CONCEPT_CACHE_BYTE_BUDGET, DEFAULT_CONCEPT_BUDGET), writeVersions);
+        this.semantics = new WeightedCacheTier<>("semantics",
+                ServiceProperties.get(ServiceKeys.SEMANTIC_CACHE_BYTE_BUDGET, DEFAULT_SEMANTIC_BUDGET), writeVersions);
+        this.patterns = new WeightedCacheTier<>("patterns",
+                ServiceProperties.get(ServiceKeys.PATTERN_CACHE_BYTE_BUDGET, DEFAULT_PATTERN_BUDGET), writeVersions);
+        if (ServiceProperties.get(ServiceKeys.STAMP_TABLE, false)) {
+            this.stamps = new StampTable(writeVersions);
+        } else {
+            this.stamps = new WeightedCacheTier<>("stamps",
+                    ServiceProperties.get(ServiceKeys.STAMP_CACHE_BYTE_BUDGET, DEFAULT_STAMP_BUDGET), writeVersions);
+        }
+        LOG.info("Entity caches: " + metrics());
+    }
+
+    /**
+     * The nid alone does not say which tier holds an entity, so each is tried, most numerous type first.
+     */
+    Entity getEntityIfPresent(int nid) {
+        Entity entity = semantics.getIfPresent(nid);
+        if (entity == null) {
+            entity = concepts.getIfPresent(nid);
+        }
+        if (entity == null) {
+            entity = stamps.getIfPresent(nid);
+        }
+        if (entity == null) {
+            entity = patterns.getIfPresent(nid);
+        }
+        return entity;
+    }
+
+    Entity peekEntity(int nid) {
+        Entity entity = semantics.peek(nid);
+        if (entity == null) {
+            entity = concepts.peek(nid);
+        }
+        if (entity == null) {
+            entity = stamps.peek(nid);
+        }
+        if (entity == null) {
+            entity = patterns.peek(nid);
+        }
+        return entity;
+    }
+
+    /**
+     * @return the version to pass to {@link #putLoadedEntity(Entity, int, long)}, taken before reading the store.
+     */
+    long writeVersion(int nid) {
+        return writeVersions.current(nid);
+    }
+
+    /**
+     * Caches an entity read from the data store after a miss, unless the nid was written since the read began.
+     */
+    void putLoadedEntity(Entity entity, int weight, long writeVersion) {
+        EntityCacheTier tier = tierFor(entity);
+        tier.recordMiss();
+        tier.putLoaded(entity.nid(), entity, weight, writeVersion);
+    }
+
+    void putEntity(Entity entity, int weight) {
+        EntityCacheTier tier = tierFor(entity);
+        tier.put(entity.nid(), entity, weight);
+    }
+
+    private EntityCacheTier tierFor(Entity entity) {
+        return switch (entity) {
+            case SemanticEntity semanticEntity -> semantics;
+            case ConceptEntity conceptEntity -> concepts;
+            case StampEntity stampEntity -> stamps;
+            case PatternEntity patternEntity -> patterns;
+            default -> throw new IllegalStateException("Unexpected value: " + entity);
+        };
+    }
+
+    static int stringWeight(String string) {
+        return STRING_OVERHEAD + string.length() * 2;
+    }
+
+    void invalidate(int nid) {
+        strings.invalidate(nid);
+        semantics.invalidate(nid);
+        concepts.invalidate(nid);
+        stamps.invalidate(nid);
+        patterns.invalidate(nid);
+    }
+
+    void invalidateAll() {
+        strings.invalidateAll();
+        semantics.invalidateAll();
+        concepts.invalidateAll();
+        stamps.invalidateAll();
+        patterns.invalidateAll();
+    }
+
+    List<EntityCacheMetrics> metrics() {
+        return List.of(concepts.metrics(), semantics.metrics(), patterns.metrics(), stamps.metrics(),
+                strings.metrics());
+    }
+}
@@ -15,36 +15,37 @@
  */
 package dev.ikm.tinkar.provider.entity;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.auto.service.AutoService;
 import dev.ikm.tinkar.common.alert.AlertObject;
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.*;
-import dev.ikm.tinkar.common.util.broadcast.Broadcaster;
-import dev.ikm.tinkar.common.util.broadcast.SimpleBroadcaster;
+import dev.ikm.tinkar.common.util.broadcast.CoalescingIntBroadcaster;
 import dev.ikm.tinkar.common.util.broadcast.Subscriber;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
 import dev.ikm.tinkar.component.Chronology;
 import dev.ikm.tinkar.component.Stamp;
 import dev.ikm.tinkar.component.Version;
+import dev.ikm.tinkar.entity.ConceptAnalogueBuilder;
 import dev.ikm.tinkar.entity.ConceptEntity;
 import dev.ikm.tinkar.entity.ConceptRecord;
 import dev.ikm.tinkar.entity.ConceptRecordBuilder;
 import dev.ikm.tinkar.entity.ConceptVersionRecord;
 import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityCacheMetrics;
 import dev.ikm.tinkar.entity.EntityDataRepair;
 import dev.ikm.tinkar.entity.EntityMergeServiceFinder;
 import dev.ikm.tinkar.entity.EntityRecordFactory;
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.PatternAnalogueBuilder;
 import dev.ikm.tinkar.entity.PatternEntity;
 import dev.ikm.tinkar.entity.PatternEntityVersion;
 import dev.ikm.tinkar.entity.PatternRecord;
 import dev.ikm.tinkar.entity.PatternRecordBuilder;
 import dev.ikm.tinkar.entity.PatternVersionRecord;
 import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.entity.SemanticAnalogueBuilder;
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
 import dev.ikm.tinkar.entity.SemanticRecord;
@@ -58,8 +59,10 @@
 import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.api.factory.primitive.IntSets;
 import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
 import org.slf4j.Logger;
@@ -67,6 +70,7 @@
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Future;
@@ -79,23 +83,34 @@
 public class EntityProvider implements EntityService, PublicIdService, DefaultDescriptionForNidService, EntityDataRepair {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityProvider.class);
-    private static final Cache<Integer, String> STRING_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
-    private static final Cache<Integer, Entity> ENTITY_CACHE = Caffeine.newBuilder().maximumSize(10240).build();
-    private static final Cache<Integer, StampEntity> STAMP_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
+    private static final int INVALIDATION_BATCH_CAPACITY = 65_536;
+    /**
+     * Locks striped by nid, so each write's merge and cache put are not interleaved with another write of the nid.
+     */
+    private static final int MERGE_STRIPES = 64;
+    private static volatile EntityCaches caches;
 
 
     //Multi<Entity<? extends EntityVersion>> chronologyBroadcaster = BroadcastProcessor.create().toHotStream();
     //  <T extends Entity<? extends EntityVersion>>
-    final Broadcaster<Integer> processor;
+    final CoalescingIntBroadcaster processor;
+    private final Object[] mergeLocks = new Object[MERGE_STRIPES];
 
     private boolean loadPhase = false;
 
     /**
-     * TODO elegant shutdown of entityStream and others
+     * Change notifications are delivered off the writing thread, so writes do not wait on subscribers. Committing or
+     * canceling a transaction, and ending the load phase, wait for delivery; a writer that reads its own writes
+     * through subscriber caches before then calls {@link #flush()}. Stopping
+     * {@link PrimitiveData} delivers what is pending and stops the delivery thread before the data service stops.
      */
     public EntityProvider() {
         LOG.info("Constructing EntityProvider");
-        this.processor = new SimpleBroadcaster<>();
+        this.processor = new CoalescingIntBroadcaster("Entity change broadcaster", INVALIDATION_BATCH_CAPACITY);
+        PrimitiveData.getStopActions().add(this.processor::shutdown);
+        for (int i = 0; i < mergeLocks.length; i++) {
+            mergeLocks[i] = new Object();
+        }
         // Ensure that the non-existent stamp is always available.
         // Write is idempotent, so writing each time should not cause any problems.
         // But we don't want to prevent starting the entity service if this.putEntity
@@ -104,62 +119,91 @@ public EntityProvider() {
         Thread.ofVirtual().start(() -> this.putEntity(StampRecord.nonExistentStamp(), DataActivity.INITIALIZE));
     }
 
+    private static EntityCaches caches() {
+        EntityCaches current = caches;
+        if (current == null) {
+            synchronized (EntityProvider.class) {
+                current = caches;
+                if (current == null) {
+                    current = new EntityCaches();
+                    caches = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public List<EntityCacheMetrics> cacheMetrics() {
+        return caches().metrics();
+    }
+
     public void addSubscriberWithWeakReference(Subscriber<Integer> subscriber) {
         this.processor.addSubscriberWithWeakReference(subscriber);
     }
 
     @Override
     public String textFast(int nid) {
+        EntityCacheTier<String> strings = caches().strings;
+        String text = strings.getIfPresent(nid);
+        if (text == null) {
+            strings.recordMiss();
+            long writeVersion = strings.writeVersion(nid);
+            text = computeText(nid);
+            if (text != null) {
+                strings.putLoaded(nid, text, EntityCaches.stringWeight(text), writeVersion);
+            }
+        }
+        return text;
+    }
 
+    private String computeText(int nid) {
         // TODO use a default language coordinate instead of this hardcode routine.
-        return STRING_CACHE.get(nid, integer -> {
-            int[] semanticNids = PrimitiveData.get().semanticNidsForComponentOfPattern(nid, DESCRIPTION_PATTERN.nid());
-            String anyString = null;
-            String fqnString = null;
-            for (int semanticNid : semanticNids) {
-                Entity descriptionSemanticEntity = Entity.getFast(semanticNid);
-                if (descriptionSemanticEntity instanceof SemanticEntity descriptionSemantic) {
-                    Entity entity = Entity.getFast(descriptionSemantic.patternNid());
-                    if (entity instanceof PatternEntity pattern) {
-                        // TODO: use version computer to get version
-                        PatternEntityVersion patternEntityVersion = (PatternEntityVersion) pattern.versions().get(0);
-                        SemanticEntityVersion version = (SemanticEntityVersion) descriptionSemantic.versions().get(0);
-                        int indexForMeaning = patternEntityVersion.indexForMeaning(TinkarTerm.DESCRIPTION_TYPE);
-                        int indexForText = patternEntityVersion.indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION);
-                        if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE)) {
-                            return (String) version.fieldValues().get(indexForText);
-                        }
-                        if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE)) {
-                            fqnString = (String) version.fieldValues().get(indexForText);
-                        }
-                        anyString = (String) version.fieldValues().get(indexForText);
-                    } else {
-                        anyString = " <" + entity.nid() + ">" + entity.asUuidList().toString();
-                        // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
-                        AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found entity with id:  " + anyString)));
-                        AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found: " + entity)));
+        int[] semanticNids = PrimitiveData.get().semanticNidsForComponentOfPattern(nid, DESCRIPTION_PATTERN.nid());
+        String anyString = null;
+        String fqnString = null;
+        for (int semanticNid : semanticNids) {
+            Entity descriptionSemanticEntity = Entity.getFast(semanticNid);
+            if (descriptionSemanticEntity instanceof SemanticEntity descriptionSemantic) {
+                Entity entity = Entity.getFast(descriptionSemantic.patternNid());
+                if (entity instanceof PatternEntity pattern) {
+                    // TODO: use version computer to get version
+                    PatternEntityVersion patternEntityVersion = (PatternEntityVersion) pattern.versions().get(0);
+                    SemanticEntityVersion version = (SemanticEntityVersion) descriptionSemantic.versions().get(0);
+                    int indexForMeaning = patternEntityVersion.indexForMeaning(TinkarTerm.DESCRIPTION_TYPE);
+                    int indexForText = patternEntityVersion.indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION);
+                    if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE)) {
+                        return (String) version.fieldValues().get(indexForText);
+                    }
+                    if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE)) {
+                        fqnString = (String) version.fieldValues().get(indexForText);
                     }
+                    anyString = (String) version.fieldValues().get(indexForText);
                 } else {
-                    anyString = " <" + descriptionSemanticEntity.nid() + "> " + descriptionSemanticEntity.asUuidList().toString();
-                    LOG.error("ERROR getting string for nid: " + anyString);
-                    LOG.error("ERROR Nid - 2: <" + (nid - 2) + "> " + getChronology(nid - 2));
-                    LOG.error("ERROR Nid - 1: <" + (nid - 1) + "> " + getChronology(nid - 1));
-                    LOG.error("ERROR Nid: <" + nid + "> " + getChronology(nid - 1));
-                    LOG.error("ERROR Nid + 1: <" + (nid + 1) + "> " + getChronology(nid + 1));
-                    LOG.error("ERROR Nid + 2: <" + (nid + 2) + "> " + getChronology(nid + 2));
-
+                    anyString = " <" + entity.nid() + ">" + entity.asUuidList().toString();
                     // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
-                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic entity from list: " +
-                            Arrays.toString(semanticNids) + "\n Found entity with id:  " + anyString)));
-                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic. Found: " + descriptionSemanticEntity)));
+                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found entity with id:  " + anyString)));
+                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found: " + entity)));
                 }
+            } else {
+                anyString = " <" + descriptionSemanticEntity.nid() + "> " + descriptionSemanticEntity.asUuidList().toString();
+                LOG.error("ERROR getting string for nid: " + anyString);
+                LOG.error("ERROR Nid - 2: <" + (nid - 2) + "> " + getChronology(nid - 2));
+                LOG.error("ERROR Nid - 1: <" + (nid - 1) + "> " + getChronology(nid - 1));
+                LOG.error("ERROR Nid: <" + nid + "> " + getChronology(nid - 1));
+                LOG.error("ERROR Nid + 1: <" + (nid + 1) + "> " + getChronology(nid + 1));
+                LOG.error("ERROR Nid + 2: <" + (nid + 2) + "> " + getChronology(nid + 2));
+
+                // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
+                AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic entity from list: " +
+                        Arrays.toString(semanticNids) + "\n Found entity with id:  " + anyString)));
+                AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic. Found: " + descriptionSemanticEntity)));
             }
-            if (fqnString != null) {
-                return fqnString;
-            }
-            return anyString;
-        });
-
+        }
+        if (fqnString != null) {
+            return fqnString;
+        }
+        return anyString;
     }
 
     @Override
@@ -182,13 +226,18 @@ public int nidForPublicId(PublicId publicId) {
     }
 
     public <T extends Entity<V>, V extends EntityVersion> T getEntityFast(int nid) {
-        return (T) ENTITY_CACHE.get(nid, entityNid -> {
+        EntityCaches entityCaches = caches();
+        Entity entity = entityCaches.getEntityIfPresent(nid);
+        if (entity == null) {
+            long writeVersion = entityCaches.writeVersion(nid);
             byte[] bytes = PrimitiveData.get().getBytes(nid);
             if (bytes == null) {
                 return null;
             }
-            return EntityRecordFactory.make(bytes);
-        });
+            entity = EntityRecordFactory.make(bytes);
+            entityCaches.putLoadedEntity(entity, bytes.length, writeVersion);
+        }
+        return (T) entity;
     }
 
     @Override
@@ -198,14 +247,19 @@ public int nidForUuids(ImmutableList<UUID> uuidList) {
 
     @Override
     public StampEntity getStampFast(int nid) {
-        return STAMP_CACHE.get(nid, stampNid -> {
-                    byte[] bytes = PrimitiveData.get().getBytes(nid);
-                    if (bytes == null) {
-                        return null;
-                    }
-                    return EntityRecordFactory.make(bytes);
-                }
-        );
+        EntityCacheTier<StampEntity> stamps = caches().stamps;
+        StampEntity stamp = stamps.getIfPresent(nid);
+        if (stamp == null) {
+            long writeVersion = stamps.writeVersion(nid);
+            byte[] bytes = PrimitiveData.get().getBytes(nid);
+            if (bytes == null) {
+                return null;
+            }
+            stamp = EntityRecordFactory.make(bytes);
+            stamps.recordMiss();
+            stamps.putLoaded(nid, stamp, bytes.length, writeVersion);
+        }
+        return stamp;
     }
 
     @Override
@@ -219,37 +273,41 @@ public void putEntityQuietly(Entity entity, DataActivity activity) {
     }
 
     private void putEntity(Entity entity, DataActivity activity, boolean dispatch) {
-        invalidateCaches(entity);
-        byte[] mergedEntityBytes = switch (entity) {
-            case ConceptEntity conceptEntity -> {
-                STRING_CACHE.put(conceptEntity.nid(), conceptEntity.asUuidList().toString());
-                yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
-            }
-            case PatternEntity patternEntity -> {
-                STRING_CACHE.put(patternEntity.nid(), patternEntity.asUuidList().toString());
-                yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
-            }
-            case SemanticEntity semanticEntity -> {
-                STRING_CACHE.put(semanticEntity.nid(), semanticEntity.asUuidList().toString());
-                yield PrimitiveData.get().merge(entity.nid(),
-                        semanticEntity.patternNid(),
-                        semanticEntity.referencedComponentNid(),
-                        entity.getBytes(), entity, activity);
-            }
-            case StampEntity stampEntity -> {
-                STAMP_CACHE.put(stampEntity.nid(), stampEntity);
-                if (stampEntity.lastVersion().stateNid() == State.CANCELED.nid()) {
-                    PrimitiveData.get().addCanceledStampNid(stampEntity.nid());
+        // Concurrent writes of an entity are cached in the order they were merged, so the last merge is cached.
+        synchronized (mergeLocks[(entity.nid() ^ (entity.nid() >>> 16)) & (MERGE_STRIPES - 1)]) {
+            Entity cachedEntity = caches().peekEntity(entity.nid());
+            invalidateCaches(entity);
+            byte[] entityBytes = entity.getBytes();
+            byte[] mergedEntityBytes = switch (entity) {
+                case ConceptEntity conceptEntity -> {
+                    putUuidString(conceptEntity);
+                    yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
+                            entityBytes, entity, activity);
                 }
-                yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
-            }
-            default -> throw new IllegalStateException("Unexpected value: " + entity);
-        };
+                case PatternEntity patternEntity -> {
+                    putUuidString(patternEntity);
+                    yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
+                            entityBytes, entity, activity);
+                }
+                case SemanticEntity semanticEntity -> {
+                    putUuidString(semanticEntity);
+                    yield PrimitiveData.get().merge(entity.nid(),
+                            semanticEntity.patternNid(),
+                            semanticEntity.referencedComponentNid(),
+                            entityBytes, entity, activity);
+                }
+                case StampEntity stampEntity -> {
+                    if (stampEntity.lastVersion().stateNid() == State.CANCELED.nid()) {
+                        PrimitiveData.get().addCanceledStampNid(stampEntity.nid());
+                    }
+                    yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
+                            entityBytes, entity, activity);
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + entity);
+            };
 
-        ENTITY_CACHE.put(entity.nid(),  EntityRecordFactory.make(mergedEntityBytes));
+            caches().putEntity(mergedEntity(entity, entityBytes, cachedEntity, mergedEntityBytes), mergedEntityBytes.length);
+        }
         if (dispatch) {
             processor.dispatch(entity.nid());
             if (entity instanceof SemanticEntity semanticEntity) {
@@ -258,6 +316,77 @@ private void putEntity(Entity entity, DataActivity activity, boolean dispatch) {
         }
     }
 
+    /**
+     * The entity that merged bytes decode to, without decoding them when the merge kept the chronology and each
+     * merged version is a version of the entity written or, for versions it lacks, of the cached entity it was
+     * merged into. Versions are matched by stamp and put in the order of the merged bytes, which is the order
+     * {@link EntityRecordFactory#make(byte[])} decodes them in. A version merged in from the store that the cached
+     * entity lacks is only in the bytes, so they are decoded.
+     */
+    private static Entity mergedEntity(Entity entity, byte[] entityBytes, Entity cachedEntity, byte[] mergedBytes) {
+        if (mergedBytes == entityBytes || Arrays.equals(mergedBytes, entityBytes)) {
+            return entity;
+        }
+        // Stamp versions all have the stamp's nid, so they cannot be matched by stamp.
+        if (!(entity instanceof ConceptRecord || entity instanceof PatternRecord || entity instanceof SemanticRecord) ||
+                !EntityBytesMerger.sameChronology(entityBytes, mergedBytes)) {
+            return EntityRecordFactory.make(mergedBytes);
+        }
+        int[] mergedStampNids = EntityBytesMerger.versionStampNids(mergedBytes);
+        MutableIntObjectMap<EntityVersion> versionsByStamp = IntObjectMaps.mutable.ofInitialCapacity(mergedStampNids.length);
+        if (cachedEntity != null && cachedEntity.getClass() == entity.getClass()) {
+            cachedEntity.versions().forEach(version -> versionsByStamp.put(((EntityVersion) version).stampNid(), (EntityVersion) version));
+        }
+        // Versions written replace cached versions with the same stamp, as they do in the merged bytes.
+        entity.versions().forEach(version -> versionsByStamp.put(((EntityVersion) version).stampNid(), (EntityVersion) version));
+        EntityVersion[] mergedVersions = new EntityVersion[mergedStampNids.length];
+        for (int i = 0; i < mergedStampNids.length; i++) {
+            mergedVersions[i] = versionsByStamp.get(mergedStampNids[i]);
+            if (mergedVersions[i] == null) {
+                return EntityRecordFactory.make(mergedBytes);
+            }
+        }
+        return withVersions(entity, mergedVersions);
+    }
+
+    /**
+     * The entity with the given versions, in order, in place of its own.
+     */
+    private static Entity withVersions(Entity<?> entity, EntityVersion[] versions) {
+        switch (entity) {
+            case ConceptRecord conceptRecord -> {
+                ConceptAnalogueBuilder builder = conceptRecord.analogueBuilder();
+                builder.analogVersions().removeIf(version -> true);
+                for (EntityVersion version : versions) {
+                    builder.add((ConceptVersionRecord) version);
+                }
+                return builder.build();
+            }
+            case PatternRecord patternRecord -> {
+                PatternAnalogueBuilder builder = patternRecord.analogueBuilder();
+                builder.analogVersions().removeIf(version -> true);
+                for (EntityVersion version : versions) {
+                    builder.add((PatternVersionRecord) version);
+                }
+                return builder.build();
+            }
+            case SemanticRecord semanticRecord -> {
+                SemanticAnalogueBuilder builder = semanticRecord.analogueBuilder();
+                builder.analogVersions().removeIf(version -> true);
+                for (EntityVersion version : versions) {
+                    builder.add((SemanticVersionRecord) version);
+                }
+                return builder.build();
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + entity);
+        }
+    }
+
+    private static void putUuidString(Entity entity) {
+        String uuidString = entity.asUuidList().toString();
+        caches().strings.put(entity.nid(), uuidString, EntityCaches.stringWeight(uuidString));
+    }
+
     @Override
     public void putStamp(StampEntity stampEntity) {
         putEntity(stampEntity);
@@ -273,17 +402,17 @@ public void invalidateCaches(Entity entity) {
                 switch (parent) {
                     case ConceptEntity conceptEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(conceptEntity.nid());
+                        caches().strings.invalidate(conceptEntity.nid());
                     }
                     case PatternEntity patternEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(patternEntity.nid());
+                        caches().strings.invalidate(patternEntity.nid());
                     }
                     case SemanticEntity semantic -> {
                         // If semantic is a dialect, might invalidate preferred description,
                         // so need to go up to concept or pattern to invalidate strings in cache.
                         parent = getEntityFast(semantic.referencedComponentNid());
-                        STRING_CACHE.invalidate(semantic.nid());
+                        caches().strings.invalidate(semantic.nid());
                     }
                     default -> throw new IllegalStateException("Unexpected value: " + parent);
                 }
@@ -294,9 +423,7 @@ public void invalidateCaches(Entity entity) {
     @Override
     public void invalidateCaches(int... nids) {
         for (int nid : nids) {
-            STRING_CACHE.invalidate(nid);
-            ENTITY_CACHE.invalidate(nid);
-            STAMP_CACHE.invalidate(nid);
+            caches().invalidate(nid);
         }
     }
 
@@ -341,6 +468,8 @@ public void notifyRefreshRequired(Transaction transaction) {
             Entity.get(nid).ifPresent(entity -> invalidateCaches(entity));
             this.processor.dispatch(nid);
         });
+        // Subscribers are notified asynchronously; the transaction is not complete until their caches are current.
+        this.processor.flush();
     }
 
     @Override
@@ -390,9 +519,8 @@ public static class CacheProvider implements CachingService {
         @Override
         public void reset() {
             LOG.info("Resetting Entity Caches");
-            STRING_CACHE.invalidateAll();
-            ENTITY_CACHE.invalidateAll();
-            STAMP_CACHE.invalidateAll();
+            // Budgets are read again on next use, since they may be set after the reset.
+            caches = null;
         }
     }
 
@@ -401,6 +529,11 @@ public void dispatch(Integer item) {
         this.processor.dispatch(item);
     }
 
+    @Override
+    public void flush() {
+        this.processor.flush();
+    }
+
     @Override
     public void removeSubscriber(Subscriber<Integer> subscriber) {
         this.processor.removeSubscriber(subscriber);
@@ -544,6 +677,7 @@ public void beginLoadPhase() {
     @Override
     public void endLoadPhase() {
         loadPhase = false;
+        processor.flush();
         // Now we build the AnalyzingSuggester Index
         try {
             TypeAheadSearch.get().buildSuggester();
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.entity.EntityCacheMetrics;
+import dev.ikm.tinkar.entity.StampEntity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stamp tier that keeps every stamp read until invalidated. Stamps are small and read by every version
+ * calculation, so when the heap allows, holding all of them avoids both eviction churn and cache bookkeeping.
+ * Stamps are held in pages of consecutive nids, so a lookup boxes only the page key.
+ */
+class StampTable implements EntityCacheTier<StampEntity> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private record Page(AtomicReferenceArray<StampEntity> stamps, AtomicIntegerArray weights) {
+        Page() {
+            this(new AtomicReferenceArray<>(PAGE_SIZE), new AtomicIntegerArray(PAGE_SIZE));
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Page> pages = new ConcurrentHashMap<>();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder weightedBytes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final WriteVersions writeVersions;
+
+    StampTable(WriteVersions writeVersions) {
+        this.writeVersions = writeVersions;
+    }
+
+    @Override
+    public StampEntity getIfPresent(int nid) {
+        Page page = pages.get(nid >> PAGE_BITS);
+        if (page == null) {
+            return null;
+        }
+        StampEntity stamp = page.stamps().get(nid & PAGE_MASK);
+        if (stamp != null) {
+            hits.increment();
+        }
+        return stamp;
+    }
+
+    @Override
+    public StampEntity peek(int nid) {
+        Page page = pages.get(nid >> PAGE_BITS);
+        if (page == null) {
+            return null;
+        }
+        return page.stamps().get(nid & PAGE_MASK);
+    }
+
+    @Override
+    public void put(int nid, StampEntity value, int weight) {
+        writeVersions.advance(nid);
+        Page page = pages.computeIfAbsent(nid >> PAGE_BITS, pageKey -> new Page());
+        synchronized (page) {
+            set(page, nid & PAGE_MASK, value, weight);
+        }
+    }
+
+    @Override
+    public void putLoaded(int nid, StampEntity value, int weight, long writeVersion) {
+        Page page = pages.computeIfAbsent(nid >> PAGE_BITS, pageKey -> new Page());
+        // Writers set the page under the same lock, so a write either precedes the check or follows the set.
+        synchronized (page) {
+            if (writeVersions.current(nid) == writeVersion) {
+                set(page, nid & PAGE_MASK, value, weight);
+            }
+        }
+    }
+
+    @Override
+    public long writeVersion(int nid) {
+        return writeVersions.current(nid);
+    }
+
+    private void set(Page page, int index, StampEntity value, int weight) {
+        if (page.stamps().getAndSet(index, value) == null) {
+            entries.increment();
+        }
+        weightedBytes.add(weight - page.weights().getAndSet(index, weight));
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void invalidate(int nid) {
+        writeVersions.advance(nid);
+        Page page = pages.get(nid >> PAGE_BITS);
+        if (page == null) {
+            return;
+        }
+        int index = nid & PAGE_MASK;
+        synchronized (page) {
+            if (page.stamps().getAndSet(index, null) != null) {
+                entries.decrement();
+            }
+            weightedBytes.add(-page.weights().getAndSet(index, 0));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        writeVersions.advanceAll();
+        pages.clear();
+        entries.reset();
+        weightedBytes.reset();
+    }
+
+    @Override
+    public EntityCacheMetrics metrics() {
+        return new EntityCacheMetrics("stamps", entries.sum(), weightedBytes.sum(), 0,
+                hits.sum(), misses.sum(), 0);
+    }
+}
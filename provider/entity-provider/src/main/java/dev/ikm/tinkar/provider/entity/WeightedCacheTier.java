@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.ikm.tinkar.entity.EntityCacheMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache tier evicting by the total serialized size of its entries rather than by their count, so a budget holds
+ * many small stamps or few large semantics alike.
+ */
+class WeightedCacheTier<T> implements EntityCacheTier<T> {
+
+    private record Weighted<T>(T value, int weight) {
+    }
+
+    private final String name;
+    private final long byteBudget;
+    private final Cache<Integer, Weighted<T>> cache;
+    private final LongAdder misses = new LongAdder();
+    private final WriteVersions writeVersions;
+
+    WeightedCacheTier(String name, long byteBudget, WriteVersions writeVersions) {
+        this.name = name;
+        this.byteBudget = byteBudget;
+        this.writeVersions = writeVersions;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(byteBudget)
+                .weigher((Integer nid, Weighted<T> weighted) -> weighted.weight())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public T getIfPresent(int nid) {
+        Weighted<T> weighted = cache.getIfPresent(nid);
+        if (weighted == null) {
+            return null;
+        }
+        return weighted.value();
+    }
+
+    @Override
+    public T peek(int nid) {
+        Weighted<T> weighted = cache.policy().getIfPresentQuietly(nid);
+        if (weighted == null) {
+            return null;
+        }
+        return weighted.value();
+    }
+
+    @Override
+    public void put(int nid, T value, int weight) {
+        writeVersions.advance(nid);
+        cache.put(nid, new Weighted<>(value, weight));
+    }
+
+    @Override
+    public void putLoaded(int nid, T value, int weight, long writeVersion) {
+        // Runs under the entry's lock, so a put or invalidate either precedes the check or follows the put.
+        cache.asMap().compute(nid, (key, existing) ->
+                writeVersions.current(nid) == writeVersion ? new Weighted<>(value, weight) : existing);
+    }
+
+    @Override
+    public long writeVersion(int nid) {
+        return writeVersions.current(nid);
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void invalidate(int nid) {
+        writeVersions.advance(nid);
+        cache.invalidate(nid);
+    }
+
+    @Override
+    public void invalidateAll() {
+        writeVersions.advanceAll();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public EntityCacheMetrics metrics() {
+        // Misses are counted by callers; the cache's own miss count includes lookups in tiers of another type.
+        CacheStats stats = cache.stats();
+        long weightedBytes = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new EntityCacheMetrics(name, cache.estimatedSize(), weightedBytes, byteBudget,
+                stats.hitCount(), misses.sum(), stats.evictionCount());
+    }
+}
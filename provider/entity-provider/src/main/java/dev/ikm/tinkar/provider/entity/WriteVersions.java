@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the writes and invalidations of each nid, striped so nids share counters. A reader takes the version
+ * before reading the data store and caches what it read only if the version is unchanged, so an entity read
+ * before a concurrent write never replaces the written one. Nids sharing a stripe only cost a skipped cache put.
+ */
+final class WriteVersions {
+    private static final int STRIPES = 1 << 12;
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    long current(int nid) {
+        return versions.get(stripe(nid));
+    }
+
+    void advance(int nid) {
+        versions.incrementAndGet(stripe(nid));
+    }
+
+    void advanceAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+    }
+
+    private static int stripe(int nid) {
+        return (nid ^ (nid >>> 16)) & STRIPE_MASK;
+    }
+}
@@ -15,24 +15,38 @@
  */
 package dev.ikm.tinkar.provider.search;
 
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
+import dev.ikm.tinkar.entity.EntityRecordFactory;
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.terms.EntityFacade;
+import dev.ikm.tinkar.terms.TinkarTerm;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,20 +54,66 @@
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 public class Indexer {
     public static final String NID_POINT = "nidPoint";
     public static final String NID = "nid";
     public static final String RC_NID = "rcNid";
+    public static final String RC_NID_POINT = "rcNidPoint";
     public static final String PATTERN_NID = "patternNid";
+    public static final String PATTERN_NID_POINT = "patternNidPoint";
     public static final String FIELD_INDEX = "fieldIndex";
     public static final String TEXT_FIELD_NAME = "text";
+    public static final String IDENTIFIER_KEY = "identifierKey";
+    /**
+     * Untokenized nid on the documents written by a rebuild, so a rebuild that starts over replaces the documents
+     * of the one before rather than adding to them.
+     */
+    static final String NID_KEY = "nidKey";
+    /**
+     * Untokenized document format, so documents written in an earlier format can be deleted once rebuilt.
+     */
+    static final String FORMAT_KEY = "format";
+    /**
+     * Commit user data key of the document format of the index. Indexes without it were written before the
+     * referenced component and pattern nid points and the identifier keys were added to documents.
+     */
+    static final String INDEX_FORMAT_KEY = "tinkarIndexFormat";
+    static final String INDEX_FORMAT = "2";
     private static final Logger LOG = LoggerFactory.getLogger(Indexer.class);
     private static final File defaultDataDirectory = new File("target/lucene/");
+    private static final int DEFAULT_INDEXING_THREADS = 2;
+    private static final int DEFAULT_INDEXING_QUEUE_CAPACITY = 10_000;
+    private static final double LOAD_PHASE_RAM_BUFFER_SIZE_MB = 256;
     private static DirectoryReader indexReader;
     private static Directory indexDirectory;
     private static Analyzer analyzer;
     private static IndexWriter indexWriter;
+    private static PausableMergePolicy mergePolicy;
+    private static final AtomicLong latestGeneration = new AtomicLong();
+    private static IndexingPipeline pipeline;
+    private static boolean tunedForLoadPhase = false;
+    private static volatile boolean formatCurrent = true;
+    /**
+     * Set on a thread that has queued an identifier semantic that may not be searchable yet, so only lookups that
+     * follow the thread's own identifier writes wait for the indexing queue.
+     */
+    private static final ThreadLocal<Boolean> pendingIdentifierWrites = ThreadLocal.withInitial(() -> false);
+    /**
+     * Whether the entity service is loading, which tunes the writer for bulk adds. Tests of this module, which run
+     * without an entity service, replace it.
+     */
+    static BooleanSupplier loadPhase = () -> EntityService.get().isLoadPhase();
     private final Path indexPath;
 
     public Indexer() throws IOException {
@@ -61,16 +121,28 @@ public Indexer() throws IOException {
         Indexer.analyzer = new StandardAnalyzer();
         Indexer.indexWriter = Indexer.getIndexWriter();
         Indexer.indexReader = DirectoryReader.open(Indexer.indexWriter, true, false);
+        Indexer.latestGeneration.set(0);
         this.indexPath = null;
+        Indexer.pipeline = newPipeline();
+        markFormatCurrent();
     }
 
     private static IndexWriter getIndexWriter() throws IOException {
         //Create the indexer
         IndexWriterConfig config = new IndexWriterConfig(analyzer());
         config.setCommitOnClose(true);
+        Indexer.mergePolicy = new PausableMergePolicy(config.getMergePolicy());
+        config.setMergePolicy(Indexer.mergePolicy);
         return new IndexWriter(indexDirectory(), config);
     }
 
+    private static IndexingPipeline newPipeline() {
+        return new IndexingPipeline(
+                ServiceProperties.get(ServiceKeys.INDEXING_THREADS, DEFAULT_INDEXING_THREADS),
+                ServiceProperties.get(ServiceKeys.INDEXING_QUEUE_CAPACITY, DEFAULT_INDEXING_QUEUE_CAPACITY),
+                Indexer::indexBatch);
+    }
+
     public static Analyzer analyzer() {
         return analyzer;
     }
@@ -84,21 +156,126 @@ public static DirectoryReader indexReader() {
         return indexReader;
     }
 
+    /**
+     * @return the index writer sequence number of the most recently indexed document, which can be passed to
+     * {@link Searcher#waitForGeneration(long)} to wait until that document is searchable.
+     */
+    public static long latestGeneration() {
+        return latestGeneration.get();
+    }
+
     public Indexer(Path indexPath) throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Opening lucene indexer");
         this.indexPath = indexPath;
         Indexer.indexDirectory = FSDirectory.open(this.indexPath);
         Indexer.analyzer = new StandardAnalyzer();
+        String indexFormat = DirectoryReader.indexExists(Indexer.indexDirectory) ?
+                SegmentInfos.readLatestCommit(Indexer.indexDirectory).getUserData().get(INDEX_FORMAT_KEY) : null;
         Indexer.indexWriter = Indexer.getIndexWriter();
         Indexer.indexReader = DirectoryReader.open(Indexer.indexWriter);
+        // Sequence numbers start over with each index writer.
+        Indexer.latestGeneration.set(0);
+        Indexer.pipeline = newPipeline();
+        if (Indexer.indexReader.maxDoc() == 0 || INDEX_FORMAT.equals(indexFormat)) {
+            markFormatCurrent();
+        } else {
+            Indexer.formatCurrent = false;
+            LOG.warn("Lucene index at " + indexPath + " predates index format " + INDEX_FORMAT +
+                    "; searches fall back to slower paths until it is rebuilt");
+        }
         stopwatch.stop();
         LOG.info("Opened lucene index in: " + stopwatch.durationString());
     }
 
+    private static void markFormatCurrent() {
+        Indexer.indexWriter.setLiveCommitData(Map.of(INDEX_FORMAT_KEY, INDEX_FORMAT).entrySet());
+        Indexer.formatCurrent = true;
+    }
+
+    /**
+     * @return false while the index holds documents written before the identifier keys and the referenced
+     * component and pattern nid points were indexed, in which case searches that depend on them must fall back.
+     */
+    public static boolean formatCurrent() {
+        return formatCurrent;
+    }
+
+    /**
+     * If the index predates the current document format, rebuilds it in the background from every stored semantic,
+     * and marks it current once the rebuild is committed. Searches fall back until then. The rebuild is made in
+     * place without first clearing the index, so searches keep finding every semantic while it runs: each semantic
+     * gets a document in the current format, and the documents in the old format are deleted in one operation at
+     * the end. Semantics written during the rebuild are indexed as usual, and may be indexed twice, which the index
+     * already tolerates since semantics are append only. A rebuild interrupted by a crash starts over on the next
+     * open.
+     *
+     * @param forEachSemanticNid passes each stored semantic nid to the procedure
+     * @param bytesForNid        the stored bytes of a nid
+     */
+    public void reindexIfStale(Consumer<IntProcedure> forEachSemanticNid, IntFunction<byte[]> bytesForNid) {
+        if (formatCurrent) {
+            return;
+        }
+        TinkExecutor.threadPool().execute(() -> {
+            Stopwatch stopwatch = new Stopwatch();
+            LOG.info("Rebuilding lucene index in format " + INDEX_FORMAT);
+            try {
+                forEachSemanticNid.accept(nid -> {
+                    byte[] bytes = bytesForNid.apply(nid);
+                    if (bytes != null && EntityRecordFactory.make(bytes) instanceof SemanticEntity semanticEntity) {
+                        pipeline.enqueueReplacement(semanticEntity);
+                    }
+                });
+                pipeline.drain();
+                BooleanQuery.Builder oldFormat = new BooleanQuery.Builder();
+                oldFormat.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+                oldFormat.add(new TermQuery(new Term(FORMAT_KEY, INDEX_FORMAT)), BooleanClause.Occur.MUST_NOT);
+                latestGeneration.accumulateAndGet(indexWriter.deleteDocuments(oldFormat.build()), Math::max);
+                markFormatCurrent();
+                indexWriter.commit();
+                stopwatch.stop();
+                LOG.info("Rebuilt lucene index in: " + stopwatch.durationString());
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Unable to rebuild lucene index; searches continue to fall back", e);
+            }
+        });
+    }
+
+    /**
+     * @return the depth, throughput, and lag of the indexing queue.
+     */
+    public static IndexingMetrics indexingMetrics() {
+        return pipeline.metrics();
+    }
+
+    /**
+     * Blocks until every semantic passed to {@link #index(Object)} before this call has been added to the index
+     * writer. Combine with {@link Searcher#waitForLatestGeneration()} to wait until it is searchable.
+     */
+    public static void drain() {
+        pipeline.drain();
+    }
+
+    /**
+     * @return true if this thread has queued an identifier semantic since it last cleared the flag with
+     * {@link #clearPendingIdentifierWrites()}
+     */
+    static boolean hasPendingIdentifierWrites() {
+        return pendingIdentifierWrites.get();
+    }
+
+    static void clearPendingIdentifierWrites() {
+        pendingIdentifierWrites.set(false);
+    }
+
     public void commit() throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Committing lucene index");
+        pipeline.drain();
+        if (!loadPhase.getAsBoolean()) {
+            tuneForLoadPhase(false);
+        }
         indexWriter.commit();
         stopwatch.stop();
         LOG.info("Committed lucene index in: {}", stopwatch.durationString());
@@ -107,6 +284,9 @@ public void commit() throws IOException {
     public void close() throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Closing lucene index");
+        pipeline.close();
+        tuneForLoadPhase(false);
+        Searcher.closeRefresher();
         Indexer.indexReader.close();
         Indexer.indexWriter.close();
         TypeAheadSearch.get().close();
@@ -114,69 +294,179 @@ public void close() throws IOException {
         LOG.info("Closed lucene index in: " + stopwatch.durationString());
     }
 
+    /**
+     * Queues a semantic to be indexed by the indexing threads, blocking if the queue is full. Other objects are
+     * ignored.
+     */
     public void index(Object object) {
         if (object instanceof SemanticEntity semanticEntity) {
-            IntPoint nidPoint = new IntPoint(NID_POINT, 0);
-            // The IntPoint field does not store the value,
-            // so we also need a stored field to retrieve the nid from a document.
-            StoredField nidField = new StoredField(NID, 0);
-            StoredField rcNidField = new StoredField(RC_NID, 0);
-            StoredField patternNidField = new StoredField(PATTERN_NID, 0);
-            StoredField fieldIndexField = new StoredField(FIELD_INDEX, 0);
-
-            // KEC: Deliberately commented out. See explanation on method for reason.
-            // deleteDocumentIfExists(semanticEntity);
-
-
-            Document document = new Document();
-            nidPoint.setIntValue(semanticEntity.nid());
-            nidField.setIntValue(semanticEntity.nid());
-            rcNidField.setIntValue(semanticEntity.referencedComponentNid());
-            patternNidField.setIntValue(semanticEntity.patternNid());
-
-            document.add(nidPoint);
-            document.add(nidField);
-            document.add(rcNidField);
-            document.add(patternNidField);
-            for (SemanticEntityVersion version : ((SemanticEntity<SemanticEntityVersion>) semanticEntity).versions()) {
-                ImmutableList<Object> fields = version.fieldValues();
-                for (int i = 0; i < fields.size(); i++) {
-                    Object field = fields.get(i);
-                    if (field instanceof String text) {
-                        text = text.strip();
-                        if (i == 0) {
+            if (semanticEntity.patternNid() == TinkarTerm.IDENTIFIER_PATTERN.nid()) {
+                pendingIdentifierWrites.set(true);
+            }
+            pipeline.enqueue(semanticEntity);
+        }
+    }
+
+    /**
+     * While a load phase is in progress, the writer buffers more documents in memory before flushing a segment,
+     * and selects no merges. When the load phase ends, the default buffer is restored and the segments flushed
+     * during the load are merged.
+     */
+    static synchronized void tuneForLoadPhase(boolean loadPhase) {
+        if (loadPhase == tunedForLoadPhase) {
+            return;
+        }
+        tunedForLoadPhase = loadPhase;
+        mergePolicy.setPaused(loadPhase);
+        if (loadPhase) {
+            indexWriter.getConfig().setRAMBufferSizeMB(LOAD_PHASE_RAM_BUFFER_SIZE_MB);
+        } else {
+            indexWriter.getConfig().setRAMBufferSizeMB(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
+            try {
+                indexWriter.maybeMerge();
+            } catch (IOException e) {
+                LOG.error("Exception merging lucene index after load phase", e);
+            }
+        }
+    }
+
+    private static void indexBatch(List<SemanticEntity> additions, List<SemanticEntity> replacements) {
+        boolean loadPhase = Indexer.loadPhase.getAsBoolean();
+        tuneForLoadPhase(loadPhase);
+        if (!additions.isEmpty()) {
+            List<Document> documents = new ArrayList<>(additions.size());
+            for (SemanticEntity semanticEntity : additions) {
+                documents.add(document(semanticEntity));
+            }
+            addDocuments(documents, loadPhase);
+        }
+        if (!replacements.isEmpty()) {
+            replaceDocuments(replacements);
+        }
+    }
+
+    static void addDocuments(List<Document> documents, boolean loadPhase) {
+        try {
+            long addSequence = indexWriter.addDocuments(documents);
+            latestGeneration.accumulateAndGet(addSequence, Math::max);
+            if (!loadPhase) {
+                List<String> texts = new ArrayList<>();
+                for (Document document : documents) {
+                    texts.addAll(Arrays.asList(document.getValues(TEXT_FIELD_NAME)));
+                }
+                TypeAheadSearch.get().indexed(texts);
+            }
+        } catch (IOException e) {
+            LOG.error("Exception writing " + documents.size() + " documents", e);
+        }
+    }
+
+    /**
+     * Adds the rebuilt documents, replacing those an earlier rebuild wrote for the same semantics.
+     */
+    static void replaceDocuments(List<SemanticEntity> semanticEntities) {
+        try {
+            for (SemanticEntity semanticEntity : semanticEntities) {
+                String nid = Integer.toString(semanticEntity.nid());
+                Document document = document(semanticEntity);
+                document.add(new StringField(NID_KEY, nid, Field.Store.NO));
+                latestGeneration.accumulateAndGet(indexWriter.updateDocument(new Term(NID_KEY, nid), document),
+                        Math::max);
+            }
+        } catch (IOException e) {
+            LOG.error("Exception replacing the documents of " + semanticEntities.size() + " semantics", e);
+        }
+    }
+
+    static Document document(SemanticEntity semanticEntity) {
+        IntPoint nidPoint = new IntPoint(NID_POINT, 0);
+        // The IntPoint field does not store the value,
+        // so we also need a stored field to retrieve the nid from a document.
+        StoredField nidField = new StoredField(NID, 0);
+        StoredField rcNidField = new StoredField(RC_NID, 0);
+        StoredField patternNidField = new StoredField(PATTERN_NID, 0);
+        StoredField fieldIndexField = new StoredField(FIELD_INDEX, 0);
+
+        // KEC: Deliberately commented out. See explanation on method for reason.
+        // deleteDocumentIfExists(semanticEntity);
+
+
+        Document document = new Document();
+        // Indexed (not stored) copies of the referenced component and pattern nids, so searches can be
+        // filtered by them inside the query.
+        document.add(new IntPoint(RC_NID_POINT, semanticEntity.referencedComponentNid()));
+        document.add(new IntPoint(PATTERN_NID_POINT, semanticEntity.patternNid()));
+        document.add(new StringField(FORMAT_KEY, INDEX_FORMAT, Field.Store.NO));
+        nidPoint.setIntValue(semanticEntity.nid());
+        nidField.setIntValue(semanticEntity.nid());
+        rcNidField.setIntValue(semanticEntity.referencedComponentNid());
+        patternNidField.setIntValue(semanticEntity.patternNid());
+
+        document.add(nidPoint);
+        document.add(nidField);
+        document.add(rcNidField);
+        document.add(patternNidField);
+        for (SemanticEntityVersion version : ((SemanticEntity<SemanticEntityVersion>) semanticEntity).versions()) {
+            ImmutableList<Object> fields = version.fieldValues();
+            for (int i = 0; i < fields.size(); i++) {
+                Object field = fields.get(i);
+                if (field instanceof String text) {
+                    text = text.strip();
+                    if (i == 0) {
+                        document.add(new TextField(TEXT_FIELD_NAME, text, Field.Store.YES));
+                        fieldIndexField.setIntValue(i);
+                        document.add(fieldIndexField);
+                    } else {
+                        // Check to make sure identical text is not already in the document,
+                        // to prevent unnecessary document/index bloat.
+                        boolean alreadyAdded = false;
+                        for (String value: document.getValues(TEXT_FIELD_NAME)) {
+                            if (text.equals(value)) {
+                                alreadyAdded = true;
+                                break;
+                            }
+                        }
+                        if (!alreadyAdded) {
                             document.add(new TextField(TEXT_FIELD_NAME, text, Field.Store.YES));
                             fieldIndexField.setIntValue(i);
                             document.add(fieldIndexField);
-                        } else {
-                            // Check to make sure identical text is not already in the document,
-                            // to prevent unnecessary document/index bloat.
-                            boolean alreadyAdded = false;
-                            for (String value: document.getValues(TEXT_FIELD_NAME)) {
-                                if (text.equals(value)) {
-                                    alreadyAdded = true;
-                                    break;
-                                }
-                            }
-                            if (!alreadyAdded) {
-                                document.add(new TextField(TEXT_FIELD_NAME, text, Field.Store.YES));
-                                fieldIndexField.setIntValue(i);
-                                document.add(fieldIndexField);
-                            }
                         }
                     }
                 }
             }
-            try {
-                long addSequence = indexWriter.addDocument(document);
-                if (!EntityService.get().isLoadPhase()) {
-                    TypeAheadSearch.get().buildSuggester();
+        }
+        if (semanticEntity.patternNid() == TinkarTerm.IDENTIFIER_PATTERN.nid()) {
+            addIdentifierKeys(document, (SemanticEntity<SemanticEntityVersion>) semanticEntity);
+        }
+        return document;
+    }
+
+    /**
+     * Adds an untokenized key for each (identifier source, identifier value) pair of any version, so identifier
+     * lookups are a term query rather than a scan of the identifier pattern. Sources are the component fields and
+     * values the string fields, which does not depend on the field order of the identifier pattern.
+     */
+    private static void addIdentifierKeys(Document document, SemanticEntity<SemanticEntityVersion> semanticEntity) {
+        Set<String> identifierKeys = new HashSet<>();
+        for (SemanticEntityVersion version : semanticEntity.versions()) {
+            ImmutableList<Object> fields = version.fieldValues();
+            for (Object source : fields) {
+                if (source instanceof EntityFacade sourceFacade) {
+                    for (Object value : fields) {
+                        if (value instanceof String identifierValue) {
+                            identifierKeys.add(identifierKey(sourceFacade.nid(), identifierValue));
+                        }
+                    }
                 }
-            } catch (IOException e) {
-                LOG.error("Exception writing: " + object);
             }
         }
+        for (String identifierKey : identifierKeys) {
+            document.add(new StringField(IDENTIFIER_KEY, identifierKey, Field.Store.NO));
+        }
+    }
 
+    static String identifierKey(int identifierSourceNid, String identifierValue) {
+        return identifierSourceNid + ":" + identifierValue;
     }
 
     /**
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+/**
+ * Point in time view of the {@link Indexer} pipeline.
+ *
+ * @param queueDepth   semantics waiting to be indexed.
+ * @param enqueued     semantics submitted for indexing since the index was opened.
+ * @param indexed      semantics added to the index since the index was opened.
+ * @param lagNanos     time the oldest waiting semantic has been queued, or zero if the queue is empty.
+ */
+public record IndexingMetrics(int queueDepth, long enqueued, long indexed, long lagNanos) {
+
+    public double lagMillis() {
+        return lagNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexingMetrics{queueDepth=" + queueDepth +
+                ", enqueued=" + enqueued +
+                ", indexed=" + indexed +
+                ", lagMillis=" + String.format("%.3f", lagMillis()) + "}";
+    }
+}
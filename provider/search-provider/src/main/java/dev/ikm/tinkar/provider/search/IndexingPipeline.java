@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexes semantics on worker threads, so writers only pay for putting the semantic on a bounded queue. Each
+ * worker takes what is queued, up to a batch, and passes it to the batch indexer in one call. A full queue blocks
+ * writers until the workers catch up.
+ * <p>
+ * Each semantic gets a sequence number when queued. Workers finish batches out of order, so {@link #drain()} waits
+ * on the lowest sequence not yet indexed rather than on a count of indexed semantics.
+ */
+class IndexingPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexingPipeline.class);
+    private static final int BATCH_SIZE = 256;
+
+    @FunctionalInterface
+    interface BatchIndexer {
+        /**
+         * @param additions    semantics whose documents are added to the index
+         * @param replacements semantics queued by a rebuild, whose documents replace those of an earlier rebuild
+         */
+        void index(List<SemanticEntity> additions, List<SemanticEntity> replacements);
+    }
+
+    private record QueuedSemantic(long sequence, SemanticEntity semanticEntity, boolean replace, long enqueueNanos) {
+    }
+
+    private final BlockingQueue<QueuedSemantic> queue;
+    private final BatchIndexer batchIndexer;
+    private final Thread[] workers;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    /**
+     * Sequences of the semantics queued and not yet indexed. Every semantic with a sequence below the lowest of
+     * them has been indexed.
+     */
+    private final ConcurrentSkipListSet<Long> unfinished = new ConcurrentSkipListSet<>();
+    private final Object drainMonitor = new Object();
+    private volatile boolean running = true;
+
+    IndexingPipeline(int workerCount, int queueCapacity, BatchIndexer batchIndexer) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchIndexer = batchIndexer;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "Lucene indexer " + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    void enqueue(SemanticEntity semanticEntity) {
+        enqueue(semanticEntity, false);
+    }
+
+    /**
+     * Queues a semantic for a rebuild of the index, replacing the document an earlier rebuild wrote for it.
+     */
+    void enqueueReplacement(SemanticEntity semanticEntity) {
+        enqueue(semanticEntity, true);
+    }
+
+    private void enqueue(SemanticEntity semanticEntity, boolean replace) {
+        long sequence = enqueued.incrementAndGet();
+        unfinished.add(sequence);
+        QueuedSemantic queuedSemantic = new QueuedSemantic(sequence, semanticEntity, replace, System.nanoTime());
+        try {
+            queue.put(queuedSemantic);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Index on the caller's thread rather than lose the semantic.
+            indexBatch(List.of(queuedSemantic));
+        }
+    }
+
+    private void work() {
+        List<QueuedSemantic> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedSemantic first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                indexBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void indexBatch(List<QueuedSemantic> batch) {
+        try {
+            List<SemanticEntity> additions = new ArrayList<>(batch.size());
+            List<SemanticEntity> replacements = new ArrayList<>();
+            for (QueuedSemantic queuedSemantic : batch) {
+                if (queuedSemantic.replace()) {
+                    replacements.add(queuedSemantic.semanticEntity());
+                } else {
+                    additions.add(queuedSemantic.semanticEntity());
+                }
+            }
+            batchIndexer.index(additions, replacements);
+        } catch (RuntimeException e) {
+            LOG.error("Exception indexing " + batch.size() + " semantics", e);
+        } finally {
+            indexed.addAndGet(batch.size());
+            for (QueuedSemantic queuedSemantic : batch) {
+                unfinished.remove(queuedSemantic.sequence());
+            }
+            synchronized (drainMonitor) {
+                drainMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until every semantic enqueued before this call has been passed to the batch indexer, whatever was
+     * enqueued after it and however the workers interleave.
+     */
+    void drain() {
+        long target = enqueued.get();
+        synchronized (drainMonitor) {
+            while (!indexedThrough(target)) {
+                try {
+                    drainMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOG.warn("Interrupted while draining the indexing queue; " +
+                            unfinished.headSet(target, true).size() + " semantics not yet indexed");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if every semantic with a sequence up to the given one has been indexed
+     */
+    private boolean indexedThrough(long sequence) {
+        Long lowestUnfinished = unfinished.ceiling(Long.MIN_VALUE);
+        return lowestUnfinished == null || lowestUnfinished > sequence;
+    }
+
+    /**
+     * Drains the queue and stops the workers.
+     */
+    void close() {
+        drain();
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    IndexingMetrics metrics() {
+        QueuedSemantic oldest = queue.peek();
+        long lagNanos = oldest == null ? 0 : System.nanoTime() - oldest.enqueueNanos();
+        return new IndexingMetrics(queue.size(), enqueued.get(), indexed.get(), lagNanos);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import org.apache.lucene.index.FilterMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentInfos;
+
+import java.io.IOException;
+
+/**
+ * Merge policy that selects no natural merges while paused, so a bulk load only flushes segments. The writer's
+ * configuration cannot swap merge policies on a live writer, so the pause is a flag on a wrapper installed when
+ * the writer is opened.
+ */
+class PausableMergePolicy extends FilterMergePolicy {
+    private volatile boolean paused = false;
+
+    PausableMergePolicy(MergePolicy in) {
+        super(in);
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos,
+                                         MergeContext mergeContext) throws IOException {
+        if (paused) {
+            return null;
+        }
+        return super.findMerges(mergeTrigger, segmentInfos, mergeContext);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+/**
+ * Point in time view of the background refresh of the {@link Searcher}.
+ *
+ * @param refreshes          refreshes that opened a new searcher since startup.
+ * @param refreshNanos       total time spent in those refreshes.
+ * @param maxRefreshNanos    longest of those refreshes.
+ * @param latestGeneration   index writer sequence number of the most recently indexed document.
+ * @param searchingGeneration sequence number visible to newly acquired searchers.
+ */
+public record SearchRefreshMetrics(long refreshes, long refreshNanos, long maxRefreshNanos,
+                                   long latestGeneration, long searchingGeneration) {
+
+    /**
+     * @return index writer operations not yet visible to search, or zero if search is current.
+     */
+    public long generationsBehind() {
+        return Math.max(0, latestGeneration - searchingGeneration);
+    }
+
+    public double averageRefreshMillis() {
+        if (refreshes == 0) {
+            return 0;
+        }
+        return refreshNanos / 1_000_000.0 / refreshes;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchRefreshMetrics{refreshes=" + refreshes +
+                ", averageRefreshMillis=" + String.format("%.3f", averageRefreshMillis()) +
+                ", maxRefreshMillis=" + String.format("%.3f", maxRefreshNanos / 1_000_000.0) +
+                ", generationsBehind=" + generationsBehind() + "}";
+    }
+}
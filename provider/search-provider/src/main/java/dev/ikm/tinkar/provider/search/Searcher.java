@@ -19,6 +19,9 @@
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.component.Component;
 import dev.ikm.tinkar.coordinate.Calculators;
@@ -38,29 +41,46 @@
 import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.highlight.Formatter;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
 import org.apache.lucene.search.highlight.NullFragmenter;
 import org.apache.lucene.search.highlight.QueryScorer;
 import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.util.BytesRef;
 import org.eclipse.collections.impl.factory.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Searcher {
     private static final Logger LOG = LoggerFactory.getLogger(Searcher.class);
@@ -68,31 +88,100 @@ public class Searcher {
     public static final EntityProxy.Pattern DIAGNOSTIC_DEVICE_PATTERN = EntityProxy.Pattern.make(null, UUID.fromString("a507b3c7-eadb-5d54-84c0-c44f3155d0bc"));
     public static final EntityProxy.Pattern QUANTITATIVE_ALLOWED_RESULT_SET_PATTERN = EntityProxy.Pattern.make(null, UUID.fromString("9d40d06b-7776-5a56-97e4-0c27f5d574c7"));
     public static final EntityProxy.Pattern QUALITATIVE_ALLOWED_RESULT_SET_PATTERN = EntityProxy.Pattern.make(null, UUID.fromString("160a63a6-3cba-510e-83d1-235822045885"));
+    private static final Duration DEFAULT_MAX_STALENESS = Duration.ofSeconds(1);
+    /**
+     * Target staleness while a caller is blocked in {@link #waitForGeneration(long)}.
+     */
+    private static final double MIN_STALENESS_SECONDS = 0.01;
+    /**
+     * Longest time an identifier lookup waits for the thread's own identifier writes to become searchable.
+     */
+    private static final Duration MAX_IDENTIFIER_WAIT = Duration.ofSeconds(30);
     QueryParser parser;
-    private static final SearcherManager searcherManager;
+    private static volatile SearcherManager searcherManager;
+    private static volatile ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private static final AtomicLong refreshes = new AtomicLong();
+    private static final AtomicLong refreshNanos = new AtomicLong();
+    private static final AtomicLong maxRefreshNanos = new AtomicLong();
 
     //TODO - refactor this class to not have static fields. Currently needed when using this SearcherManager class.
-    static {
-        try {
-            searcherManager = new SearcherManager(Indexer.indexReader(), null);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     public Searcher() throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Opening lucene searcher");
         this.parser = new QueryParser("text", Indexer.analyzer());
+        openRefresher();
         stopwatch.stop();
         LOG.info("Opened lucene searcher in: " + stopwatch.durationString());
     }
 
+    /**
+     * Opens a searcher manager on the index the current {@link Indexer} opened, and starts its background refresh.
+     * Each open index gets its own, which {@link Indexer#close()} stops, so a provider that is stopped and started
+     * again searches the index it reopened.
+     */
+    private static synchronized void openRefresher() throws IOException {
+        if (reopenThread != null) {
+            closeRefresher();
+        }
+        refreshes.set(0);
+        refreshNanos.set(0);
+        maxRefreshNanos.set(0);
+        SearcherManager manager = new SearcherManager(Indexer.indexReader(), null);
+        manager.addListener(new ReferenceManager.RefreshListener() {
+            private long refreshStart;
+
+            @Override
+            public void beforeRefresh() {
+                refreshStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    long elapsed = System.nanoTime() - refreshStart;
+                    refreshes.incrementAndGet();
+                    refreshNanos.addAndGet(elapsed);
+                    maxRefreshNanos.accumulateAndGet(elapsed, Math::max);
+                }
+            }
+        });
+        Duration maxStaleness = ServiceProperties.get(ServiceKeys.SEARCH_MAX_STALENESS, DEFAULT_MAX_STALENESS);
+        // Searches acquire whatever searcher is current; refreshing in the background keeps
+        // reopening segments out of the query path.
+        ControlledRealTimeReopenThread<IndexSearcher> thread = new ControlledRealTimeReopenThread<>(
+                Indexer.indexWriter(), manager, maxStaleness.toNanos() / 1_000_000_000.0, MIN_STALENESS_SECONDS);
+        thread.setName("Lucene NRT reopen");
+        thread.setDaemon(true);
+        thread.start();
+        searcherManager = manager;
+        reopenThread = thread;
+    }
+
     public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize) throws
             ParseException, IOException, InvalidTokenOffsetsException {
-        boolean refreshOutcome = searcherManager.maybeRefresh();
-        LOG.debug("Index Reader refresh outcome = {}", refreshOutcome);
-        IndexSearcher indexSearcher = searcherManager.acquire();
+        return search(queryString, maxResultSize, null, null);
+    }
+
+    /**
+     * Search restricted to documents whose referenced component and pattern nids are in the given sets. The sets
+     * are applied as non scoring filter clauses of the Lucene query, so only matching documents are scored and
+     * maxResultSize applies after filtering. An index written before the nid points were indexed is searched
+     * without the clauses and its results filtered, until it is rebuilt.
+     *
+     * @param queryString the query string
+     * @param maxResultSize the maximum number of results
+     * @param referencedComponentNids allowed referenced component nids, or null for no restriction
+     * @param patternNids allowed pattern nids, or null for no restriction
+     * @return the search results
+     */
+    public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize,
+                                              IntIdSet referencedComponentNids, IntIdSet patternNids) throws
+            ParseException, IOException, InvalidTokenOffsetsException {
+        if (!Indexer.formatCurrent() && (referencedComponentNids != null || patternNids != null)) {
+            return postFilteredSearch(queryString, maxResultSize, referencedComponentNids, patternNids);
+        }
+        SearcherManager manager = openSearcherManager();
+        IndexSearcher indexSearcher = manager.acquire();
         try {
             if (queryString != null & !queryString.isEmpty()) {
                 PrimitiveDataSearchResult[] results;
@@ -102,7 +191,11 @@ public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize)
                     Highlighter highlighter = new Highlighter(formatter, scorer);
                     highlighter.setTextFragmenter(new NullFragmenter());
 
-                    ScoreDoc[] hits = indexSearcher.search(query, maxResultSize).scoreDocs;
+                    Query filteredQuery = filteredQuery(query, referencedComponentNids, patternNids);
+                    if (filteredQuery == null) {
+                        return new PrimitiveDataSearchResult[0];
+                    }
+                    ScoreDoc[] hits = indexSearcher.search(filteredQuery, maxResultSize).scoreDocs;
                     results = new PrimitiveDataSearchResult[hits.length];
                     for (int i = 0; i < hits.length; i++) {
                         Document hitDoc = indexSearcher.doc(hits[i].doc);
@@ -119,11 +212,135 @@ public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize)
                 return results;
             }
         } finally {
-            searcherManager.release(indexSearcher);
+            manager.release(indexSearcher);
         }
         return new PrimitiveDataSearchResult[0];
     }
 
+    private PrimitiveDataSearchResult[] postFilteredSearch(String queryString, int maxResultSize,
+                                                           IntIdSet referencedComponentNids, IntIdSet patternNids) throws
+            ParseException, IOException, InvalidTokenOffsetsException {
+        try {
+            return PrimitiveDataService.postFilteredSearch(this::search, queryString, maxResultSize,
+                    referencedComponentNids, patternNids);
+        } catch (ParseException | IOException | InvalidTokenOffsetsException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Blocks until documents indexed up to the given generation are visible to search. Editors can pass
+     * {@link Indexer#latestGeneration()} after a commit so their own changes are found by the next search.
+     *
+     * @param generation an index writer sequence number
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void waitForGeneration(long generation) throws InterruptedException {
+        openReopenThread().waitForGeneration(generation);
+    }
+
+    /**
+     * Waits up to maxWait until documents indexed up to the given generation are visible to search.
+     *
+     * @param generation an index writer sequence number
+     * @param maxWait    the longest time to wait
+     * @return true if the generation is visible, false if maxWait elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean waitForGeneration(long generation, Duration maxWait) throws InterruptedException {
+        return openReopenThread().waitForGeneration(generation, (int) Math.min(Integer.MAX_VALUE, maxWait.toMillis()));
+    }
+
+    /**
+     * Blocks until every semantic queued for indexing so far is visible to search.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void waitForLatestGeneration() throws InterruptedException {
+        Indexer.drain();
+        waitForGeneration(Indexer.latestGeneration());
+    }
+
+    /**
+     * Waits up to maxWait until every semantic queued for indexing so far is visible to search. The wait for the
+     * indexing queue itself is not bounded.
+     *
+     * @param maxWait the longest time to wait for the searcher to refresh
+     * @return true if they are visible, false if maxWait elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean waitForLatestGeneration(Duration maxWait) throws InterruptedException {
+        Indexer.drain();
+        return waitForGeneration(Indexer.latestGeneration(), maxWait);
+    }
+
+    public static SearchRefreshMetrics refreshMetrics() {
+        return new SearchRefreshMetrics(refreshes.get(), refreshNanos.get(), maxRefreshNanos.get(),
+                Indexer.latestGeneration(), openReopenThread().getSearchingGen());
+    }
+
+    private static SearcherManager openSearcherManager() {
+        SearcherManager manager = searcherManager;
+        if (manager == null) {
+            throw new IllegalStateException("The lucene index is not open");
+        }
+        return manager;
+    }
+
+    private static ControlledRealTimeReopenThread<IndexSearcher> openReopenThread() {
+        ControlledRealTimeReopenThread<IndexSearcher> thread = reopenThread;
+        if (thread == null) {
+            throw new IllegalStateException("The lucene index is not open");
+        }
+        return thread;
+    }
+
+    /**
+     * Stops the background refresh and closes the searcher manager. Called by {@link Indexer#close()} before the
+     * index is closed.
+     */
+    static synchronized void closeRefresher() {
+        if (reopenThread != null) {
+            reopenThread.close();
+            reopenThread = null;
+        }
+        if (searcherManager != null) {
+            try {
+                searcherManager.close();
+            } catch (IOException e) {
+                LOG.error("Exception closing lucene searcher manager", e);
+            }
+            searcherManager = null;
+        }
+    }
+
+    /**
+     * @return the query with a filter clause for each non-null nid set, or null if a nid set is empty and
+     * nothing can match
+     */
+    private static Query filteredQuery(Query query, IntIdSet referencedComponentNids, IntIdSet patternNids) {
+        if (referencedComponentNids == null && patternNids == null) {
+            return query;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(query, BooleanClause.Occur.MUST);
+        if (referencedComponentNids != null) {
+            if (referencedComponentNids.isEmpty()) {
+                return null;
+            }
+            builder.add(IntPoint.newSetQuery(Indexer.RC_NID_POINT, referencedComponentNids.toArray()), BooleanClause.Occur.FILTER);
+        }
+        if (patternNids != null) {
+            if (patternNids.isEmpty()) {
+                return null;
+            }
+            builder.add(IntPoint.newSetQuery(Indexer.PATTERN_NID_POINT, patternNids.toArray()), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
     /**
      * Returns a default navigation calculator with coordinates for
      * inferred navigation, active stamps on development path, & english synonyms
@@ -388,6 +605,26 @@ public static List<PublicId> membersOf(PublicId memberPatternId) {
      * @return  Optional wrapped PublicId for the Concept associated with the Semantic containing the identifier source and value
      */
     public static Optional<PublicId> getPublicId(PublicId identifierSource, String identifierValue) {
+        if (identifierValue == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getPublicIds(identifierSource, List.of(identifierValue)).get(identifierValue));
+    }
+
+    /**
+     * Returns the PublicIds of the Concepts associated with Semantics containing the given identifier source and
+     * any of the given values. Candidate semantics are found with a single term query against the identifier keys
+     * of the index, and each candidate is confirmed against its latest version with the default view calculator,
+     * so the cost is proportional to the number of values rather than the number of identifier semantics.
+     * Identifiers this thread queued for indexing before the call are found; identifiers written by other threads
+     * are found once they are searchable, or after {@link #waitForLatestGeneration()}. An index written before
+     * identifier keys were indexed is not searched; the identifier semantics are scanned instead until it is rebuilt.
+     *
+     * @param   identifierSource PublicId identifierSource
+     * @param   identifierValues String identifierValues
+     * @return  Map from each identifier value that was found to the PublicId of the Concept it identifies
+     */
+    public static Map<String, PublicId> getPublicIds(PublicId identifierSource, Collection<String> identifierValues) {
         ViewCalculator viewCalc = Calculators.View.Default();
         Latest<PatternEntityVersion> latestIdPattern = viewCalc.latestPatternEntityVersion(TinkarTerm.IDENTIFIER_PATTERN);
 
@@ -395,24 +632,89 @@ public static Optional<PublicId> getPublicId(PublicId identifierSource, String i
             throw new RuntimeException("Identifier Pattern is absent from data set");
         }
 
+        Map<String, PublicId> publicIds = new HashMap<>();
+        if (identifierSource == null || identifierValues.isEmpty() || !PrimitiveData.get().hasPublicId(identifierSource)) {
+            return publicIds;
+        }
+        int identifierSourceNid = EntityService.get().nidForPublicId(identifierSource);
+        Set<String> valuesToFind = new HashSet<>();
+        List<BytesRef> identifierKeys = new ArrayList<>(identifierValues.size());
+        for (String identifierValue : identifierValues) {
+            if (identifierValue != null && valuesToFind.add(identifierValue)) {
+                identifierKeys.add(new BytesRef(Indexer.identifierKey(identifierSourceNid, identifierValue)));
+            }
+        }
+
         try {
-            int[] semanticNids = EntityService.get().semanticNidsOfPattern(TinkarTerm.IDENTIFIER_PATTERN.nid());
-            for (int nid : semanticNids) {
-                EntityVersion entityVersion = viewCalc.latest(nid).get();
-                if (entityVersion instanceof SemanticEntityVersion semanticEntityVersion) {
+            int[] candidateNids;
+            if (Indexer.formatCurrent()) {
+                if (Indexer.hasPendingIdentifierWrites()) {
+                    if (waitForLatestGeneration(MAX_IDENTIFIER_WAIT)) {
+                        Indexer.clearPendingIdentifierWrites();
+                    } else {
+                        LOG.warn("Identifiers written by this thread were not searchable within " + MAX_IDENTIFIER_WAIT);
+                    }
+                }
+                candidateNids = identifierSemanticNids(new TermInSetQuery(Indexer.IDENTIFIER_KEY, identifierKeys));
+            } else {
+                candidateNids = EntityService.get().semanticNidsOfPattern(TinkarTerm.IDENTIFIER_PATTERN.nid());
+            }
+            for (int nid : candidateNids) {
+                Latest<EntityVersion> latest = viewCalc.latest(nid);
+                if (latest.isPresent() && latest.get() instanceof SemanticEntityVersion semanticEntityVersion) {
                     Object idValue = latestIdPattern.get().getFieldWithMeaning(TinkarTerm.IDENTIFIER_VALUE, semanticEntityVersion);
-                    if (identifierValue != null && identifierValue.equals(idValue)) {
+                    if (idValue instanceof String identifierValue && valuesToFind.contains(identifierValue)) {
                         Component idSource = latestIdPattern.get().getFieldWithMeaning(TinkarTerm.IDENTIFIER_SOURCE, semanticEntityVersion);
-                        if (identifierSource != null && idSource != null && PublicId.equals(idSource.publicId(), identifierSource)) {
-                            return Optional.of(semanticEntityVersion.referencedComponent().publicId());
+                        if (idSource != null && PublicId.equals(idSource.publicId(), identifierSource)) {
+                            publicIds.putIfAbsent(identifierValue, semanticEntityVersion.referencedComponent().publicId());
                         }
                     }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while resolving identifiers");
         } catch (Exception e) {
             LOG.error("Encountered exception {}", e.getMessage());
         }
 
-        return Optional.empty();
+        return publicIds;
+    }
+
+    /**
+     * @return the nids of every semantic whose document matches the query, in no particular order
+     */
+    private static int[] identifierSemanticNids(Query query) throws IOException {
+        SearcherManager manager = openSearcherManager();
+        IndexSearcher indexSearcher = manager.acquire();
+        try {
+            List<Integer> docIds = new ArrayList<>();
+            indexSearcher.search(query, new SimpleCollector() {
+                private int docBase;
+
+                @Override
+                protected void doSetNextReader(LeafReaderContext context) {
+                    docBase = context.docBase;
+                }
+
+                @Override
+                public void collect(int doc) {
+                    docIds.add(docBase + doc);
+                }
+
+                @Override
+                public ScoreMode scoreMode() {
+                    return ScoreMode.COMPLETE_NO_SCORES;
+                }
+            });
+            int[] nids = new int[docIds.size()];
+            for (int i = 0; i < nids.length; i++) {
+                Document hitDoc = indexSearcher.doc(docIds.get(i));
+                nids[i] = hitDoc.getField(Indexer.NID).numericValue().intValue();
+            }
+            return nids;
+        } finally {
+            manager.release(indexSearcher);
+        }
     }
 }
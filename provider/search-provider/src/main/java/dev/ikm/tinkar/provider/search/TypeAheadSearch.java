@@ -16,35 +16,54 @@
 
 package dev.ikm.tinkar.provider.search;
 
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.LatestVersionSearchResult;
 import dev.ikm.tinkar.terms.ConceptFacade;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.search.spell.LuceneDictionary;
 import org.apache.lucene.search.suggest.Lookup;
 import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
-import org.apache.lucene.search.suggest.analyzing.FuzzySuggester;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead suggestions over the terms of the search index.
+ * <p>
+ * The main suggester is rebuilt over the whole index in the background, at most once per
+ * {@link ServiceKeys#TYPE_AHEAD_REBUILD_INTERVAL}, however many semantics are indexed in between. Terms of semantics
+ * indexed since the last rebuild started are kept in a small in-memory delta and merged into each lookup, so
+ * recent edits are suggested immediately and indexing a semantic costs only the analysis of its text.
+ */
 public class TypeAheadSearch {
     private static final Logger LOG = LoggerFactory.getLogger(TypeAheadSearch.class);
     private static final String TEXT_FIELD_NAME = "text";
+    private static final Duration DEFAULT_REBUILD_INTERVAL = Duration.ofSeconds(30);
 
-    private AnalyzingSuggester suggester;
-    private FuzzySuggester fuzzySuggester;
-    private DirectoryReader reader;
-
-    // TODO -- remove this flag once we add the necessary komet makes use of the bulk upload methods in EntityService
-    private boolean enabled = false;
+    private volatile AnalyzingSuggester suggester;
+    private final NavigableSet<String> recentTerms = new ConcurrentSkipListSet<>();
+    private final Duration rebuildInterval;
+    private ScheduledFuture<?> scheduledRebuild;
+    private boolean closed = false;
 
     private static TypeAheadSearch typeAheadSearch = null;
     public static synchronized TypeAheadSearch get() {
@@ -55,36 +74,93 @@ public static synchronized TypeAheadSearch get() {
     }
 
     private TypeAheadSearch() {
-        if (!enabled) {
-            LOG.warn("Type Ahead Suggesting is disabled.");
-        }
+        this.rebuildInterval = ServiceProperties.get(ServiceKeys.TYPE_AHEAD_REBUILD_INTERVAL, DEFAULT_REBUILD_INTERVAL);
     }
 
+    /**
+     * Rebuilds the main suggester over the whole index now, on the calling thread.
+     */
     public void buildSuggester() throws IOException {
-        if (!enabled) {
-            return;
-        }
         Stopwatch stopwatch = new Stopwatch();
-        reader = DirectoryReader.open(Indexer.indexWriter());
-        LuceneDictionary dict = new LuceneDictionary(reader, TEXT_FIELD_NAME);
-        suggester = new AnalyzingSuggester(Indexer.indexDirectory(), "suggest", Indexer.analyzer());
-        suggester.build(dict);
+        // Terms indexed from here on may be missed by the new suggester, so only earlier ones leave the delta.
+        Set<String> coveredTerms = Set.copyOf(recentTerms);
+        AnalyzingSuggester newSuggester = new AnalyzingSuggester(Indexer.indexDirectory(), "suggest", Indexer.analyzer());
+        try (DirectoryReader reader = DirectoryReader.open(Indexer.indexWriter())) {
+            newSuggester.build(new LuceneDictionary(reader, TEXT_FIELD_NAME));
+        }
+        suggester = newSuggester;
+        recentTerms.removeAll(coveredTerms);
         LOG.debug("TypeAheadSearch index build duration: {}", stopwatch.durationString());
     }
 
-    public void close() {
-        if (reader != null) {
-            try {
-                reader.close();
+    /**
+     * Records the text of a newly indexed semantic. Its terms are suggested at once from the delta, and a
+     * background rebuild is scheduled unless one is already pending.
+     *
+     * @param texts the text values added to the index for the semantic
+     */
+    public void indexed(Iterable<String> texts) {
+        for (String text : texts) {
+            try (TokenStream tokenStream = Indexer.analyzer().tokenStream(TEXT_FIELD_NAME, text)) {
+                CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+                tokenStream.reset();
+                while (tokenStream.incrementToken()) {
+                    recentTerms.add(term.toString());
+                }
+                tokenStream.end();
             } catch (IOException e) {
-                LOG.error("Caught Exception closing reader {}", e.getMessage());
+                LOG.error("Encountered exception {}", e.getMessage());
+            }
+        }
+        scheduleRebuild();
+    }
+
+    private synchronized void scheduleRebuild() {
+        if (closed || (scheduledRebuild != null && !scheduledRebuild.isDone())) {
+            return;
+        }
+        scheduledRebuild = TinkExecutor.scheduled().schedule(() -> {
+            try {
+                buildSuggester();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Type-ahead suggester rebuild failed: {}", e.getMessage());
+            }
+        }, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (scheduledRebuild != null) {
+            scheduledRebuild.cancel(false);
+        }
+        // The next index opened gets a fresh suggester.
+        synchronized (TypeAheadSearch.class) {
+            if (typeAheadSearch == this) {
+                typeAheadSearch = null;
             }
         }
     }
 
-    private List<String> suggest(String term, int maxResults) throws IOException {
-        List<Lookup.LookupResult> lookup = suggester.lookup(term, false, maxResults);
-        return lookup.stream().map(a -> a.key.toString()).collect(Collectors.toList());
+    List<String> suggest(String term, int maxResults) throws IOException {
+        AnalyzingSuggester currentSuggester = suggester;
+        if (currentSuggester == null) {
+            // Nothing built yet, for example right after a load; suggest from the delta until the rebuild completes.
+            scheduleRebuild();
+        }
+        Set<String> suggestions = new LinkedHashSet<>();
+        if (currentSuggester != null) {
+            for (Lookup.LookupResult result : currentSuggester.lookup(term, false, maxResults)) {
+                suggestions.add(result.key.toString());
+            }
+        }
+        String prefix = term.strip().toLowerCase(Locale.ROOT);
+        for (String recentTerm : recentTerms.tailSet(prefix)) {
+            if (suggestions.size() >= maxResults || !recentTerm.startsWith(prefix)) {
+                break;
+            }
+            suggestions.add(recentTerm);
+        }
+        return new ArrayList<>(suggestions);
     }
 
     /**
@@ -15,5 +15,189 @@
  */
 package dev.ikm.tinkar.provider.search;
 
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static dev.ikm.tinkar.provider.search.SearchTestData.newNid;
+import static dev.ikm.tinkar.provider.search.SearchTestData.semantic;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of an in memory index, without an entity store.
+ */
 public class IndexerTest {
+    private Indexer indexer;
+    private Searcher searcher;
+
+    @BeforeAll
+    static void selectDataService() {
+        SearchTestData.installDataService();
+        Indexer.loadPhase = () -> false;
+        // Long enough that only an explicit wait makes new documents searchable, or rebuilds the suggester,
+        // within a test.
+        ServiceProperties.set(ServiceKeys.SEARCH_MAX_STALENESS, Duration.ofMinutes(5));
+        ServiceProperties.set(ServiceKeys.TYPE_AHEAD_REBUILD_INTERVAL, Duration.ofMinutes(5));
+    }
+
+    @BeforeEach
+    void openIndex() throws IOException {
+        indexer = new Indexer();
+        searcher = new Searcher();
+    }
+
+    @AfterEach
+    void closeIndex() throws IOException {
+        indexer.close();
+    }
+
+    @Test
+    void filterAppliesMaxResultSizeAfterFiltering() throws Exception {
+        int patternNid = newNid();
+        int otherComponentNid = newNid();
+        int wantedComponentNid = newNid();
+        for (int i = 0; i < 20; i++) {
+            indexer.index(semantic(patternNid, otherComponentNid, "alpha alpha alpha"));
+        }
+        for (int i = 0; i < 10; i++) {
+            indexer.index(semantic(patternNid, wantedComponentNid, "alpha beta gamma delta"));
+        }
+        Searcher.waitForLatestGeneration();
+
+        // Unfiltered, the best matches are all of the other component.
+        for (PrimitiveDataSearchResult result : searcher.search("alpha", 5)) {
+            assertEquals(otherComponentNid, result.rcNid());
+        }
+
+        PrimitiveDataSearchResult[] results = searcher.search("alpha", 5, IntIds.set.of(wantedComponentNid), null);
+        assertEquals(5, results.length);
+        for (PrimitiveDataSearchResult result : results) {
+            assertEquals(wantedComponentNid, result.rcNid());
+        }
+        assertEquals(10, searcher.search("alpha", 50,
+                IntIds.set.of(wantedComponentNid), IntIds.set.of(patternNid)).length);
+        assertEquals(0, searcher.search("alpha", 50,
+                IntIds.set.of(wantedComponentNid), IntIds.set.of(newNid())).length);
+    }
+
+    @Test
+    void waitForGenerationMakesIndexedDocumentVisible() throws Exception {
+        indexer.index(semantic(newNid(), newNid(), "zeppelin"));
+        Indexer.drain();
+        long generation = Indexer.latestGeneration();
+        assertTrue(generation > 0);
+
+        assertTrue(Searcher.waitForGeneration(generation, Duration.ofSeconds(30)));
+        assertEquals(1, searcher.search("zeppelin", 10).length);
+    }
+
+    @Test
+    void deltaTermsSuggestedBeforeRebuild() throws Exception {
+        indexer.index(semantic(newNid(), newNid(), "Xylophonist"));
+        Indexer.drain();
+
+        assertTrue(TypeAheadSearch.get().suggest("xylo", 10).contains("xylophonist"));
+        assertFalse(TypeAheadSearch.get().suggest("zyl", 10).contains("xylophonist"));
+
+        TypeAheadSearch.get().buildSuggester();
+        assertTrue(TypeAheadSearch.get().suggest("xylo", 10).contains("xylophonist"));
+    }
+
+    @Test
+    void drainAndCommitIncludeEveryQueuedSemantic() throws Exception {
+        int threads = 4;
+        int semanticsPerThread = 500;
+        int patternNid = newNid();
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            writers.add(() -> {
+                for (int j = 0; j < semanticsPerThread; j++) {
+                    indexer.index(semantic(patternNid, newNid(), "text " + j));
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        indexer.commit();
+        try (DirectoryReader reader = DirectoryReader.open(Indexer.indexDirectory())) {
+            assertEquals(threads * semanticsPerThread, reader.numDocs());
+        }
+    }
+
+    @Test
+    void identifierSemanticsIndexedByKey() throws Exception {
+        EntityProxy source = EntityProxy.make(newNid());
+        EntityProxy otherSource = EntityProxy.make(newNid());
+        // A later version changes the value, and both are keyed; the view decides which is current.
+        SemanticRecord identifier = semantic(TinkarTerm.IDENTIFIER_PATTERN.nid(), newNid(),
+                new Object[]{source, "A-1"}, new Object[]{source, "A-2"});
+        indexer.index(identifier);
+        assertTrue(Indexer.hasPendingIdentifierWrites());
+        Indexer.clearPendingIdentifierWrites();
+        indexer.index(semantic(newNid(), newNid(), new Object[]{source, "A-3"}));
+        assertFalse(Indexer.hasPendingIdentifierWrites());
+        Indexer.drain();
+
+        try (DirectoryReader reader = DirectoryReader.open(Indexer.indexWriter())) {
+            IndexSearcher indexSearcher = new IndexSearcher(reader);
+            assertEquals(1, identifierCount(indexSearcher, source, "A-1"));
+            assertEquals(1, identifierCount(indexSearcher, source, "A-2"));
+            assertEquals(0, identifierCount(indexSearcher, source, "A-3"));
+            assertEquals(0, identifierCount(indexSearcher, otherSource, "A-1"));
+        }
+    }
+
+    @Test
+    void replacementsReplaceOnlyRebuiltDocuments() throws Exception {
+        SemanticRecord semantic = semantic(newNid(), newNid(), "rebuilt");
+        indexer.index(semantic);
+        Indexer.drain();
+        Indexer.replaceDocuments(List.of(semantic));
+        Indexer.replaceDocuments(List.of(semantic));
+        indexer.commit();
+
+        try (DirectoryReader reader = DirectoryReader.open(Indexer.indexDirectory())) {
+            IndexSearcher indexSearcher = new IndexSearcher(reader);
+            assertEquals(2, reader.numDocs());
+            assertEquals(1, indexSearcher.count(new TermQuery(
+                    new Term(Indexer.NID_KEY, Integer.toString(semantic.nid())))));
+        }
+    }
+
+    private static int identifierCount(IndexSearcher indexSearcher, EntityProxy source, String value)
+            throws IOException {
+        return indexSearcher.count(new TermQuery(
+                new Term(Indexer.IDENTIFIER_KEY, Indexer.identifierKey(source.nid(), value))));
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static dev.ikm.tinkar.provider.search.SearchTestData.newNid;
+import static dev.ikm.tinkar.provider.search.SearchTestData.semantic;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexingPipelineTest {
+
+    @Test
+    void drainWaitsForEarlierSemanticsWhileOthersAreQueued() throws InterruptedException {
+        Set<SemanticEntity> indexed = ConcurrentHashMap.newKeySet();
+        // Batches take varying time, so workers finish them out of order.
+        IndexingPipeline pipeline = new IndexingPipeline(4, 64, (additions, replacements) -> {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            indexed.addAll(additions);
+            indexed.addAll(replacements);
+        });
+        AtomicBoolean producing = new AtomicBoolean(true);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread producer = new Thread(() -> {
+                while (producing.get()) {
+                    pipeline.enqueue(semantic(newNid(), newNid(), "other"));
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        try {
+            for (int i = 0; i < 200; i++) {
+                SemanticEntity own = semantic(newNid(), newNid(), "own");
+                if (i % 2 == 0) {
+                    pipeline.enqueue(own);
+                } else {
+                    pipeline.enqueueReplacement(own);
+                }
+                pipeline.drain();
+                assertTrue(indexed.contains(own), "drain returned before semantic " + i + " was indexed");
+            }
+        } finally {
+            producing.set(false);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            pipeline.close();
+        }
+        IndexingMetrics metrics = pipeline.metrics();
+        assertEquals(metrics.enqueued(), metrics.indexed());
+        assertEquals(metrics.enqueued(), indexed.size());
+    }
+
+    @Test
+    void failedBatchDoesNotBlockDrain() {
+        IndexingPipeline pipeline = new IndexingPipeline(2, 16, (additions, replacements) -> {
+            throw new IllegalStateException("index unavailable");
+        });
+        for (int i = 0; i < 50; i++) {
+            pipeline.enqueue(semantic(newNid(), newNid(), "failing"));
+        }
+        pipeline.drain();
+        assertEquals(50, pipeline.metrics().indexed());
+        pipeline.close();
+    }
+}
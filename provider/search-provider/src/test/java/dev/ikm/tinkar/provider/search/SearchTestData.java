@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import dev.ikm.tinkar.common.service.DataServiceController;
+import dev.ikm.tinkar.common.service.DataUriOption;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import org.eclipse.collections.api.factory.Lists;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Semantics and a stand-in data service for tests of the index, which run without an entity store. The data
+ * service only assigns nids to uuids, which the indexer needs for the nid of the identifier pattern.
+ */
+final class SearchTestData {
+    private static final int STAMP_NID = Integer.MIN_VALUE + 1;
+    private static final AtomicInteger nextNid = new AtomicInteger(Integer.MIN_VALUE + 2);
+    private static final Map<UUID, Integer> nidsForUuids = new ConcurrentHashMap<>();
+
+    private SearchTestData() {
+    }
+
+    static int newNid() {
+        return nextNid.getAndIncrement();
+    }
+
+    /**
+     * @return a semantic with one version for each array of field values
+     */
+    static SemanticRecord semantic(int patternNid, int referencedComponentNid, Object[]... versionFields) {
+        UUID uuid = UUID.randomUUID();
+        RecordListBuilder<SemanticVersionRecord> versions = RecordListBuilder.make();
+        SemanticRecord semantic = new SemanticRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                null, newNid(), patternNid, referencedComponentNid, versions);
+        for (Object[] fields : versionFields) {
+            versions.add(new SemanticVersionRecord(semantic, STAMP_NID, Lists.immutable.of(fields)));
+        }
+        versions.build();
+        return semantic;
+    }
+
+    static SemanticRecord semantic(int patternNid, int referencedComponentNid, String text) {
+        return semantic(patternNid, referencedComponentNid, new Object[]{text});
+    }
+
+    /**
+     * Selects a data service that assigns a new nid to each uuid it has not seen, and supports nothing else.
+     */
+    static void installDataService() {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            if (method.getName().equals("nidForUuids")) {
+                UUID uuid = args[0] instanceof UUID[] uuids ? uuids[0] :
+                        (UUID) ((Iterable<?>) args[0]).iterator().next();
+                return nidsForUuids.computeIfAbsent(uuid, key -> newNid());
+            }
+            throw new UnsupportedOperationException(method.getName());
+        };
+        PrimitiveDataService dataService = (PrimitiveDataService) Proxy.newProxyInstance(
+                SearchTestData.class.getClassLoader(), new Class<?>[]{PrimitiveDataService.class}, handler);
+        PrimitiveData.setController(new DataServiceController<PrimitiveDataService>() {
+            @Override
+            public boolean isValidDataLocation(String name) {
+                return false;
+            }
+
+            @Override
+            public void setDataUriOption(DataUriOption option) {
+            }
+
+            @Override
+            public String controllerName() {
+                return "Search test data service";
+            }
+
+            @Override
+            public Class<? extends PrimitiveDataService> serviceClass() {
+                return PrimitiveDataService.class;
+            }
+
+            @Override
+            public boolean running() {
+                return true;
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+
+            @Override
+            public void save() {
+            }
+
+            @Override
+            public void reload() {
+            }
+
+            @Override
+            public PrimitiveDataService provider() {
+                return dataService;
+            }
+        });
+    }
+}